@@ -0,0 +1,166 @@
+package com.codeking123.android.sunshine;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.data.ForecastDayCache;
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
+import com.codeking123.android.sunshine.utilities.FakeDataUtils;
+import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
+import com.codeking123.android.sunshine.utils.MicroBenchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.Executor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Scrolls through a forecast of 100,000 days, as the forecast list binds it, from pages and from
+ * a single Cursor over every day. Run it on a device and read the results with
+ * "adb logcat -s SunshineBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class ForecastPagerBenchmark {
+
+    private static final int DAYS = 100000;
+
+    private static final int OPEN_ITERATIONS = 5;
+
+    private static final String SORT_BY_DATE = WeatherEntry.COLUMN_DATE + " ASC";
+
+    /* Loads and delivers pages on the calling thread, so a page is there once it is asked for */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final ForecastPager.Callback IGNORE_PAGES = new ForecastPager.Callback() {
+        @Override
+        public void onPageLoaded(int firstPosition, int count) {
+        }
+    };
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final ContentResolver mResolver = mContext.getContentResolver();
+
+    private String mSelection;
+
+
+    @Before
+    public void setUp() {
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        long today = SunshineDateUtils.getNormalizedUtcDateForToday();
+        assertEquals(DAYS, FakeDataUtils.insertSyntheticData(mContext,
+                FakeDataUtils.DEFAULT_SEED, 0, today, DAYS));
+        mSelection = WeatherEntry.getSqlSelectForTodayOnwards();
+    }
+
+
+    @After
+    public void tearDown() {
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+    }
+
+
+    /*
+     * The work done before the first row can be shown: counting the days and loading the first
+     * page, against running the query over every day and counting its rows.
+     */
+    @Test
+    public void benchmarkOpen() {
+        MicroBenchmark.run("open/paged/" + DAYS, 1, OPEN_ITERATIONS,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        ForecastPager pager = createPager(queryCount());
+                        return pager.getPage(0).weatherIds[0];
+                    }
+                });
+
+        MicroBenchmark.run("open/cursor/" + DAYS, 1, OPEN_ITERATIONS,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        Cursor cursor = queryEveryDay();
+                        try {
+                            return cursor.getCount();
+                        } finally {
+                            cursor.close();
+                        }
+                    }
+                });
+    }
+
+
+    /*
+     * Binds every row from top to bottom, checking that no more than the pages around the row
+     * being bound are ever held.
+     */
+    @Test
+    public void benchmarkScroll() {
+        final ForecastPager pager = createPager(queryCount());
+        final int maxPagesKept = 2 * ForecastPager.PAGES_KEPT_AROUND + 1;
+
+        MicroBenchmark.run("scroll/paged/" + DAYS, 0, DAYS, new MicroBenchmark.Operation() {
+            @Override
+            public int run(int position) {
+                ForecastPager.Page page = pager.getPage(position);
+                assertTrue(pager.getPagesKept() <= maxPagesKept);
+                return page.weatherIds[position - page.firstPosition];
+            }
+        });
+
+        final Cursor cursor = queryEveryDay();
+        try {
+            MicroBenchmark.run("scroll/cursor/" + DAYS, 0, DAYS, new MicroBenchmark.Operation() {
+                @Override
+                public int run(int position) {
+                    cursor.moveToPosition(position);
+                    return cursor.getInt(DetailActivity.INDEX_WEATHER_CONDITION_ID);
+                }
+            });
+        } finally {
+            cursor.close();
+        }
+    }
+
+
+    private ForecastPager createPager(int count) {
+        ForecastPager pager = new ForecastPager(mResolver, ForecastDayCache.getInstance(mContext),
+                IGNORE_PAGES, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        pager.reset(mSelection, count);
+        return pager;
+    }
+
+
+    private int queryCount() {
+        Cursor cursor = mResolver.query(WeatherEntry.COUNT_URI, null, mSelection, null, null);
+        assertNotNull(cursor);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+
+    /* With the columns pages hold, so both sides read the same data */
+    private Cursor queryEveryDay() {
+        Cursor cursor = mResolver.query(WeatherEntry.CONTENT_URI,
+                DetailActivity.WEATHER_DETAIL_PROJECTION, mSelection, null, SORT_BY_DATE);
+        assertNotNull(cursor);
+        return cursor;
+    }
+}
@@ -0,0 +1,57 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.geo.City;
+import com.codeking123.android.sunshine.core.geo.CityCatalog;
+import com.codeking123.android.sunshine.utils.MicroBenchmark;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Times the suggestions the location setting shows as a city is typed, and resolving the one
+ * picked. Run it on a device and read the results with "adb logcat -s SunshineBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class CityCatalogAssetBenchmark {
+
+    /* What is typed on the way to a few cities, a character at a time */
+    private static final String[] TYPED = {
+            "l", "lo", "lon", "lond", "s", "sa", "sai", "sain", "saint", "saint ", "saint e",
+            "m", "mo", "mou", "moun", "n", "ne", "new", "new ", "new y", "z", "zu", "zür"};
+
+    private static final String[] LABELS = {
+            "London, GB", "Saint-Étienne, FR", "Mountain View, US", "New York City, US",
+            "Zürich, CH", "Springfield, US"};
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+
+    @Test
+    public void benchmarkSuggest() {
+        final CityCatalog catalog = CityCatalogAsset.getInstance(mContext);
+        MicroBenchmark.run("cities/suggest", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                return catalog.suggest(TYPED[iteration % TYPED.length],
+                        CityCatalog.MAX_SUGGESTIONS).size();
+            }
+        });
+    }
+
+
+    @Test
+    public void benchmarkResolve() {
+        final CityCatalog catalog = CityCatalogAsset.getInstance(mContext);
+        MicroBenchmark.run("cities/resolve", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                City city = catalog.resolve(LABELS[iteration % LABELS.length]);
+                return city != null ? city.population : 0;
+            }
+        });
+    }
+}
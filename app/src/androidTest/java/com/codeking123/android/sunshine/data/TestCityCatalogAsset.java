@@ -0,0 +1,60 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.R;
+import com.codeking123.android.sunshine.core.geo.City;
+import com.codeking123.android.sunshine.core.geo.CityCatalog;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+
+@RunWith(AndroidJUnit4.class)
+public class TestCityCatalogAsset {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+
+    @Test
+    public void testReadsTheBundledCatalogueOnce() {
+        CityCatalog catalog = CityCatalogAsset.getInstance(mContext);
+        assertTrue(catalog.size() > 300);
+        assertSame(catalog, CityCatalogAsset.getInstance(mContext));
+    }
+
+
+    @Test
+    public void testSuggestionsResolveToTheirCoordinates() {
+        CityCatalog catalog = CityCatalogAsset.getInstance(mContext);
+
+        List<City> suggestions = catalog.suggest("Lon", CityCatalog.MAX_SUGGESTIONS);
+        assertFalse(suggestions.isEmpty());
+        assertEquals("London, GB", suggestions.get(0).getLabel());
+        for (char first = 'a'; first <= 'z'; first++) {
+            for (City city : catalog.suggest(String.valueOf(first), CityCatalog.MAX_SUGGESTIONS)) {
+                City resolved = catalog.resolve(city.getLabel());
+                assertNotNull(city.getLabel(), resolved);
+                assertEquals(city.latitude, resolved.latitude, 0);
+                assertEquals(city.longitude, resolved.longitude, 0);
+            }
+        }
+
+        City mountainView = catalog.resolve("Mountain View, US");
+        assertEquals(37.39, mountainView.latitude, 0.01);
+        assertEquals(-122.08, mountainView.longitude, 0.01);
+        /* The default location isn't a label, so it is still sent to the server to look up */
+        assertNull(catalog.resolve(mContext.getString(R.string.pref_location_default)));
+    }
+}
@@ -0,0 +1,141 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
+import com.codeking123.android.sunshine.utils.PollingCheck;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.Callable;
+
+import static com.codeking123.android.sunshine.data.TestUtilities.DATE_NORMALIZED;
+import static com.codeking123.android.sunshine.data.TestUtilities.createBulkInsertTestWeatherValues;
+import static com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry.COLUMN_DATE;
+import static com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry.CONTENT_URI;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+
+@RunWith(AndroidJUnit4.class)
+public class TestForecastDayCache {
+
+    private static final long DAY = SunshineDateUtils.DAY_IN_MILLIS;
+
+    private static final long TIMEOUT_MILLIS = 3000;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final ContentResolver mResolver = mContext.getContentResolver();
+
+    private ForecastDayCache mCache;
+
+
+    @Before
+    public void setUp() {
+        mResolver.delete(CONTENT_URI, null, null);
+        mCache = ForecastDayCache.getInstance(mContext);
+        mCache.invalidate();
+    }
+
+
+    @After
+    public void tearDown() {
+        mResolver.delete(CONTENT_URI, null, null);
+    }
+
+
+    @Test
+    public void testDaysAreHandedOver() {
+        WeatherRecord day = createDay(DATE_NORMALIZED);
+        mCache.put(day, mCache.getVersion());
+
+        assertSame(day, mCache.get(DATE_NORMALIZED));
+        assertNull(mCache.get(DATE_NORMALIZED + DAY));
+    }
+
+
+    @Test
+    public void testDaysReadBeforeInvalidationAreRefused() {
+        int version = mCache.getVersion();
+        mCache.invalidate();
+
+        mCache.put(createDay(DATE_NORMALIZED), version);
+        assertNull(mCache.get(DATE_NORMALIZED));
+    }
+
+
+    @Test
+    public void testLeastRecentlyUsedDaysAreDropped() {
+        int version = mCache.getVersion();
+        for (int i = 0; i < 100; i++) {
+            mCache.put(createDay(DATE_NORMALIZED + i * DAY), version);
+            /* Keep using the first day, so it stays */
+            assertNotNull(mCache.get(DATE_NORMALIZED));
+        }
+
+        assertNull(mCache.get(DATE_NORMALIZED + DAY));
+        assertNotNull(mCache.get(DATE_NORMALIZED + 99 * DAY));
+    }
+
+
+    @Test
+    public void testWeatherChangesInvalidate() throws Exception {
+        mCache.put(createDay(DATE_NORMALIZED), mCache.getVersion());
+
+        mResolver.bulkInsert(CONTENT_URI, createBulkInsertTestWeatherValues(1));
+
+        PollingCheck.check("The cache wasn't invalidated by a change to the weather",
+                TIMEOUT_MILLIS, new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return mCache.get(DATE_NORMALIZED) == null;
+                    }
+                });
+    }
+
+
+    @Test
+    public void testPrefetchLoadsNeighbours() throws Exception {
+        final ContentValues[] values = createBulkInsertTestWeatherValues(30);
+        mResolver.bulkInsert(CONTENT_URI, values);
+        /* Let the invalidation for the insert go by, or it could drop what is prefetched */
+        Thread.sleep(500);
+
+        final long center = values[15].getAsLong(COLUMN_DATE);
+        mCache.prefetchAround(center);
+
+        PollingCheck.check("The days around " + center + " weren't prefetched",
+                TIMEOUT_MILLIS, new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return mCache.get(center + ForecastDayCache.NEIGHBOURS * DAY) != null;
+                    }
+                });
+
+        for (int i = 15 - ForecastDayCache.NEIGHBOURS; i <= 15 + ForecastDayCache.NEIGHBOURS; i++) {
+            long date = values[i].getAsLong(COLUMN_DATE);
+            WeatherRecord day = mCache.get(date);
+            assertNotNull("Day " + i + " wasn't prefetched", day);
+            assertEquals(values[i].getAsDouble(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP),
+                    day.maxTemp, 0);
+            assertEquals(values[i].getAsDouble(WeatherContract.WeatherEntry.COLUMN_HUMIDITY),
+                    day.humidity, 0);
+        }
+        assertNull(mCache.get(values[15 + ForecastDayCache.NEIGHBOURS + 1].getAsLong(COLUMN_DATE)));
+    }
+
+
+    private static WeatherRecord createDay(long date) {
+        return new WeatherRecord(date, 800, 10, 20, 50, 1000, 5, 180);
+    }
+}
@@ -0,0 +1,188 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.text.format.DateUtils;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.geo.TileLookup;
+import com.codeking123.android.sunshine.core.metrics.SyncOutcome;
+import com.codeking123.android.sunshine.data.WeatherContract.SyncMetricsEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.TileEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.codeking123.android.sunshine.data.TestUtilities.createBulkInsertTestWeatherValues;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+@RunWith(AndroidJUnit4.class)
+public class TestForecastTileStore {
+
+    private static final long NOW = TestUtilities.DATE_NORMALIZED;
+    private static final long TTL_MILLIS = DateUtils.HOUR_IN_MILLIS;
+
+    /* Two points about 300 metres apart in London, and one in Paris */
+    private static final double[] WESTMINSTER = {51.5007, -0.1246};
+    private static final double[] CHARING_CROSS = {51.5033, -0.1195};
+    private static final double[] PARIS = {48.8566, 2.3522};
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final ContentResolver mResolver = mContext.getContentResolver();
+
+    @Before
+    public void setUp() {
+        SunshinePreferences.setTileCache(mContext, SunshinePreferences.DEFAULT_TILE_PRECISION,
+                TTL_MILLIS);
+        mResolver.delete(TileEntry.CONTENT_URI, null, null);
+        mResolver.delete(SyncMetricsEntry.CONTENT_URI, null, null);
+    }
+
+    @After
+    public void tearDown() {
+        SunshinePreferences.setTileCache(mContext, SunshinePreferences.DEFAULT_TILE_PRECISION,
+                SunshinePreferences.DEFAULT_TILE_TTL_MILLIS);
+    }
+
+    private String getTile(double[] coordinates) {
+        return ForecastTileStore.getTile(mContext, coordinates[0], coordinates[1]);
+    }
+
+    private void insertSync(String tile, TileLookup lookup) {
+        ContentValues values = new ContentValues();
+        values.put(SyncMetricsEntry.COLUMN_STARTED_AT, NOW);
+        values.put(SyncMetricsEntry.COLUMN_TOTAL_US, 1000);
+        values.put(SyncMetricsEntry.COLUMN_BYTES, 0);
+        values.put(SyncMetricsEntry.COLUMN_ROWS, 14);
+        values.put(SyncMetricsEntry.COLUMN_OUTCOME, SyncOutcome.SUCCESS.name());
+        values.put(SyncMetricsEntry.COLUMN_TILE, tile);
+        values.put(SyncMetricsEntry.COLUMN_TILE_LOOKUP, lookup != null ? lookup.name() : null);
+        mResolver.insert(SyncMetricsEntry.CONTENT_URI, values);
+    }
+
+
+    @Test
+    public void testNearbyLocationsShareATile() {
+        String westminster = getTile(WESTMINSTER);
+        assertNotNull(westminster);
+        assertEquals(SunshinePreferences.DEFAULT_TILE_PRECISION, westminster.length());
+        assertEquals(westminster, getTile(CHARING_CROSS));
+        assertFalse(westminster.equals(getTile(PARIS)));
+
+        /* A finer precision tells them apart */
+        SunshinePreferences.setTileCache(mContext, 7, TTL_MILLIS);
+        assertFalse(getTile(WESTMINSTER).equals(getTile(CHARING_CROSS)));
+    }
+
+
+    @Test
+    public void testSavedTileIsFreshUntilItsTimeToLive() {
+        String tile = getTile(WESTMINSTER);
+        assertEquals(TileLookup.MISS, ForecastTileStore.lookup(mContext, tile, NOW));
+        assertNull(ForecastTileStore.read(mContext, tile));
+
+        ContentValues[] days = createBulkInsertTestWeatherValues();
+        ForecastTileStore.save(mContext, tile, days, NOW);
+
+        /* Answered for a location nearby, until the forecast is an hour old */
+        String nearby = getTile(CHARING_CROSS);
+        assertEquals(TileLookup.HIT, ForecastTileStore.lookup(mContext, nearby, NOW));
+        assertEquals(TileLookup.HIT,
+                ForecastTileStore.lookup(mContext, nearby, NOW + TTL_MILLIS - 1));
+        assertEquals(TileLookup.EXPIRED,
+                ForecastTileStore.lookup(mContext, nearby, NOW + TTL_MILLIS));
+
+        ContentValues[] read = ForecastTileStore.read(mContext, nearby);
+        assertNotNull(read);
+        assertEquals(days.length, read.length);
+        for (int i = 0; i < days.length; i++) {
+            assertEquals(days[i].getAsLong(WeatherEntry.COLUMN_DATE),
+                    read[i].getAsLong(WeatherEntry.COLUMN_DATE));
+            assertEquals(days[i].getAsDouble(WeatherEntry.COLUMN_MAX_TEMP),
+                    read[i].getAsDouble(WeatherEntry.COLUMN_MAX_TEMP));
+            assertEquals(days[i].getAsInteger(WeatherEntry.COLUMN_WEATHER_ID),
+                    read[i].getAsInteger(WeatherEntry.COLUMN_WEATHER_ID));
+        }
+
+        /* Another tile is still a miss */
+        assertEquals(TileLookup.MISS, ForecastTileStore.lookup(mContext, getTile(PARIS), NOW));
+    }
+
+
+    @Test
+    public void testSavingAgainReplacesTheForecast() {
+        String tile = getTile(WESTMINSTER);
+        ForecastTileStore.save(mContext, tile, createBulkInsertTestWeatherValues(14), NOW);
+        ForecastTileStore.save(mContext, tile, createBulkInsertTestWeatherValues(7),
+                NOW + TTL_MILLIS);
+
+        assertEquals(7, ForecastTileStore.read(mContext, tile).length);
+        assertEquals(TileLookup.HIT,
+                ForecastTileStore.lookup(mContext, tile, NOW + TTL_MILLIS + 1));
+    }
+
+
+    @Test
+    public void testKeepsOnlyTheMostRecentTiles() {
+        int tiles = WeatherSchema.MAX_TILES + 8;
+        for (int i = 0; i < tiles; i++) {
+            /* A degree of latitude apart, so each is a tile of its own */
+            String tile = ForecastTileStore.getTile(mContext, i, 0);
+            ForecastTileStore.save(mContext, tile, createBulkInsertTestWeatherValues(3), NOW + i);
+        }
+
+        Cursor cursor = mResolver.query(TileEntry.CONTENT_URI, null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals(WeatherSchema.MAX_TILES, cursor.getCount());
+        cursor.close();
+
+        String first = ForecastTileStore.getTile(mContext, 0, 0);
+        String last = ForecastTileStore.getTile(mContext, tiles - 1, 0);
+        assertEquals("The tiles fetched first should have been dropped", TileLookup.MISS,
+                ForecastTileStore.lookup(mContext, first, NOW));
+        assertNull(ForecastTileStore.read(mContext, first));
+        assertEquals(3, ForecastTileStore.read(mContext, last).length);
+    }
+
+
+    @Test
+    public void testTileCacheHitRate() {
+        String tile = getTile(WESTMINSTER);
+        insertSync(tile, TileLookup.MISS);
+        insertSync(tile, TileLookup.HIT);
+        insertSync(tile, TileLookup.HIT);
+        insertSync(tile, TileLookup.EXPIRED);
+        insertSync(tile, TileLookup.HIT);
+        /* A location known only by name has no tile, and doesn't count */
+        insertSync(null, null);
+
+        Cursor cursor = mResolver.query(SyncMetricsEntry.TILE_CACHE_URI, null, null, null, null);
+        assertNotNull(cursor);
+        cursor.moveToFirst();
+        assertEquals(3, cursor.getLong(cursor.getColumnIndex(SyncMetricsEntry.COLUMN_HITS)));
+        assertEquals(1, cursor.getLong(cursor.getColumnIndex(SyncMetricsEntry.COLUMN_EXPIRED)));
+        assertEquals(1, cursor.getLong(cursor.getColumnIndex(SyncMetricsEntry.COLUMN_MISSES)));
+        assertEquals(0.6,
+                cursor.getDouble(cursor.getColumnIndex(SyncMetricsEntry.COLUMN_HIT_RATE)), 1e-9);
+        cursor.close();
+
+        /* The 3 most recent syncs: one without a tile, a hit and an expired tile */
+        Cursor recent = mResolver.query(SyncMetricsEntry.buildTileCacheUri(3), null, null, null,
+                null);
+        assertNotNull(recent);
+        recent.moveToFirst();
+        assertEquals(0.5,
+                recent.getDouble(recent.getColumnIndex(SyncMetricsEntry.COLUMN_HIT_RATE)), 1e-9);
+        recent.close();
+    }
+}
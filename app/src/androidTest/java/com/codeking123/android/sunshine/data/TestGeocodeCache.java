@@ -0,0 +1,122 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.metrics.SyncOutcome;
+import com.codeking123.android.sunshine.data.WeatherContract.GeocodeEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.SyncMetricsEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+@RunWith(AndroidJUnit4.class)
+public class TestGeocodeCache {
+
+    private static final long NOW = TestUtilities.DATE_NORMALIZED;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final ContentResolver mResolver = mContext.getContentResolver();
+
+    @Before
+    public void setUp() {
+        mResolver.delete(GeocodeEntry.CONTENT_URI, null, null);
+        mResolver.delete(SyncMetricsEntry.CONTENT_URI, null, null);
+    }
+
+    private void insertSync(String geocodeQuery, boolean geocodeHit) {
+        ContentValues values = new ContentValues();
+        values.put(SyncMetricsEntry.COLUMN_STARTED_AT, NOW);
+        values.put(SyncMetricsEntry.COLUMN_TOTAL_US, 1000);
+        values.put(SyncMetricsEntry.COLUMN_BYTES, 0);
+        values.put(SyncMetricsEntry.COLUMN_ROWS, 14);
+        values.put(SyncMetricsEntry.COLUMN_OUTCOME, SyncOutcome.SUCCESS.name());
+        values.put(SyncMetricsEntry.COLUMN_GEOCODE_QUERY, geocodeQuery);
+        values.put(SyncMetricsEntry.COLUMN_GEOCODE_HIT, geocodeHit ? 1 : 0);
+        mResolver.insert(SyncMetricsEntry.CONTENT_URI, values);
+    }
+
+
+    @Test
+    public void testSavedLocationIsFoundHoweverItIsTyped() {
+        String query = GeocodeCache.normalize("Saint-Étienne, FR");
+        assertEquals("saint etienne fr", query);
+        assertNull(GeocodeCache.normalize(" , "));
+        assertNull(GeocodeCache.lookup(mContext, query, NOW));
+
+        GeocodeCache.save(mContext, query, 45.4339, 4.3900, NOW);
+
+        double[] coordinates = GeocodeCache.lookup(mContext,
+                GeocodeCache.normalize("saint etienne  fr"), NOW + 1);
+        assertNotNull(coordinates);
+        assertEquals(45.4339, coordinates[0], 1e-9);
+        assertEquals(4.3900, coordinates[1], 1e-9);
+        assertNull(GeocodeCache.lookup(mContext, GeocodeCache.normalize("Saint-Étienne"), NOW));
+
+        /* Resolved again, to somewhere else */
+        GeocodeCache.save(mContext, query, 45.0, 4.0, NOW + 2);
+        assertEquals(45.0, GeocodeCache.lookup(mContext, query, NOW + 3)[0], 1e-9);
+    }
+
+
+    @Test
+    public void testKeepsOnlyTheMostRecentlyUsedLocations() {
+        int locations = WeatherSchema.MAX_GEOCODES + 8;
+        for (int i = 0; i < locations; i++) {
+            GeocodeCache.save(mContext, "place " + i, i, 0, NOW + i);
+            /* The first location is used every time, so it is never the least recently used */
+            assertNotNull(GeocodeCache.lookup(mContext, "place 0", NOW + i));
+        }
+
+        Cursor cursor = mResolver.query(GeocodeEntry.CONTENT_URI, null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals(WeatherSchema.MAX_GEOCODES, cursor.getCount());
+        cursor.close();
+
+        assertNotNull(GeocodeCache.lookup(mContext, "place 0", NOW + locations));
+        assertNull("The locations used longest ago should have been dropped",
+                GeocodeCache.lookup(mContext, "place 1", NOW + locations));
+        assertNotNull(GeocodeCache.lookup(mContext, "place " + (locations - 1),
+                NOW + locations));
+    }
+
+
+    @Test
+    public void testGeocodeCacheHitRate() {
+        insertSync("london", false);
+        insertSync("paris", false);
+        insertSync("london", true);
+        /* A location whose coordinates were known looked nothing up, and doesn't count */
+        insertSync(null, false);
+        insertSync("paris", true);
+
+        Cursor cursor = mResolver.query(SyncMetricsEntry.GEOCODE_CACHE_URI, null, null, null,
+                null);
+        assertNotNull(cursor);
+        cursor.moveToFirst();
+        assertEquals(2, cursor.getLong(cursor.getColumnIndex(SyncMetricsEntry.COLUMN_HITS)));
+        assertEquals(2, cursor.getLong(cursor.getColumnIndex(SyncMetricsEntry.COLUMN_MISSES)));
+        assertEquals(0.5,
+                cursor.getDouble(cursor.getColumnIndex(SyncMetricsEntry.COLUMN_HIT_RATE)), 1e-9);
+        cursor.close();
+
+        /* The 3 most recent syncs: a hit, one that looked nothing up and a hit */
+        Cursor recent = mResolver.query(SyncMetricsEntry.buildGeocodeCacheUri(3), null, null,
+                null, null);
+        assertNotNull(recent);
+        recent.moveToFirst();
+        assertEquals(1.0,
+                recent.getDouble(recent.getColumnIndex(SyncMetricsEntry.COLUMN_HIT_RATE)), 1e-9);
+        recent.close();
+    }
+}
@@ -0,0 +1,150 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.geo.Geohash;
+import com.codeking123.android.sunshine.data.WeatherContract.LocationEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TestLocationSearch {
+
+    private static final String LONDON = "London";
+    private static final String BRUSSELS = "Brussels";
+    private static final String PARIS = "Paris";
+    private static final String AMSTERDAM = "Amsterdam";
+    private static final String NEW_YORK = "New York";
+    /* Either side of the 180th meridian, about 290 km apart */
+    private static final String SUVA = "Suva";
+    private static final String LAKEBA = "Lakeba";
+
+    private static final String NAME_IS_NOT = LocationEntry.COLUMN_NAME + " != ?";
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final ContentResolver mResolver = mContext.getContentResolver();
+
+    @Before
+    public void setUp() {
+        mResolver.delete(LocationEntry.CONTENT_URI, null, null);
+        mResolver.bulkInsert(LocationEntry.CONTENT_URI, new ContentValues[]{
+                createLocationValues(LONDON, 51.5074, -0.1278),
+                createLocationValues(BRUSSELS, 50.8503, 4.3517),
+                createLocationValues(PARIS, 48.8566, 2.3522),
+                createLocationValues(AMSTERDAM, 52.3676, 4.9041),
+                createLocationValues(NEW_YORK, 40.7128, -74.0060),
+                createLocationValues(SUVA, -18.1248, 178.4501),
+                createLocationValues(LAKEBA, -18.2, -178.8),
+        });
+    }
+
+    private static ContentValues createLocationValues(String name, double latitude,
+                                                      double longitude) {
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_NAME, name);
+        values.put(LocationEntry.COLUMN_LATITUDE, latitude);
+        values.put(LocationEntry.COLUMN_LONGITUDE, longitude);
+        return values;
+    }
+
+    /* Checks the names of the locations found, in order, and that they are nearest first */
+    private void assertFound(Uri uri, String selection, String[] selectionArgs,
+                             String... expectedNames) {
+        Cursor cursor = mResolver.query(uri, null, selection, selectionArgs, null);
+        assertNotNull(cursor);
+        try {
+            assertEquals(uri.toString(), expectedNames.length, cursor.getCount());
+            int nameIndex = cursor.getColumnIndex(LocationEntry.COLUMN_NAME);
+            int distanceIndex = cursor.getColumnIndex(LocationEntry.COLUMN_DISTANCE);
+            double lastDistance = 0;
+            for (String expectedName : expectedNames) {
+                cursor.moveToNext();
+                assertEquals(expectedName, cursor.getString(nameIndex));
+                assertTrue(cursor.getDouble(distanceIndex) >= lastDistance);
+                lastDistance = cursor.getDouble(distanceIndex);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+
+    @Test
+    public void testInsertIndexesTheCoordinates() {
+        Cursor cursor = mResolver.query(LocationEntry.CONTENT_URI, null,
+                LocationEntry.COLUMN_NAME + " = ?", new String[]{LONDON}, null);
+        assertNotNull(cursor);
+        assertEquals(1, cursor.getCount());
+        cursor.moveToFirst();
+        assertEquals(Geohash.encode(51.5074, -0.1278, WeatherSchema.LOCATION_GEOHASH_PRECISION),
+                cursor.getString(cursor.getColumnIndex(LocationEntry.COLUMN_GEOHASH)));
+        cursor.close();
+
+        /* A location of the same name replaces it, and moves it in the index */
+        mResolver.insert(LocationEntry.CONTENT_URI, createLocationValues(LONDON, 40.7, -74.0));
+        Cursor all = mResolver.query(LocationEntry.CONTENT_URI, null, null, null, null);
+        assertNotNull(all);
+        assertEquals(7, all.getCount());
+        all.close();
+        assertFound(LocationEntry.buildNearestUri(40.7128, -74.0060, 2), null, null,
+                NEW_YORK, LONDON);
+    }
+
+
+    @Test
+    public void testFindsTheLocationsWithinARadius() {
+        /* Brussels is 321 km from London, Paris 344 km and Amsterdam 358 km */
+        assertFound(LocationEntry.buildWithinUri(51.5074, -0.1278, 350000), null, null,
+                LONDON, BRUSSELS, PARIS);
+        assertFound(LocationEntry.buildWithinUri(51.5074, -0.1278, 350000), NAME_IS_NOT,
+                new String[]{LONDON}, BRUSSELS, PARIS);
+        assertFound(LocationEntry.buildWithinUri(0, 0, 1000000), null, null);
+
+        Cursor cursor = mResolver.query(LocationEntry.buildWithinUri(51.5074, -0.1278, 330000),
+                new String[]{LocationEntry.COLUMN_DISTANCE, LocationEntry.COLUMN_NAME},
+                null, null, null);
+        assertNotNull(cursor);
+        assertEquals(2, cursor.getColumnCount());
+        assertEquals(2, cursor.getCount());
+        cursor.moveToPosition(1);
+        assertEquals(BRUSSELS, cursor.getString(1));
+        assertEquals(321e3, cursor.getDouble(0), 1e3);
+        cursor.close();
+    }
+
+
+    @Test
+    public void testFindsTheNearestLocations() {
+        assertFound(LocationEntry.buildNearestUri(52.3676, 4.9041, 2), null, null,
+                AMSTERDAM, BRUSSELS);
+        assertFound(LocationEntry.buildNearestUri(52.3676, 4.9041, 3), NAME_IS_NOT,
+                new String[]{AMSTERDAM}, BRUSSELS, LONDON, PARIS);
+        /* Within 100 km there is only the one */
+        assertFound(LocationEntry.buildNearestUri(52.3676, 4.9041, 3, 100000), null, null,
+                AMSTERDAM);
+        /* Far from anywhere, the nearest is still found */
+        assertFound(LocationEntry.buildNearestUri(-60, -30, 1), null, null, LAKEBA);
+    }
+
+
+    @Test
+    public void testSearchesAcrossTheAntimeridian() {
+        assertFound(LocationEntry.buildNearestUri(-18.2, -178.8, 1), NAME_IS_NOT,
+                new String[]{LAKEBA}, SUVA);
+        assertFound(LocationEntry.buildWithinUri(-18.1248, 178.4501, 300000), null, null,
+                SUVA, LAKEBA);
+    }
+}
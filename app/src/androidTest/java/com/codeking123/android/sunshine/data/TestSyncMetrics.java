@@ -0,0 +1,175 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.metrics.SyncOutcome;
+import com.codeking123.android.sunshine.core.metrics.SyncPhase;
+import com.codeking123.android.sunshine.data.WeatherContract.SyncMetricsEntry;
+import com.codeking123.android.sunshine.sync.SyncMetricsStore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TestSyncMetrics {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final ContentResolver mResolver = mContext.getContentResolver();
+
+    @Before
+    public void setUp() {
+        mResolver.delete(SyncMetricsEntry.CONTENT_URI, null, null);
+    }
+
+    /* A sync that took i milliseconds in total and i microseconds to parse, and stored i rows */
+    private static ContentValues createSyncMetricsValues(int i, SyncOutcome outcome) {
+        ContentValues values = new ContentValues();
+        values.put(SyncMetricsEntry.COLUMN_STARTED_AT, TestUtilities.DATE_NORMALIZED + i);
+        values.put(SyncMetricsEntry.COLUMN_TOTAL_US, i * 1000L);
+        values.put(SyncPhase.PARSE.getColumnName(), i);
+        values.put(SyncMetricsEntry.COLUMN_BYTES, 4096);
+        values.put(SyncMetricsEntry.COLUMN_ROWS, i);
+        values.put(SyncMetricsEntry.COLUMN_OUTCOME, outcome.name());
+        return values;
+    }
+
+    private static void assertSummaryRow(Cursor summary, String metric, int samples,
+                                         long p50, long p95, long p99) {
+        assertTrue("No summary of " + metric, moveToMetric(summary, metric));
+        assertEquals(metric, samples,
+                summary.getInt(summary.getColumnIndex(SyncMetricsEntry.COLUMN_SAMPLES)));
+        assertEquals(metric, p50,
+                summary.getLong(summary.getColumnIndex(SyncMetricsEntry.COLUMN_P50)));
+        assertEquals(metric, p95,
+                summary.getLong(summary.getColumnIndex(SyncMetricsEntry.COLUMN_P95)));
+        assertEquals(metric, p99,
+                summary.getLong(summary.getColumnIndex(SyncMetricsEntry.COLUMN_P99)));
+    }
+
+    private static boolean moveToMetric(Cursor summary, String metric) {
+        int metricColumn = summary.getColumnIndex(SyncMetricsEntry.COLUMN_METRIC);
+        for (summary.moveToFirst(); !summary.isAfterLast(); summary.moveToNext()) {
+            if (metric.equals(summary.getString(metricColumn))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    @Test
+    public void testInsertAndQuery() {
+        Uri inserted = mResolver.insert(SyncMetricsEntry.CONTENT_URI,
+                createSyncMetricsValues(7, SyncOutcome.SUCCESS));
+        assertNotNull(inserted);
+
+        Cursor cursor = mResolver.query(SyncMetricsEntry.CONTENT_URI, null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals(1, cursor.getCount());
+        cursor.moveToFirst();
+        assertEquals(SyncOutcome.SUCCESS.name(),
+                cursor.getString(cursor.getColumnIndex(SyncMetricsEntry.COLUMN_OUTCOME)));
+        assertTrue("A phase that wasn't recorded should be NULL",
+                cursor.isNull(cursor.getColumnIndex(SyncPhase.CONNECT.getColumnName())));
+        cursor.close();
+    }
+
+
+    @Test
+    public void testPhaseAddedAfterTheSyncWasRecorded() {
+        Uri first = mResolver.insert(SyncMetricsEntry.CONTENT_URI,
+                createSyncMetricsValues(1, SyncOutcome.SUCCESS));
+        Uri second = mResolver.insert(SyncMetricsEntry.CONTENT_URI,
+                createSyncMetricsValues(2, SyncOutcome.SUCCESS));
+        assertNotNull(first);
+        assertNotNull(second);
+
+        SyncMetricsStore.savePhase(mContext, first, SyncPhase.NOTIFICATION_BUILD,
+                TimeUnit.MILLISECONDS.toNanos(12));
+
+        Cursor cursor = mResolver.query(SyncMetricsEntry.CONTENT_URI,
+                new String[]{SyncPhase.NOTIFICATION_BUILD.getColumnName()},
+                null,
+                null,
+                SyncMetricsEntry.COLUMN_ROWS + " ASC");
+        assertNotNull(cursor);
+        assertEquals(2, cursor.getCount());
+        cursor.moveToFirst();
+        assertEquals(12000, cursor.getLong(0));
+        cursor.moveToNext();
+        assertTrue("Only the sync given should have been updated", cursor.isNull(0));
+        cursor.close();
+    }
+
+
+    @Test
+    public void testTableKeepsOnlyRecentSyncs() {
+        int syncs = WeatherSchema.MAX_SYNC_METRICS + 50;
+        for (int i = 1; i <= syncs; i++) {
+            mResolver.insert(SyncMetricsEntry.CONTENT_URI,
+                    createSyncMetricsValues(i, SyncOutcome.SUCCESS));
+        }
+
+        Cursor cursor = mResolver.query(SyncMetricsEntry.CONTENT_URI,
+                new String[]{SyncMetricsEntry.COLUMN_ROWS},
+                null,
+                null,
+                SyncMetricsEntry.COLUMN_ROWS + " ASC");
+        assertNotNull(cursor);
+        assertEquals(WeatherSchema.MAX_SYNC_METRICS, cursor.getCount());
+        cursor.moveToFirst();
+        assertEquals("The oldest syncs should have been dropped", 51, cursor.getInt(0));
+        cursor.close();
+    }
+
+
+    @Test
+    public void testSummaryPercentiles() {
+        /* 100 successful syncs of 1 to 100 ms, interleaved with failures that got nowhere */
+        for (int i = 1; i <= 100; i++) {
+            mResolver.insert(SyncMetricsEntry.CONTENT_URI,
+                    createSyncMetricsValues(i, SyncOutcome.SUCCESS));
+            ContentValues failure = createSyncMetricsValues(1000, SyncOutcome.NETWORK_ERROR);
+            failure.putNull(SyncPhase.PARSE.getColumnName());
+            mResolver.insert(SyncMetricsEntry.CONTENT_URI, failure);
+        }
+
+        Cursor summary = mResolver.query(SyncMetricsEntry.SUMMARY_URI, null,
+                SyncMetricsEntry.COLUMN_OUTCOME + " = ?",
+                new String[]{SyncOutcome.SUCCESS.name()},
+                null);
+        assertNotNull(summary);
+        assertSummaryRow(summary, SyncMetricsEntry.COLUMN_TOTAL_US, 100, 50000, 95000, 99000);
+        assertSummaryRow(summary, SyncPhase.PARSE.getColumnName(), 100, 50, 95, 99);
+        assertSummaryRow(summary, SyncPhase.CONNECT.getColumnName(), 0, 0, 0, 0);
+        summary.close();
+
+        /* The failed syncs have no parse time, so they don't count as parse samples */
+        Cursor all = mResolver.query(SyncMetricsEntry.SUMMARY_URI, null, null, null, null);
+        assertNotNull(all);
+        assertSummaryRow(all, SyncMetricsEntry.COLUMN_TOTAL_US, 200, 100000, 1000000, 1000000);
+        assertSummaryRow(all, SyncPhase.PARSE.getColumnName(), 100, 50, 95, 99);
+        all.close();
+
+        /* The 10 most recent syncs are 5 failures and the successes of 96 to 100 ms */
+        Cursor recent = mResolver.query(SyncMetricsEntry.buildSummaryUri(10), null, null, null,
+                null);
+        assertNotNull(recent);
+        assertSummaryRow(recent, SyncPhase.PARSE.getColumnName(), 5, 98, 100, 100);
+        recent.close();
+    }
+}
@@ -93,13 +93,21 @@ class TestUtilities {
     }
 
     static ContentValues[] createBulkInsertTestWeatherValues() {
+        return createBulkInsertTestWeatherValues(BULK_INSERT_RECORDS_TO_INSERT);
+    }
+
+    /*
+     * Creates consecutive days of weather, starting the day after DATE_NORMALIZED, for tests and
+     * benchmarks that need more than the usual handful of records.
+     */
+    static ContentValues[] createBulkInsertTestWeatherValues(int recordsToInsert) {
 
-        ContentValues[] bulkTestWeatherValues = new ContentValues[BULK_INSERT_RECORDS_TO_INSERT];
+        ContentValues[] bulkTestWeatherValues = new ContentValues[recordsToInsert];
 
         long testDate = TestUtilities.DATE_NORMALIZED;
         long normalizedTestDate = SunshineDateUtils.normalizeDate(testDate);
 
-        for (int i = 0; i < BULK_INSERT_RECORDS_TO_INSERT; i++) {
+        for (int i = 0; i < recordsToInsert; i++) {
 
             normalizedTestDate += SunshineDateUtils.DAY_IN_MILLIS;
 
@@ -0,0 +1,161 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.db.WeatherConditionQuery;
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
+import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.codeking123.android.sunshine.data.TestUtilities.createBulkInsertTestWeatherValues;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TestWeatherConditions {
+
+    private static final long DAY = SunshineDateUtils.DAY_IN_MILLIS;
+
+    /* The weather code of each day stored: rain on days 1, 2 and 9, clear on days 4 and 7 */
+    private static final int[] WEATHER_IDS = {
+            321, 500, 522, 741, 800, 321, 741, 800, 321, 501, 321, 321, 321, 321, 321, 321};
+
+    /* The first day stored, as createBulkInsertTestWeatherValues starts the day after */
+    private static final long FIRST_DAY = TestUtilities.DATE_NORMALIZED + DAY;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final ContentResolver mResolver = mContext.getContentResolver();
+
+    private WeatherDbHelper mDbHelper;
+
+    @Before
+    public void setUp() {
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+
+        /* Highs of 75 up, one a day */
+        ContentValues[] days = createBulkInsertTestWeatherValues(WEATHER_IDS.length);
+        for (int i = 0; i < days.length; i++) {
+            days[i].put(WeatherEntry.COLUMN_WEATHER_ID, WEATHER_IDS[i]);
+        }
+        mResolver.bulkInsert(WeatherEntry.CONTENT_URI, days);
+
+        mDbHelper = new WeatherDbHelper(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        mDbHelper.close();
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+    }
+
+    /* The days of a query, counted from FIRST_DAY */
+    private List<Integer> queryDays(Uri uri) {
+        Cursor cursor = mResolver.query(uri, new String[]{WeatherEntry.COLUMN_DATE}, null, null,
+                null);
+        assertNotNull(cursor);
+        List<Integer> days = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            days.add((int) ((cursor.getLong(0) - FIRST_DAY) / DAY));
+        }
+        cursor.close();
+        return days;
+    }
+
+    /**
+     * Asserts that SQLite answers the query of the URI from an index, in date order, so it stops
+     * reading at the limit: no step scans the table or sorts what it read.
+     *
+     * @return The plan, one step a line
+     */
+    private String assertIndexedPlan(Uri uri) {
+        WeatherConditionQuery query = WeatherProvider.getConditionQuery(uri);
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + query.toSql(null),
+                query.selectionArgs);
+        StringBuilder plan = new StringBuilder();
+        try {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+
+        String steps = plan.toString();
+        assertTrue(steps, steps.startsWith("SEARCH"));
+        assertTrue(steps, steps.contains(" INDEX "));
+        assertFalse(steps, steps.contains("SCAN"));
+        assertFalse(steps, steps.contains("TEMP B-TREE"));
+        return steps;
+    }
+
+
+    @Test
+    public void testRainyDaysWithinAWindow() {
+        Uri rain = WeatherEntry.buildRainyDaysUri(FIRST_DAY, 14);
+        assertEquals("[1, 2, 9]", queryDays(rain).toString());
+        assertEquals("[1, 2]", queryDays(WeatherEntry.buildRainyDaysUri(FIRST_DAY, 9)).toString());
+        assertEquals("[1]", queryDays(WeatherEntry.buildConditionUri(500, 599, FIRST_DAY,
+                FIRST_DAY + 14 * DAY, 1)).toString());
+
+        assertIndexedPlan(rain);
+    }
+
+
+    @Test
+    public void testFirstClearDay() {
+        Uri firstClearDay = WeatherEntry.buildFirstClearDayUri(FIRST_DAY);
+        assertEquals("[4]", queryDays(firstClearDay).toString());
+        assertEquals("[7]", queryDays(
+                WeatherEntry.buildFirstClearDayUri(FIRST_DAY + 5 * DAY)).toString());
+        assertEquals("[]", queryDays(
+                WeatherEntry.buildFirstClearDayUri(FIRST_DAY + 8 * DAY)).toString());
+
+        /* A single code is a seek of the code's own index */
+        String plan = assertIndexedPlan(firstClearDay);
+        assertTrue(plan, plan.contains(WeatherEntry.TABLE_NAME + "_" +
+                WeatherEntry.COLUMN_WEATHER_ID));
+    }
+
+
+    @Test
+    public void testDaysWarmerThan() {
+        Uri warmer = WeatherEntry.buildWarmerUri(85.5, FIRST_DAY,
+                WeatherConditionQuery.NO_END_DATE, 3);
+        assertEquals("[11, 12, 13]", queryDays(warmer).toString());
+        assertEquals("[11]", queryDays(WeatherEntry.buildWarmerUri(85.5, FIRST_DAY,
+                FIRST_DAY + 12 * DAY, 3)).toString());
+
+        assertIndexedPlan(warmer);
+        assertIndexedPlan(WeatherEntry.buildWarmerUri(85.5, FIRST_DAY, FIRST_DAY + 12 * DAY, 3));
+    }
+
+
+    @Test
+    public void testSelectionRestrictsTheDays() {
+        Cursor cursor = mResolver.query(WeatherEntry.buildRainyDaysUri(FIRST_DAY, 14),
+                null, WeatherEntry.COLUMN_WEATHER_ID + " > ?", new String[]{"510"}, null);
+        assertNotNull(cursor);
+        assertEquals(1, cursor.getCount());
+        cursor.moveToFirst();
+        assertEquals(522, cursor.getInt(cursor.getColumnIndex(WeatherEntry.COLUMN_WEATHER_ID)));
+        cursor.close();
+    }
+}
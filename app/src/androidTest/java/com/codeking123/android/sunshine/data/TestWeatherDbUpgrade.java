@@ -0,0 +1,279 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.metrics.SyncPhase;
+import com.codeking123.android.sunshine.data.WeatherContract.GeocodeEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.LocationEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.SyncMetricsEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Upgrades databases left by older versions of the app, built here with the statements those
+ * versions created them with, and checks what the upgrade keeps.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestWeatherDbUpgrade {
+
+    private static final String DATABASE_NAME = "upgrade_test.db";
+
+    /* The sync metrics as version 4 created them, the notification timed as a single phase */
+    private static final String SQL_CREATE_SYNC_METRICS_TABLE_4 =
+            "CREATE TABLE sync_metrics (_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "started_at INTEGER NOT NULL, total_us INTEGER NOT NULL, url_build_us INTEGER, " +
+            "connect_us INTEGER, first_byte_us INTEGER, download_us INTEGER, parse_us INTEGER, " +
+            "db_delete_us INTEGER, db_insert_us INTEGER, notification_us INTEGER, " +
+            "bytes INTEGER NOT NULL, rows INTEGER NOT NULL, outcome TEXT NOT NULL);";
+
+    /* Version 5 timed building the notification apart, and had no endpoint columns yet */
+    private static final String SQL_CREATE_SYNC_METRICS_TABLE_5 =
+            "CREATE TABLE sync_metrics (_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "started_at INTEGER NOT NULL, total_us INTEGER NOT NULL, url_build_us INTEGER, " +
+            "connect_us INTEGER, first_byte_us INTEGER, download_us INTEGER, parse_us INTEGER, " +
+            "db_delete_us INTEGER, db_insert_us INTEGER, notification_us INTEGER, " +
+            "notification_build_us INTEGER, " +
+            "bytes INTEGER NOT NULL, rows INTEGER NOT NULL, outcome TEXT NOT NULL);";
+
+    /* Version 8, the last before the geocode cache, with the tile and endpoint columns */
+    private static final String SQL_CREATE_SYNC_METRICS_TABLE_8 =
+            "CREATE TABLE sync_metrics (_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "started_at INTEGER NOT NULL, total_us INTEGER NOT NULL, tile_lookup_us INTEGER, " +
+            "url_build_us INTEGER, connect_us INTEGER, first_byte_us INTEGER, " +
+            "download_us INTEGER, parse_us INTEGER, db_delete_us INTEGER, " +
+            "db_insert_us INTEGER, notification_us INTEGER, notification_build_us INTEGER, " +
+            "bytes INTEGER NOT NULL, rows INTEGER NOT NULL, outcome TEXT NOT NULL, " +
+            "endpoint TEXT, endpoint_latency_ms REAL, endpoint_error_rate REAL, " +
+            "hedge_endpoint TEXT, hedge_won INTEGER NOT NULL DEFAULT 0, tile TEXT, " +
+            "tile_lookup TEXT);";
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final WeatherDbHelper mHelper = new WeatherDbHelper(mContext);
+
+    private SQLiteDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        mContext.deleteDatabase(DATABASE_NAME);
+        File file = mContext.getDatabasePath(DATABASE_NAME);
+        file.getParentFile().mkdirs();
+        mDatabase = SQLiteDatabase.openOrCreateDatabase(file, null);
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    private void upgradeFrom(int oldVersion) {
+        mHelper.onUpgrade(mDatabase, oldVersion, WeatherSchema.DATABASE_VERSION);
+    }
+
+    private int count(String table) {
+        Cursor cursor = mDatabase.rawQuery("SELECT COUNT(*) FROM " + table, null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /* The tables, indices and triggers of a database, each with its columns if a table */
+    private static Set<String> describe(SQLiteDatabase database) {
+        Set<String> schema = new HashSet<>();
+        Cursor objects = database.rawQuery("SELECT type, name FROM sqlite_master " +
+                "WHERE name NOT LIKE 'sqlite_%' AND name != 'android_metadata'", null);
+        try {
+            while (objects.moveToNext()) {
+                String name = objects.getString(1);
+                schema.add(objects.getString(0) + " " + name);
+                if (!objects.getString(0).equals("table")) {
+                    continue;
+                }
+                Cursor columns = database.rawQuery("PRAGMA table_info(" + name + ")", null);
+                try {
+                    while (columns.moveToNext()) {
+                        schema.add(name + "." + columns.getString(columns.getColumnIndex("name")));
+                    }
+                } finally {
+                    columns.close();
+                }
+            }
+        } finally {
+            objects.close();
+        }
+        return schema;
+    }
+
+    private static ContentValues createSyncMetricsValues() {
+        ContentValues values = new ContentValues();
+        values.put(SyncMetricsEntry.COLUMN_STARTED_AT, 1475280000000L);
+        values.put(SyncMetricsEntry.COLUMN_TOTAL_US, 250000);
+        values.put(SyncMetricsEntry.COLUMN_BYTES, 4096);
+        values.put(SyncMetricsEntry.COLUMN_ROWS, 14);
+        values.put(SyncMetricsEntry.COLUMN_OUTCOME, "SUCCESS");
+        return values;
+    }
+
+
+    @Test
+    public void testUpgradeFromTheFirstVersionEndsLikeANewDatabase() {
+        /* Up to version 3 the weather table was the only one */
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_WEATHER_TABLE);
+
+        upgradeFrom(3);
+
+        SQLiteDatabase created = SQLiteDatabase.create(null);
+        try {
+            mHelper.onCreate(created);
+            assertEquals(describe(created), describe(mDatabase));
+        } finally {
+            created.close();
+        }
+    }
+
+
+    @Test
+    public void testUpgradeFromVersion4KeepsTheSyncsRecorded() {
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_WEATHER_TABLE);
+        mDatabase.execSQL(SQL_CREATE_SYNC_METRICS_TABLE_4);
+        ContentValues sync = createSyncMetricsValues();
+        sync.put(SyncPhase.NOTIFICATION.getColumnName(), 1200);
+        mDatabase.insertOrThrow(SyncMetricsEntry.TABLE_NAME, null, sync);
+
+        upgradeFrom(4);
+
+        /* Version 5 timed building the notification apart; older syncs didn't */
+        Cursor cursor = mDatabase.query(SyncMetricsEntry.TABLE_NAME, new String[]{
+                SyncPhase.NOTIFICATION.getColumnName(),
+                SyncPhase.NOTIFICATION_BUILD.getColumnName()}, null, null, null, null, null);
+        try {
+            assertEquals(1, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals(1200, cursor.getLong(0));
+            assertTrue(cursor.isNull(1));
+        } finally {
+            cursor.close();
+        }
+    }
+
+
+    @Test
+    public void testUpgradeFromVersion5RecordsNoHedgeForOlderSyncs() {
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_WEATHER_TABLE);
+        mDatabase.execSQL(SQL_CREATE_SYNC_METRICS_TABLE_5);
+        mDatabase.insertOrThrow(SyncMetricsEntry.TABLE_NAME, null, createSyncMetricsValues());
+
+        upgradeFrom(5);
+
+        /* Version 6 recorded the endpoint picked and the hedge, which older syncs had neither of */
+        Cursor cursor = mDatabase.query(SyncMetricsEntry.TABLE_NAME, new String[]{
+                SyncMetricsEntry.COLUMN_ENDPOINT,
+                SyncMetricsEntry.COLUMN_HEDGE_ENDPOINT,
+                SyncMetricsEntry.COLUMN_HEDGE_WON}, null, null, null, null, null);
+        try {
+            assertEquals(1, cursor.getCount());
+            cursor.moveToFirst();
+            assertTrue(cursor.isNull(0));
+            assertTrue(cursor.isNull(1));
+            assertEquals(0, cursor.getInt(2));
+        } finally {
+            cursor.close();
+        }
+    }
+
+
+    @Test
+    public void testUpgradeFromVersion8AddsTheGeocodeCache() {
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_WEATHER_TABLE);
+        mDatabase.execSQL(SQL_CREATE_SYNC_METRICS_TABLE_8);
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_SYNC_METRICS_TRIM_TRIGGER);
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_TILE_TABLE);
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_TILE_WEATHER_TABLE);
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_TILE_TRIM_TRIGGER);
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_LOCATION_TABLE);
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_LOCATION_GEOHASH_INDEX);
+        mDatabase.insertOrThrow(SyncMetricsEntry.TABLE_NAME, null, createSyncMetricsValues());
+
+        upgradeFrom(8);
+
+        SQLiteDatabase created = SQLiteDatabase.create(null);
+        try {
+            mHelper.onCreate(created);
+            assertEquals(describe(created), describe(mDatabase));
+        } finally {
+            created.close();
+        }
+        assertEquals(0, count(GeocodeEntry.TABLE_NAME));
+        assertEquals(1, count(SyncMetricsEntry.TABLE_NAME));
+    }
+
+
+    @Test
+    public void testUpgradeOnlyEmptiesTheWeather() {
+        mHelper.onCreate(mDatabase);
+        mDatabase.insertOrThrow(WeatherContract.WeatherEntry.TABLE_NAME, null,
+                TestUtilities.createTestWeatherContentValues());
+        mDatabase.insertOrThrow(SyncMetricsEntry.TABLE_NAME, null, createSyncMetricsValues());
+        ContentValues paris = new ContentValues();
+        paris.put(GeocodeEntry.COLUMN_QUERY, "paris");
+        paris.put(GeocodeEntry.COLUMN_LATITUDE, 48.8566);
+        paris.put(GeocodeEntry.COLUMN_LONGITUDE, 2.3522);
+        paris.put(GeocodeEntry.COLUMN_USED_AT, 1475280000000L);
+        mDatabase.insertOrThrow(GeocodeEntry.TABLE_NAME, null, paris);
+
+        upgradeFrom(9);
+
+        assertEquals(0, count(WeatherContract.WeatherEntry.TABLE_NAME));
+        assertEquals(1, count(SyncMetricsEntry.TABLE_NAME));
+        assertEquals(1, count(GeocodeEntry.TABLE_NAME));
+        /* Version 10 indexed the weather by condition */
+        assertTrue(describe(mDatabase).contains("index " + WeatherSchema.TABLE_WEATHER + "_" +
+                WeatherSchema.COLUMN_WEATHER_ID));
+    }
+
+
+    @Test
+    public void testUpgradeKeepsTheLocations() {
+        mHelper.onCreate(mDatabase);
+        ContentValues london = new ContentValues();
+        london.put(LocationEntry.COLUMN_NAME, "London");
+        london.put(LocationEntry.COLUMN_LATITUDE, 51.5074);
+        london.put(LocationEntry.COLUMN_LONGITUDE, -0.1278);
+        london.put(LocationEntry.COLUMN_GEOHASH, "gcpvj0duq");
+        mDatabase.insertOrThrow(LocationEntry.TABLE_NAME, null, london);
+
+        upgradeFrom(WeatherSchema.DATABASE_VERSION - 1);
+
+        assertEquals(1, count(LocationEntry.TABLE_NAME));
+    }
+
+
+    @Test
+    public void testUpgradeFromBeforeLocationsCreatesTheirTable() {
+        /* Version 7 had no location table; the weather table is all that matters here */
+        mDatabase.execSQL(WeatherSchema.SQL_CREATE_WEATHER_TABLE);
+
+        upgradeFrom(7);
+
+        assertEquals(0, count(LocationEntry.TABLE_NAME));
+    }
+}
@@ -9,6 +9,7 @@ import android.content.pm.PackageManager;
 import android.content.pm.ProviderInfo;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
@@ -299,6 +300,72 @@ public class TestWeatherProvider {
     }
 
 
+    @Test
+    public void testPagedQueries() {
+        int records = 25;
+        int pageSize = 10;
+        ContentValues[] values = createBulkInsertTestWeatherValues(records);
+        ContentResolver contentResolver = mContext.getContentResolver();
+        contentResolver.bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, values);
+
+        /* Skip the first two days, as MainActivity skips the days before today */
+        String selection = WeatherContract.WeatherEntry.COLUMN_DATE + " >= "
+                + values[2].getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
+
+        Cursor count = contentResolver.query(WeatherContract.WeatherEntry.COUNT_URI,
+                null, selection, null, null);
+        assertNotNull(count);
+        assertTrue(count.moveToFirst());
+        assertEquals(records - 2, count.getInt(0));
+        count.close();
+
+        /* The first page, then the one after it found by its last date */
+        long[] firstPage = queryPageDates(
+                WeatherContract.WeatherEntry.buildPageAtOffsetUri(0, pageSize), selection);
+        assertPageDates(values, 2, pageSize, firstPage);
+
+        long[] secondPage = queryPageDates(WeatherContract.WeatherEntry
+                .buildPageAfterDateUri(firstPage[pageSize - 1], pageSize), selection);
+        assertPageDates(values, 12, pageSize, secondPage);
+
+        /* The page before the second one comes nearest day first, and stops at the selection */
+        long[] previousPage = queryPageDates(WeatherContract.WeatherEntry
+                .buildPageBeforeDateUri(secondPage[0], pageSize), selection);
+        assertEquals(pageSize, previousPage.length);
+        for (int i = 0; i < pageSize; i++) {
+            assertEquals(firstPage[pageSize - 1 - i], previousPage[i]);
+        }
+
+        long[] lastPage = queryPageDates(
+                WeatherContract.WeatherEntry.buildPageAtOffsetUri(20, pageSize), selection);
+        assertPageDates(values, 22, 3, lastPage);
+    }
+
+
+    private long[] queryPageDates(Uri pageUri, String selection) {
+        Cursor cursor = mContext.getContentResolver().query(pageUri,
+                new String[]{WeatherContract.WeatherEntry.COLUMN_DATE}, selection, null, null);
+        assertNotNull(cursor);
+
+        long[] dates = new long[cursor.getCount()];
+        while (cursor.moveToNext()) {
+            dates[cursor.getPosition()] = cursor.getLong(0);
+        }
+        cursor.close();
+        return dates;
+    }
+
+
+    private static void assertPageDates(ContentValues[] values, int first, int expectedSize,
+                                        long[] page) {
+        assertEquals(expectedSize, page.length);
+        for (int i = 0; i < expectedSize; i++) {
+            long expected = values[first + i].getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
+            assertEquals(expected, page[i]);
+        }
+    }
+
+
     private void deleteAllRecordsFromWeatherTable() {
         /* Access writable database through WeatherDbHelper */
         WeatherDbHelper helper = new WeatherDbHelper(InstrumentationRegistry.getTargetContext());
@@ -0,0 +1,221 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentProviderClient;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.DetailActivity;
+import com.codeking123.android.sunshine.MainActivity;
+import com.codeking123.android.sunshine.utils.MicroBenchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.codeking123.android.sunshine.data.TestUtilities.DATE_NORMALIZED;
+import static com.codeking123.android.sunshine.data.TestUtilities.createBulkInsertTestWeatherValues;
+import static com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry.COLUMN_DATE;
+import static com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry.CONTENT_URI;
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Times the operations the app performs on WeatherProvider, against the provider instance and
+ * database the app itself uses, so changes to the schema or the provider can be judged on
+ * numbers. Run it on a device and read the results with "adb logcat -s SunshineBenchmark".
+ * <p>
+ * Queries run against a year of weather, which is more than a forecast ever holds but makes the
+ * cost per row stand out from the fixed cost of a query.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherProviderBenchmark {
+
+    private static final int[] BULK_INSERT_BATCH_SIZES = {1, 14, 365, 1000};
+
+    private static final int QUERY_RECORDS = 365;
+
+    /* Writes take milliseconds, so fewer runs are enough to get a stable figure */
+    private static final int WRITE_WARMUP_ITERATIONS = 3;
+    private static final int WRITE_ITERATIONS = 20;
+
+    private static final int QUERY_WARMUP_ITERATIONS = 50;
+    private static final int QUERY_ITERATIONS = 500;
+
+    /* The query MainActivity's loader makes, from the first stored day onwards */
+    private static final String SELECT_FROM_DATE = COLUMN_DATE + " >= ?";
+    private static final String[] SELECT_FROM_DATE_ARGS = {Long.toString(DATE_NORMALIZED)};
+    private static final String SORT_BY_DATE = COLUMN_DATE + " ASC";
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private ContentProviderClient mClient;
+
+    /* The app's own provider, called directly so the ContentResolver isn't part of the numbers */
+    private WeatherProvider mProvider;
+
+
+    @Before
+    public void setUp() {
+        mClient = mContext.getContentResolver()
+                .acquireContentProviderClient(WeatherContract.CONTENT_AUTHORITY);
+        mProvider = (WeatherProvider) mClient.getLocalContentProvider();
+        mProvider.delete(CONTENT_URI, null, null);
+    }
+
+
+    @After
+    public void tearDown() {
+        mProvider.delete(CONTENT_URI, null, null);
+        mClient.release();
+    }
+
+
+    @Test
+    public void benchmarkBulkInsert() {
+        for (int batchSize : BULK_INSERT_BATCH_SIZES) {
+            final ContentValues[] values = createBulkInsertTestWeatherValues(batchSize);
+
+            MicroBenchmark.run("bulkInsert/" + batchSize,
+                    WRITE_WARMUP_ITERATIONS, WRITE_ITERATIONS,
+                    new MicroBenchmark.SetUp() {
+                        @Override
+                        public void run(int iteration) {
+                            mProvider.delete(CONTENT_URI, null, null);
+                        }
+                    },
+                    new MicroBenchmark.Operation() {
+                        @Override
+                        public int run(int iteration) {
+                            return mProvider.bulkInsert(CONTENT_URI, values);
+                        }
+                    });
+        }
+    }
+
+
+    @Test
+    public void benchmarkDeleteAll() {
+        final ContentValues[] values = createBulkInsertTestWeatherValues(QUERY_RECORDS);
+
+        MicroBenchmark.run("delete/" + QUERY_RECORDS,
+                WRITE_WARMUP_ITERATIONS, WRITE_ITERATIONS,
+                new MicroBenchmark.SetUp() {
+                    @Override
+                    public void run(int iteration) {
+                        mProvider.bulkInsert(CONTENT_URI, values);
+                    }
+                },
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        return mProvider.delete(CONTENT_URI, null, null);
+                    }
+                });
+    }
+
+
+    @Test
+    public void benchmarkRangeQuery() {
+        insertQueryRecords();
+
+        MicroBenchmark.run("query/weather/" + QUERY_RECORDS,
+                QUERY_WARMUP_ITERATIONS, QUERY_ITERATIONS,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        Cursor cursor = queryForecast(MainActivity.MAIN_FORECAST_PROJECTION);
+                        try {
+                            /* Queries are lazy; counting the rows runs the query */
+                            return cursor.getCount();
+                        } finally {
+                            cursor.close();
+                        }
+                    }
+                });
+    }
+
+
+    @Test
+    public void benchmarkPointLookup() {
+        final Uri[] uris = new Uri[QUERY_RECORDS];
+        ContentValues[] values = insertQueryRecords();
+        for (int i = 0; i < uris.length; i++) {
+            uris[i] = WeatherContract.WeatherEntry
+                    .buildWeatherUriWithDate(values[i].getAsLong(COLUMN_DATE));
+        }
+
+        MicroBenchmark.run("query/weatherWithDate",
+                QUERY_WARMUP_ITERATIONS, QUERY_ITERATIONS,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        Cursor cursor = mProvider.query(uris[iteration % uris.length],
+                                DetailActivity.WEATHER_DETAIL_PROJECTION, null, null, null);
+                        try {
+                            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+                        } finally {
+                            cursor.close();
+                        }
+                    }
+                });
+    }
+
+
+    @Test
+    public void benchmarkCursorIteration() {
+        insertQueryRecords();
+
+        iterate("MAIN_FORECAST_PROJECTION", MainActivity.MAIN_FORECAST_PROJECTION);
+        iterate("WEATHER_DETAIL_PROJECTION", DetailActivity.WEATHER_DETAIL_PROJECTION);
+    }
+
+
+    /*
+     * Times reading every column of every row of a forecast query with the given projection.
+     * The query runs once beforehand, so only moving through the rows and reading them is
+     * measured, which is what binding the rows to views costs.
+     */
+    private void iterate(String projectionName, String[] projection) {
+        final Cursor cursor = queryForecast(projection);
+        assertEquals(QUERY_RECORDS, cursor.getCount());
+        final int columns = cursor.getColumnCount();
+
+        try {
+            MicroBenchmark.run("iterate/" + projectionName,
+                    QUERY_WARMUP_ITERATIONS, QUERY_ITERATIONS,
+                    new MicroBenchmark.Operation() {
+                        @Override
+                        public int run(int iteration) {
+                            /* Every column in the weather table is numeric */
+                            double sum = 0;
+                            cursor.moveToPosition(-1);
+                            while (cursor.moveToNext()) {
+                                for (int column = 0; column < columns; column++) {
+                                    sum += cursor.getDouble(column);
+                                }
+                            }
+                            return (int) sum;
+                        }
+                    });
+        } finally {
+            cursor.close();
+        }
+    }
+
+
+    private Cursor queryForecast(String[] projection) {
+        return mProvider.query(CONTENT_URI, projection, SELECT_FROM_DATE, SELECT_FROM_DATE_ARGS,
+                SORT_BY_DATE);
+    }
+
+
+    private ContentValues[] insertQueryRecords() {
+        ContentValues[] values = createBulkInsertTestWeatherValues(QUERY_RECORDS);
+        assertEquals(QUERY_RECORDS, mProvider.bulkInsert(CONTENT_URI, values));
+        return values;
+    }
+}
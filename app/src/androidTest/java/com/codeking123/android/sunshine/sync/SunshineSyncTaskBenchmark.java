@@ -0,0 +1,149 @@
+package com.codeking123.android.sunshine.sync;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.sync.Endpoint;
+import com.codeking123.android.sunshine.data.SunshinePreferences;
+import com.codeking123.android.sunshine.utilities.HttpTapeInterceptor;
+import com.codeking123.android.sunshine.utilities.NetworkUtils;
+import com.codeking123.android.sunshine.utilities.OpenWeatherJsonUtils;
+import com.codeking123.android.sunshine.utils.MicroBenchmark;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Times whole syncs, fetch, parse and storage included, against forecast traffic replayed from
+ * an {@link HttpTapeInterceptor} recording instead of the live weather server, so runs are
+ * repeatable and need no network. Read the results with "adb logcat -s SunshineBenchmark".
+ * <p>
+ * The tape is the file given with "-e syncTape /path/on/device", or sync.tape in the app's files
+ * directory. If there is none yet, every weather endpoint is fetched from to record it, which is
+ * the only time the network is needed.
+ * <p>
+ * The replayed syncs never use a forecast kept for the location's tile, so each one fetches; the
+ * syncs answered from the tile are timed on their own.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SunshineSyncTaskBenchmark {
+
+    private static final String TAPE_ARGUMENT = "syncTape";
+    private static final String DEFAULT_TAPE_FILE_NAME = "sync.tape";
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int ITERATIONS = 20;
+
+    /* Paced syncs take as long as the recorded ones did, so fewer of them */
+    private static final int PACED_ITERATIONS = 5;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private File mTapeFile;
+
+
+    @Before
+    public void setUp() throws IOException, JSONException {
+        SunshinePreferences.setTileCache(mContext, SunshinePreferences.DEFAULT_TILE_PRECISION, 0);
+
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String path = arguments != null ? arguments.getString(TAPE_ARGUMENT) : null;
+        mTapeFile = path != null
+                ? new File(path)
+                : new File(mContext.getFilesDir(), DEFAULT_TAPE_FILE_NAME);
+        if (!mTapeFile.exists()) {
+            recordTape();
+        }
+    }
+
+
+    @After
+    public void tearDown() {
+        NetworkUtils.setTapeInterceptor(null);
+        SunshinePreferences.setTileCache(mContext, SunshinePreferences.DEFAULT_TILE_PRECISION,
+                SunshinePreferences.DEFAULT_TILE_TTL_MILLIS);
+    }
+
+
+    @Test
+    public void benchmarkReplayedSync() throws IOException {
+        NetworkUtils.setTapeInterceptor(HttpTapeInterceptor.replay(mTapeFile, false));
+        assertEquals(0, runSyncs("syncWeather/replayed", ITERATIONS));
+    }
+
+
+    @Test
+    public void benchmarkReplayedSyncAtRecordedPace() throws IOException {
+        NetworkUtils.setTapeInterceptor(HttpTapeInterceptor.replay(mTapeFile, true));
+        assertEquals(0, runSyncs("syncWeather/replayed-paced", PACED_ITERATIONS));
+    }
+
+
+    @Test
+    public void benchmarkSyncFromTile() throws IOException {
+        NetworkUtils.setTapeInterceptor(HttpTapeInterceptor.replay(mTapeFile, false));
+        SunshinePreferences.setTileCache(mContext, SunshinePreferences.DEFAULT_TILE_PRECISION,
+                SunshinePreferences.DEFAULT_TILE_TTL_MILLIS);
+
+        /* The first sync fetches the tile's forecast, every later one is answered from it */
+        assertFalse(SunshineSyncTask.syncWeather(mContext));
+        assertEquals(0, runSyncs("syncWeather/tile-hit", ITERATIONS));
+    }
+
+
+    /*
+     * Fetches the forecast from each endpoint, so the tape can answer a sync whichever endpoint
+     * it picks: once for the location by name, as the first sync asks for it, then for the
+     * coordinates the server resolved it to, as every sync after that does.
+     */
+    private void recordTape() throws IOException, JSONException {
+        HttpTapeInterceptor recorder = HttpTapeInterceptor.record(mTapeFile);
+        NetworkUtils.setTapeInterceptor(recorder);
+        try {
+            SunshinePreferences.resetLocationCoordinates(mContext);
+            String forecast = null;
+            for (Endpoint endpoint : NetworkUtils.getEndpointRegistry().getEndpoints()) {
+                forecast = NetworkUtils.getResponseFromHttpUrl(
+                        NetworkUtils.getUrl(mContext, endpoint.getBaseUrl()), null, null);
+            }
+
+            /* Stores the coordinates, as a sync would */
+            OpenWeatherJsonUtils.getWeatherContentValuesFromJson(mContext, forecast);
+            for (Endpoint endpoint : NetworkUtils.getEndpointRegistry().getEndpoints()) {
+                NetworkUtils.getResponseFromHttpUrl(
+                        NetworkUtils.getUrl(mContext, endpoint.getBaseUrl()), null, null);
+            }
+        } finally {
+            NetworkUtils.setTapeInterceptor(null);
+        }
+        assertTrue("Nothing was recorded", recorder.getTape().size() > 0);
+    }
+
+
+    /* Runs the syncs and returns how many of them asked to be rescheduled */
+    private int runSyncs(String name, int iterations) {
+        final int[] failures = new int[1];
+        MicroBenchmark.run(name, WARMUP_ITERATIONS, iterations,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        boolean needsReschedule = SunshineSyncTask.syncWeather(mContext);
+                        if (needsReschedule) failures[0]++;
+                        return needsReschedule ? 1 : 0;
+                    }
+                });
+        return failures[0];
+    }
+}
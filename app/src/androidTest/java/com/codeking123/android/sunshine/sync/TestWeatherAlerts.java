@@ -0,0 +1,122 @@
+package com.codeking123.android.sunshine.sync;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.alert.AlertEngine;
+import com.codeking123.android.sunshine.core.alert.AlertFiring;
+import com.codeking123.android.sunshine.core.alert.AlertRule;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.data.SunshinePreferences;
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
+import com.codeking123.android.sunshine.utilities.OpenWeatherJsonUtils;
+import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+@RunWith(AndroidJUnit4.class)
+public class TestWeatherAlerts {
+
+    private static final long DAY = SunshineDateUtils.DAY_IN_MILLIS;
+    private static final long FIRST_DAY = 1475280000000L;
+    private static final int DAYS = 7;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final ContentResolver mResolver = mContext.getContentResolver();
+
+    private String mRules;
+
+    @Before
+    public void setUp() {
+        mRules = SunshinePreferences.getAlertRules(mContext);
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+    }
+
+    @After
+    public void tearDown() {
+        SunshinePreferences.setAlertRules(mContext, mRules);
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+    }
+
+    /* A week of the same light breeze, but for a wind on one day if one is given */
+    private static ContentValues[] createForecast(int windyDay, double wind) {
+        WeatherRecord[] days = new WeatherRecord[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            days[i] = new WeatherRecord(FIRST_DAY + i * DAY, 800, 10, 20 + i, 70, 1012,
+                    i == windyDay ? wind : 12.5, 270);
+        }
+        return OpenWeatherJsonUtils.toContentValues(days);
+    }
+
+
+    @Test
+    public void testRulesThatDontCompileAreSkipped() {
+        List<AlertRule> rules = WeatherAlerts.parseRules(
+                "# Mine\n" +
+                "Frost tomorrow: day = 1 and min < 0\n" +
+                "\n" +
+                "no name\n" +
+                "Snow: snow > 1\n" +
+                "  Gale :wind>50  \n");
+
+        assertEquals(2, rules.size());
+        assertEquals("Frost tomorrow", rules.get(0).getName());
+        assertEquals("Gale", rules.get(1).getName());
+        assertEquals("wind>50", rules.get(1).getExpression());
+    }
+
+
+    @Test
+    public void testEngineIsCompiledOnceForTheSameRules() {
+        SunshinePreferences.setAlertRules(mContext, null);
+        assertNull(WeatherAlerts.getEngine(mContext));
+
+        SunshinePreferences.setAlertRules(mContext, "Gale: wind > 50");
+        AlertEngine engine = WeatherAlerts.getEngine(mContext);
+        assertNotNull(engine);
+        assertSame(engine, WeatherAlerts.getEngine(mContext));
+
+        SunshinePreferences.setAlertRules(mContext, "Gale: wind > 60");
+        AlertEngine edited = WeatherAlerts.getEngine(mContext);
+        assertNotNull(edited);
+        assertEquals(1, edited.getRuleCount());
+
+        SunshinePreferences.setAlertRules(mContext, "Nothing valid");
+        assertNull(WeatherAlerts.getEngine(mContext));
+    }
+
+
+    @Test
+    public void testFiresForWhatTheSyncChanged() {
+        mResolver.bulkInsert(WeatherEntry.CONTENT_URI, createForecast(-1, 0));
+        WeatherRecord[] previous = WeatherAlerts.readForecast(mContext);
+        assertNotNull(previous);
+        assertEquals(DAYS, previous.length);
+
+        /* The sync brings a gale on the third day, and nothing else new */
+        ContentValues[] synced = createForecast(2, 75);
+
+        AlertEngine engine = new AlertEngine(WeatherAlerts.parseRules(
+                "Gale: wind > 50\nWarm: max > 0"));
+        List<AlertFiring> firings = WeatherAlerts.evaluate(engine, "london", previous, synced);
+
+        assertEquals(1, firings.size());
+        assertEquals("Gale", firings.get(0).rule.getName());
+        assertEquals(FIRST_DAY + 2 * DAY, firings.get(0).date);
+        assertEquals(2, firings.get(0).day);
+        assertEquals(1, engine.getEvaluationCount());
+    }
+}
@@ -0,0 +1,74 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.utils.MicroBenchmark;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares SunshineDateUtils.getFriendlyDateString with DateLabelCache over a two week forecast,
+ * reporting ns/op and allocations/op to logcat under the SunshineBenchmark tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DateLabelCacheBenchmark {
+
+    private static final int FORECAST_DAYS = 14;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private final long mToday = SunshineDateUtils.getNormalizedUtcDateForToday();
+
+    private long dateFor(int iteration) {
+        return mToday + (iteration % FORECAST_DAYS) * SunshineDateUtils.DAY_IN_MILLIS;
+    }
+
+
+    @Test
+    public void benchmarkListLabels() {
+        MicroBenchmark.run("friendlyDate/SunshineDateUtils", 1000, 10000,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        return SunshineDateUtils
+                                .getFriendlyDateString(mContext, dateFor(iteration), false)
+                                .length();
+                    }
+                });
+
+        MicroBenchmark.run("friendlyDate/DateLabelCache", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                return DateLabelCache.getInstance(mContext)
+                        .getFriendlyDateString(dateFor(iteration), false)
+                        .length();
+            }
+        });
+    }
+
+
+    @Test
+    public void benchmarkDetailLabels() {
+        MicroBenchmark.run("fullDate/SunshineDateUtils", 1000, 10000,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        return SunshineDateUtils
+                                .getFriendlyDateString(mContext, dateFor(iteration), true)
+                                .length();
+                    }
+                });
+
+        MicroBenchmark.run("fullDate/DateLabelCache", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                return DateLabelCache.getInstance(mContext)
+                        .getFriendlyDateString(dateFor(iteration), true)
+                        .length();
+            }
+        });
+    }
+}
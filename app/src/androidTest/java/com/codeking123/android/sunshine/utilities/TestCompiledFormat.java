@@ -0,0 +1,101 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.R;
+import com.codeking123.android.sunshine.core.format.CompiledFormat;
+import com.codeking123.android.sunshine.data.SunshinePreferences;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Golden test for CompiledFormat: in every locale the device supports, the output must be exactly
+ * what String.format produces for the same pattern and arguments.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestCompiledFormat {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    /* Patterns that are compiled, and a few that aren't and must fall back to String.format */
+    private static final String[] NUMBER_PATTERNS = {
+            "%1.0f°", "%.0f", "%5.0f°", "%1.0f hPa", "%1.0f %%", "%.1f", "%,.0f", "%s"
+    };
+
+    private static final String[] NUMBER_AND_TEXT_PATTERNS = {
+            "%1$1.0f km/h %2$s", "%1$1.0f mph %2$s", "%2$s %1$.0f", "%.0f%s", "%1$s %2$s"
+    };
+
+    private static final double[] VALUES = {
+            0.0, -0.0, 0.4, -0.4, 0.5, -0.5, 1.5, 2.5, -2.5, 21.6, -40.0, 99.5, 451.0,
+            0.49999999999999994, -0.49999999999999994, 12345.678, 1e15 + 0.5,
+            1e300, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+
+    @Test
+    public void testMatchesStringFormatInEveryLocale() {
+        String[] numberPatterns = withResourcePatterns(NUMBER_PATTERNS,
+                R.string.format_temperature, R.string.format_pressure, R.string.format_humidity);
+        String[] numberAndTextPatterns = withResourcePatterns(NUMBER_AND_TEXT_PATTERNS,
+                R.string.format_wind_kmh, R.string.format_wind_mph);
+
+        for (Locale locale : Locale.getAvailableLocales()) {
+            for (String pattern : numberPatterns) {
+                CompiledFormat format = CompiledFormat.compile(pattern, locale);
+                for (double value : VALUES) {
+                    assertEquals("Mismatch for \"" + pattern + "\" in " + locale + " with " + value,
+                            String.format(locale, pattern, value),
+                            format.format(value));
+                }
+            }
+
+            for (String pattern : numberAndTextPatterns) {
+                CompiledFormat format = CompiledFormat.compile(pattern, locale);
+                for (double value : VALUES) {
+                    float speed = (float) value;
+                    assertEquals("Mismatch for \"" + pattern + "\" in " + locale + " with " + speed,
+                            String.format(locale, pattern, speed, "NW"),
+                            format.format(speed, "NW"));
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testWeatherUnitFormatterMatchesLegacyFormatting() {
+        WeatherUnitFormatter formatter = WeatherUnitFormatter.getInstance(mContext);
+        boolean isMetric = SunshinePreferences.isMetric(mContext);
+
+        for (double value : VALUES) {
+            double temperature = isMetric ? value : (value * 1.8) + 32;
+            assertEquals("Temperature mismatch for " + value,
+                    String.format(mContext.getString(R.string.format_temperature), temperature),
+                    formatter.formatTemperature(value));
+
+            float windSpeed = (float) value;
+            float displayedSpeed = isMetric ? windSpeed : .621371192237334f * windSpeed;
+            int windFormat = isMetric ? R.string.format_wind_kmh : R.string.format_wind_mph;
+            assertEquals("Wind mismatch for " + value,
+                    String.format(mContext.getString(windFormat), displayedSpeed, "SW"),
+                    formatter.formatWind(windSpeed, 225f));
+        }
+    }
+
+    private String[] withResourcePatterns(String[] patterns, int... resourceIds) {
+        String[] all = new String[patterns.length + resourceIds.length];
+        System.arraycopy(patterns, 0, all, 0, patterns.length);
+        for (int i = 0; i < resourceIds.length; i++) {
+            all[patterns.length + i] = mContext.getString(resourceIds[i]);
+        }
+        return all;
+    }
+}
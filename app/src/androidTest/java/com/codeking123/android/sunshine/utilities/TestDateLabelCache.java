@@ -0,0 +1,58 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+
+@RunWith(AndroidJUnit4.class)
+public class TestDateLabelCache {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private DateLabelCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = DateLabelCache.getInstance(mContext);
+        mCache.invalidate();
+    }
+
+
+    @Test
+    public void testLabelsMatchSunshineDateUtils() {
+        long today = SunshineDateUtils.getNormalizedUtcDateForToday();
+
+        /* A few days in the past through a month ahead covers every branch of the formatter */
+        for (int day = -3; day <= 30; day++) {
+            long date = today + day * SunshineDateUtils.DAY_IN_MILLIS;
+
+            assertEquals("Short label mismatch " + day + " days from today",
+                    SunshineDateUtils.getFriendlyDateString(mContext, date, false),
+                    mCache.getFriendlyDateString(date, false));
+
+            assertEquals("Full label mismatch " + day + " days from today",
+                    SunshineDateUtils.getFriendlyDateString(mContext, date, true),
+                    mCache.getFriendlyDateString(date, true));
+        }
+    }
+
+
+    @Test
+    public void testLabelsAreReused() {
+        long today = SunshineDateUtils.getNormalizedUtcDateForToday();
+
+        String first = mCache.getFriendlyDateString(today, false);
+        String second = mCache.getFriendlyDateString(today, false);
+
+        assertSame("Expected the cached label to be returned on the second lookup",
+                first, second);
+    }
+}
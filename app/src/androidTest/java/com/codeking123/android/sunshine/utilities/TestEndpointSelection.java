@@ -0,0 +1,156 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.metrics.SyncMetrics;
+import com.codeking123.android.sunshine.core.metrics.SyncOutcome;
+import com.codeking123.android.sunshine.core.metrics.SyncPhase;
+import com.codeking123.android.sunshine.core.metrics.SyncRecorder;
+import com.codeking123.android.sunshine.core.metrics.Ticker;
+import com.codeking123.android.sunshine.core.sync.Deadline;
+import com.codeking123.android.sunshine.core.sync.Endpoint;
+import com.codeking123.android.sunshine.core.sync.EndpointRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+
+/**
+ * Fetches the forecast from two local stand-ins for the weather mirrors, one quick and one slow,
+ * to check that syncs are routed to the quicker one and that a slow or failed request is sent
+ * to the other.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestEndpointSelection {
+
+    private static final String FAST_FORECAST = "{\"list\":[],\"from\":\"fast\"}";
+    private static final String SLOW_FORECAST = "{\"list\":[],\"from\":\"slow\"}";
+
+    private static final long SLOW_DELAY_MILLIS = 300;
+
+    /* How long the hedged fetch is given, which the slow server can't answer within */
+    private static final long HEDGED_DELAY_MILLIS = 5000;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private final MockWebServer mFastServer = new MockWebServer();
+    private final MockWebServer mSlowServer = new MockWebServer();
+
+
+    @Before
+    public void setUp() throws IOException {
+        mFastServer.start();
+        mSlowServer.start();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        mFastServer.shutdown();
+        mSlowServer.shutdown();
+    }
+
+
+    @Test
+    public void testSyncsGoToTheFasterServer() throws IOException {
+        int fetches = 10;
+        for (int i = 0; i < fetches; i++) {
+            mFastServer.enqueue(new MockResponse().setBody(FAST_FORECAST));
+            mSlowServer.enqueue(new MockResponse().setBody(SLOW_FORECAST)
+                    .setBodyDelay(SLOW_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+        }
+
+        /* No hedging or exploring, so every fetch goes to exactly one server */
+        EndpointRegistry registry = new EndpointRegistry(0.3, 0, 0, new Random(1));
+        registry.register("slow", mSlowServer.url("/weather").toString());
+        registry.register("fast", mFastServer.url("/weather").toString());
+
+        for (int i = 0; i < fetches; i++) {
+            NetworkUtils.getForecastFromEndpoints(mContext, registry, null, null);
+        }
+
+        /* Each is tried once before either has been timed, then only the fast one is used */
+        assertEquals(1, mSlowServer.getRequestCount());
+        assertEquals(fetches - 1, mFastServer.getRequestCount());
+    }
+
+
+    @Test
+    public void testSlowRequestIsHedgedToTheOtherServer() throws IOException {
+        mSlowServer.enqueue(new MockResponse().setBody(SLOW_FORECAST)
+                .setBodyDelay(HEDGED_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+        mFastServer.enqueue(new MockResponse().setBody(FAST_FORECAST));
+
+        EndpointRegistry registry = new EndpointRegistry(0.3, 95, 0, new Random(1));
+        Endpoint usuallyFast = registry.register("usually-fast",
+                mSlowServer.url("/weather").toString());
+        Endpoint fallback = registry.register("fallback",
+                mFastServer.url("/weather").toString());
+        /* The stalling server has answered quickly so far, so it is picked and hedged after 50ms */
+        for (int i = 0; i < 10; i++) {
+            registry.recordSuccess(usuallyFast, 50);
+        }
+        registry.recordSuccess(fallback, 200);
+
+        SyncRecorder recorder = new SyncRecorder(Ticker.SYSTEM, System.currentTimeMillis());
+        long start = SystemClock.elapsedRealtime();
+        String forecast = NetworkUtils.getForecastFromEndpoints(mContext, registry, recorder,
+                Deadline.after(2 * HEDGED_DELAY_MILLIS, Ticker.SYSTEM));
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        SyncMetrics metrics = recorder.finish(SyncOutcome.SUCCESS);
+
+        assertEquals(FAST_FORECAST, forecast);
+        assertTrue("Took " + elapsed + "ms", elapsed < HEDGED_DELAY_MILLIS);
+        assertEquals(1, mSlowServer.getRequestCount());
+        assertEquals(1, mFastServer.getRequestCount());
+
+        assertEquals("usually-fast", metrics.endpoint);
+        assertEquals("fallback", metrics.hedgeEndpoint);
+        assertTrue(metrics.hedgeWon);
+        /* Only the primary's phases are timed, and its download wasn't the one used */
+        assertEquals(SyncMetrics.NOT_RUN, metrics.getPhaseNanos(SyncPhase.DOWNLOAD));
+
+        /* The stalled primary is charged for the time it was waited on */
+        assertTrue(usuallyFast.getLatencyEwmaMillis() > 50);
+    }
+
+
+    @Test
+    public void testFailedRequestIsSentToTheOtherServer() throws IOException {
+        mSlowServer.enqueue(new MockResponse().setResponseCode(503));
+        mFastServer.enqueue(new MockResponse().setBody(FAST_FORECAST));
+
+        /* No hedging, so only the failure sends the request on */
+        EndpointRegistry registry = new EndpointRegistry(0.3, 0, 0, new Random(1));
+        Endpoint failing = registry.register("failing", mSlowServer.url("/weather").toString());
+        registry.register("fallback", mFastServer.url("/weather").toString());
+
+        SyncRecorder recorder = new SyncRecorder(Ticker.SYSTEM, System.currentTimeMillis());
+        String forecast = NetworkUtils.getForecastFromEndpoints(mContext, registry, recorder,
+                null);
+        SyncMetrics metrics = recorder.finish(SyncOutcome.SUCCESS);
+
+        assertEquals(FAST_FORECAST, forecast);
+        assertEquals(1, mSlowServer.getRequestCount());
+        assertEquals(1, mFastServer.getRequestCount());
+        assertEquals("failing", metrics.endpoint);
+        assertEquals("fallback", metrics.hedgeEndpoint);
+        assertTrue(metrics.hedgeWon);
+        assertTrue(failing.getErrorRateEwma() > 0);
+    }
+}
@@ -0,0 +1,163 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.replay.HttpTape;
+import com.codeking123.android.sunshine.core.replay.RecordedExchange;
+import com.codeking123.android.sunshine.core.sync.HttpStatusException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+
+/**
+ * Records fetches from a local server to a tape, then replays them with the server gone, to check
+ * that syncs can be run offline against recorded traffic and at its recorded pace.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestHttpTapeInterceptor {
+
+    private static final String FORECAST = "{\"list\":[]}";
+
+    private static final long HEADERS_MILLIS = 300;
+    private static final long BODY_MILLIS = 200;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private final MockWebServer mServer = new MockWebServer();
+    private URL mUrl;
+    private File mTapeFile;
+
+
+    @Before
+    public void setUp() throws IOException {
+        mServer.start();
+        mUrl = mServer.url("/staticweather?q=94043").url();
+        mTapeFile = new File(mContext.getCacheDir(), "test.tape");
+        mTapeFile.delete();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        NetworkUtils.setTapeInterceptor(null);
+        mServer.shutdown();
+        mTapeFile.delete();
+    }
+
+
+    @Test
+    public void testRecordingIsReplayedWithoutTheServer() throws IOException {
+        mServer.enqueue(new MockResponse().setBody(FORECAST).setHeader("X-Mirror", "local"));
+
+        HttpTapeInterceptor recorder = HttpTapeInterceptor.record(mTapeFile);
+        NetworkUtils.setTapeInterceptor(recorder);
+        assertEquals(FORECAST, NetworkUtils.getResponseFromHttpUrl(mUrl, null, null));
+        mServer.shutdown();
+
+        HttpTapeInterceptor player = HttpTapeInterceptor.replay(mTapeFile, false);
+        NetworkUtils.setTapeInterceptor(player);
+        assertEquals(FORECAST, NetworkUtils.getResponseFromHttpUrl(mUrl, null, null));
+        assertEquals(FORECAST, NetworkUtils.getResponseFromHttpUrl(mUrl, null, null));
+
+        assertEquals(1, mServer.getRequestCount());
+        RecordedExchange exchange = player.getTape().getExchanges().get(0);
+        assertEquals(mUrl.toString(), exchange.getUrl());
+        assertEquals(FORECAST.length(), exchange.getBodyLength());
+        boolean foundHeader = false;
+        for (int i = 0; i < exchange.getResponseHeaderCount(); i++) {
+            foundHeader |= exchange.getResponseHeaderName(i).equals("X-Mirror")
+                    && exchange.getResponseHeaderValue(i).equals("local");
+        }
+        assertTrue(foundHeader);
+    }
+
+
+    @Test
+    public void testRecordedErrorStatusIsReplayed() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+
+        NetworkUtils.setTapeInterceptor(HttpTapeInterceptor.record(mTapeFile));
+        fetchExpectingStatus(503);
+
+        NetworkUtils.setTapeInterceptor(HttpTapeInterceptor.replay(mTapeFile, false));
+        fetchExpectingStatus(503);
+
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+
+    @Test
+    public void testRequestNeverRecordedFailsWithoutTheNetwork() {
+        NetworkUtils.setTapeInterceptor(HttpTapeInterceptor.replay(new HttpTape(), false));
+
+        try {
+            NetworkUtils.getResponseFromHttpUrl(mUrl, null, null);
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+        }
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+
+    @Test
+    public void testPacedReplayTakesAsLongAsTheRecording() throws IOException {
+        HttpTape tape = new HttpTape();
+        tape.add(new RecordedExchange.Builder(mUrl.toString())
+                .addResponseHeader("Content-Type", "application/json")
+                .body(paddedForecast(20 * 1024))
+                .timing(HEADERS_MILLIS, BODY_MILLIS)
+                .build());
+
+        NetworkUtils.setTapeInterceptor(HttpTapeInterceptor.replay(tape, false));
+        long start = SystemClock.elapsedRealtime();
+        NetworkUtils.getResponseFromHttpUrl(mUrl, null, null);
+        long unpaced = SystemClock.elapsedRealtime() - start;
+
+        NetworkUtils.setTapeInterceptor(HttpTapeInterceptor.replay(tape, true));
+        start = SystemClock.elapsedRealtime();
+        String forecast = NetworkUtils.getResponseFromHttpUrl(mUrl, null, null);
+        long paced = SystemClock.elapsedRealtime() - start;
+
+        assertEquals(20 * 1024, forecast.length());
+        assertTrue("Unpaced took " + unpaced + "ms", unpaced < HEADERS_MILLIS);
+        assertTrue("Paced took " + paced + "ms", paced >= HEADERS_MILLIS + BODY_MILLIS);
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+
+    private static byte[] paddedForecast(int length) {
+        StringBuilder forecast = new StringBuilder(FORECAST);
+        while (forecast.length() < length) {
+            forecast.append(' ');
+        }
+        return forecast.toString().getBytes(Charset.forName("UTF-8"));
+    }
+
+
+    private void fetchExpectingStatus(int statusCode) throws IOException {
+        try {
+            NetworkUtils.getResponseFromHttpUrl(mUrl, null, null);
+            fail("Expected an HttpStatusException");
+        } catch (HttpStatusException expected) {
+            assertEquals(statusCode, expected.getStatusCode());
+        }
+    }
+}
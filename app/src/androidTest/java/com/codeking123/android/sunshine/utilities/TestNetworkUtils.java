@@ -0,0 +1,252 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.core.date.Clock;
+import com.codeking123.android.sunshine.core.metrics.SyncOutcome;
+import com.codeking123.android.sunshine.core.metrics.Ticker;
+import com.codeking123.android.sunshine.core.sync.CircuitBreaker;
+import com.codeking123.android.sunshine.core.sync.Deadline;
+import com.codeking123.android.sunshine.core.sync.RetryPolicy;
+import com.codeking123.android.sunshine.core.sync.SyncFailure;
+import com.codeking123.android.sunshine.core.sync.SyncRetrier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+
+/**
+ * Fetches from a local server that fails or slows down on cue, to check how the sync's failures
+ * are classified and retried and that a slow server can't hold a sync past its deadline.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestNetworkUtils {
+
+    private static final String FORECAST = "{\"list\":[]}";
+
+    /* The deadline given to fetches from a slow server, and how late they may give up */
+    private static final long BUDGET_MILLIS = 1000;
+    private static final long SLACK_MILLIS = 1000;
+
+    /* A ticker that only moves when told to */
+    private static final class ManualTicker implements Ticker {
+        long mNanos;
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+
+    private final MockWebServer mServer = new MockWebServer();
+    private URL mUrl;
+
+
+    @Before
+    public void setUp() throws IOException {
+        mServer.start();
+        mUrl = mServer.url("/staticweather").url();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+
+    @Test
+    public void testErrorStatusIsAnHttpStatusFailure() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+
+        SyncFailure failure = fetchExpectingFailure();
+
+        assertEquals(SyncFailure.Kind.HTTP_STATUS, failure.getKind());
+        assertEquals(503, failure.getHttpStatus());
+        assertTrue(failure.isTransient());
+    }
+
+
+    @Test
+    public void testDroppedConnectionIsANetworkFailure() throws IOException {
+        /* OkHttp retries a connection dropped before the request on its own, so drop the body */
+        mServer.enqueue(new MockResponse().setBody(FORECAST)
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+
+        SyncFailure failure = fetchExpectingFailure();
+
+        assertEquals(SyncFailure.Kind.NETWORK, failure.getKind());
+        assertTrue(failure.isTransient());
+    }
+
+
+    @Test
+    public void testRetriedUntilTheForecastIsFetched() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+        mServer.enqueue(new MockResponse().setResponseCode(429));
+        mServer.enqueue(new MockResponse().setBody(FORECAST));
+
+        final String[] fetched = new String[1];
+        CircuitBreaker breaker = new CircuitBreaker(5, 60000, Clock.SYSTEM);
+        SyncRetrier retrier = new SyncRetrier(new RetryPolicy(3, 10, 100), breaker,
+                new Random(), SyncRetrier.Sleeper.SYSTEM);
+
+        assertTrue(retrier.run(new SyncRetrier.Attempt() {
+            @Override
+            public void run(int attempt) throws SyncFailure {
+                try {
+                    fetched[0] = NetworkUtils.getResponseFromHttpUrl(mUrl);
+                } catch (IOException e) {
+                    throw SyncFailure.network(e);
+                }
+            }
+        }));
+
+        assertEquals(FORECAST, fetched[0]);
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+
+    @Test
+    public void testClientErrorIsNotRetried() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(404));
+        mServer.enqueue(new MockResponse().setBody(FORECAST));
+
+        SyncRetrier retrier = new SyncRetrier(new RetryPolicy(3, 10, 100),
+                new CircuitBreaker(5, 60000, Clock.SYSTEM), new Random(),
+                SyncRetrier.Sleeper.SYSTEM);
+        try {
+            retrier.run(new SyncRetrier.Attempt() {
+                @Override
+                public void run(int attempt) throws SyncFailure {
+                    try {
+                        NetworkUtils.getResponseFromHttpUrl(mUrl);
+                    } catch (IOException e) {
+                        throw SyncFailure.network(e);
+                    }
+                }
+            });
+            fail("Expected a SyncFailure");
+        } catch (SyncFailure expected) {
+            assertEquals(404, expected.getHttpStatus());
+        }
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+
+    @Test
+    public void testStalledServerTimesOutAtTheDeadline() throws IOException {
+        mServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        long start = SystemClock.elapsedRealtime();
+        SyncFailure failure = fetchExpectingFailure(Deadline.after(BUDGET_MILLIS, Ticker.SYSTEM));
+        long elapsed = SystemClock.elapsedRealtime() - start;
+
+        assertEquals(SyncFailure.Kind.TIMEOUT, failure.getKind());
+        assertEquals(SyncOutcome.TIMEOUT, failure.toOutcome());
+        assertTrue("Took " + elapsed + "ms", elapsed < BUDGET_MILLIS + SLACK_MILLIS);
+    }
+
+
+    @Test
+    public void testTrickledBodyIsCancelledAtTheDeadline() throws IOException {
+        /* Never quiet for long enough to time out a read, but far too slow to finish */
+        mServer.enqueue(trickledForecast());
+
+        long start = SystemClock.elapsedRealtime();
+        SyncFailure failure = fetchExpectingFailure(Deadline.after(BUDGET_MILLIS, Ticker.SYSTEM));
+        long elapsed = SystemClock.elapsedRealtime() - start;
+
+        assertEquals(SyncFailure.Kind.TIMEOUT, failure.getKind());
+        assertTrue("Took " + elapsed + "ms", elapsed < BUDGET_MILLIS + SLACK_MILLIS);
+    }
+
+
+    @Test
+    public void testSyncThreadsAreReleasedWithinTheBudget() throws Exception {
+        final int threadCount = 4;
+        final SyncFailure[] failures = new SyncFailure[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            mServer.enqueue(trickledForecast());
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    failures[index] =
+                            fetchExpectingFailure(Deadline.after(BUDGET_MILLIS, Ticker.SYSTEM));
+                }
+            });
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(BUDGET_MILLIS + SLACK_MILLIS);
+            assertFalse("A sync thread is still fetching", thread.isAlive());
+        }
+        long elapsed = SystemClock.elapsedRealtime() - start;
+
+        assertTrue("Took " + elapsed + "ms", elapsed < BUDGET_MILLIS + SLACK_MILLIS);
+        for (SyncFailure failure : failures) {
+            assertEquals(SyncFailure.Kind.TIMEOUT, failure.getKind());
+        }
+    }
+
+
+    @Test
+    public void testPassedDeadlineFailsWithoutARequest() throws Exception {
+        ManualTicker ticker = new ManualTicker();
+        Deadline deadline = Deadline.after(10, ticker);
+        ticker.mNanos += 10 * 1000000L;
+
+        assertEquals(SyncFailure.Kind.TIMEOUT, fetchExpectingFailure(deadline).getKind());
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+
+    private static MockResponse trickledForecast() {
+        char[] padding = new char[64 * 1024];
+        Arrays.fill(padding, ' ');
+        return new MockResponse()
+                .setBody(FORECAST + new String(padding))
+                .throttleBody(64, 50, TimeUnit.MILLISECONDS);
+    }
+
+
+    private SyncFailure fetchExpectingFailure() {
+        return fetchExpectingFailure(null);
+    }
+
+
+    private SyncFailure fetchExpectingFailure(Deadline deadline) {
+        try {
+            NetworkUtils.getResponseFromHttpUrl(mUrl, null, deadline);
+        } catch (IOException e) {
+            return SyncFailure.network(e);
+        }
+        fail("Expected the fetch to fail");
+        return null;
+    }
+}
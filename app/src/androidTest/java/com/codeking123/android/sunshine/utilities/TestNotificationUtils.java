@@ -0,0 +1,64 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+
+@RunWith(AndroidJUnit4.class)
+public class TestNotificationUtils {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+
+    @Test
+    public void testTodaysWeatherIsPickedFromTheForecast() {
+        long today = SunshineDateUtils.normalizeDate(System.currentTimeMillis());
+        ContentValues[] forecast = new ContentValues[3];
+        for (int day = 0; day < forecast.length; day++) {
+            forecast[day] = new ContentValues();
+            forecast[day].put(WeatherEntry.COLUMN_DATE,
+                    today + (day - 1) * SunshineDateUtils.DAY_IN_MILLIS);
+        }
+
+        assertSame(forecast[1], NotificationUtils.getTodaysWeather(forecast));
+        assertNull(NotificationUtils.getTodaysWeather(new ContentValues[]{forecast[0]}));
+    }
+
+
+    @Test
+    public void testLargeIconIsDecodedAtNotificationSize() {
+        Resources resources = mContext.getResources();
+        int width = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        int height = resources
+                .getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+
+        /* Clear, rain and snow have different art */
+        for (int weatherId : new int[]{800, 500, 600}) {
+            Bitmap icon = NotificationUtils.getLargeIcon(mContext, weatherId);
+            assertEquals(width, icon.getWidth());
+            assertEquals(height, icon.getHeight());
+        }
+    }
+
+
+    @Test
+    public void testLargeIconsAreDecodedOnce() {
+        Bitmap first = NotificationUtils.getLargeIcon(mContext, 800);
+        Bitmap second = NotificationUtils.getLargeIcon(mContext, 800);
+
+        assertSame(first, second);
+    }
+}
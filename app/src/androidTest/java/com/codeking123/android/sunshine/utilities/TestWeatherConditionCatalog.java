@@ -0,0 +1,47 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+
+
+@RunWith(AndroidJUnit4.class)
+public class TestWeatherConditionCatalog {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    /* Wider than the catalog's table so out of range ids take the unknown path as well */
+    private static final int FIRST_ID_TO_CHECK = -1;
+    private static final int LAST_ID_TO_CHECK = 1001;
+
+
+    @Test
+    public void testDescriptionsMatchSunshineWeatherUtils() {
+        WeatherConditionCatalog catalog = WeatherConditionCatalog.getInstance(mContext);
+
+        for (int weatherId = FIRST_ID_TO_CHECK; weatherId <= LAST_ID_TO_CHECK; weatherId++) {
+            assertEquals("Description mismatch for weather id " + weatherId,
+                    SunshineWeatherUtils.getStringForWeatherCondition(mContext, weatherId),
+                    catalog.getDescription(weatherId));
+        }
+    }
+
+
+    @Test
+    public void testArtMatchesSunshineWeatherUtils() {
+        for (int weatherId = FIRST_ID_TO_CHECK; weatherId <= LAST_ID_TO_CHECK; weatherId++) {
+            assertEquals("Small art mismatch for weather id " + weatherId,
+                    SunshineWeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId),
+                    WeatherConditionCatalog.getSmallArtResourceId(weatherId));
+
+            assertEquals("Large art mismatch for weather id " + weatherId,
+                    SunshineWeatherUtils.getLargeArtResourceIdForWeatherCondition(weatherId),
+                    WeatherConditionCatalog.getLargeArtResourceId(weatherId));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.utils.MicroBenchmark;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the condition lookups in SunshineWeatherUtils with the table lookups in
+ * WeatherConditionCatalog. Run it on a device and read the results with
+ * "adb logcat -s SunshineBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherConditionCatalogBenchmark {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    /* Every id the app knows about, so each strategy sees the same mix of early and late hits */
+    private static final int[] WEATHER_IDS = {
+            200, 211, 232, 300, 321, 500, 501, 502, 503, 504, 511, 520, 531,
+            600, 601, 602, 611, 612, 615, 616, 620, 621, 622,
+            701, 711, 721, 731, 741, 751, 761, 762, 771, 781,
+            800, 801, 802, 803, 804,
+            900, 901, 902, 903, 904, 905, 906,
+            951, 952, 953, 954, 955, 956, 957, 958, 959, 960, 961, 962
+    };
+
+    private static int weatherIdFor(int iteration) {
+        return WEATHER_IDS[iteration % WEATHER_IDS.length];
+    }
+
+
+    @Test
+    public void benchmarkDescription() {
+        MicroBenchmark.run("description/SunshineWeatherUtils", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                return SunshineWeatherUtils
+                        .getStringForWeatherCondition(mContext, weatherIdFor(iteration))
+                        .length();
+            }
+        });
+
+        MicroBenchmark.run("description/WeatherConditionCatalog", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                return WeatherConditionCatalog.getInstance(mContext)
+                        .getDescription(weatherIdFor(iteration))
+                        .length();
+            }
+        });
+    }
+
+
+    @Test
+    public void benchmarkSmallArt() {
+        MicroBenchmark.run("smallArt/SunshineWeatherUtils", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                return SunshineWeatherUtils
+                        .getSmallArtResourceIdForWeatherCondition(weatherIdFor(iteration));
+            }
+        });
+
+        MicroBenchmark.run("smallArt/WeatherConditionCatalog", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                return WeatherConditionCatalog.getSmallArtResourceId(weatherIdFor(iteration));
+            }
+        });
+    }
+
+
+    @Test
+    public void benchmarkLargeArt() {
+        MicroBenchmark.run("largeArt/SunshineWeatherUtils", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                return SunshineWeatherUtils
+                        .getLargeArtResourceIdForWeatherCondition(weatherIdFor(iteration));
+            }
+        });
+
+        MicroBenchmark.run("largeArt/WeatherConditionCatalog", new MicroBenchmark.Operation() {
+            @Override
+            public int run(int iteration) {
+                return WeatherConditionCatalog.getLargeArtResourceId(weatherIdFor(iteration));
+            }
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.codeking123.android.sunshine.R;
+import com.codeking123.android.sunshine.core.units.CompassDirections;
+import com.codeking123.android.sunshine.utils.MicroBenchmark;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Formats one million temperatures and wind values with String.format, as SunshineWeatherUtils
+ * used to, and with WeatherUnitFormatter. Results are logged under the SunshineBenchmark tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherUnitFormatterBenchmark {
+
+    private static final int WARMUP_FORMATS = 10000;
+    private static final int MEASURED_FORMATS = 1000000;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private static double temperatureFor(int iteration) {
+        return (iteration % 800) / 10.0 - 30.0;
+    }
+
+
+    @Test
+    public void benchmarkTemperature() {
+        MicroBenchmark.run("temperature/String.format", WARMUP_FORMATS, MEASURED_FORMATS,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        return String.format(mContext.getString(R.string.format_temperature),
+                                temperatureFor(iteration)).length();
+                    }
+                });
+
+        MicroBenchmark.run("temperature/WeatherUnitFormatter", WARMUP_FORMATS, MEASURED_FORMATS,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        return WeatherUnitFormatter.getInstance(mContext)
+                                .formatTemperature(temperatureFor(iteration))
+                                .length();
+                    }
+                });
+    }
+
+
+    @Test
+    public void benchmarkWind() {
+        MicroBenchmark.run("wind/String.format", WARMUP_FORMATS, MEASURED_FORMATS,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        return String.format(mContext.getString(R.string.format_wind_kmh),
+                                (float) temperatureFor(iteration),
+                                CompassDirections.fromDegrees(iteration % 360))
+                                .length();
+                    }
+                });
+
+        MicroBenchmark.run("wind/WeatherUnitFormatter", WARMUP_FORMATS, MEASURED_FORMATS,
+                new MicroBenchmark.Operation() {
+                    @Override
+                    public int run(int iteration) {
+                        return WeatherUnitFormatter.getInstance(mContext)
+                                .formatWind((float) temperatureFor(iteration), iteration % 360)
+                                .length();
+                    }
+                });
+    }
+}
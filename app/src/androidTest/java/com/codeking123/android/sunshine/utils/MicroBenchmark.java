@@ -0,0 +1,138 @@
+package com.codeking123.android.sunshine.utils;
+
+import android.os.Debug;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * A small harness for timing hot paths from instrumented tests. Each run warms the operation up,
+ * then times a fixed number of invocations and counts the objects the calling thread allocated
+ * while doing so. Results are written to logcat on a single line tagged {@link #TAG} so they can
+ * be collected with "adb logcat -s SunshineBenchmark".
+ */
+public final class MicroBenchmark {
+
+    public static final String TAG = "SunshineBenchmark";
+
+    private static final int DEFAULT_WARMUP_ITERATIONS = 10000;
+    private static final int DEFAULT_MEASURED_ITERATIONS = 100000;
+
+    /* Results are folded into this field so the runtime can't discard the measured work */
+    private static volatile int sSink;
+
+    /**
+     * The operation to measure. The iteration index is passed in so implementations can cycle
+     * through a set of inputs without allocating, and an int derived from the result (such as a
+     * resource id or a String's length) is returned so the result isn't boxed.
+     */
+    public interface Operation {
+        int run(int iteration);
+    }
+
+    /**
+     * Puts state back before an invocation of the measured operation, such as refilling a table
+     * the operation empties. It is neither timed nor counted towards allocations.
+     */
+    public interface SetUp {
+        void run(int iteration);
+    }
+
+    public static final class Result {
+        public final String name;
+        public final int iterations;
+        public final double nanosPerOp;
+        public final double allocationsPerOp;
+
+        Result(String name, int iterations, double nanosPerOp, double allocationsPerOp) {
+            this.name = name;
+            this.iterations = iterations;
+            this.nanosPerOp = nanosPerOp;
+            this.allocationsPerOp = allocationsPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d ops, %.1f ns/op, %.2f allocs/op",
+                    name, iterations, nanosPerOp, allocationsPerOp);
+        }
+    }
+
+    private MicroBenchmark() {
+    }
+
+    public static Result run(String name, Operation operation) {
+        return run(name, DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASURED_ITERATIONS, operation);
+    }
+
+    @SuppressWarnings("deprecation")
+    public static Result run(String name, int warmupIterations, int iterations,
+                             Operation operation) {
+        int sink = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            sink += operation.run(i);
+        }
+
+        /* Collect the warm up garbage so the measured loop doesn't pay for it */
+        Runtime.getRuntime().gc();
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        Debug.stopAllocCounting();
+        int allocations = Debug.getThreadAllocCount();
+
+        sSink += sink;
+
+        Result result = new Result(name,
+                iterations,
+                (double) elapsed / iterations,
+                (double) allocations / iterations);
+        Log.i(TAG, result.toString());
+        return result;
+    }
+
+    /**
+     * Like {@link #run(String, int, int, Operation)}, but calls setUp before every invocation of
+     * the operation and times each invocation on its own, leaving the setUp out. Meant for
+     * operations that take microseconds or more, such as database writes, where reading the clock
+     * around every invocation doesn't skew the result.
+     */
+    @SuppressWarnings("deprecation")
+    public static Result run(String name, int warmupIterations, int iterations, SetUp setUp,
+                             Operation operation) {
+        int sink = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            setUp.run(i);
+            sink += operation.run(i);
+        }
+
+        Runtime.getRuntime().gc();
+
+        Debug.resetThreadAllocCount();
+        long elapsed = 0;
+        for (int i = 0; i < iterations; i++) {
+            setUp.run(i);
+
+            Debug.startAllocCounting();
+            long start = System.nanoTime();
+            sink += operation.run(i);
+            elapsed += System.nanoTime() - start;
+            Debug.stopAllocCounting();
+        }
+        int allocations = Debug.getThreadAllocCount();
+
+        sSink += sink;
+
+        Result result = new Result(name,
+                iterations,
+                (double) elapsed / iterations,
+                (double) allocations / iterations);
+        Log.i(TAG, result.toString());
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+package com.codeking123.android.sunshine.debug;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.codeking123.android.sunshine.data.ForecastSnapshotStore;
+import com.codeking123.android.sunshine.data.WeatherContract;
+import com.codeking123.android.sunshine.utilities.FakeDataUtils;
+import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
+
+/**
+ * Replaces the stored forecast with a synthetic one of any length, starting today, so that
+ * benchmarks always measure the same data. The result code of the broadcast is the number of rows
+ * stored.
+ * <p>
+ * The forecast snapshot MainActivity draws from on launch is rewritten to match, as a sync would,
+ * or removed, so startup can be measured both ways.
+ * <p>
+ * As long as there is weather stored, the app doesn't sync on launch, so the data set stays in
+ * place until the next periodic sync.
+ */
+public class SeedForecastReceiver extends BroadcastReceiver {
+
+    private static final String TAG = SeedForecastReceiver.class.getSimpleName();
+
+    public static final String ACTION_SEED_FORECAST =
+            "com.codeking123.android.sunshine.debug.SEED_FORECAST";
+
+    /* Number of days to store, two weeks by default like a real forecast */
+    public static final String EXTRA_ROWS = "rows";
+
+    /* Seed of the synthetic data set, a long */
+    public static final String EXTRA_SEED = "seed";
+
+    /* Whether to write the forecast snapshot, a boolean that is true by default */
+    public static final String EXTRA_SNAPSHOT = "snapshot";
+
+    private static final int DEFAULT_ROWS = 14;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        int rows = Math.max(0, intent.getIntExtra(EXTRA_ROWS, DEFAULT_ROWS));
+        long seed = intent.getLongExtra(EXTRA_SEED, FakeDataUtils.DEFAULT_SEED);
+
+        context.getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI, null, null);
+        int inserted = FakeDataUtils.insertSyntheticData(context, seed, 0,
+                SunshineDateUtils.getNormalizedUtcDateForToday(), rows);
+
+        if (intent.getBooleanExtra(EXTRA_SNAPSHOT, true)) {
+            ForecastSnapshotStore.update(context);
+        } else {
+            ForecastSnapshotStore.delete(context);
+        }
+
+        Log.i(TAG, "Seeded " + inserted + " days of weather");
+        setResult(Activity.RESULT_OK, Integer.toString(inserted), null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.codeking123.android.sunshine;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+import com.codeking123.android.sunshine.core.geo.City;
+import com.codeking123.android.sunshine.core.geo.CityCatalog;
+import com.codeking123.android.sunshine.data.CityCatalogAsset;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Suggests cities of the bundled catalogue for the location typed so far. Picking one fills in
+ * its label, which the settings resolve to coordinates, see CityCatalogAsset.
+ */
+class CitySuggestionAdapter extends BaseAdapter implements Filterable {
+
+    private final Context mContext;
+
+    private List<City> mCities = Collections.emptyList();
+
+    /* Runs on a worker thread, where the catalogue is also read the first time */
+    private final Filter mFilter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            FilterResults results = new FilterResults();
+            if (constraint != null) {
+                List<City> cities = CityCatalogAsset.getInstance(mContext)
+                        .suggest(constraint.toString(), CityCatalog.MAX_SUGGESTIONS);
+                results.values = cities;
+                results.count = cities.size();
+            }
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            if (results.count > 0) {
+                mCities = (List<City>) results.values;
+                notifyDataSetChanged();
+            } else {
+                mCities = Collections.emptyList();
+                notifyDataSetInvalidated();
+            }
+        }
+
+        @Override
+        public CharSequence convertResultToString(Object resultValue) {
+            return ((City) resultValue).getLabel();
+        }
+    };
+
+    CitySuggestionAdapter(@NonNull Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    @Override
+    public int getCount() {
+        return mCities.size();
+    }
+
+    @Override
+    public City getItem(int position) {
+        return mCities.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = (TextView) convertView;
+        if (view == null) {
+            view = (TextView) LayoutInflater.from(parent.getContext())
+                    .inflate(android.R.layout.simple_dropdown_item_1line, parent, false);
+        }
+        view.setText(getItem(position).getLabel());
+        return view;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return mFilter;
+    }
+}
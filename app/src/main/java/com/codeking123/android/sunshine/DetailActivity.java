@@ -2,23 +2,33 @@
 package com.codeking123.android.sunshine;
 
 import android.content.Intent;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.databinding.DataBindingUtil;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.app.ShareCompat;
 import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
+import android.support.v4.view.GestureDetectorCompat;
+import android.support.v4.view.ViewCompat;
 import android.support.v7.app.AppCompatActivity;
+import android.view.GestureDetector;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
+import android.view.MotionEvent;
 
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.data.ForecastDayCache;
 import com.codeking123.android.sunshine.data.WeatherContract;
 import com.codeking123.android.sunshine.databinding.ActivityDetailBinding;
+import com.codeking123.android.sunshine.utilities.DateLabelCache;
 import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
 import com.codeking123.android.sunshine.utilities.SunshineWeatherUtils;
+import com.codeking123.android.sunshine.utilities.WeatherConditionCatalog;
 
 public class DetailActivity extends AppCompatActivity implements
         LoaderManager.LoaderCallbacks<Cursor> {
@@ -46,15 +56,28 @@ public class DetailActivity extends AppCompatActivity implements
     public static final int INDEX_WEATHER_CONDITION_ID = 7;
     private static final int ID_DETAIL_LOADER = 353;
 
+    private static final String STATE_DATE = "date";
+
     /* A summary of the forecast that can be shared by clicking the share button in the ActionBar */
     private String mForecastSummary;
 
     /* The URI that is used to access the chosen day's weather details */
     private Uri mUri;
 
+    /* The day shown, which changes as the user swipes to the days around it */
+    private long mDate;
+
 
     private ActivityDetailBinding mDetailBinding;
 
+    /*
+     * The day is usually bound from what the forecast list handed over, without a loader to
+     * notice when the weather changes, so this does instead.
+     */
+    private ContentObserver mWeatherObserver;
+
+    private GestureDetectorCompat mSwipeDetector;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -62,11 +85,101 @@ public class DetailActivity extends AppCompatActivity implements
 
         mDetailBinding = DataBindingUtil.setContentView(this, R.layout.activity_detail);
 
-        mUri = getIntent().getData();
-        if (mUri == null) throw new NullPointerException("URI for DetailActivity cannot be null");
+        Uri uri = getIntent().getData();
+        if (uri == null) throw new NullPointerException("URI for DetailActivity cannot be null");
+
+        mWeatherObserver = new ContentObserver(new Handler()) {
+            @Override
+            public void onChange(boolean selfChange) {
+                /* A running loader reloads by itself */
+                if (getSupportLoaderManager().getLoader(ID_DETAIL_LOADER) == null) {
+                    getSupportLoaderManager().restartLoader(ID_DETAIL_LOADER, null,
+                            DetailActivity.this);
+                }
+            }
+        };
+        getContentResolver().registerContentObserver(
+                WeatherContract.WeatherEntry.CONTENT_URI, true, mWeatherObserver);
+
+        mSwipeDetector = new GestureDetectorCompat(this, new SwipeListener());
+
+        if (savedInstanceState != null && savedInstanceState.containsKey(STATE_DATE)) {
+            showDay(savedInstanceState.getLong(STATE_DATE));
+        } else {
+            showDay(Long.parseLong(uri.getLastPathSegment()));
+        }
+    }
+
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putLong(STATE_DATE, mDate);
+    }
+
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        getContentResolver().unregisterContentObserver(mWeatherObserver);
+    }
+
+
+    /*
+     * Shows a day, binding it right away if it is in the ForecastDayCache and querying it
+     * otherwise. Either way, the days around it are prefetched for swiping to them.
+     */
+    private void showDay(long date) {
+        mDate = date;
+        mUri = WeatherContract.WeatherEntry.buildWeatherUriWithDate(date);
+
+        ForecastDayCache dayCache = ForecastDayCache.getInstance(this);
+        WeatherRecord day = dayCache.get(date);
+        if (day != null) {
+            /* A loader for the day shown before would bind that day again when it reloads */
+            getSupportLoaderManager().destroyLoader(ID_DETAIL_LOADER);
+            bindDay(day);
+            dayCache.prefetchAround(date);
+        } else {
+            /* This connects our Activity into the loader lifecycle. */
+            getSupportLoaderManager().restartLoader(ID_DETAIL_LOADER, null, this);
+        }
+    }
+
+
+    /*
+     * Moves to the day after (1) or before (-1) the one shown. Only days that are prefetched
+     * already are moved to, so a swipe never shows an empty screen, and swipes past the end of
+     * the forecast do nothing.
+     */
+    private boolean showAdjacentDay(int direction) {
+        long date = mDate + direction * SunshineDateUtils.DAY_IN_MILLIS;
+        if (ForecastDayCache.getInstance(this).get(date) == null) return false;
+
+        showDay(date);
+        return true;
+    }
+
 
-        /* This connects our Activity into the loader lifecycle. */
-        getSupportLoaderManager().initLoader(ID_DETAIL_LOADER, null, this);
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        mSwipeDetector.onTouchEvent(event);
+        return super.dispatchTouchEvent(event);
+    }
+
+
+    private class SwipeListener extends GestureDetector.SimpleOnGestureListener {
+
+        @Override
+        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+            if (Math.abs(velocityX) <= Math.abs(velocityY)) return false;
+
+            /* Swiping towards the start of the line goes forward in time */
+            boolean rtl = ViewCompat.getLayoutDirection(mDetailBinding.getRoot())
+                    == ViewCompat.LAYOUT_DIRECTION_RTL;
+            boolean towardsStart = rtl ? velocityX > 0 : velocityX < 0;
+            return showAdjacentDay(towardsStart ? 1 : -1);
+        }
     }
 
 
@@ -147,25 +260,31 @@ public class DetailActivity extends AppCompatActivity implements
             return;
         }
 
+        bindDay(ForecastDayCache.readDay(data));
+        ForecastDayCache.getInstance(this).prefetchAround(mDate);
+    }
+
 
-        /* Read weather condition ID from the cursor (ID provided by Open Weather Map) */
-        int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
+    private void bindDay(WeatherRecord day) {
+        /* Weather condition ID provided by Open Weather Map */
+        int weatherId = day.weatherId;
         /* Use our utility method to determine the resource ID for the proper art */
-        int weatherImageId = SunshineWeatherUtils.getLargeArtResourceIdForWeatherCondition(weatherId);
+        int weatherImageId = WeatherConditionCatalog.getLargeArtResourceId(weatherId);
 
         /* Set the resource ID on the icon to display the art */
         mDetailBinding.primaryInfo.weatherIcon.setImageResource(weatherImageId);
 
 
 
-        long localDateMidnightGmt = data.getLong(INDEX_WEATHER_DATE);
-        String dateText = SunshineDateUtils.getFriendlyDateString(this, localDateMidnightGmt, true);
+        long localDateMidnightGmt = day.date;
+        String dateText = DateLabelCache.getInstance(this)
+                .getFriendlyDateString(localDateMidnightGmt, true);
 
         mDetailBinding.primaryInfo.date.setText(dateText);
 
 
         /* Use the weatherId to obtain the proper description */
-        String description = SunshineWeatherUtils.getStringForWeatherCondition(this, weatherId);
+        String description = WeatherConditionCatalog.getInstance(this).getDescription(weatherId);
 
         /* Create the accessibility (a11y) String from the weather description */
         String descriptionA11y = getString(R.string.a11y_forecast, description);
@@ -177,8 +296,8 @@ public class DetailActivity extends AppCompatActivity implements
         /* Set the content description on the weather image (for accessibility purposes) */
         mDetailBinding.primaryInfo.weatherIcon.setContentDescription(descriptionA11y);
 
-        /* Read high temperature from the cursor (in degrees celsius) */
-        double highInCelsius = data.getDouble(INDEX_WEATHER_MAX_TEMP);
+        /* High temperature, in degrees celsius */
+        double highInCelsius = day.maxTemp;
 
         String highString = SunshineWeatherUtils.formatTemperature(this, highInCelsius);
 
@@ -189,8 +308,8 @@ public class DetailActivity extends AppCompatActivity implements
         mDetailBinding.primaryInfo.highTemperature.setText(highString);
         mDetailBinding.primaryInfo.highTemperature.setContentDescription(highA11y);
 
-        /* Read low temperature from the cursor (in degrees celsius) */
-        double lowInCelsius = data.getDouble(INDEX_WEATHER_MIN_TEMP);
+        /* Low temperature, in degrees celsius */
+        double lowInCelsius = day.minTemp;
         /*
          * If the user's preference for weather is fahrenheit, formatTemperature will convert
          * the temperature. This method will also append either °C or °F to the temperature
@@ -205,8 +324,8 @@ public class DetailActivity extends AppCompatActivity implements
         mDetailBinding.primaryInfo.lowTemperature.setContentDescription(lowA11y);
 
 
-        /* Read humidity from the cursor */
-        float humidity = data.getFloat(INDEX_WEATHER_HUMIDITY);
+        /* Humidity, as a float so it is formatted as before */
+        float humidity = (float) day.humidity;
         String humidityString = getString(R.string.format_humidity, humidity);
 
         String humidityA11y = getString(R.string.a11y_humidity, humidityString);
@@ -217,9 +336,9 @@ public class DetailActivity extends AppCompatActivity implements
 
         mDetailBinding.extraDetails.humidityLabel.setContentDescription(humidityA11y);
 
-        /* Read wind speed (in MPH) and direction (in compass degrees) from the cursor  */
-        float windSpeed = data.getFloat(INDEX_WEATHER_WIND_SPEED);
-        float windDirection = data.getFloat(INDEX_WEATHER_DEGREES);
+        /* Wind speed and direction (in compass degrees) */
+        float windSpeed = (float) day.windSpeed;
+        float windDirection = (float) day.degrees;
         String windString = SunshineWeatherUtils.getFormattedWind(this, windSpeed, windDirection);
 
         String windA11y = getString(R.string.a11y_wind, windString);
@@ -230,8 +349,8 @@ public class DetailActivity extends AppCompatActivity implements
 
         mDetailBinding.extraDetails.windLabel.setContentDescription(windA11y);
 
-        /* Read pressure from the cursor */
-        float pressure = data.getFloat(INDEX_WEATHER_PRESSURE);
+        /* Pressure */
+        float pressure = (float) day.pressure;
 
         /*
          * Format the pressure text using string resources. The reason we directly access
@@ -2,7 +2,6 @@
 package com.codeking123.android.sunshine;
 
 import android.content.Context;
-import android.database.Cursor;
 import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
@@ -11,11 +10,16 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
+import com.codeking123.android.sunshine.core.snapshot.ForecastSnapshot;
+import com.codeking123.android.sunshine.data.ForecastDayCache;
+import com.codeking123.android.sunshine.utilities.DateLabelCache;
+import com.codeking123.android.sunshine.utilities.SunshineTrace;
 import com.codeking123.android.sunshine.utilities.SunshineWeatherUtils;
+import com.codeking123.android.sunshine.utilities.WeatherConditionCatalog;
 
 
-class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapterViewHolder> {
+class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapterViewHolder>
+        implements ForecastPager.Callback {
 
     private static final int VIEW_TYPE_TODAY = 0;
     private static final int VIEW_TYPE_FUTURE_DAY = 1;
@@ -34,51 +38,89 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
 
     private boolean mUseTodayLayout;
 
-    private Cursor mCursor;
+    /* Rows are bound from pages, so only the part of the forecast near the screen is in memory */
+    private final ForecastPager mPager;
+
+    /* Run once the first rows of a new forecast can be shown */
+    private Runnable mOnFirstPageLoaded;
+
+    /*
+     * Days drawn on launch, before the live forecast is counted and its first page loaded. Day
+     * mSnapshotFirstDay is shown at position 0.
+     */
+    private ForecastSnapshot mSnapshot;
+    private int mSnapshotFirstDay;
 
 
     public ForecastAdapter(@NonNull Context context, ForecastAdapterOnClickHandler clickHandler) {
         mContext = context;
         mClickHandler = clickHandler;
         mUseTodayLayout = mContext.getResources().getBoolean(R.bool.use_today_layout);
+        mPager = new ForecastPager(context.getContentResolver(),
+                ForecastDayCache.getInstance(context), this);
     }
 
 
     @Override
     public ForecastAdapterViewHolder onCreateViewHolder(ViewGroup viewGroup, int viewType) {
+        SunshineTrace.beginSection("ForecastAdapter.onCreateViewHolder");
+        try {
+            int layoutId;
 
-        int layoutId;
+            switch (viewType) {
 
-        switch (viewType) {
+                case VIEW_TYPE_TODAY: {
+                    layoutId = R.layout.list_item_forecast_today;
+                    break;
+                }
 
-            case VIEW_TYPE_TODAY: {
-                layoutId = R.layout.list_item_forecast_today;
-                break;
-            }
+                case VIEW_TYPE_FUTURE_DAY: {
+                    layoutId = R.layout.forecast_list_item;
+                    break;
+                }
 
-            case VIEW_TYPE_FUTURE_DAY: {
-                layoutId = R.layout.forecast_list_item;
-                break;
+                default:
+                    throw new IllegalArgumentException("Invalid view type, value of " + viewType);
             }
 
-            default:
-                throw new IllegalArgumentException("Invalid view type, value of " + viewType);
-        }
-
-        View view = LayoutInflater.from(mContext).inflate(layoutId, viewGroup, false);
+            View view = LayoutInflater.from(mContext).inflate(layoutId, viewGroup, false);
 
-        view.setFocusable(true);
+            view.setFocusable(true);
 
-        return new ForecastAdapterViewHolder(view);
+            return new ForecastAdapterViewHolder(view);
+        } finally {
+            SunshineTrace.endSection();
+        }
     }
 
 
     @Override
     public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position) {
-        mCursor.moveToPosition(position);
+        SunshineTrace.beginSection("ForecastAdapter.onBindViewHolder");
+        try {
+            ForecastPager.Page page = getLoadedPage(position);
+            if (page != null) {
+                int row = position - page.firstPosition;
+                bind(forecastAdapterViewHolder, position, page.dates[row], page.weatherIds[row],
+                        page.maxTemperatures[row], page.minTemperatures[row]);
+            } else if (isInSnapshot(position)) {
+                int day = mSnapshotFirstDay + position;
+                bind(forecastAdapterViewHolder, position, mSnapshot.getDate(day),
+                        mSnapshot.getWeatherId(day), mSnapshot.getMaxTemperature(day),
+                        mSnapshot.getMinTemperature(day));
+            } else {
+                /* Shown for the moment it takes to load the page, rebound by onPageLoaded */
+                bindPlaceholder(forecastAdapterViewHolder);
+            }
+        } finally {
+            SunshineTrace.endSection();
+        }
+    }
 
 
-        int weatherId = mCursor.getInt(MainActivity.INDEX_WEATHER_CONDITION_ID);
+    private void bind(ForecastAdapterViewHolder forecastAdapterViewHolder, int position,
+                      long dateInMillis, int weatherId, double highInCelsius,
+                      double lowInCelsius) {
         int weatherImageId;
 
         int viewType = getItemViewType(position);
@@ -86,13 +128,11 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         switch (viewType) {
 
             case VIEW_TYPE_TODAY:
-                weatherImageId = SunshineWeatherUtils
-                        .getLargeArtResourceIdForWeatherCondition(weatherId);
+                weatherImageId = WeatherConditionCatalog.getLargeArtResourceId(weatherId);
                 break;
 
             case VIEW_TYPE_FUTURE_DAY:
-                weatherImageId = SunshineWeatherUtils
-                        .getSmallArtResourceIdForWeatherCondition(weatherId);
+                weatherImageId = WeatherConditionCatalog.getSmallArtResourceId(weatherId);
                 break;
 
             default:
@@ -102,16 +142,16 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         forecastAdapterViewHolder.iconView.setImageResource(weatherImageId);
 
 
-         /* Read date from the cursor */
-        long dateInMillis = mCursor.getLong(MainActivity.INDEX_WEATHER_DATE);
          /* Get human readable string using our utility method */
-        String dateString = SunshineDateUtils.getFriendlyDateString(mContext, dateInMillis, false);
+        String dateString = DateLabelCache.getInstance(mContext)
+                .getFriendlyDateString(dateInMillis, false);
 
          /* Display friendly date string */
         forecastAdapterViewHolder.dateView.setText(dateString);
 
 
-        String description = SunshineWeatherUtils.getStringForWeatherCondition(mContext, weatherId);
+        String description =
+                WeatherConditionCatalog.getInstance(mContext).getDescription(weatherId);
          /* Create the accessibility (a11y) String from the weather description */
         String descriptionA11y = mContext.getString(R.string.a11y_forecast, description);
 
@@ -120,12 +160,10 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         forecastAdapterViewHolder.descriptionView.setContentDescription(descriptionA11y);
 
 
-         /* Read high temperature from the cursor (in degrees celsius) */
-        double highInCelsius = mCursor.getDouble(MainActivity.INDEX_WEATHER_MAX_TEMP);
          /*
-          * If the user's preference for weather is fahrenheit, formatTemperature will convert
-          * the temperature. This method will also append either °C or °F to the temperature
-          * String.
+          * The high temperature is in degrees celsius. If the user's preference for weather is
+          * fahrenheit, formatTemperature will convert the temperature. This method will also
+          * append either °C or °F to the temperature String.
           */
         String highString = SunshineWeatherUtils.formatTemperature(mContext, highInCelsius);
          /* Create the accessibility (a11y) String from the weather description */
@@ -136,9 +174,7 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         forecastAdapterViewHolder.highTempView.setContentDescription(highA11y);
 
 
-         /* Read low temperature from the cursor (in degrees celsius) */
-        double lowInCelsius = mCursor.getDouble(MainActivity.INDEX_WEATHER_MIN_TEMP);
-
+         /* So is the low temperature */
         String lowString = SunshineWeatherUtils.formatTemperature(mContext, lowInCelsius);
         String lowA11y = mContext.getString(R.string.a11y_low_temp, lowString);
 
@@ -148,10 +184,35 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
     }
 
 
+    private static void bindPlaceholder(ForecastAdapterViewHolder forecastAdapterViewHolder) {
+        forecastAdapterViewHolder.iconView.setImageDrawable(null);
+        forecastAdapterViewHolder.dateView.setText(null);
+        forecastAdapterViewHolder.descriptionView.setText(null);
+        forecastAdapterViewHolder.descriptionView.setContentDescription(null);
+        forecastAdapterViewHolder.highTempView.setText(null);
+        forecastAdapterViewHolder.highTempView.setContentDescription(null);
+        forecastAdapterViewHolder.lowTempView.setText(null);
+        forecastAdapterViewHolder.lowTempView.setContentDescription(null);
+    }
+
+
+    /* The page holding a row of the live forecast, or null if it isn't counted or loaded yet */
+    private ForecastPager.Page getLoadedPage(int position) {
+        return mPager.getCount() > 0 ? mPager.getPage(position) : null;
+    }
+
+
+    private boolean isInSnapshot(int position) {
+        return mSnapshot != null && position < mSnapshot.getCount() - mSnapshotFirstDay;
+    }
+
+
     @Override
     public int getItemCount() {
-        if (null == mCursor) return 0;
-        return mCursor.getCount();
+        if (mPager.getCount() == 0 && mSnapshot != null) {
+            return mSnapshot.getCount() - mSnapshotFirstDay;
+        }
+        return mPager.getCount();
     }
 
 
@@ -165,12 +226,57 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
     }
 
 
-    void swapCursor(Cursor newCursor) {
-        mCursor = newCursor;
+    /**
+     * Shows the days of a snapshot from a given date onwards until the live forecast is loaded.
+     * Does nothing once a live forecast is shown.
+     *
+     * @param snapshot           The snapshot, or null
+     * @param normalizedUtcToday The date of the first day to show
+     * @return Whether any days are shown from the snapshot
+     */
+    boolean showSnapshot(ForecastSnapshot snapshot, long normalizedUtcToday) {
+        if (snapshot == null || mPager.getCount() > 0) return false;
+
+        int firstDay = snapshot.indexOfFirstDayFrom(normalizedUtcToday);
+        if (firstDay == snapshot.getCount()) return false;
+
+        mSnapshot = snapshot;
+        mSnapshotFirstDay = firstDay;
+        notifyDataSetChanged();
+        return true;
+    }
+
+
+    /**
+     * Starts showing a new forecast. Its rows are loaded page by page as they are bound. Days
+     * shown from a snapshot stay in place until the first page has loaded, so the list doesn't
+     * go blank in between.
+     *
+     * @param selection         Selects the days shown, as given to WeatherProvider
+     * @param count             The number of days the selection matches
+     * @param onFirstPageLoaded Run once the first rows can be shown, or null
+     */
+    void setForecast(String selection, int count, Runnable onFirstPageLoaded) {
+        mPager.reset(selection, count);
+        mOnFirstPageLoaded = count > 0 ? onFirstPageLoaded : null;
+        if (count == 0) mSnapshot = null;
         notifyDataSetChanged();
     }
 
 
+    @Override
+    public void onPageLoaded(int firstPosition, int count) {
+        if (firstPosition == 0) mSnapshot = null;
+        notifyItemRangeChanged(firstPosition, count);
+
+        if (firstPosition == 0 && mOnFirstPageLoaded != null) {
+            Runnable onFirstPageLoaded = mOnFirstPageLoaded;
+            mOnFirstPageLoaded = null;
+            onFirstPageLoaded.run();
+        }
+    }
+
+
     class ForecastAdapterViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
         final ImageView iconView;
 
@@ -195,8 +301,20 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
-            mCursor.moveToPosition(adapterPosition);
-            long dateInMillis = mCursor.getLong(MainActivity.INDEX_WEATHER_DATE);
+            if (adapterPosition == RecyclerView.NO_POSITION) return;
+
+            long dateInMillis;
+            ForecastPager.Page page = getLoadedPage(adapterPosition);
+            if (page != null) {
+                dateInMillis = page.dates[adapterPosition - page.firstPosition];
+                /* So the detail screen binds right away and can be swiped to the next days */
+                mPager.cacheDaysAround(adapterPosition, ForecastDayCache.NEIGHBOURS);
+            } else if (isInSnapshot(adapterPosition)) {
+                dateInMillis = mSnapshot.getDate(mSnapshotFirstDay + adapterPosition);
+            } else {
+                /* A row still showing its placeholder has nothing to open yet */
+                return;
+            }
             mClickHandler.onClick(dateInMillis);
         }
     }
@@ -0,0 +1,275 @@
+package com.codeking123.android.sunshine;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.data.ForecastDayCache;
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
+import com.codeking123.android.sunshine.utilities.SunshineTrace;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the rows of the forecast list from fixed size pages, loaded from WeatherProvider in the
+ * background as the list scrolls. Only the pages around the row last asked for are kept, so the
+ * memory used is the same for a week of forecast as for years of it.
+ * <p>
+ * Pages are found by the date of the page next to them when one is loaded, which is the common
+ * case while scrolling, and by their offset otherwise, such as after a jump to a far position.
+ * <p>
+ * Pages hold every column the detail screen shows, so the days around a tapped row can be handed
+ * to it through {@link ForecastDayCache} without a second query.
+ * <p>
+ * All methods must be called on the thread results are delivered on, the main thread in the app.
+ */
+class ForecastPager {
+
+    static final int PAGE_SIZE = 50;
+
+    /* Pages kept on each side of the one last asked for. The nearest of them are loaded ahead. */
+    static final int PAGES_KEPT_AROUND = 2;
+    private static final int PAGES_LOADED_AHEAD = 1;
+
+    /* One thread, so pages load in the order they are asked for */
+    private static final Executor sDefaultLoadExecutor = Executors.newSingleThreadExecutor();
+
+    interface Callback {
+        /**
+         * Called when the rows at firstPosition onwards can be bound.
+         */
+        void onPageLoaded(int firstPosition, int count);
+    }
+
+    /**
+     * Rows firstPosition to firstPosition + size - 1 of the forecast, in the columns of
+     * {@link DetailActivity#WEATHER_DETAIL_PROJECTION}, copied out of the cursor they were read
+     * from so no CursorWindow is held on to.
+     */
+    static final class Page {
+        final int index;
+        final int firstPosition;
+
+        /* The ForecastDayCache version from before the page was read */
+        final int cacheVersion;
+
+        final long[] dates;
+        final double[] maxTemperatures;
+        final double[] minTemperatures;
+        final int[] weatherIds;
+        final double[] humidities;
+        final double[] pressures;
+        final double[] windSpeeds;
+        final double[] windDirections;
+
+        Page(int index, int size, int cacheVersion) {
+            this.index = index;
+            this.firstPosition = index * PAGE_SIZE;
+            this.cacheVersion = cacheVersion;
+            this.dates = new long[size];
+            this.maxTemperatures = new double[size];
+            this.minTemperatures = new double[size];
+            this.weatherIds = new int[size];
+            this.humidities = new double[size];
+            this.pressures = new double[size];
+            this.windSpeeds = new double[size];
+            this.windDirections = new double[size];
+        }
+
+        int size() {
+            return dates.length;
+        }
+
+        WeatherRecord getDay(int row) {
+            return new WeatherRecord(dates[row], weatherIds[row], minTemperatures[row],
+                    maxTemperatures[row], humidities[row], pressures[row], windSpeeds[row],
+                    windDirections[row]);
+        }
+    }
+
+    private final ContentResolver mResolver;
+    private final ForecastDayCache mDayCache;
+    private final Callback mCallback;
+    private final Executor mLoadExecutor;
+    private final Executor mDeliveryExecutor;
+
+    private final SparseArray<Page> mPages = new SparseArray<>();
+    private final SparseBooleanArray mPagesLoading = new SparseBooleanArray();
+
+    private String mSelection;
+    private int mCount;
+
+    /* Incremented on every reset, so pages loaded for an older forecast are dropped */
+    private int mGeneration;
+
+    ForecastPager(ContentResolver resolver, ForecastDayCache dayCache, Callback callback) {
+        this(resolver, dayCache, callback, sDefaultLoadExecutor, new Executor() {
+            private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+            @Override
+            public void execute(Runnable command) {
+                mMainHandler.post(command);
+            }
+        });
+    }
+
+    /* Lets benchmarks load pages synchronously */
+    ForecastPager(ContentResolver resolver, ForecastDayCache dayCache, Callback callback,
+                  Executor loadExecutor, Executor deliveryExecutor) {
+        mResolver = resolver;
+        mDayCache = dayCache;
+        mCallback = callback;
+        mLoadExecutor = loadExecutor;
+        mDeliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * Drops every page and starts serving a new forecast.
+     *
+     * @param selection Selects the days shown, as given to WeatherProvider
+     * @param count     The number of days the selection matches
+     */
+    void reset(String selection, int count) {
+        mGeneration++;
+        mPages.clear();
+        mPagesLoading.clear();
+        mSelection = selection;
+        mCount = count;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    /* For benchmarks and tests to check that memory stays bounded */
+    int getPagesKept() {
+        return mPages.size();
+    }
+
+    /**
+     * Returns the page holding a row, loading the pages around it and dropping those far from it.
+     *
+     * @return The page, or null if it hasn't been loaded yet. The Callback is called once it is.
+     */
+    Page getPage(int position) {
+        int index = position / PAGE_SIZE;
+        int lastIndex = (mCount - 1) / PAGE_SIZE;
+
+        dropPagesAwayFrom(index);
+
+        load(index);
+        for (int distance = 1; distance <= PAGES_LOADED_AHEAD; distance++) {
+            if (index + distance <= lastIndex) load(index + distance);
+            if (index - distance >= 0) load(index - distance);
+        }
+
+        return mPages.get(index);
+    }
+
+    /**
+     * Puts the days of the loaded pages within the given distance of a row into the
+     * ForecastDayCache. Nothing is loaded for it.
+     */
+    void cacheDaysAround(int position, int distance) {
+        int first = Math.max(0, position - distance);
+        int last = Math.min(mCount - 1, position + distance);
+        for (int day = first; day <= last; day++) {
+            Page page = mPages.get(day / PAGE_SIZE);
+            if (page != null) {
+                mDayCache.put(page.getDay(day - page.firstPosition), page.cacheVersion);
+            }
+        }
+    }
+
+    private void dropPagesAwayFrom(int index) {
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            if (Math.abs(mPages.keyAt(i) - index) > PAGES_KEPT_AROUND) {
+                mPages.removeAt(i);
+            }
+        }
+    }
+
+    private void load(final int index) {
+        if (mPages.get(index) != null || mPagesLoading.get(index)) return;
+        mPagesLoading.put(index, true);
+
+        final int size = Math.min(PAGE_SIZE, mCount - index * PAGE_SIZE);
+        final int generation = mGeneration;
+        final String selection = mSelection;
+        final int cacheVersion = mDayCache.getVersion();
+
+        /* Find the page by the date of a neighbour if there is one */
+        Page previous = mPages.get(index - 1);
+        Page next = mPages.get(index + 1);
+        final boolean descending;
+        final Uri uri;
+        if (previous != null) {
+            uri = WeatherEntry.buildPageAfterDateUri(previous.dates[previous.size() - 1], size);
+            descending = false;
+        } else if (next != null) {
+            uri = WeatherEntry.buildPageBeforeDateUri(next.dates[0], size);
+            descending = true;
+        } else {
+            uri = WeatherEntry.buildPageAtOffsetUri(index * PAGE_SIZE, size);
+            descending = false;
+        }
+
+        mLoadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Page page = query(index, size, cacheVersion, uri, selection, descending);
+                mDeliveryExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(generation, index, page);
+                    }
+                });
+            }
+        });
+    }
+
+    private Page query(int index, int size, int cacheVersion, Uri uri, String selection,
+                       boolean descending) {
+        SunshineTrace.beginSection("ForecastPager.query");
+        Cursor cursor = null;
+        try {
+            cursor = mResolver.query(uri, DetailActivity.WEATHER_DETAIL_PROJECTION, selection,
+                    null, null);
+            /* The forecast changed since it was counted; the loader will reset us shortly */
+            if (cursor == null || cursor.getCount() != size) return null;
+
+            Page page = new Page(index, size, cacheVersion);
+            while (cursor.moveToNext()) {
+                int row = descending ? size - 1 - cursor.getPosition() : cursor.getPosition();
+                page.dates[row] = cursor.getLong(DetailActivity.INDEX_WEATHER_DATE);
+                page.maxTemperatures[row] = cursor.getDouble(DetailActivity.INDEX_WEATHER_MAX_TEMP);
+                page.minTemperatures[row] = cursor.getDouble(DetailActivity.INDEX_WEATHER_MIN_TEMP);
+                page.weatherIds[row] = cursor.getInt(DetailActivity.INDEX_WEATHER_CONDITION_ID);
+                page.humidities[row] = cursor.getDouble(DetailActivity.INDEX_WEATHER_HUMIDITY);
+                page.pressures[row] = cursor.getDouble(DetailActivity.INDEX_WEATHER_PRESSURE);
+                page.windSpeeds[row] = cursor.getDouble(DetailActivity.INDEX_WEATHER_WIND_SPEED);
+                page.windDirections[row] = cursor.getDouble(DetailActivity.INDEX_WEATHER_DEGREES);
+            }
+            return page;
+        } finally {
+            if (cursor != null) cursor.close();
+            SunshineTrace.endSection();
+        }
+    }
+
+    private void deliver(int generation, int index, Page page) {
+        if (generation != mGeneration) return;
+
+        mPagesLoading.delete(index);
+        if (page == null) return;
+
+        mPages.put(index, page);
+        mCallback.onPageLoaded(page.firstPosition, page.size());
+    }
+}
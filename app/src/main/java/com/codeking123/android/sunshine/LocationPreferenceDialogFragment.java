@@ -0,0 +1,28 @@
+package com.codeking123.android.sunshine;
+
+import android.os.Bundle;
+import android.support.v7.preference.EditTextPreferenceDialogFragmentCompat;
+import android.view.View;
+import android.widget.AutoCompleteTextView;
+
+/**
+ * Edits the location setting in the pref_dialog_location layout, suggesting cities of the bundled
+ * catalogue as the location is typed.
+ */
+public class LocationPreferenceDialogFragment extends EditTextPreferenceDialogFragmentCompat {
+
+    public static LocationPreferenceDialogFragment newInstance(String key) {
+        LocationPreferenceDialogFragment fragment = new LocationPreferenceDialogFragment();
+        Bundle arguments = new Bundle(1);
+        arguments.putString(ARG_KEY, key);
+        fragment.setArguments(arguments);
+        return fragment;
+    }
+
+    @Override
+    protected void onBindDialogView(View view) {
+        super.onBindDialogView(view);
+        AutoCompleteTextView location = (AutoCompleteTextView) view.findViewById(android.R.id.edit);
+        location.setAdapter(new CitySuggestionAdapter(view.getContext()));
+    }
+}
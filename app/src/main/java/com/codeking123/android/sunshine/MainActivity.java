@@ -1,9 +1,11 @@
 
 package com.codeking123.android.sunshine;
 
+import android.annotation.TargetApi;
 import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.content.CursorLoader;
@@ -16,11 +18,15 @@ import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.ProgressBar;
 
+import com.codeking123.android.sunshine.data.ForecastSnapshotStore;
 import com.codeking123.android.sunshine.data.SunshinePreferences;
 import com.codeking123.android.sunshine.data.WeatherContract;
 import com.codeking123.android.sunshine.sync.SunshineSyncUtils;
+import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
+import com.codeking123.android.sunshine.utilities.SunshineTrace;
 
 public class MainActivity extends AppCompatActivity implements
         LoaderManager.LoaderCallbacks<Cursor>,
@@ -55,6 +61,8 @@ public class MainActivity extends AppCompatActivity implements
 
     private ProgressBar mLoadingIndicator;
 
+    private boolean mReportedFullyDrawn;
+
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -88,7 +96,20 @@ public class MainActivity extends AppCompatActivity implements
         mRecyclerView.setAdapter(mForecastAdapter);
 
 
-        showLoading();
+        /*
+         * Draw the days the last sync left in the snapshot right away. The database isn't opened
+         * until the loader starts, and the live forecast replaces these days once it is loaded.
+         */
+        boolean showingSnapshot = mForecastAdapter.showSnapshot(ForecastSnapshotStore.load(this),
+                SunshineDateUtils.getNormalizedUtcDateForToday());
+        if (showingSnapshot) {
+            showWeatherDataView();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                reportFullyDrawnOnNextDraw();
+            }
+        } else {
+            showLoading();
+        }
 
         getSupportLoaderManager().initLoader(ID_FORECAST_LOADER, null, this);
 
@@ -115,50 +136,99 @@ public class MainActivity extends AppCompatActivity implements
 
     @Override
     public Loader<Cursor> onCreateLoader(int loaderId, Bundle bundle) {
-
-
-        switch (loaderId) {
-
-            case ID_FORECAST_LOADER:
-                /* URI for all rows of weather data in our weather table */
-                Uri forecastQueryUri = WeatherContract.WeatherEntry.CONTENT_URI;
-                /* Sort order: Ascending by date */
-                String sortOrder = WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
-                /*
-                 * A SELECTION in SQL declares which rows you'd like to return. In our case, we
-                 * want all weather data from today onwards that is stored in our weather table.
-                 * We created a handy method to do that in our WeatherEntry class.
-                 */
-                String selection = WeatherContract.WeatherEntry.getSqlSelectForTodayOnwards();
-
-                return new CursorLoader(this,
-                        forecastQueryUri,
-                        MAIN_FORECAST_PROJECTION,
-                        selection,
-                        null,
-                        sortOrder);
-
-            default:
-                throw new RuntimeException("Loader Not Implemented: " + loaderId);
+        SunshineTrace.beginSection("MainActivity.onCreateLoader");
+        try {
+            switch (loaderId) {
+
+                case ID_FORECAST_LOADER:
+                    /*
+                     * The loader only counts the days to show; ForecastAdapter loads the days
+                     * themselves page by page as they scroll into view. The count is reloaded,
+                     * and the pages with it, whenever the weather changes.
+                     */
+                    Uri forecastCountUri = WeatherContract.WeatherEntry.COUNT_URI;
+                    /*
+                     * A SELECTION in SQL declares which rows you'd like to return. In our case, we
+                     * want all weather data from today onwards that is stored in our weather table.
+                     * We created a handy method to do that in our WeatherEntry class.
+                     */
+                    String selection = WeatherContract.WeatherEntry.getSqlSelectForTodayOnwards();
+
+                    return new CursorLoader(this,
+                            forecastCountUri,
+                            null,
+                            selection,
+                            null,
+                            null);
+
+                default:
+                    throw new RuntimeException("Loader Not Implemented: " + loaderId);
+            }
+        } finally {
+            SunshineTrace.endSection();
         }
     }
 
 
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
+        SunshineTrace.beginSection("MainActivity.onLoadFinished");
+        try {
+            int count = data.moveToFirst() ? data.getInt(0) : 0;
+            String selection = ((CursorLoader) loader).getSelection();
+
+            mForecastAdapter.setForecast(selection, count, new Runnable() {
+                @Override
+                public void run() {
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                        reportFullyDrawnOnNextDraw();
+                    }
+                }
+            });
+            if (mPosition == RecyclerView.NO_POSITION) mPosition = 0;
+            mRecyclerView.smoothScrollToPosition(mPosition);
+            if (count != 0) {
+                showWeatherDataView();
+            } else {
+                /* Nothing to show until the first sync, even if a snapshot was shown until now */
+                showLoading();
+            }
+        } finally {
+            SunshineTrace.endSection();
+        }
+    }
 
 
-        mForecastAdapter.swapCursor(data);
-        if (mPosition == RecyclerView.NO_POSITION) mPosition = 0;
-        mRecyclerView.smoothScrollToPosition(mPosition);
-        if (data.getCount() != 0) showWeatherDataView();
+    /*
+     * Tells the system the forecast is on screen once the first frame showing its first days,
+     * from the snapshot or the first page, is about to be drawn. This is the "Fully drawn" time
+     * startup benchmarks measure, so it is only reported once per Activity.
+     */
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private void reportFullyDrawnOnNextDraw() {
+        if (mReportedFullyDrawn) return;
+        mReportedFullyDrawn = true;
+
+        mRecyclerView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        mRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        reportFullyDrawn();
+                        return true;
+                    }
+                });
     }
 
 
     @Override
     public void onLoaderReset(Loader<Cursor> loader) {
-
-        mForecastAdapter.swapCursor(null);
+        SunshineTrace.beginSection("MainActivity.onLoaderReset");
+        try {
+            mForecastAdapter.setForecast(null, 0, null);
+        } finally {
+            SunshineTrace.endSection();
+        }
     }
 
 
@@ -4,19 +4,26 @@ package com.codeking123.android.sunshine;
 import android.app.Activity;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.support.v4.app.DialogFragment;
+import android.support.v4.app.FragmentManager;
 import android.support.v7.preference.CheckBoxPreference;
 import android.support.v7.preference.ListPreference;
 import android.support.v7.preference.Preference;
 import android.support.v7.preference.PreferenceFragmentCompat;
 import android.support.v7.preference.PreferenceScreen;
 
+import com.codeking123.android.sunshine.core.geo.City;
+import com.codeking123.android.sunshine.data.CityCatalogAsset;
 import com.codeking123.android.sunshine.data.SunshinePreferences;
 import com.codeking123.android.sunshine.data.WeatherContract;
+import com.codeking123.android.sunshine.sync.SunshineSyncTask;
 import com.codeking123.android.sunshine.sync.SunshineSyncUtils;
 
 public class SettingsFragment extends PreferenceFragmentCompat implements
         SharedPreferences.OnSharedPreferenceChangeListener {
 
+    private static final String LOCATION_DIALOG_TAG = "location_dialog";
+
     private void setPreferenceSummary(Preference preference, Object value) {
         String stringValue = value.toString();
 
@@ -51,6 +58,23 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
         }
     }
 
+    @Override
+    public void onDisplayPreferenceDialog(Preference preference) {
+        if (!preference.getKey().equals(getString(R.string.pref_location_key))) {
+            super.onDisplayPreferenceDialog(preference);
+            return;
+        }
+        // The location gets a dialog of our own, which suggests cities as it is typed
+        FragmentManager fragmentManager = getFragmentManager();
+        if (fragmentManager == null
+                || fragmentManager.findFragmentByTag(LOCATION_DIALOG_TAG) != null) {
+            return;
+        }
+        DialogFragment dialog = LocationPreferenceDialogFragment.newInstance(preference.getKey());
+        dialog.setTargetFragment(this, 0);
+        dialog.show(fragmentManager, LOCATION_DIALOG_TAG);
+    }
+
     @Override
     public void onStop() {
         super.onStop();
@@ -73,8 +97,19 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
 
         if (key.equals(getString(R.string.pref_location_key))) {
             // we've changed the location
-            // Wipe out any potential PlacePicker latlng values so that we can use this text entry.
-            SunshinePreferences.resetLocationCoordinates(activity);
+            // A city of the catalogue, such as a suggestion picked, is synced by its coordinates
+            // straight away. Otherwise wipe out any potential PlacePicker latlng values so that
+            // we can use this text entry; the sync finds its coordinates in the GeocodeCache if
+            // it was resolved recently.
+            City city = CityCatalogAsset.getInstance(activity)
+                    .resolve(sharedPreferences.getString(key, ""));
+            if (city != null) {
+                SunshinePreferences.setLocationDetails(activity, city.latitude, city.longitude);
+            } else {
+                SunshinePreferences.resetLocationCoordinates(activity);
+            }
+            // Failures syncing the old location mustn't keep the new one from syncing
+            SunshineSyncTask.resetCircuitBreaker(activity);
             SunshineSyncUtils.startImmediateSync(activity);
         } else if (key.equals(getString(R.string.pref_units_key))) {
             // units have changed. update lists of weather entries accordingly
@@ -0,0 +1,72 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.codeking123.android.sunshine.core.geo.City;
+import com.codeking123.android.sunshine.core.geo.CityCatalog;
+import com.codeking123.android.sunshine.utilities.SunshineTrace;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Collections;
+
+/**
+ * The catalogue of cities bundled with the app, which the location setting suggests as it is
+ * typed and resolves to coordinates without asking the server. See CityCatalog for the format.
+ */
+public final class CityCatalogAsset {
+
+    private static final String TAG = CityCatalogAsset.class.getSimpleName();
+
+    static final String ASSET_NAME = "cities.tsv";
+
+    private static volatile CityCatalog sInstance;
+
+    private CityCatalogAsset() {
+    }
+
+    /**
+     * Reads the catalogue the first time it is asked for, which takes a few milliseconds, so
+     * better off the main thread; after that it is kept for the life of the process.
+     *
+     * @return The catalogue, or an empty one if the asset can't be read
+     */
+    public static CityCatalog getInstance(Context context) {
+        CityCatalog catalog = sInstance;
+        if (catalog != null) {
+            return catalog;
+        }
+
+        synchronized (CityCatalogAsset.class) {
+            catalog = sInstance;
+            if (catalog == null) {
+                catalog = read(context);
+                sInstance = catalog;
+            }
+            return catalog;
+        }
+    }
+
+    private static CityCatalog read(Context context) {
+        SunshineTrace.beginSection("CityCatalogAsset.read");
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(context.getAssets().open(ASSET_NAME), "UTF-8");
+            return CityCatalog.read(reader);
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't read the city catalogue, so there will be no suggestions", e);
+            return CityCatalog.build(Collections.<City>emptyList());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    /* Everything needed was read */
+                }
+            }
+            SunshineTrace.endSection();
+        }
+    }
+}
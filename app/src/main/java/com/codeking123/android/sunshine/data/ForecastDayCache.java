@@ -0,0 +1,177 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+
+import com.codeking123.android.sunshine.DetailActivity;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
+import com.codeking123.android.sunshine.utilities.SunshineTrace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the full weather of the days around the one being looked at, shared between the forecast
+ * list and the detail screen. The list hands over the day that was tapped and its neighbours from
+ * the pages it already loaded, so DetailActivity can bind on its first frame without querying,
+ * and DetailActivity prefetches further neighbours as the user swipes from day to day.
+ * <p>
+ * Everything is dropped whenever the stored weather changes. Each invalidation starts a new
+ * version, and days read before it are refused when they are put, so a query racing a sync can't
+ * bring old weather back.
+ * <p>
+ * All methods are thread-safe.
+ */
+public final class ForecastDayCache {
+
+    /* Days prefetched on each side of the day shown */
+    public static final int NEIGHBOURS = 7;
+
+    /* The least recently used days are dropped past this */
+    private static final int MAX_DAYS = 64;
+
+    private static final String SELECT_DATE_RANGE =
+            WeatherContract.WeatherEntry.COLUMN_DATE + " BETWEEN ? AND ?";
+
+    private static ForecastDayCache sInstance;
+
+    private final Context mContext;
+
+    /* One thread, so prefetches don't compete with each other for the database */
+    private final Executor mPrefetchExecutor = Executors.newSingleThreadExecutor();
+
+    private final Map<Long, WeatherRecord> mDays =
+            new LinkedHashMap<Long, WeatherRecord>(MAX_DAYS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, WeatherRecord> eldest) {
+                    return size() > MAX_DAYS;
+                }
+            };
+
+    private int mVersion;
+
+    private ForecastDayCache(Context context) {
+        mContext = context;
+    }
+
+    public static synchronized ForecastDayCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new ForecastDayCache(appContext);
+            sInstance.registerInvalidationObserver(appContext);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return The version days read now must be put with. Read it before querying them.
+     */
+    public synchronized int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Caches a day, unless the weather changed since it was read.
+     *
+     * @param day     The day's weather
+     * @param version {@link #getVersion()} from before the day was read
+     */
+    public synchronized void put(WeatherRecord day, int version) {
+        if (version == mVersion) {
+            mDays.put(day.date, day);
+        }
+    }
+
+    /**
+     * @param normalizedUtcDate Normalized date, as stored in the database
+     * @return The day's weather, or null if it isn't cached
+     */
+    public synchronized WeatherRecord get(long normalizedUtcDate) {
+        return mDays.get(normalizedUtcDate);
+    }
+
+    /**
+     * Drops every day and refuses those read before now.
+     */
+    public synchronized void invalidate() {
+        mVersion++;
+        mDays.clear();
+    }
+
+    /**
+     * Loads the {@link #NEIGHBOURS} days on each side of a day in the background, unless the
+     * days right next to it are cached already.
+     */
+    public void prefetchAround(long normalizedUtcDate) {
+        final long first = normalizedUtcDate - NEIGHBOURS * SunshineDateUtils.DAY_IN_MILLIS;
+        final long last = normalizedUtcDate + NEIGHBOURS * SunshineDateUtils.DAY_IN_MILLIS;
+        final int version;
+        synchronized (this) {
+            if (mDays.containsKey(normalizedUtcDate - SunshineDateUtils.DAY_IN_MILLIS)
+                    && mDays.containsKey(normalizedUtcDate + SunshineDateUtils.DAY_IN_MILLIS)) {
+                return;
+            }
+            version = mVersion;
+        }
+
+        mPrefetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                prefetch(first, last, version);
+            }
+        });
+    }
+
+    private void prefetch(long first, long last, int version) {
+        SunshineTrace.beginSection("ForecastDayCache.prefetch");
+        Cursor cursor = null;
+        try {
+            cursor = mContext.getContentResolver().query(
+                    WeatherContract.WeatherEntry.CONTENT_URI,
+                    DetailActivity.WEATHER_DETAIL_PROJECTION,
+                    SELECT_DATE_RANGE,
+                    new String[]{Long.toString(first), Long.toString(last)},
+                    null);
+            if (cursor == null) return;
+
+            while (cursor.moveToNext()) {
+                put(readDay(cursor), version);
+            }
+        } finally {
+            if (cursor != null) cursor.close();
+            SunshineTrace.endSection();
+        }
+    }
+
+    /**
+     * Reads the day at the cursor's position.
+     *
+     * @param cursor A cursor over {@link DetailActivity#WEATHER_DETAIL_PROJECTION}
+     */
+    public static WeatherRecord readDay(Cursor cursor) {
+        return new WeatherRecord(
+                cursor.getLong(DetailActivity.INDEX_WEATHER_DATE),
+                cursor.getInt(DetailActivity.INDEX_WEATHER_CONDITION_ID),
+                cursor.getDouble(DetailActivity.INDEX_WEATHER_MIN_TEMP),
+                cursor.getDouble(DetailActivity.INDEX_WEATHER_MAX_TEMP),
+                cursor.getDouble(DetailActivity.INDEX_WEATHER_HUMIDITY),
+                cursor.getDouble(DetailActivity.INDEX_WEATHER_PRESSURE),
+                cursor.getDouble(DetailActivity.INDEX_WEATHER_WIND_SPEED),
+                cursor.getDouble(DetailActivity.INDEX_WEATHER_DEGREES));
+    }
+
+    private void registerInvalidationObserver(Context appContext) {
+        /* Without a Handler, changes are delivered on a binder thread as soon as they happen */
+        appContext.getContentResolver().registerContentObserver(
+                WeatherContract.WeatherEntry.CONTENT_URI, true, new ContentObserver(null) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        invalidate();
+                    }
+                });
+    }
+}
@@ -0,0 +1,123 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import com.codeking123.android.sunshine.MainActivity;
+import com.codeking123.android.sunshine.core.snapshot.ForecastSnapshot;
+import com.codeking123.android.sunshine.utilities.SunshineTrace;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Keeps the first days of the forecast list in a {@link ForecastSnapshot} file, rewritten after
+ * every change to the stored weather, so MainActivity can draw them on launch straight from a
+ * memory-mapped file instead of waiting for the database to open and be queried.
+ */
+public final class ForecastSnapshotStore {
+
+    private static final String TAG = ForecastSnapshotStore.class.getSimpleName();
+
+    private static final String FILE_NAME = "forecast.snapshot";
+    private static final String TEMP_FILE_NAME = FILE_NAME + ".tmp";
+
+    /* A screen shows fewer days than this even on tablets, and the rest are loaded by then */
+    private static final int MAX_DAYS = 50;
+
+    private ForecastSnapshotStore() {
+    }
+
+    /**
+     * Writes the first days of the forecast from today onwards, as the list shows them, to the
+     * snapshot. The file is replaced in one rename, so a launch never reads it half written.
+     * Failing to write it is logged, never thrown: the snapshot only speeds up the next launch.
+     */
+    public static void update(Context context) {
+        SunshineTrace.beginSection("ForecastSnapshotStore.update");
+        Cursor cursor = null;
+        try {
+            cursor = context.getContentResolver().query(
+                    WeatherContract.WeatherEntry.buildPageAtOffsetUri(0, MAX_DAYS),
+                    MainActivity.MAIN_FORECAST_PROJECTION,
+                    WeatherContract.WeatherEntry.getSqlSelectForTodayOnwards(),
+                    null,
+                    null);
+            if (cursor == null) return;
+
+            ForecastSnapshot.Builder builder = new ForecastSnapshot.Builder(cursor.getCount());
+            while (cursor.moveToNext()) {
+                builder.add(cursor.getLong(MainActivity.INDEX_WEATHER_DATE),
+                        cursor.getDouble(MainActivity.INDEX_WEATHER_MAX_TEMP),
+                        cursor.getDouble(MainActivity.INDEX_WEATHER_MIN_TEMP),
+                        cursor.getInt(MainActivity.INDEX_WEATHER_CONDITION_ID));
+            }
+            write(context, builder.build());
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Couldn't write the forecast snapshot", e);
+        } finally {
+            if (cursor != null) cursor.close();
+            SunshineTrace.endSection();
+        }
+    }
+
+    private static void write(Context context, ByteBuffer snapshot) throws IOException {
+        File temp = new File(context.getFilesDir(), TEMP_FILE_NAME);
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.getChannel().write(snapshot);
+            /* The rename must not land on disk before the bytes it points to */
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(getFile(context))) {
+            throw new IOException("Couldn't replace " + FILE_NAME);
+        }
+    }
+
+    /**
+     * Maps the snapshot into memory. Days are read from the page cache as they are drawn, so
+     * this is cheap enough for the main thread while an Activity is being created.
+     *
+     * @return The snapshot, or null if there is none or it can't be read
+     */
+    public static ForecastSnapshot load(Context context) {
+        SunshineTrace.beginSection("ForecastSnapshotStore.load");
+        try {
+            File file = getFile(context);
+            if (!file.exists()) return null;
+
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                /* The mapping stays valid after the file is closed, or replaced by update */
+                FileChannel channel = in.getChannel();
+                return ForecastSnapshot.read(
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't read the forecast snapshot", e);
+            return null;
+        } finally {
+            SunshineTrace.endSection();
+        }
+    }
+
+    /**
+     * Removes the snapshot, so the next launch draws from the database alone.
+     */
+    public static void delete(Context context) {
+        getFile(context).delete();
+    }
+
+    private static File getFile(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+}
@@ -0,0 +1,149 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import com.codeking123.android.sunshine.core.geo.Geohash;
+import com.codeking123.android.sunshine.core.geo.TileLookup;
+import com.codeking123.android.sunshine.data.WeatherContract.TileEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
+
+/**
+ * Keeps the forecasts synced recently by geohash tile, through {@link TileEntry}. Every location
+ * of a tile is sent to the server as the tile's center, so they all get the same forecast, and
+ * while a tile's forecast is fresh a sync for any location of it is answered from the tile
+ * instead of the network. The precision of the tiles and how long a forecast stays fresh are
+ * preferences, see {@link SunshinePreferences#setTileCache}.
+ * <p>
+ * The cache only saves fetches: failing to read or write it is logged, never thrown.
+ */
+public final class ForecastTileStore {
+
+    private static final String TAG = ForecastTileStore.class.getSimpleName();
+
+    /* The columns of a day of weather, which a tile stores like WeatherEntry */
+    private static final String[] WEATHER_COLUMNS = {
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES,
+    };
+
+    private static final int INDEX_DATE = 0;
+    private static final int INDEX_WEATHER_ID = 1;
+    private static final int INDEX_MIN_TEMP = 2;
+    private static final int INDEX_MAX_TEMP = 3;
+    private static final int INDEX_HUMIDITY = 4;
+    private static final int INDEX_PRESSURE = 5;
+    private static final int INDEX_WIND_SPEED = 6;
+    private static final int INDEX_DEGREES = 7;
+
+    private ForecastTileStore() {
+    }
+
+    /**
+     * @return The tile of the user's location, or null if its coordinates aren't known yet
+     */
+    public static String getTile(Context context) {
+        if (!SunshinePreferences.isLocationLatLonAvailable(context)) {
+            return null;
+        }
+        double[] coordinates = SunshinePreferences.getLocationCoordinates(context);
+        return getTile(context, coordinates[0], coordinates[1]);
+    }
+
+    /**
+     * @return The tile of the coordinates at the preferred precision, or null if they aren't
+     * coordinates
+     */
+    public static String getTile(Context context, double latitude, double longitude) {
+        try {
+            return Geohash.encode(latitude, longitude,
+                    SunshinePreferences.getTilePrecision(context));
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "No tile for " + latitude + ", " + longitude, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return Whether a forecast of the tile is stored and still fresh at the time given
+     */
+    public static TileLookup lookup(Context context, String tile, long nowMillis) {
+        long fetchedAtMillis = TileLookup.NOT_FETCHED;
+        Cursor cursor = null;
+        try {
+            cursor = context.getContentResolver().query(TileEntry.CONTENT_URI,
+                    new String[]{TileEntry.COLUMN_FETCHED_AT},
+                    TileEntry.COLUMN_TILE + " = ?",
+                    new String[]{tile},
+                    null);
+            if (cursor != null && cursor.moveToFirst()) {
+                fetchedAtMillis = cursor.getLong(0);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Couldn't look up tile " + tile, e);
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+        return TileLookup.of(fetchedAtMillis, nowMillis,
+                SunshinePreferences.getTileTtlMillis(context));
+    }
+
+    /**
+     * @return The days of the tile's forecast, by date, as they would be inserted into
+     * {@link WeatherEntry#CONTENT_URI}; or null if none are stored
+     */
+    public static ContentValues[] read(Context context, String tile) {
+        Cursor cursor = null;
+        try {
+            cursor = context.getContentResolver().query(TileEntry.buildTileUri(tile),
+                    WEATHER_COLUMNS, null, null, null);
+            if (cursor == null || cursor.getCount() == 0) {
+                return null;
+            }
+
+            ContentValues[] days = new ContentValues[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ContentValues day = new ContentValues(WEATHER_COLUMNS.length);
+                day.put(WeatherEntry.COLUMN_DATE, cursor.getLong(INDEX_DATE));
+                day.put(WeatherEntry.COLUMN_WEATHER_ID, cursor.getInt(INDEX_WEATHER_ID));
+                day.put(WeatherEntry.COLUMN_MIN_TEMP, cursor.getDouble(INDEX_MIN_TEMP));
+                day.put(WeatherEntry.COLUMN_MAX_TEMP, cursor.getDouble(INDEX_MAX_TEMP));
+                day.put(WeatherEntry.COLUMN_HUMIDITY, cursor.getDouble(INDEX_HUMIDITY));
+                day.put(WeatherEntry.COLUMN_PRESSURE, cursor.getDouble(INDEX_PRESSURE));
+                day.put(WeatherEntry.COLUMN_WIND_SPEED, cursor.getDouble(INDEX_WIND_SPEED));
+                day.put(WeatherEntry.COLUMN_DEGREES, cursor.getDouble(INDEX_DEGREES));
+                days[i] = day;
+            }
+            return days;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Couldn't read tile " + tile, e);
+            return null;
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+    }
+
+    /**
+     * Replaces the forecast of the tile.
+     *
+     * @param days            The days of the forecast, as inserted into WeatherEntry
+     * @param fetchedAtMillis When the forecast was fetched, which it is fresh from
+     */
+    public static void save(Context context, String tile, ContentValues[] days,
+                            long fetchedAtMillis) {
+        try {
+            context.getContentResolver()
+                    .bulkInsert(TileEntry.buildTileUri(tile, fetchedAtMillis), days);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Couldn't save tile " + tile, e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.codeking123.android.sunshine.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import com.codeking123.android.sunshine.core.geo.CityCatalog;
+import com.codeking123.android.sunshine.data.WeatherContract.GeocodeEntry;
+
+/**
+ * Keeps the coordinates the server resolved locations set by name to, through
+ * {@link GeocodeEntry}, so that going back to a location used recently syncs it by its
+ * coordinates straight away instead of having it resolved again. Locations are kept normalized,
+ * so "Saint-Étienne" and "saint etienne" are the same, and only the most recently used ones are
+ * kept. How often syncs find their location here is reported by
+ * {@link WeatherContract.SyncMetricsEntry#GEOCODE_CACHE_URI}.
+ * <p>
+ * The cache only saves resolving: failing to read or write it is logged, never thrown.
+ */
+public final class GeocodeCache {
+
+    private static final String TAG = GeocodeCache.class.getSimpleName();
+
+    private static final String[] COORDINATE_COLUMNS = {
+            GeocodeEntry.COLUMN_LATITUDE,
+            GeocodeEntry.COLUMN_LONGITUDE,
+    };
+
+    private GeocodeCache() {
+    }
+
+    /**
+     * @return The location the way it is kept, or null if it has nothing to look up by, such as
+     * only spaces and punctuation
+     */
+    public static String normalize(String location) {
+        String query = CityCatalog.normalize(location);
+        return query.isEmpty() ? null : query;
+    }
+
+    /**
+     * Looks up the coordinates of a location, marking it as used if they are found.
+     *
+     * @param query     The location, normalized
+     * @param nowMillis When the location is used
+     * @return The latitude and longitude of the location, or null if they aren't kept
+     */
+    public static double[] lookup(Context context, String query, long nowMillis) {
+        double[] coordinates = null;
+        Cursor cursor = null;
+        try {
+            cursor = context.getContentResolver().query(GeocodeEntry.CONTENT_URI,
+                    COORDINATE_COLUMNS,
+                    GeocodeEntry.COLUMN_QUERY + " = ?",
+                    new String[]{query},
+                    null);
+            if (cursor != null && cursor.moveToFirst()) {
+                coordinates = new double[]{cursor.getDouble(0), cursor.getDouble(1)};
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Couldn't look up " + query, e);
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+
+        /* Storing it again makes it the most recently used */
+        if (coordinates != null) {
+            save(context, query, coordinates[0], coordinates[1], nowMillis);
+        }
+        return coordinates;
+    }
+
+    /**
+     * Keeps the coordinates a location was resolved to, replacing any kept for it. Keeping one
+     * may drop the locations used longest ago, see WeatherSchema.MAX_GEOCODES.
+     *
+     * @param query     The location, normalized
+     * @param nowMillis When the location was resolved
+     */
+    public static void save(Context context, String query, double latitude, double longitude,
+                            long nowMillis) {
+        ContentValues values = new ContentValues(4);
+        values.put(GeocodeEntry.COLUMN_QUERY, query);
+        values.put(GeocodeEntry.COLUMN_LATITUDE, latitude);
+        values.put(GeocodeEntry.COLUMN_LONGITUDE, longitude);
+        values.put(GeocodeEntry.COLUMN_USED_AT, nowMillis);
+        try {
+            context.getContentResolver().insert(GeocodeEntry.CONTENT_URI, values);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Couldn't save " + query, e);
+        }
+    }
+}
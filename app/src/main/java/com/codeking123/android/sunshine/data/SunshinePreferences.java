@@ -4,8 +4,10 @@ package com.codeking123.android.sunshine.data;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
+import android.text.format.DateUtils;
 
 import com.codeking123.android.sunshine.R;
+import com.codeking123.android.sunshine.core.sync.CircuitBreaker;
 
 public final class SunshinePreferences {
 
@@ -13,6 +15,28 @@ public final class SunshinePreferences {
     public static final String PREF_COORD_LAT = "coord_lat";
     public static final String PREF_COORD_LONG = "coord_long";
 
+    /* The sync's CircuitBreaker, kept so an open circuit stays open when the process dies */
+    public static final String PREF_SYNC_FAILURES = "sync_consecutive_failures";
+    public static final String PREF_SYNC_CIRCUIT_OPENED = "sync_circuit_opened_at";
+
+    /*
+     * How finely locations are grouped into geohash tiles that share a forecast, and how long a
+     * tile's forecast is used before it is fetched again, see ForecastTileStore. Tiles of 4.9 km
+     * by 4.9 km at the equator, narrower towards the poles; and an hour, well within the sync
+     * interval, so periodic syncs still fetch.
+     */
+    public static final String PREF_TILE_PRECISION = "tile_precision";
+    public static final String PREF_TILE_TTL = "tile_ttl_millis";
+
+    public static final int DEFAULT_TILE_PRECISION = 5;
+    public static final long DEFAULT_TILE_TTL_MILLIS = DateUtils.HOUR_IN_MILLIS;
+
+    /*
+     * The weather the user wants to be alerted to, one "name: condition" a line, such as
+     * "Frost tomorrow: day = 1 and min < 0", see AlertRule for the conditions
+     */
+    public static final String PREF_ALERT_RULES = "alert_rules";
+
 
     public static void setLocationDetails(Context context, double lat, double lon) {
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
@@ -144,4 +168,71 @@ public final class SunshinePreferences {
         editor.putLong(lastNotificationKey, timeOfNotification);
         editor.apply();
     }
-}
\ No newline at end of file
+
+
+    public static int getSyncConsecutiveFailures(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        return sp.getInt(PREF_SYNC_FAILURES, 0);
+    }
+
+
+    public static long getSyncCircuitOpenedAt(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        return sp.getLong(PREF_SYNC_CIRCUIT_OPENED, CircuitBreaker.NOT_OPEN);
+    }
+
+
+    public static void saveSyncCircuitState(Context context, int consecutiveFailures,
+                                            long openedAtMillis) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+        editor.putInt(PREF_SYNC_FAILURES, consecutiveFailures);
+        editor.putLong(PREF_SYNC_CIRCUIT_OPENED, openedAtMillis);
+        editor.apply();
+    }
+
+
+    public static int getTilePrecision(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        return sp.getInt(PREF_TILE_PRECISION, DEFAULT_TILE_PRECISION);
+    }
+
+
+    public static long getTileTtlMillis(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        return sp.getLong(PREF_TILE_TTL, DEFAULT_TILE_TTL_MILLIS);
+    }
+
+
+    /**
+     * @param precision The number of geohash characters of a tile, see Geohash
+     * @param ttlMillis How long a tile's forecast is used, 0 to always fetch
+     */
+    public static void setTileCache(Context context, int precision, long ttlMillis) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+        editor.putInt(PREF_TILE_PRECISION, precision);
+        editor.putLong(PREF_TILE_TTL, ttlMillis);
+        editor.apply();
+    }
+
+
+    /**
+     * @return The user's alert rules, or null if there are none
+     */
+    public static String getAlertRules(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        return sp.getString(PREF_ALERT_RULES, null);
+    }
+
+
+    /**
+     * @param rules One "name: condition" a line, or null for none
+     */
+    public static void setAlertRules(Context context, String rules) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+        editor.putString(PREF_ALERT_RULES, rules);
+        editor.apply();
+    }
+}
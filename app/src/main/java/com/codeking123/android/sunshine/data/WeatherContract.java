@@ -4,6 +4,8 @@ package com.codeking123.android.sunshine.data;
 import android.net.Uri;
 import android.provider.BaseColumns;
 
+import com.codeking123.android.sunshine.core.db.WeatherConditionQuery;
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
 import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
 
 public class WeatherContract {
@@ -19,6 +21,22 @@ public class WeatherContract {
 
 
     public static final String PATH_WEATHER = "weather";
+    public static final String PATH_COUNT = "count";
+    public static final String PATH_CONDITION = "condition";
+    public static final String PATH_WARMER = "warmer";
+
+    public static final String PATH_SYNC_METRICS = "sync_metrics";
+    public static final String PATH_SUMMARY = "summary";
+    public static final String PATH_TILE_CACHE = "tile_cache";
+    public static final String PATH_GEOCODE_CACHE = "geocode_cache";
+
+    public static final String PATH_TILE = "tile";
+
+    public static final String PATH_GEOCODE = "geocode";
+
+    public static final String PATH_LOCATION = "location";
+    public static final String PATH_NEAREST = "nearest";
+    public static final String PATH_WITHIN = "within";
 
     /* Inner class that defines the table contents of the weather table */
     public static final class WeatherEntry implements BaseColumns {
@@ -28,29 +46,80 @@ public class WeatherContract {
                 .appendPath(PATH_WEATHER)
                 .build();
 
+        /*
+         * The number of days matching a selection, as a single row with the column _COUNT. It is
+         * notified of the same changes as CONTENT_URI.
+         */
+        public static final Uri COUNT_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_COUNT)
+                .build();
+
+        /*
+         * The days whose weather code is between PARAM_MIN_WEATHER_ID and PARAM_MAX_WEATHER_ID,
+         * inclusive, such as the rainy days, see buildRainyDaysUri.
+         */
+        public static final Uri CONDITION_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_CONDITION)
+                .build();
+
+        /* The days whose high is above PARAM_ABOVE, in °C */
+        public static final Uri WARMER_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_WARMER)
+                .build();
+
+        /*
+         * Query parameters of CONDITION_URI and WARMER_URI. The days are those from
+         * PARAM_FROM_DATE, today if not given, up to but not including PARAM_TO_DATE, if given,
+         * by date and no more than PARAM_PAGE_SIZE of them, which is required. Each runs as one
+         * indexed query that stops at the limit, see WeatherConditionQuery. A selection further
+         * restricts the days; the sort order is ignored.
+         */
+        public static final String PARAM_MIN_WEATHER_ID = "min_id";
+        public static final String PARAM_MAX_WEATHER_ID = "max_id";
+        public static final String PARAM_ABOVE = "above";
+        public static final String PARAM_FROM_DATE = "from";
+        public static final String PARAM_TO_DATE = "to";
+
+        /*
+         * Query parameters of CONTENT_URI that turn a query into one page of days, ordered by
+         * date. A page is found by the date of the day next to it rather than by skipping rows,
+         * so every page costs the same however far into the table it is:
+         *
+         *      PARAM_AFTER_DATE   the days following a date, in ascending order
+         *      PARAM_BEFORE_DATE  the days preceding a date, nearest first (descending)
+         *      PARAM_OFFSET       the days following the first offset rows, in ascending order,
+         *                         for when no neighbouring date is known
+         *
+         * The selection of the query still applies; its sort order is ignored.
+         */
+        public static final String PARAM_PAGE_SIZE = "limit";
+        public static final String PARAM_AFTER_DATE = "after";
+        public static final String PARAM_BEFORE_DATE = "before";
+        public static final String PARAM_OFFSET = "offset";
+
         /* Used internally as the name of our weather table. */
-        public static final String TABLE_NAME = "weather";
+        public static final String TABLE_NAME = WeatherSchema.TABLE_WEATHER;
 
 
-        public static final String COLUMN_DATE = "date";
+        public static final String COLUMN_DATE = WeatherSchema.COLUMN_DATE;
 
         /* Weather ID as returned by API, used to identify the icon to be used */
-        public static final String COLUMN_WEATHER_ID = "weather_id";
+        public static final String COLUMN_WEATHER_ID = WeatherSchema.COLUMN_WEATHER_ID;
 
         /* Min and max temperatures in °C for the day (stored as floats in the database) */
-        public static final String COLUMN_MIN_TEMP = "min";
-        public static final String COLUMN_MAX_TEMP = "max";
+        public static final String COLUMN_MIN_TEMP = WeatherSchema.COLUMN_MIN_TEMP;
+        public static final String COLUMN_MAX_TEMP = WeatherSchema.COLUMN_MAX_TEMP;
 
         /* Humidity is stored as a float representing percentage */
-        public static final String COLUMN_HUMIDITY = "humidity";
+        public static final String COLUMN_HUMIDITY = WeatherSchema.COLUMN_HUMIDITY;
 
         /* Pressure is stored as a float representing percentage */
-        public static final String COLUMN_PRESSURE = "pressure";
+        public static final String COLUMN_PRESSURE = WeatherSchema.COLUMN_PRESSURE;
 
         /* Wind speed is stored as a float representing wind speed in mph */
-        public static final String COLUMN_WIND_SPEED = "wind";
+        public static final String COLUMN_WIND_SPEED = WeatherSchema.COLUMN_WIND_SPEED;
 
-        public static final String COLUMN_DEGREES = "degrees";
+        public static final String COLUMN_DEGREES = WeatherSchema.COLUMN_DEGREES;
 
 
         public static Uri buildWeatherUriWithDate(long date) {
@@ -59,9 +128,329 @@ public class WeatherContract {
                     .build();
         }
 
+        public static Uri buildPageAfterDateUri(long date, int pageSize) {
+            return buildPageUri(PARAM_AFTER_DATE, date, pageSize);
+        }
+
+        public static Uri buildPageBeforeDateUri(long date, int pageSize) {
+            return buildPageUri(PARAM_BEFORE_DATE, date, pageSize);
+        }
+
+        public static Uri buildPageAtOffsetUri(int offset, int pageSize) {
+            return buildPageUri(PARAM_OFFSET, offset, pageSize);
+        }
+
+        private static Uri buildPageUri(String parameter, long value, int pageSize) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(parameter, Long.toString(value))
+                    .appendQueryParameter(PARAM_PAGE_SIZE, Integer.toString(pageSize))
+                    .build();
+        }
+
+        /**
+         * The days with a weather code between the two given, inclusive.
+         *
+         * @param fromDate The first day, normalized
+         * @param toDate   The day after the last, or WeatherConditionQuery.NO_END_DATE
+         * @param limit    How many days to return, at most
+         */
+        public static Uri buildConditionUri(int minWeatherId, int maxWeatherId, long fromDate,
+                                            long toDate, int limit) {
+            return buildConditionQueryUri(CONDITION_URI, fromDate, toDate, limit)
+                    .appendQueryParameter(PARAM_MIN_WEATHER_ID, Integer.toString(minWeatherId))
+                    .appendQueryParameter(PARAM_MAX_WEATHER_ID, Integer.toString(maxWeatherId))
+                    .build();
+        }
+
+        /**
+         * The days with a high above the temperature given, in °C. Takes the days like
+         * {@link #buildConditionUri}.
+         */
+        public static Uri buildWarmerUri(double temperature, long fromDate, long toDate,
+                                         int limit) {
+            return buildConditionQueryUri(WARMER_URI, fromDate, toDate, limit)
+                    .appendQueryParameter(PARAM_ABOVE, Double.toString(temperature))
+                    .build();
+        }
+
+        /* Every day of rain, of any strength, within the days from the one given */
+        public static Uri buildRainyDaysUri(long fromDate, int days) {
+            return buildConditionUri(WeatherConditionQuery.MIN_RAIN_WEATHER_ID,
+                    WeatherConditionQuery.MAX_RAIN_WEATHER_ID, fromDate,
+                    fromDate + days * SunshineDateUtils.DAY_IN_MILLIS, days);
+        }
+
+        /* The first day of clear sky from the one given on */
+        public static Uri buildFirstClearDayUri(long fromDate) {
+            return buildConditionUri(WeatherConditionQuery.CLEAR_WEATHER_ID,
+                    WeatherConditionQuery.CLEAR_WEATHER_ID, fromDate,
+                    WeatherConditionQuery.NO_END_DATE, 1);
+        }
+
+        private static Uri.Builder buildConditionQueryUri(Uri uri, long fromDate, long toDate,
+                                                          int limit) {
+            Uri.Builder builder = uri.buildUpon()
+                    .appendQueryParameter(PARAM_FROM_DATE, Long.toString(fromDate))
+                    .appendQueryParameter(PARAM_PAGE_SIZE, Integer.toString(limit));
+            if (toDate != WeatherConditionQuery.NO_END_DATE) {
+                builder.appendQueryParameter(PARAM_TO_DATE, Long.toString(toDate));
+            }
+            return builder;
+        }
+
         public static String getSqlSelectForTodayOnwards() {
             long normalizedUtcNow = SunshineDateUtils.normalizeDate(System.currentTimeMillis());
             return WeatherContract.WeatherEntry.COLUMN_DATE + " >= " + normalizedUtcNow;
         }
     }
-}
\ No newline at end of file
+
+    /*
+     * Inner class that defines the forecasts kept by geohash tile: every tile fetched recently,
+     * with when it was fetched, and the days of each, with the same columns as WeatherEntry.
+     * Only the most recently fetched tiles are kept.
+     */
+    public static final class TileEntry implements BaseColumns {
+
+        /* Every tile kept, with COLUMN_TILE and COLUMN_FETCHED_AT */
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_TILE)
+                .build();
+
+        /*
+         * Query parameter of a tile's URI giving the time its forecast was fetched, in
+         * milliseconds since the epoch. Required to bulkInsert the forecast.
+         */
+        public static final String PARAM_FETCHED_AT = "fetched_at";
+
+        public static final String TABLE_NAME = WeatherSchema.TABLE_TILE;
+        public static final String WEATHER_TABLE_NAME = WeatherSchema.TABLE_TILE_WEATHER;
+
+        /* The geohash of the tile */
+        public static final String COLUMN_TILE = WeatherSchema.COLUMN_TILE;
+        public static final String COLUMN_FETCHED_AT = WeatherSchema.COLUMN_FETCHED_AT;
+
+        /**
+         * The days of a tile's forecast. Bulk inserting to it replaces them.
+         */
+        public static Uri buildTileUri(String tile) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(tile)
+                    .build();
+        }
+
+        public static Uri buildTileUri(String tile, long fetchedAtMillis) {
+            return buildTileUri(tile).buildUpon()
+                    .appendQueryParameter(PARAM_FETCHED_AT, Long.toString(fetchedAtMillis))
+                    .build();
+        }
+    }
+
+    /*
+     * Inner class that defines the geocode cache: the coordinates the server resolved locations
+     * set by name to, by the location normalized like CityCatalog.normalize. Inserting a location
+     * already stored replaces it, which is how one is marked as used; only the most recently
+     * used are kept, see WeatherSchema.MAX_GEOCODES.
+     */
+    public static final class GeocodeEntry {
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_GEOCODE)
+                .build();
+
+        public static final String TABLE_NAME = WeatherSchema.TABLE_GEOCODE;
+
+        /* The location as typed, normalized */
+        public static final String COLUMN_QUERY = WeatherSchema.COLUMN_QUERY;
+        public static final String COLUMN_LATITUDE = WeatherSchema.COLUMN_LATITUDE;
+        public static final String COLUMN_LONGITUDE = WeatherSchema.COLUMN_LONGITUDE;
+        /* When the location was last resolved or used, in milliseconds since the epoch */
+        public static final String COLUMN_USED_AT = WeatherSchema.COLUMN_USED_AT;
+    }
+
+    /*
+     * Inner class that defines the locations whose weather is followed: a unique name and
+     * coordinates. The provider indexes each by the geohash of its coordinates, which is set on
+     * insert, so the locations near a point can be found without reading them all.
+     */
+    public static final class LocationEntry implements BaseColumns {
+
+        /* Every location. Inserting a location with a name already stored replaces it. */
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_LOCATION)
+                .build();
+
+        /*
+         * The locations nearest to PARAM_LATITUDE and PARAM_LONGITUDE, PARAM_COUNT of them at
+         * most and no further than PARAM_RADIUS if given, nearest first. A selection on the
+         * columns of CONTENT_URI restricts the locations searched.
+         */
+        public static final Uri NEAREST_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_NEAREST)
+                .build();
+
+        /*
+         * Every location within PARAM_RADIUS of PARAM_LATITUDE and PARAM_LONGITUDE, nearest
+         * first. Takes a selection like NEAREST_URI.
+         */
+        public static final Uri WITHIN_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_WITHIN)
+                .build();
+
+        /* Query parameters of NEAREST_URI and WITHIN_URI. The radius is in metres. */
+        public static final String PARAM_LATITUDE = "lat";
+        public static final String PARAM_LONGITUDE = "lon";
+        public static final String PARAM_COUNT = "count";
+        public static final String PARAM_RADIUS = "radius";
+
+        public static final String TABLE_NAME = WeatherSchema.TABLE_LOCATION;
+
+        public static final String COLUMN_NAME = WeatherSchema.COLUMN_NAME;
+        public static final String COLUMN_LATITUDE = WeatherSchema.COLUMN_LATITUDE;
+        public static final String COLUMN_LONGITUDE = WeatherSchema.COLUMN_LONGITUDE;
+        /* Set by the provider from the coordinates */
+        public static final String COLUMN_GEOHASH = WeatherSchema.COLUMN_GEOHASH;
+
+        /*
+         * A column of NEAREST_URI and WITHIN_URI only: the great circle distance of the location
+         * from the point searched around, in metres
+         */
+        public static final String COLUMN_DISTANCE = "distance";
+
+        public static Uri buildNearestUri(double latitude, double longitude, int count) {
+            return buildSearchUri(NEAREST_URI, latitude, longitude)
+                    .appendQueryParameter(PARAM_COUNT, Integer.toString(count))
+                    .build();
+        }
+
+        public static Uri buildNearestUri(double latitude, double longitude, int count,
+                                          double radiusMeters) {
+            return buildSearchUri(NEAREST_URI, latitude, longitude)
+                    .appendQueryParameter(PARAM_COUNT, Integer.toString(count))
+                    .appendQueryParameter(PARAM_RADIUS, Double.toString(radiusMeters))
+                    .build();
+        }
+
+        public static Uri buildWithinUri(double latitude, double longitude,
+                                         double radiusMeters) {
+            return buildSearchUri(WITHIN_URI, latitude, longitude)
+                    .appendQueryParameter(PARAM_RADIUS, Double.toString(radiusMeters))
+                    .build();
+        }
+
+        private static Uri.Builder buildSearchUri(Uri uri, double latitude, double longitude) {
+            return uri.buildUpon()
+                    .appendQueryParameter(PARAM_LATITUDE, Double.toString(latitude))
+                    .appendQueryParameter(PARAM_LONGITUDE, Double.toString(longitude));
+        }
+    }
+
+    /*
+     * Inner class that defines the contents of the sync metrics table: one row per sync, with the
+     * duration of each SyncPhase in microseconds (NULL if the sync never got to it), the bytes
+     * downloaded, the rows stored, the SyncOutcome and the endpoints the forecast was requested
+     * from. Only the most recent syncs are kept.
+     */
+    public static final class SyncMetricsEntry implements BaseColumns {
+
+        /* Every recorded sync, the newest has the highest _ID */
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_SYNC_METRICS)
+                .build();
+
+        /*
+         * Percentiles over the recorded syncs, one row per metric. A selection on the columns of
+         * CONTENT_URI, such as the outcome, restricts the syncs summarised.
+         */
+        public static final Uri SUMMARY_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_SUMMARY)
+                .build();
+
+        /*
+         * How often the recorded syncs found a fresh forecast stored for their tile, as a single
+         * row of COLUMN_HITS, COLUMN_EXPIRED, COLUMN_MISSES and COLUMN_HIT_RATE. Syncs with no
+         * tile don't count. Takes a selection and PARAM_RECENT_SYNCS like SUMMARY_URI.
+         */
+        public static final Uri TILE_CACHE_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_TILE_CACHE)
+                .build();
+
+        /*
+         * How often the recorded syncs of a location set by name found its coordinates in the
+         * geocode cache, as a single row of COLUMN_HITS, COLUMN_MISSES and COLUMN_HIT_RATE.
+         * Syncs of a location whose coordinates were known don't count. Takes a selection and
+         * PARAM_RECENT_SYNCS like SUMMARY_URI.
+         */
+        public static final Uri GEOCODE_CACHE_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_GEOCODE_CACHE)
+                .build();
+
+        /* Query parameter of SUMMARY_URI and the cache URIs counting only the most recent syncs */
+        public static final String PARAM_RECENT_SYNCS = "recent";
+
+        public static final String TABLE_NAME = WeatherSchema.TABLE_SYNC_METRICS;
+
+        /* Wall clock time the sync started, in milliseconds since the epoch */
+        public static final String COLUMN_STARTED_AT = WeatherSchema.COLUMN_STARTED_AT;
+        public static final String COLUMN_TOTAL_US = WeatherSchema.COLUMN_TOTAL_US;
+        /* The phase columns are named by SyncPhase.getColumnName() */
+        public static final String COLUMN_BYTES = WeatherSchema.COLUMN_BYTES;
+        public static final String COLUMN_ROWS = WeatherSchema.COLUMN_ROWS;
+        /* The name of a SyncOutcome */
+        public static final String COLUMN_OUTCOME = WeatherSchema.COLUMN_OUTCOME;
+        /*
+         * The endpoint the forecast was requested from, NULL if the sync failed before picking
+         * one, and its moving average latency, NULL before it first answered, and error rate
+         */
+        public static final String COLUMN_ENDPOINT = WeatherSchema.COLUMN_ENDPOINT;
+        public static final String COLUMN_ENDPOINT_LATENCY_MS =
+                WeatherSchema.COLUMN_ENDPOINT_LATENCY_MS;
+        public static final String COLUMN_ENDPOINT_ERROR_RATE =
+                WeatherSchema.COLUMN_ENDPOINT_ERROR_RATE;
+        /* The endpoint the request was hedged to, or NULL, and 1 if its answer was used */
+        public static final String COLUMN_HEDGE_ENDPOINT = WeatherSchema.COLUMN_HEDGE_ENDPOINT;
+        public static final String COLUMN_HEDGE_WON = WeatherSchema.COLUMN_HEDGE_WON;
+        /* The geohash tile of the location, or NULL, and the name of its TileLookup */
+        public static final String COLUMN_TILE = WeatherSchema.COLUMN_TILE;
+        public static final String COLUMN_TILE_LOOKUP = WeatherSchema.COLUMN_TILE_LOOKUP;
+        /*
+         * The normalized location looked up in GeocodeEntry, NULL if its coordinates were known,
+         * and 1 if they were found there
+         */
+        public static final String COLUMN_GEOCODE_QUERY = WeatherSchema.COLUMN_GEOCODE_QUERY;
+        public static final String COLUMN_GEOCODE_HIT = WeatherSchema.COLUMN_GEOCODE_HIT;
+
+        /* Columns of SUMMARY_URI. The metric is the name of the column it summarises. */
+        public static final String COLUMN_METRIC = "metric";
+        public static final String COLUMN_SAMPLES = "samples";
+        public static final String COLUMN_P50 = "p50";
+        public static final String COLUMN_P95 = "p95";
+        public static final String COLUMN_P99 = "p99";
+
+        /*
+         * Columns of TILE_CACHE_URI and GEOCODE_CACHE_URI, which has no COLUMN_EXPIRED. The hit
+         * rate is between 0 and 1, 0 if there were no syncs.
+         */
+        public static final String COLUMN_HITS = "hits";
+        public static final String COLUMN_EXPIRED = "expired";
+        public static final String COLUMN_MISSES = "misses";
+        public static final String COLUMN_HIT_RATE = "hit_rate";
+
+        public static Uri buildSummaryUri(int recentSyncs) {
+            return SUMMARY_URI.buildUpon()
+                    .appendQueryParameter(PARAM_RECENT_SYNCS, Integer.toString(recentSyncs))
+                    .build();
+        }
+
+        public static Uri buildTileCacheUri(int recentSyncs) {
+            return TILE_CACHE_URI.buildUpon()
+                    .appendQueryParameter(PARAM_RECENT_SYNCS, Integer.toString(recentSyncs))
+                    .build();
+        }
+
+        public static Uri buildGeocodeCacheUri(int recentSyncs) {
+            return GEOCODE_CACHE_URI.buildUpon()
+                    .appendQueryParameter(PARAM_RECENT_SYNCS, Integer.toString(recentSyncs))
+                    .build();
+        }
+    }
+}
@@ -5,6 +5,9 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.metrics.SyncPhase;
+import com.codeking123.android.sunshine.data.WeatherContract.SyncMetricsEntry;
 import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
 
 
@@ -13,7 +16,7 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
     public static final String DATABASE_NAME = "weather.db";
 
 
-    private static final int DATABASE_VERSION = 3;
+    private static final int DATABASE_VERSION = WeatherSchema.DATABASE_VERSION;
 
     public WeatherDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
@@ -24,36 +27,86 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase sqLiteDatabase) {
 
 
-        final String SQL_CREATE_WEATHER_TABLE =
-
-                "CREATE TABLE " + WeatherEntry.TABLE_NAME + " (" +
-
-
-                WeatherEntry._ID               + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-
-                WeatherEntry.COLUMN_DATE       + " INTEGER NOT NULL, "                 +
-
-                WeatherEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL,"                  +
-
-                WeatherEntry.COLUMN_MIN_TEMP   + " REAL NOT NULL, "                    +
-                WeatherEntry.COLUMN_MAX_TEMP   + " REAL NOT NULL, "                    +
-
-                WeatherEntry.COLUMN_HUMIDITY   + " REAL NOT NULL, "                    +
-                WeatherEntry.COLUMN_PRESSURE   + " REAL NOT NULL, "                    +
-
-                WeatherEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, "                    +
-                WeatherEntry.COLUMN_DEGREES    + " REAL NOT NULL, "                    +
-
-
-                " UNIQUE (" + WeatherEntry.COLUMN_DATE + ") ON CONFLICT REPLACE);";
-
-        sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_TABLE);
+        /* The schema is shared with the offline tools, see WeatherSchema */
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_WEATHER_TABLE);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_WEATHER_ID_INDEX);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_SYNC_METRICS_TABLE);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_SYNC_METRICS_TRIM_TRIGGER);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_TILE_TABLE);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_TILE_WEATHER_TABLE);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_TILE_TRIM_TRIGGER);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_LOCATION_TABLE);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_LOCATION_GEOHASH_INDEX);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_GEOCODE_TABLE);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_GEOCODE_TRIM_TRIGGER);
     }
 
 
+    /*
+     * Only the weather table is dropped, as the next sync fetches it again. The rest is the
+     * user's, such as the followed locations, or history worth keeping, such as the sync metrics,
+     * so each version after the installed one adds what it brought. Tables are created with the
+     * statements of today, so whatever a later version changed in them is skipped along.
+     */
     @Override
     public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
-        onCreate(sqLiteDatabase);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_WEATHER_TABLE);
+        sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_WEATHER_ID_INDEX);
+
+        if (oldVersion < 4) {
+            sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_SYNC_METRICS_TABLE);
+            sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_SYNC_METRICS_TRIM_TRIGGER);
+        } else {
+            upgradeSyncMetrics(sqLiteDatabase, oldVersion);
+        }
+        if (oldVersion < 7) {
+            sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_TILE_TABLE);
+            sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_TILE_WEATHER_TABLE);
+            sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_TILE_TRIM_TRIGGER);
+        }
+        if (oldVersion < 8) {
+            sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_LOCATION_TABLE);
+            sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_LOCATION_GEOHASH_INDEX);
+        }
+        if (oldVersion < 9) {
+            sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_GEOCODE_TABLE);
+            sqLiteDatabase.execSQL(WeatherSchema.SQL_CREATE_GEOCODE_TRIM_TRIGGER);
+        }
+    }
+
+    /* Adds the columns each version since oldVersion added to the sync metrics */
+    private static void upgradeSyncMetrics(SQLiteDatabase sqLiteDatabase, int oldVersion) {
+        if (oldVersion < 5) {
+            addColumn(sqLiteDatabase, SyncPhase.NOTIFICATION_BUILD.getColumnName(), "INTEGER");
+        }
+        if (oldVersion < 6) {
+            addColumn(sqLiteDatabase, SyncMetricsEntry.COLUMN_ENDPOINT, "TEXT");
+            addColumn(sqLiteDatabase, SyncMetricsEntry.COLUMN_ENDPOINT_LATENCY_MS, "REAL");
+            addColumn(sqLiteDatabase, SyncMetricsEntry.COLUMN_ENDPOINT_ERROR_RATE, "REAL");
+            addColumn(sqLiteDatabase, SyncMetricsEntry.COLUMN_HEDGE_ENDPOINT, "TEXT");
+            addColumn(sqLiteDatabase, SyncMetricsEntry.COLUMN_HEDGE_WON,
+                    "INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 7) {
+            addColumn(sqLiteDatabase, SyncPhase.TILE_LOOKUP.getColumnName(), "INTEGER");
+            addColumn(sqLiteDatabase, SyncMetricsEntry.COLUMN_TILE, "TEXT");
+            addColumn(sqLiteDatabase, SyncMetricsEntry.COLUMN_TILE_LOOKUP, "TEXT");
+        }
+        if (oldVersion < 9) {
+            addColumn(sqLiteDatabase, SyncMetricsEntry.COLUMN_GEOCODE_QUERY, "TEXT");
+            addColumn(sqLiteDatabase, SyncMetricsEntry.COLUMN_GEOCODE_HIT,
+                    "INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 11) {
+            addColumn(sqLiteDatabase, SyncPhase.ALERTS.getColumnName(), "INTEGER");
+        }
+    }
+
+    /* Columns are added last, which doesn't matter: the metrics are always read by name */
+    private static void addColumn(SQLiteDatabase sqLiteDatabase, String column,
+                                  String definition) {
+        sqLiteDatabase.execSQL("ALTER TABLE " + SyncMetricsEntry.TABLE_NAME +
+                " ADD COLUMN " + column + " " + definition);
     }
 }
\ No newline at end of file
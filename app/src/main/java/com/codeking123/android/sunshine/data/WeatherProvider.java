@@ -18,14 +18,35 @@ package com.codeking123.android.sunshine.data;
 
 import android.annotation.TargetApi;
 import android.content.ContentProvider;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.support.annotation.NonNull;
 
+import com.codeking123.android.sunshine.core.db.WeatherConditionQuery;
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.geo.Geohash;
+import com.codeking123.android.sunshine.core.geo.SpatialSearch;
+import com.codeking123.android.sunshine.core.geo.TileLookup;
+import com.codeking123.android.sunshine.core.metrics.Percentiles;
+import com.codeking123.android.sunshine.core.metrics.SyncPhase;
+import com.codeking123.android.sunshine.data.WeatherContract.GeocodeEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.LocationEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.SyncMetricsEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.TileEntry;
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
 import com.codeking123.android.sunshine.utilities.SunshineDateUtils;
+import com.codeking123.android.sunshine.utilities.SunshineTrace;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This class serves as the ContentProvider for all of Sunshine's data. This class allows us to
@@ -46,6 +67,79 @@ public class WeatherProvider extends ContentProvider {
      */
     public static final int CODE_WEATHER = 100;
     public static final int CODE_WEATHER_WITH_DATE = 101;
+    public static final int CODE_WEATHER_COUNT = 102;
+    public static final int CODE_WEATHER_CONDITION = 103;
+    public static final int CODE_WEATHER_WARMER = 104;
+
+    public static final int CODE_SYNC_METRICS = 200;
+    public static final int CODE_SYNC_METRICS_SUMMARY = 201;
+    public static final int CODE_SYNC_METRICS_WITH_ID = 202;
+    public static final int CODE_SYNC_METRICS_TILE_CACHE = 203;
+    public static final int CODE_SYNC_METRICS_GEOCODE_CACHE = 204;
+
+    public static final int CODE_TILE = 300;
+    public static final int CODE_TILE_WITH_HASH = 301;
+
+    public static final int CODE_LOCATION = 400;
+    public static final int CODE_LOCATION_NEAREST = 401;
+    public static final int CODE_LOCATION_WITHIN = 402;
+
+    public static final int CODE_GEOCODE = 500;
+
+    /* The columns of the sync metrics table that SUMMARY_URI reports percentiles for */
+    private static final String[] SYNC_METRICS_SUMMARISED_COLUMNS;
+
+    static {
+        SyncPhase[] phases = SyncPhase.values();
+        SYNC_METRICS_SUMMARISED_COLUMNS = new String[phases.length + 3];
+        SYNC_METRICS_SUMMARISED_COLUMNS[0] = SyncMetricsEntry.COLUMN_TOTAL_US;
+        for (int i = 0; i < phases.length; i++) {
+            SYNC_METRICS_SUMMARISED_COLUMNS[i + 1] = phases[i].getColumnName();
+        }
+        SYNC_METRICS_SUMMARISED_COLUMNS[phases.length + 1] = SyncMetricsEntry.COLUMN_BYTES;
+        SYNC_METRICS_SUMMARISED_COLUMNS[phases.length + 2] = SyncMetricsEntry.COLUMN_ROWS;
+    }
+
+    private static final String[] SYNC_METRICS_SUMMARY_COLUMNS = {
+            SyncMetricsEntry.COLUMN_METRIC,
+            SyncMetricsEntry.COLUMN_SAMPLES,
+            SyncMetricsEntry.COLUMN_P50,
+            SyncMetricsEntry.COLUMN_P95,
+            SyncMetricsEntry.COLUMN_P99,
+    };
+
+    private static final String[] TILE_CACHE_COLUMNS = {
+            SyncMetricsEntry.COLUMN_HITS,
+            SyncMetricsEntry.COLUMN_EXPIRED,
+            SyncMetricsEntry.COLUMN_MISSES,
+            SyncMetricsEntry.COLUMN_HIT_RATE,
+    };
+
+    private static final String[] GEOCODE_CACHE_COLUMNS = {
+            SyncMetricsEntry.COLUMN_HITS,
+            SyncMetricsEntry.COLUMN_MISSES,
+            SyncMetricsEntry.COLUMN_HIT_RATE,
+    };
+
+    /* The columns of a location searched for when no projection is given */
+    private static final String[] LOCATION_SEARCH_COLUMNS = {
+            LocationEntry._ID,
+            LocationEntry.COLUMN_NAME,
+            LocationEntry.COLUMN_LATITUDE,
+            LocationEntry.COLUMN_LONGITUDE,
+            LocationEntry.COLUMN_GEOHASH,
+            LocationEntry.COLUMN_DISTANCE,
+    };
+
+    /* What a location search measures, all of it in the geohash index */
+    private static final String[] LOCATION_POINT_COLUMNS = {
+            LocationEntry._ID,
+            LocationEntry.COLUMN_LATITUDE,
+            LocationEntry.COLUMN_LONGITUDE,
+    };
+
+    /* The locations found by a search are read this many at a time */
+    private static final int LOCATION_READ_BATCH = 500;
 
     /*
      * The URI Matcher used by this content provider. The leading "s" in this variable name
@@ -97,6 +191,55 @@ public class WeatherProvider extends ContentProvider {
          */
         matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/#", CODE_WEATHER_WITH_DATE);
 
+        /* content://com.example.android.sunshine/weather/count */
+        matcher.addURI(authority,
+                WeatherContract.PATH_WEATHER + "/" + WeatherContract.PATH_COUNT,
+                CODE_WEATHER_COUNT);
+
+        /* content://com.example.android.sunshine/weather/condition and weather/warmer */
+        matcher.addURI(authority,
+                WeatherContract.PATH_WEATHER + "/" + WeatherContract.PATH_CONDITION,
+                CODE_WEATHER_CONDITION);
+        matcher.addURI(authority,
+                WeatherContract.PATH_WEATHER + "/" + WeatherContract.PATH_WARMER,
+                CODE_WEATHER_WARMER);
+
+        /* content://com.example.android.sunshine/sync_metrics and its summary */
+        matcher.addURI(authority, WeatherContract.PATH_SYNC_METRICS, CODE_SYNC_METRICS);
+        matcher.addURI(authority,
+                WeatherContract.PATH_SYNC_METRICS + "/" + WeatherContract.PATH_SUMMARY,
+                CODE_SYNC_METRICS_SUMMARY);
+
+        /* content://com.example.android.sunshine/sync_metrics/42, one recorded sync */
+        matcher.addURI(authority, WeatherContract.PATH_SYNC_METRICS + "/#",
+                CODE_SYNC_METRICS_WITH_ID);
+
+        /* content://com.example.android.sunshine/sync_metrics/tile_cache */
+        matcher.addURI(authority,
+                WeatherContract.PATH_SYNC_METRICS + "/" + WeatherContract.PATH_TILE_CACHE,
+                CODE_SYNC_METRICS_TILE_CACHE);
+
+        /* content://com.example.android.sunshine/sync_metrics/geocode_cache */
+        matcher.addURI(authority,
+                WeatherContract.PATH_SYNC_METRICS + "/" + WeatherContract.PATH_GEOCODE_CACHE,
+                CODE_SYNC_METRICS_GEOCODE_CACHE);
+
+        /* content://com.example.android.sunshine/tile and tile/u4pru, the days of one tile */
+        matcher.addURI(authority, WeatherContract.PATH_TILE, CODE_TILE);
+        matcher.addURI(authority, WeatherContract.PATH_TILE + "/*", CODE_TILE_WITH_HASH);
+
+        /* content://com.example.android.sunshine/location, location/nearest and location/within */
+        matcher.addURI(authority, WeatherContract.PATH_LOCATION, CODE_LOCATION);
+        matcher.addURI(authority,
+                WeatherContract.PATH_LOCATION + "/" + WeatherContract.PATH_NEAREST,
+                CODE_LOCATION_NEAREST);
+        matcher.addURI(authority,
+                WeatherContract.PATH_LOCATION + "/" + WeatherContract.PATH_WITHIN,
+                CODE_LOCATION_WITHIN);
+
+        /* content://com.example.android.sunshine/geocode */
+        matcher.addURI(authority, WeatherContract.PATH_GEOCODE, CODE_GEOCODE);
+
         return matcher;
     }
 
@@ -141,6 +284,16 @@ public class WeatherProvider extends ContentProvider {
      */
     @Override
     public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        SunshineTrace.beginSection("WeatherProvider.bulkInsert");
+        try {
+            return bulkInsertTraced(uri, values);
+        } finally {
+            SunshineTrace.endSection();
+        }
+    }
+
+    /* The body of bulkInsert, run inside its trace section */
+    private int bulkInsertTraced(@NonNull Uri uri, @NonNull ContentValues[] values) {
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
 
         switch (sUriMatcher.match(uri)) {
@@ -172,11 +325,94 @@ public class WeatherProvider extends ContentProvider {
 
                 return rowsInserted;
 
+            case CODE_TILE_WITH_HASH:
+                return bulkInsertTile(db, uri, values);
+
+            case CODE_LOCATION: {
+                int locationsInserted = 0;
+                db.beginTransaction();
+                try {
+                    for (ContentValues value : values) {
+                        if (db.insert(LocationEntry.TABLE_NAME, null, withGeohash(value)) != -1) {
+                            locationsInserted++;
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
+                if (locationsInserted > 0) {
+                    getContext().getContentResolver().notifyChange(uri, null);
+                }
+                return locationsInserted;
+            }
+
             default:
                 return super.bulkInsert(uri, values);
         }
     }
 
+    /**
+     * Replaces the forecast of a tile and the time it was fetched, in one transaction. Storing a
+     * tile may drop the tiles fetched longest ago, see WeatherSchema.MAX_TILES.
+     */
+    private int bulkInsertTile(SQLiteDatabase db, Uri uri, ContentValues[] values) {
+        String tile = uri.getLastPathSegment();
+        String fetchedAt = uri.getQueryParameter(TileEntry.PARAM_FETCHED_AT);
+        if (fetchedAt == null) {
+            throw new IllegalArgumentException("A tile needs the time it was fetched: " + uri);
+        }
+
+        int rowsInserted = 0;
+        db.beginTransaction();
+        try {
+            db.delete(TileEntry.WEATHER_TABLE_NAME, TileEntry.COLUMN_TILE + " = ?",
+                    new String[]{tile});
+
+            ContentValues tileValues = new ContentValues();
+            tileValues.put(TileEntry.COLUMN_TILE, tile);
+            tileValues.put(TileEntry.COLUMN_FETCHED_AT, Long.parseLong(fetchedAt));
+            db.insertOrThrow(TileEntry.TABLE_NAME, null, tileValues);
+
+            for (ContentValues value : values) {
+                long weatherDate = value.getAsLong(WeatherEntry.COLUMN_DATE);
+                if (!SunshineDateUtils.isDateNormalized(weatherDate)) {
+                    throw new IllegalArgumentException("Date must be normalized to insert");
+                }
+                ContentValues day = new ContentValues(value);
+                day.put(TileEntry.COLUMN_TILE, tile);
+                if (db.insert(TileEntry.WEATHER_TABLE_NAME, null, day) != -1) {
+                    rowsInserted++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        getContext().getContentResolver().notifyChange(TileEntry.buildTileUri(tile), null);
+        return rowsInserted;
+    }
+
+    /**
+     * @return A copy of the location with the geohash of its coordinates, which it is indexed by
+     * @throws IllegalArgumentException If the location has no coordinates, or they are out of
+     *                                  range
+     */
+    private static ContentValues withGeohash(ContentValues location) {
+        Double latitude = location.getAsDouble(LocationEntry.COLUMN_LATITUDE);
+        Double longitude = location.getAsDouble(LocationEntry.COLUMN_LONGITUDE);
+        if (latitude == null || longitude == null) {
+            throw new IllegalArgumentException("A location needs coordinates: " + location);
+        }
+
+        ContentValues row = new ContentValues(location);
+        row.put(LocationEntry.COLUMN_GEOHASH, Geohash.encode(latitude, longitude,
+                WeatherSchema.LOCATION_GEOHASH_PRECISION));
+        return row;
+    }
+
     /**
      * Handles query requests from clients. We will use this method in Sunshine to query for all
      * of our weather data as well as to query for the weather on a particular day.
@@ -195,6 +431,17 @@ public class WeatherProvider extends ContentProvider {
     @Override
     public Cursor query(@NonNull Uri uri, String[] projection, String selection,
                         String[] selectionArgs, String sortOrder) {
+        SunshineTrace.beginSection("WeatherProvider.query");
+        try {
+            return queryTraced(uri, projection, selection, selectionArgs, sortOrder);
+        } finally {
+            SunshineTrace.endSection();
+        }
+    }
+
+    /* The body of query, run inside its trace section */
+    private Cursor queryTraced(@NonNull Uri uri, String[] projection, String selection,
+                               String[] selectionArgs, String sortOrder) {
 
         Cursor cursor;
 
@@ -274,6 +521,11 @@ public class WeatherProvider extends ContentProvider {
              * in our weather table.
              */
             case CODE_WEATHER: {
+                if (uri.getQueryParameter(WeatherEntry.PARAM_PAGE_SIZE) != null) {
+                    cursor = queryWeatherPage(uri, projection, selection, selectionArgs);
+                    break;
+                }
+
                 cursor = mOpenHelper.getReadableDatabase().query(
                         WeatherContract.WeatherEntry.TABLE_NAME,
                         projection,
@@ -286,6 +538,141 @@ public class WeatherProvider extends ContentProvider {
                 break;
             }
 
+            case CODE_WEATHER_COUNT: {
+                long count = DatabaseUtils.queryNumEntries(mOpenHelper.getReadableDatabase(),
+                        WeatherEntry.TABLE_NAME, selection, selectionArgs);
+
+                cursor = new MatrixCursor(new String[]{WeatherEntry._COUNT}, 1);
+                ((MatrixCursor) cursor).addRow(new Object[]{count});
+
+                /* The count changes whenever the weather does */
+                cursor.setNotificationUri(getContext().getContentResolver(),
+                        WeatherEntry.CONTENT_URI);
+                return cursor;
+            }
+
+            case CODE_WEATHER_CONDITION:
+            case CODE_WEATHER_WARMER: {
+                cursor = queryWeatherCondition(getConditionQuery(uri), projection, selection,
+                        selectionArgs);
+
+                cursor.setNotificationUri(getContext().getContentResolver(),
+                        WeatherEntry.CONTENT_URI);
+                return cursor;
+            }
+
+            case CODE_SYNC_METRICS: {
+                cursor = mOpenHelper.getReadableDatabase().query(
+                        SyncMetricsEntry.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder);
+
+                break;
+            }
+
+            case CODE_SYNC_METRICS_SUMMARY: {
+                cursor = querySyncMetricsSummary(uri, selection, selectionArgs);
+
+                /* The summary changes whenever a sync is recorded */
+                cursor.setNotificationUri(getContext().getContentResolver(),
+                        SyncMetricsEntry.CONTENT_URI);
+                return cursor;
+            }
+
+            case CODE_SYNC_METRICS_TILE_CACHE: {
+                cursor = querySyncMetricsTileCache(uri, selection, selectionArgs);
+
+                cursor.setNotificationUri(getContext().getContentResolver(),
+                        SyncMetricsEntry.CONTENT_URI);
+                return cursor;
+            }
+
+            case CODE_SYNC_METRICS_GEOCODE_CACHE: {
+                cursor = querySyncMetricsGeocodeCache(uri, selection, selectionArgs);
+
+                cursor.setNotificationUri(getContext().getContentResolver(),
+                        SyncMetricsEntry.CONTENT_URI);
+                return cursor;
+            }
+
+            case CODE_GEOCODE: {
+                cursor = mOpenHelper.getReadableDatabase().query(
+                        GeocodeEntry.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder);
+
+                break;
+            }
+
+            case CODE_TILE: {
+                cursor = mOpenHelper.getReadableDatabase().query(
+                        TileEntry.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder);
+
+                break;
+            }
+
+            /* The days of one tile, by date unless asked otherwise */
+            case CODE_TILE_WITH_HASH: {
+                String tileSelection = TileEntry.COLUMN_TILE + " = ?";
+                if (selection != null) {
+                    tileSelection += " AND (" + selection + ")";
+                }
+                int argCount = selectionArgs == null ? 0 : selectionArgs.length;
+                String[] args = new String[argCount + 1];
+                args[0] = uri.getLastPathSegment();
+                if (argCount > 0) {
+                    System.arraycopy(selectionArgs, 0, args, 1, argCount);
+                }
+
+                cursor = mOpenHelper.getReadableDatabase().query(
+                        TileEntry.WEATHER_TABLE_NAME,
+                        projection,
+                        tileSelection,
+                        args,
+                        null,
+                        null,
+                        sortOrder != null ? sortOrder : WeatherEntry.COLUMN_DATE + " ASC");
+
+                break;
+            }
+
+            case CODE_LOCATION: {
+                cursor = mOpenHelper.getReadableDatabase().query(
+                        LocationEntry.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder);
+
+                break;
+            }
+
+            /* Ordered by distance, whatever the sort order */
+            case CODE_LOCATION_NEAREST:
+            case CODE_LOCATION_WITHIN: {
+                cursor = queryLocationsNear(uri, projection, selection, selectionArgs);
+
+                cursor.setNotificationUri(getContext().getContentResolver(),
+                        LocationEntry.CONTENT_URI);
+                return cursor;
+            }
+
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -294,6 +681,426 @@ public class WeatherProvider extends ContentProvider {
         return cursor;
     }
 
+    /**
+     * Returns one page of the days matching the selection, as described by the page parameters
+     * of {@link WeatherEntry#CONTENT_URI}. Pages found by a neighbouring date are a range scan of
+     * the unique index on the date, so they take the same time anywhere in the table.
+     */
+    private Cursor queryWeatherPage(Uri uri, String[] projection, String selection,
+                                    String[] selectionArgs) {
+        String limit = Integer.toString(
+                Integer.parseInt(uri.getQueryParameter(WeatherEntry.PARAM_PAGE_SIZE)));
+        String afterDate = uri.getQueryParameter(WeatherEntry.PARAM_AFTER_DATE);
+        String beforeDate = uri.getQueryParameter(WeatherEntry.PARAM_BEFORE_DATE);
+        String offset = uri.getQueryParameter(WeatherEntry.PARAM_OFFSET);
+
+        String keySelection = null;
+        String keyArg = null;
+        String sortOrder = WeatherEntry.COLUMN_DATE + " ASC";
+        if (afterDate != null) {
+            keySelection = WeatherEntry.COLUMN_DATE + " > ?";
+            keyArg = Long.toString(Long.parseLong(afterDate));
+        } else if (beforeDate != null) {
+            keySelection = WeatherEntry.COLUMN_DATE + " < ?";
+            keyArg = Long.toString(Long.parseLong(beforeDate));
+            sortOrder = WeatherEntry.COLUMN_DATE + " DESC";
+        } else if (offset != null) {
+            limit = Integer.parseInt(offset) + "," + limit;
+        }
+
+        if (keySelection != null) {
+            selection = selection == null
+                    ? keySelection
+                    : "(" + selection + ") AND " + keySelection;
+
+            int argCount = selectionArgs == null ? 0 : selectionArgs.length;
+            String[] args = new String[argCount + 1];
+            if (argCount > 0) {
+                System.arraycopy(selectionArgs, 0, args, 0, argCount);
+            }
+            args[argCount] = keyArg;
+            selectionArgs = args;
+        }
+
+        return mOpenHelper.getReadableDatabase().query(
+                WeatherEntry.TABLE_NAME,
+                projection,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                sortOrder,
+                limit);
+    }
+
+    /**
+     * @return The query of the days asked for by a {@link WeatherEntry#CONDITION_URI} or
+     * {@link WeatherEntry#WARMER_URI}
+     * @throws IllegalArgumentException If a parameter is missing or malformed
+     */
+    static WeatherConditionQuery getConditionQuery(Uri uri) {
+        String fromDate = uri.getQueryParameter(WeatherEntry.PARAM_FROM_DATE);
+        String toDate = uri.getQueryParameter(WeatherEntry.PARAM_TO_DATE);
+        long from = fromDate != null
+                ? Long.parseLong(fromDate)
+                : SunshineDateUtils.getNormalizedUtcDateForToday();
+        long to = toDate != null ? Long.parseLong(toDate) : WeatherConditionQuery.NO_END_DATE;
+        int limit = Integer.parseInt(uri.getQueryParameter(WeatherEntry.PARAM_PAGE_SIZE));
+
+        if (sUriMatcher.match(uri) == CODE_WEATHER_WARMER) {
+            return WeatherConditionQuery.withMaxTempAbove(
+                    Double.parseDouble(uri.getQueryParameter(WeatherEntry.PARAM_ABOVE)),
+                    from, to, limit);
+        }
+        return WeatherConditionQuery.withWeatherIds(
+                Integer.parseInt(uri.getQueryParameter(WeatherEntry.PARAM_MIN_WEATHER_ID)),
+                Integer.parseInt(uri.getQueryParameter(WeatherEntry.PARAM_MAX_WEATHER_ID)),
+                from, to, limit);
+    }
+
+    /**
+     * Runs a condition query, restricted further by the selection if there is one. The query's
+     * own terms come first, so SQLite still picks its index.
+     */
+    private Cursor queryWeatherCondition(WeatherConditionQuery query, String[] projection,
+                                         String selection, String[] selectionArgs) {
+        String conditionSelection = query.selection;
+        String[] args = query.selectionArgs;
+        if (selection != null) {
+            conditionSelection += " AND (" + selection + ")";
+            int argCount = selectionArgs == null ? 0 : selectionArgs.length;
+            args = Arrays.copyOf(query.selectionArgs, query.selectionArgs.length + argCount);
+            if (argCount > 0) {
+                System.arraycopy(selectionArgs, 0, args, query.selectionArgs.length, argCount);
+            }
+        }
+
+        return mOpenHelper.getReadableDatabase().query(
+                WeatherEntry.TABLE_NAME,
+                projection,
+                conditionSelection,
+                args,
+                null,
+                null,
+                query.orderBy,
+                query.limit);
+    }
+
+    /**
+     * Computes the p50, p95 and p99 of each summarised sync metric over the recorded syncs that
+     * match the selection, optionally only the most recent ones. Phases a sync didn't reach are
+     * NULL and don't count as samples of that phase.
+     */
+    private Cursor querySyncMetricsSummary(Uri uri, String selection, String[] selectionArgs) {
+        String limit = null;
+        String recentSyncs = uri.getQueryParameter(SyncMetricsEntry.PARAM_RECENT_SYNCS);
+        if (recentSyncs != null) {
+            limit = Integer.toString(Integer.parseInt(recentSyncs));
+        }
+
+        Cursor syncs = mOpenHelper.getReadableDatabase().query(
+                SyncMetricsEntry.TABLE_NAME,
+                SYNC_METRICS_SUMMARISED_COLUMNS,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                SyncMetricsEntry._ID + " DESC",
+                limit);
+
+        int metricCount = SYNC_METRICS_SUMMARISED_COLUMNS.length;
+        long[][] samples = new long[metricCount][syncs.getCount()];
+        int[] sampleCounts = new int[metricCount];
+        try {
+            while (syncs.moveToNext()) {
+                for (int metric = 0; metric < metricCount; metric++) {
+                    if (!syncs.isNull(metric)) {
+                        samples[metric][sampleCounts[metric]++] = syncs.getLong(metric);
+                    }
+                }
+            }
+        } finally {
+            syncs.close();
+        }
+
+        MatrixCursor summary = new MatrixCursor(SYNC_METRICS_SUMMARY_COLUMNS, metricCount);
+        for (int metric = 0; metric < metricCount; metric++) {
+            Percentiles percentiles = new Percentiles(samples[metric], sampleCounts[metric]);
+            summary.addRow(new Object[]{
+                    SYNC_METRICS_SUMMARISED_COLUMNS[metric],
+                    percentiles.getCount(),
+                    percentiles.get(50),
+                    percentiles.get(95),
+                    percentiles.get(99)});
+        }
+        return summary;
+    }
+
+    /**
+     * Counts how the tile lookups of the recorded syncs that match the selection went, optionally
+     * only the most recent syncs. Syncs that had no tile to look up don't count.
+     */
+    private Cursor querySyncMetricsTileCache(Uri uri, String selection, String[] selectionArgs) {
+        String limit = null;
+        String recentSyncs = uri.getQueryParameter(SyncMetricsEntry.PARAM_RECENT_SYNCS);
+        if (recentSyncs != null) {
+            limit = Integer.toString(Integer.parseInt(recentSyncs));
+        }
+
+        /* The most recent syncs are taken first, then those without a tile left out */
+        Cursor syncs = mOpenHelper.getReadableDatabase().query(
+                SyncMetricsEntry.TABLE_NAME,
+                new String[]{SyncMetricsEntry.COLUMN_TILE_LOOKUP},
+                selection,
+                selectionArgs,
+                null,
+                null,
+                SyncMetricsEntry._ID + " DESC",
+                limit);
+
+        long[] counts = new long[TileLookup.values().length];
+        try {
+            while (syncs.moveToNext()) {
+                if (!syncs.isNull(0)) {
+                    counts[TileLookup.valueOf(syncs.getString(0)).ordinal()]++;
+                }
+            }
+        } finally {
+            syncs.close();
+        }
+
+        long hits = counts[TileLookup.HIT.ordinal()];
+        long expired = counts[TileLookup.EXPIRED.ordinal()];
+        long misses = counts[TileLookup.MISS.ordinal()];
+        long lookups = hits + expired + misses;
+
+        MatrixCursor tileCache = new MatrixCursor(TILE_CACHE_COLUMNS, 1);
+        tileCache.addRow(new Object[]{
+                hits,
+                expired,
+                misses,
+                lookups == 0 ? 0.0 : (double) hits / lookups});
+        return tileCache;
+    }
+
+    /**
+     * Counts how often the recorded syncs that match the selection, optionally only the most
+     * recent ones, found the coordinates of a location set by name in the geocode cache. Syncs
+     * that had the coordinates already don't count.
+     */
+    private Cursor querySyncMetricsGeocodeCache(Uri uri, String selection,
+                                                String[] selectionArgs) {
+        String limit = null;
+        String recentSyncs = uri.getQueryParameter(SyncMetricsEntry.PARAM_RECENT_SYNCS);
+        if (recentSyncs != null) {
+            limit = Integer.toString(Integer.parseInt(recentSyncs));
+        }
+
+        /* The most recent syncs are taken first, then those that looked nothing up left out */
+        Cursor syncs = mOpenHelper.getReadableDatabase().query(
+                SyncMetricsEntry.TABLE_NAME,
+                new String[]{SyncMetricsEntry.COLUMN_GEOCODE_QUERY,
+                        SyncMetricsEntry.COLUMN_GEOCODE_HIT},
+                selection,
+                selectionArgs,
+                null,
+                null,
+                SyncMetricsEntry._ID + " DESC",
+                limit);
+
+        long hits = 0;
+        long misses = 0;
+        try {
+            while (syncs.moveToNext()) {
+                if (syncs.isNull(0)) {
+                    continue;
+                }
+                if (syncs.getInt(1) != 0) {
+                    hits++;
+                } else {
+                    misses++;
+                }
+            }
+        } finally {
+            syncs.close();
+        }
+
+        long lookups = hits + misses;
+        MatrixCursor geocodeCache = new MatrixCursor(GEOCODE_CACHE_COLUMNS, 1);
+        geocodeCache.addRow(new Object[]{
+                hits,
+                misses,
+                lookups == 0 ? 0.0 : (double) hits / lookups});
+        return geocodeCache;
+    }
+
+    /**
+     * Searches the locations that match the selection for those of
+     * {@link LocationEntry#NEAREST_URI} or {@link LocationEntry#WITHIN_URI}. The search reads
+     * the coordinates of its candidates from the geohash index alone, then only the locations
+     * found are read from the table.
+     */
+    private Cursor queryLocationsNear(Uri uri, String[] projection, final String selection,
+                                      final String[] selectionArgs) {
+        double latitude = Double.parseDouble(
+                getRequiredParameter(uri, LocationEntry.PARAM_LATITUDE));
+        double longitude = Double.parseDouble(
+                getRequiredParameter(uri, LocationEntry.PARAM_LONGITUDE));
+        String radius = uri.getQueryParameter(LocationEntry.PARAM_RADIUS);
+
+        final SQLiteDatabase db = mOpenHelper.getReadableDatabase();
+        SpatialSearch.PointSource locations = new SpatialSearch.PointSource() {
+            @Override
+            public void scan(String[] ranges, SpatialSearch.Candidates candidates) {
+                String rangeSelection = ranges == null
+                        ? null
+                        : SpatialSearch.selection(LocationEntry.COLUMN_GEOHASH, ranges);
+                Cursor points = db.query(
+                        LocationEntry.TABLE_NAME,
+                        LOCATION_POINT_COLUMNS,
+                        and(rangeSelection, selection),
+                        concat(ranges, selectionArgs),
+                        null,
+                        null,
+                        null);
+                try {
+                    while (points.moveToNext()) {
+                        candidates.add(points.getLong(0), points.getDouble(1), points.getDouble(2));
+                    }
+                } finally {
+                    points.close();
+                }
+            }
+        };
+
+        List<SpatialSearch.Neighbor> found;
+        if (sUriMatcher.match(uri) == CODE_LOCATION_NEAREST) {
+            found = SpatialSearch.nearest(locations, latitude, longitude,
+                    Integer.parseInt(getRequiredParameter(uri, LocationEntry.PARAM_COUNT)),
+                    radius != null ? Double.parseDouble(radius) : SpatialSearch.MAX_DISTANCE_METERS,
+                    WeatherSchema.LOCATION_GEOHASH_PRECISION);
+        } else {
+            found = SpatialSearch.withinRadius(locations, latitude, longitude,
+                    Double.parseDouble(getRequiredParameter(uri, LocationEntry.PARAM_RADIUS)),
+                    WeatherSchema.LOCATION_GEOHASH_PRECISION);
+        }
+        return readLocations(db, found, projection != null ? projection : LOCATION_SEARCH_COLUMNS);
+    }
+
+    /**
+     * Reads the columns of the projection of the locations found, in the order they were found.
+     * COLUMN_DISTANCE is filled in from the search. Locations deleted since they were found are
+     * left out.
+     */
+    private static Cursor readLocations(SQLiteDatabase db, List<SpatialSearch.Neighbor> found,
+                                        String[] projection) {
+        /* The _ID first, to match the rows to the locations found, then the stored columns */
+        String[] columns = new String[projection.length + 1];
+        int[] columnIndexes = new int[projection.length];
+        columns[0] = LocationEntry._ID;
+        int columnCount = 1;
+        for (int i = 0; i < projection.length; i++) {
+            if (LocationEntry.COLUMN_DISTANCE.equals(projection[i])) {
+                columnIndexes[i] = -1;
+            } else {
+                columns[columnCount] = projection[i];
+                columnIndexes[i] = columnCount++;
+            }
+        }
+        columns = Arrays.copyOf(columns, columnCount);
+
+        Map<Long, Object[]> rows = new HashMap<Long, Object[]>(found.size() * 2);
+        for (int start = 0; start < found.size(); start += LOCATION_READ_BATCH) {
+            /* The ids are numbers we read, so they can be part of the SQL */
+            StringBuilder ids = new StringBuilder();
+            int end = Math.min(start + LOCATION_READ_BATCH, found.size());
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    ids.append(',');
+                }
+                ids.append(found.get(i).id);
+            }
+
+            Cursor cursor = db.query(LocationEntry.TABLE_NAME, columns,
+                    LocationEntry._ID + " IN (" + ids + ")", null, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    Object[] row = new Object[columnCount];
+                    for (int column = 1; column < columnCount; column++) {
+                        row[column] = getValue(cursor, column);
+                    }
+                    rows.put(cursor.getLong(0), row);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        MatrixCursor locations = new MatrixCursor(projection, found.size());
+        for (SpatialSearch.Neighbor neighbor : found) {
+            Object[] row = rows.get(neighbor.id);
+            if (row == null) {
+                continue;
+            }
+            Object[] values = new Object[projection.length];
+            for (int i = 0; i < projection.length; i++) {
+                values[i] = columnIndexes[i] == -1
+                        ? neighbor.distanceMeters
+                        : row[columnIndexes[i]];
+            }
+            locations.addRow(values);
+        }
+        return locations;
+    }
+
+    /* The value of the column as the type it is stored as */
+    private static Object getValue(Cursor cursor, int column) {
+        switch (cursor.getType(column)) {
+            case Cursor.FIELD_TYPE_NULL:
+                return null;
+            case Cursor.FIELD_TYPE_INTEGER:
+                return cursor.getLong(column);
+            case Cursor.FIELD_TYPE_FLOAT:
+                return cursor.getDouble(column);
+            case Cursor.FIELD_TYPE_BLOB:
+                return cursor.getBlob(column);
+            default:
+                return cursor.getString(column);
+        }
+    }
+
+    private static String getRequiredParameter(Uri uri, String name) {
+        String value = uri.getQueryParameter(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing query parameter " + name + ": " + uri);
+        }
+        return value;
+    }
+
+    /* Both selections, either of which may be null */
+    private static String and(String first, String second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return "(" + first + ") AND (" + second + ")";
+    }
+
+    /* The arguments of both selections, either of which may be null */
+    private static String[] concat(String[] first, String[] second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        String[] both = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+
     /**
      * Deletes data at a given URI with optional arguments for more fine tuned deletions.
      *
@@ -304,6 +1111,16 @@ public class WeatherProvider extends ContentProvider {
      */
     @Override
     public int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
+        SunshineTrace.beginSection("WeatherProvider.delete");
+        try {
+            return deleteTraced(uri, selection, selectionArgs);
+        } finally {
+            SunshineTrace.endSection();
+        }
+    }
+
+    /* The body of delete, run inside its trace section */
+    private int deleteTraced(@NonNull Uri uri, String selection, String[] selectionArgs) {
 
         /* Users of the delete method will expect the number of rows deleted to be returned. */
         int numRowsDeleted;
@@ -327,6 +1144,49 @@ public class WeatherProvider extends ContentProvider {
 
                 break;
 
+            case CODE_SYNC_METRICS:
+                numRowsDeleted = mOpenHelper.getWritableDatabase().delete(
+                        SyncMetricsEntry.TABLE_NAME,
+                        selection,
+                        selectionArgs);
+
+                break;
+
+            /* The tiles matching the selection, with their days */
+            case CODE_TILE: {
+                SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    db.delete(TileEntry.WEATHER_TABLE_NAME,
+                            TileEntry.COLUMN_TILE + " IN (SELECT " + TileEntry.COLUMN_TILE +
+                                    " FROM " + TileEntry.TABLE_NAME +
+                                    " WHERE " + selection + ")",
+                            selectionArgs);
+                    numRowsDeleted = db.delete(TileEntry.TABLE_NAME, selection, selectionArgs);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
+                break;
+            }
+
+            case CODE_LOCATION:
+                numRowsDeleted = mOpenHelper.getWritableDatabase().delete(
+                        LocationEntry.TABLE_NAME,
+                        selection,
+                        selectionArgs);
+
+                break;
+
+            case CODE_GEOCODE:
+                numRowsDeleted = mOpenHelper.getWritableDatabase().delete(
+                        GeocodeEntry.TABLE_NAME,
+                        selection,
+                        selectionArgs);
+
+                break;
+
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -355,25 +1215,84 @@ public class WeatherProvider extends ContentProvider {
     }
 
     /**
-     * In Sunshine, we aren't going to do anything with this method. However, we are required to
-     * override it as WeatherProvider extends ContentProvider and insert is an abstract method in
-     * ContentProvider. Rather than the single insert method, we are only going to implement
-     * {@link WeatherProvider#bulkInsert}.
+     * Weather is only ever inserted a forecast at a time, through
+     * {@link WeatherProvider#bulkInsert}. The single insert method is only used to record the
+     * metrics of a sync, one row per sync, to add a location and to store a geocoded location.
      *
      * @param uri    The URI of the insertion request. This must not be null.
      * @param values A set of column_name/value pairs to add to the database.
      *               This must not be null
-     * @return nothing in Sunshine, but normally the URI for the newly inserted item.
+     * @return The URI of the recorded sync or of the location, or the geocode cache's URI
      */
     @Override
     public Uri insert(@NonNull Uri uri, ContentValues values) {
-        throw new RuntimeException(
-                "We are not implementing insert in Sunshine. Use bulkInsert instead");
+        switch (sUriMatcher.match(uri)) {
+
+            case CODE_SYNC_METRICS:
+                /* The table trims itself to the most recent syncs, see WeatherSchema */
+                long _id = mOpenHelper.getWritableDatabase()
+                        .insert(SyncMetricsEntry.TABLE_NAME, null, values);
+                if (_id == -1) {
+                    return null;
+                }
+
+                getContext().getContentResolver().notifyChange(uri, null);
+                return ContentUris.withAppendedId(uri, _id);
+
+            case CODE_LOCATION:
+                long locationId = mOpenHelper.getWritableDatabase()
+                        .insert(LocationEntry.TABLE_NAME, null, withGeohash(values));
+                if (locationId == -1) {
+                    return null;
+                }
+
+                getContext().getContentResolver().notifyChange(uri, null);
+                return ContentUris.withAppendedId(uri, locationId);
+
+            case CODE_GEOCODE:
+                /* Replaces the location if stored, and trims the table, see WeatherSchema */
+                if (mOpenHelper.getWritableDatabase()
+                        .insert(GeocodeEntry.TABLE_NAME, null, values) == -1) {
+                    return null;
+                }
+
+                getContext().getContentResolver().notifyChange(uri, null);
+                return uri;
+
+            default:
+                throw new RuntimeException(
+                        "We are not implementing insert in Sunshine. Use bulkInsert instead");
+        }
     }
 
+    /**
+     * Weather is never updated, only replaced. The one update made is adding the metrics of work
+     * that finishes after its sync was recorded, such as building the notification, to the row
+     * of that sync.
+     *
+     * @param uri    The URI of a recorded sync, as returned by insert
+     * @param values The columns to set
+     * @return The number of rows updated, 0 if the sync has been trimmed from the table since
+     */
     @Override
     public int update(@NonNull Uri uri, ContentValues values, String selection, String[] selectionArgs) {
-        throw new RuntimeException("We are not implementing update in Sunshine");
+        switch (sUriMatcher.match(uri)) {
+
+            case CODE_SYNC_METRICS_WITH_ID:
+                int numRowsUpdated = mOpenHelper.getWritableDatabase().update(
+                        SyncMetricsEntry.TABLE_NAME,
+                        values,
+                        SyncMetricsEntry._ID + " = ?",
+                        new String[]{uri.getLastPathSegment()});
+
+                if (numRowsUpdated != 0) {
+                    getContext().getContentResolver().notifyChange(uri, null);
+                }
+                return numRowsUpdated;
+
+            default:
+                throw new RuntimeException("We are not implementing update in Sunshine");
+        }
     }
 
 
@@ -10,24 +10,26 @@ import com.firebase.jobdispatcher.JobService;
 
 public class SunshineFirebaseJobService extends JobService {
 
-    private AsyncTask<Void, Void, Void> mFetchWeatherTask;
+    private AsyncTask<Void, Void, Boolean> mFetchWeatherTask;
 
 
     @Override
     public boolean onStartJob(final JobParameters jobParameters) {
 
-        mFetchWeatherTask = new AsyncTask<Void, Void, Void>(){
+        mFetchWeatherTask = new AsyncTask<Void, Void, Boolean>(){
             @Override
-            protected Void doInBackground(Void... voids) {
+            protected Boolean doInBackground(Void... voids) {
                 Context context = getApplicationContext();
-                SunshineSyncTask.syncWeather(context);
-                jobFinished(jobParameters, false);
-                return null;
+                return SunshineSyncTask.syncWeather(context);
             }
 
             @Override
-            protected void onPostExecute(Void aVoid) {
-                jobFinished(jobParameters, false);
+            protected void onPostExecute(Boolean needsReschedule) {
+                /*
+                 * A sync that failed transiently, after its own retries, is run again on the
+                 * job's retry strategy rather than waiting for the next sync window.
+                 */
+                jobFinished(jobParameters, needsReschedule);
             }
         };
 
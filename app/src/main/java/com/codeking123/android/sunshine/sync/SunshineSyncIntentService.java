@@ -12,6 +12,7 @@ public class SunshineSyncIntentService extends IntentService {
 
     @Override
     protected void onHandleIntent(Intent intent) {
+        /* An immediate sync that still fails after its retries is left to the periodic job */
         SunshineSyncTask.syncWeather(this);
     }
 }
\ No newline at end of file
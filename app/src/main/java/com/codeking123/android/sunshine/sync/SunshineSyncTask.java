@@ -4,52 +4,300 @@ package com.codeking123.android.sunshine.sync;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.SQLException;
+import android.net.Uri;
+import android.os.Process;
 import android.text.format.DateUtils;
+import android.util.Log;
 
+import com.codeking123.android.sunshine.core.alert.AlertEngine;
+import com.codeking123.android.sunshine.core.alert.AlertFiring;
+import com.codeking123.android.sunshine.core.date.Clock;
+import com.codeking123.android.sunshine.core.geo.TileLookup;
+import com.codeking123.android.sunshine.core.metrics.SyncOutcome;
+import com.codeking123.android.sunshine.core.metrics.SyncPhase;
+import com.codeking123.android.sunshine.core.metrics.SyncRecorder;
+import com.codeking123.android.sunshine.core.metrics.Ticker;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.core.sync.CircuitBreaker;
+import com.codeking123.android.sunshine.core.sync.Deadline;
+import com.codeking123.android.sunshine.core.sync.HttpStatusException;
+import com.codeking123.android.sunshine.core.sync.RetryPolicy;
+import com.codeking123.android.sunshine.core.sync.SyncFailure;
+import com.codeking123.android.sunshine.core.sync.SyncRetrier;
+import com.codeking123.android.sunshine.data.ForecastSnapshotStore;
+import com.codeking123.android.sunshine.data.ForecastTileStore;
+import com.codeking123.android.sunshine.data.GeocodeCache;
 import com.codeking123.android.sunshine.data.SunshinePreferences;
 import com.codeking123.android.sunshine.data.WeatherContract;
 import com.codeking123.android.sunshine.utilities.NetworkUtils;
 import com.codeking123.android.sunshine.utilities.NotificationUtils;
 import com.codeking123.android.sunshine.utilities.OpenWeatherJsonUtils;
+import com.codeking123.android.sunshine.utilities.SunshineTrace;
 
-import java.net.URL;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 public class SunshineSyncTask {
 
+    private static final String TAG = SunshineSyncTask.class.getSimpleName();
+
+    /*
+     * Notifications are built on a background priority thread of their own, so decoding the
+     * icon neither holds up the next sync nor competes with the UI.
+     */
+    private static final Executor sNotificationExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "SunshineNotification");
+                }
+            });
+
+    /* Up to three tries per sync, waiting up to 2 and then 4 seconds before the retries */
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy(3,
+            2 * DateUtils.SECOND_IN_MILLIS, 30 * DateUtils.SECOND_IN_MILLIS);
+
+    /* Five endpoint failures in a row, about two syncs' worth, stop syncs for half an hour */
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MILLIS = 30 * DateUtils.MINUTE_IN_MILLIS;
+
+    /*
+     * Restored from SunshinePreferences by the first sync, under the class lock; volatile so it
+     * can be reset without waiting for a sync
+     */
+    private static volatile CircuitBreaker sCircuitBreaker;
+
+    private static final Random sRandom = new Random();
 
-    synchronized public static void syncWeather(Context context) {
+    /*
+     * How long a sync may take, retries included. The sync thread, and the lock every other sync
+     * waits on, is free again by then however slow the server is.
+     */
+    public static final long DEFAULT_SYNC_BUDGET_MILLIS = DateUtils.MINUTE_IN_MILLIS;
 
+    /**
+     * Syncs the weather within {@link #DEFAULT_SYNC_BUDGET_MILLIS}, see
+     * {@link #syncWeather(Context, long)}.
+     */
+    public static boolean syncWeather(Context context) {
+        return syncWeather(context, DEFAULT_SYNC_BUDGET_MILLIS);
+    }
+
+    /**
+     * Syncs the weather, retrying transient failures with jittered exponential backoff. Every
+     * attempt is recorded as a sync of its own, and one cut off by the deadline as a
+     * {@link SyncOutcome#TIMEOUT}. Syncs are refused while the weather server has been failing,
+     * see {@link CircuitBreaker}.
+     *
+     * @param budgetMillis How long the sync may take, counted from when it gets the lock, so a
+     *                     sync queued behind another isn't cut short by the wait
+     * @return Whether the sync failed in a way that may succeed if it is run again later
+     */
+    synchronized public static boolean syncWeather(final Context context, long budgetMillis) {
+        final Deadline deadline = Deadline.after(budgetMillis, Ticker.SYSTEM);
+        CircuitBreaker breaker = getCircuitBreaker(context);
+        SyncRetrier retrier =
+                new SyncRetrier(RETRY_POLICY, breaker, sRandom, SyncRetrier.Sleeper.SYSTEM);
         try {
+            boolean attempted = retrier.run(new SyncRetrier.Attempt() {
+                @Override
+                public void run(int attempt) throws SyncFailure {
+                    syncOnce(context, deadline);
+                }
+            }, deadline);
+            if (!attempted) {
+                Log.w(TAG, "Not syncing, the weather server failed too often recently");
+            }
+            return false;
+        } catch (SyncFailure failure) {
+            Log.e(TAG, "Sync failed: " + failure.getMessage(), failure.getCause());
+            return failure.isTransient();
+        } catch (InterruptedException e) {
+            /* Stopped while waiting to retry; whoever stopped us decides about rescheduling */
+            Thread.currentThread().interrupt();
+            return true;
+        } finally {
+            SunshinePreferences.saveSyncCircuitState(context, breaker.getConsecutiveFailures(),
+                    breaker.getOpenedAtMillis());
+        }
+    }
+
+    /**
+     * Closes the circuit, so that the next sync goes through even if the weather server has been
+     * failing. Called when the location changes, as the failures may have been that location's.
+     * Doesn't wait for a sync that is running, which saves the state it ends with.
+     */
+    public static void resetCircuitBreaker(Context context) {
+        /* Saved first, so a breaker created meanwhile is restored closed */
+        SunshinePreferences.saveSyncCircuitState(context, 0, CircuitBreaker.NOT_OPEN);
+        CircuitBreaker breaker = sCircuitBreaker;
+        if (breaker != null) {
+            breaker.restore(0, CircuitBreaker.NOT_OPEN);
+        }
+    }
+
+    private static CircuitBreaker getCircuitBreaker(Context context) {
+        if (sCircuitBreaker == null) {
+            sCircuitBreaker = new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS,
+                    Clock.SYSTEM);
+            sCircuitBreaker.restore(SunshinePreferences.getSyncConsecutiveFailures(context),
+                    SunshinePreferences.getSyncCircuitOpenedAt(context));
+        }
+        return sCircuitBreaker;
+    }
+
+    /**
+     * Fetches the forecast, replaces the stored weather with it and notifies the user if needed.
+     * A forecast fetched recently for the geohash tile of the location is used instead of
+     * fetching, and a fetched one is kept for its tile, see {@link ForecastTileStore}. A location
+     * set by name is first looked up in the {@link GeocodeCache}, and the coordinates the server
+     * resolves it to are kept there, so going back to it later needs no resolving. The user's
+     * alert rules are evaluated against the days the new forecast changed, see
+     * {@link WeatherAlerts}, and those that came to hold are notified along with the weather;
+     * the time that takes is recorded as {@link SyncPhase#ALERTS}.
+     * How long each step took and how the sync ended is recorded through
+     * {@link com.codeking123.android.sunshine.data.WeatherContract.SyncMetricsEntry}. The
+     * notification is built from the parsed forecast once the sync is over, and the time that
+     * took is added to the sync's metrics as {@link SyncPhase#NOTIFICATION_BUILD}.
+     *
+     * @param deadline When the fetch has to be over
+     * @throws SyncFailure If the forecast couldn't be fetched in time, parsed or stored
+     */
+    private static void syncOnce(Context context, Deadline deadline) throws SyncFailure {
+
+        SyncRecorder recorder = new SyncRecorder(Ticker.SYSTEM, System.currentTimeMillis());
+        SyncOutcome outcome = SyncOutcome.ERROR;
+        SyncFailure failure = null;
+        ContentValues todaysWeather = null;
+        List<AlertFiring> alertFirings = null;
+
+        SunshineTrace.beginSection("SunshineSyncTask.syncOnce");
+        try {
+            ContentValues[] weatherValues = null;
+
+            /* A location set by name and resolved recently is synced by its coordinates */
+            String geocodeQuery = null;
+            boolean geocodeHit = false;
+            if (!SunshinePreferences.isLocationLatLonAvailable(context)) {
+                geocodeQuery = GeocodeCache.normalize(
+                        SunshinePreferences.getPreferredWeatherLocation(context));
+                if (geocodeQuery != null) {
+                    double[] coordinates = GeocodeCache.lookup(context, geocodeQuery,
+                            System.currentTimeMillis());
+                    if (coordinates != null) {
+                        SunshinePreferences.setLocationDetails(context,
+                                coordinates[0], coordinates[1]);
+                        geocodeHit = true;
+                    }
+                    recorder.setGeocode(geocodeQuery, geocodeHit);
+                }
+            }
 
-            URL weatherRequestUrl = NetworkUtils.getUrl(context);
+            /* A location near one synced within the tile's time to live needs no fetch */
+            String tile = ForecastTileStore.getTile(context);
+            if (tile != null) {
+                recorder.begin(SyncPhase.TILE_LOOKUP);
+                TileLookup lookup =
+                        ForecastTileStore.lookup(context, tile, System.currentTimeMillis());
+                if (lookup == TileLookup.HIT) {
+                    weatherValues = ForecastTileStore.read(context, tile);
+                    /* Dropped for newer tiles since it was looked up */
+                    if (weatherValues == null) lookup = TileLookup.MISS;
+                }
+                recorder.end(SyncPhase.TILE_LOOKUP);
+                recorder.setTile(tile, lookup);
+            }
 
-            /* Use the URL to retrieve the JSON */
-            String jsonWeatherResponse = NetworkUtils.getResponseFromHttpUrl(weatherRequestUrl);
+            boolean fetched = weatherValues == null;
+            long fetchedAtMillis = System.currentTimeMillis();
+            if (fetched) {
+                /* Retrieve the JSON from whichever weather endpoint has been answering soonest */
+                String jsonWeatherResponse = NetworkUtils.getForecastFromEndpoints(context,
+                        NetworkUtils.getEndpointRegistry(), recorder, deadline);
 
-            /* Parse the JSON into a list of weather values */
-            ContentValues[] weatherValues = OpenWeatherJsonUtils
-                    .getWeatherContentValuesFromJson(context, jsonWeatherResponse);
+                /* Parse the JSON into a list of weather values */
+                recorder.begin(SyncPhase.PARSE);
+                weatherValues = OpenWeatherJsonUtils
+                        .getWeatherContentValuesFromJson(context, jsonWeatherResponse);
+                recorder.end(SyncPhase.PARSE);
+
+                /*
+                 * The server resolved a location asked for by name; keep its coordinates unless
+                 * the location was changed meanwhile
+                 */
+                if (geocodeQuery != null && !geocodeHit && weatherValues != null
+                        && SunshinePreferences.isLocationLatLonAvailable(context)
+                        && geocodeQuery.equals(GeocodeCache.normalize(
+                                SunshinePreferences.getPreferredWeatherLocation(context)))) {
+                    double[] coordinates = SunshinePreferences.getLocationCoordinates(context);
+                    GeocodeCache.save(context, geocodeQuery, coordinates[0], coordinates[1],
+                            fetchedAtMillis);
+                }
+            }
 
 
             if (weatherValues != null && weatherValues.length != 0) {
                 /* Get a handle on the ContentResolver to delete and insert data */
                 ContentResolver sunshineContentResolver = context.getContentResolver();
 
+                /* Alerts are about what the sync changes, so keep what it replaces to compare */
+                AlertEngine alerts = SunshinePreferences.areNotificationsEnabled(context)
+                        ? WeatherAlerts.getEngine(context) : null;
+                WeatherRecord[] previousForecast = null;
+                if (alerts != null) {
+                    recorder.begin(SyncPhase.ALERTS);
+                    previousForecast = WeatherAlerts.readForecast(context);
+                    recorder.end(SyncPhase.ALERTS);
+                }
+
                 /* Delete old weather data because we don't need to keep multiple days' data */
+                recorder.begin(SyncPhase.DB_DELETE);
                 sunshineContentResolver.delete(
                         WeatherContract.WeatherEntry.CONTENT_URI,
                         null,
                         null);
+                recorder.end(SyncPhase.DB_DELETE);
 
                 /* Insert our new weather data into Sunshine's ContentProvider */
-                sunshineContentResolver.bulkInsert(
+                recorder.begin(SyncPhase.DB_INSERT);
+                int rowsInserted = sunshineContentResolver.bulkInsert(
                         WeatherContract.WeatherEntry.CONTENT_URI,
                         weatherValues);
+                /*
+                 * Keep it for the tile it was asked for. A location first known by name has the
+                 * coordinates the server resolved it to by now, and is kept for their tile.
+                 */
+                if (fetched) {
+                    if (tile == null) tile = ForecastTileStore.getTile(context);
+                    if (tile != null) {
+                        ForecastTileStore.save(context, tile, weatherValues, fetchedAtMillis);
+                    }
+                }
+                recorder.end(SyncPhase.DB_INSERT);
+                recorder.setRows(rowsInserted);
+
+                /* So the next launch can draw the new forecast before opening the database */
+                ForecastSnapshotStore.update(context);
 
                 /*
                  * Finally, after we insert data into the ContentProvider, determine whether or not
                  * we should notify the user that the weather has been refreshed.
                  */
+                recorder.begin(SyncPhase.NOTIFICATION);
                 boolean notificationsEnabled = SunshinePreferences.areNotificationsEnabled(context);
 
                 /*
@@ -68,16 +316,86 @@ public class SunshineSyncTask {
 
 
                 if (notificationsEnabled && oneDayPassedSinceLastNotification) {
-                    NotificationUtils.notifyUserOfNewWeather(context);
+                    todaysWeather = NotificationUtils.getTodaysWeather(weatherValues);
+                }
+
+                recorder.end(SyncPhase.NOTIFICATION);
+
+                if (alerts != null && previousForecast != null) {
+                    recorder.begin(SyncPhase.ALERTS);
+                    alertFirings = WeatherAlerts.evaluate(alerts,
+                            SunshinePreferences.getPreferredWeatherLocation(context),
+                            previousForecast, weatherValues);
+                    if (alertFirings.isEmpty()) alertFirings = null;
+                    recorder.end(SyncPhase.ALERTS);
                 }
 
-            /* If the code reaches this point, we have successfully performed our sync */
+                /* If the code reaches this point, we have successfully performed our sync */
+                outcome = SyncOutcome.SUCCESS;
 
+            } else {
+                /* The server reported an error, or had no weather for us */
+                outcome = SyncOutcome.NO_DATA;
             }
 
-        } catch (Exception e) {
+        } catch (HttpStatusException e) {
+            if (e.getStatusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                /* No such location; not the server's fault, and no use trying again */
+                outcome = SyncOutcome.NO_DATA;
+            } else {
+                failure = SyncFailure.network(e);
+            }
+        } catch (IOException e) {
+            failure = SyncFailure.network(e);
+        } catch (JSONException e) {
             /* Server probably invalid */
-            e.printStackTrace();
+            failure = SyncFailure.parse(e);
+        } catch (SQLException e) {
+            failure = SyncFailure.database(e);
+        } catch (RuntimeException e) {
+            failure = SyncFailure.unexpected(e);
+        } finally {
+            if (failure != null) outcome = failure.toOutcome();
+            Uri syncUri = SyncMetricsStore.save(context, recorder.finish(outcome));
+            if (outcome == SyncOutcome.SUCCESS
+                    && (todaysWeather != null || alertFirings != null)) {
+                notifyInBackground(context, todaysWeather, alertFirings, syncUri);
+            }
+            SunshineTrace.endSection();
         }
+
+        if (failure != null) throw failure;
+    }
+
+    /*
+     * Builds and posts the notifications, of today's weather and of the alerts, either of which
+     * may be null, on sNotificationExecutor. The sync is recorded before, so the time it takes
+     * can be added to the sync's row.
+     */
+    private static void notifyInBackground(final Context context,
+                                           final ContentValues todaysWeather,
+                                           final List<AlertFiring> alertFirings,
+                                           final Uri syncUri) {
+        sNotificationExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = Ticker.SYSTEM.nanoTime();
+                try {
+                    if (todaysWeather != null) {
+                        NotificationUtils.notifyUserOfNewWeather(context, todaysWeather);
+                    }
+                    if (alertFirings != null) {
+                        NotificationUtils.notifyUserOfAlerts(context, alertFirings);
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Couldn't notify of the new weather", e);
+                    return;
+                }
+                if (syncUri != null) {
+                    SyncMetricsStore.savePhase(context, syncUri, SyncPhase.NOTIFICATION_BUILD,
+                            Ticker.SYSTEM.nanoTime() - start);
+                }
+            }
+        });
     }
 }
\ No newline at end of file
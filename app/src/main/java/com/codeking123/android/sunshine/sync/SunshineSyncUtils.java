@@ -14,6 +14,7 @@ import com.firebase.jobdispatcher.FirebaseJobDispatcher;
 import com.firebase.jobdispatcher.GooglePlayDriver;
 import com.firebase.jobdispatcher.Job;
 import com.firebase.jobdispatcher.Lifetime;
+import com.firebase.jobdispatcher.RetryStrategy;
 import com.firebase.jobdispatcher.Trigger;
 
 import java.util.concurrent.TimeUnit;
@@ -61,6 +62,11 @@ public class SunshineSyncUtils {
                  * the old one.
                  */
                 .setReplaceCurrent(true)
+                /*
+                 * A sync that fails transiently asks to be rescheduled. The dispatcher then runs
+                 * it again after an exponentially growing delay, 30 seconds at first.
+                 */
+                .setRetryStrategy(RetryStrategy.DEFAULT_EXPONENTIAL)
                 /* Once the Job is ready, call the builder's build method to return the Job */
                 .build();
 
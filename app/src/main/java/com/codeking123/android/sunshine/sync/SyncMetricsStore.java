@@ -0,0 +1,97 @@
+package com.codeking123.android.sunshine.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.codeking123.android.sunshine.core.metrics.SyncMetrics;
+import com.codeking123.android.sunshine.core.metrics.SyncPhase;
+import com.codeking123.android.sunshine.data.WeatherContract.SyncMetricsEntry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the metrics of each sync through {@link SyncMetricsEntry#CONTENT_URI}.
+ */
+public final class SyncMetricsStore {
+
+    private static final String TAG = SyncMetricsStore.class.getSimpleName();
+
+    private SyncMetricsStore() {
+    }
+
+    static ContentValues toContentValues(SyncMetrics metrics) {
+        ContentValues values = new ContentValues();
+        values.put(SyncMetricsEntry.COLUMN_STARTED_AT, metrics.startedAtMillis);
+        values.put(SyncMetricsEntry.COLUMN_TOTAL_US,
+                TimeUnit.NANOSECONDS.toMicros(metrics.totalNanos));
+
+        for (SyncPhase phase : SyncPhase.values()) {
+            long nanos = metrics.getPhaseNanos(phase);
+            if (nanos == SyncMetrics.NOT_RUN) {
+                values.putNull(phase.getColumnName());
+            } else {
+                values.put(phase.getColumnName(), TimeUnit.NANOSECONDS.toMicros(nanos));
+            }
+        }
+
+        values.put(SyncMetricsEntry.COLUMN_BYTES, metrics.bytes);
+        values.put(SyncMetricsEntry.COLUMN_ROWS, metrics.rows);
+        values.put(SyncMetricsEntry.COLUMN_OUTCOME, metrics.outcome.name());
+
+        values.put(SyncMetricsEntry.COLUMN_ENDPOINT, metrics.endpoint);
+        putUnlessNaN(values, SyncMetricsEntry.COLUMN_ENDPOINT_LATENCY_MS,
+                metrics.endpointLatencyEwmaMillis);
+        putUnlessNaN(values, SyncMetricsEntry.COLUMN_ENDPOINT_ERROR_RATE,
+                metrics.endpointErrorRateEwma);
+        values.put(SyncMetricsEntry.COLUMN_HEDGE_ENDPOINT, metrics.hedgeEndpoint);
+        values.put(SyncMetricsEntry.COLUMN_HEDGE_WON, metrics.hedgeWon ? 1 : 0);
+        values.put(SyncMetricsEntry.COLUMN_TILE, metrics.tile);
+        values.put(SyncMetricsEntry.COLUMN_TILE_LOOKUP,
+                metrics.tileLookup != null ? metrics.tileLookup.name() : null);
+        values.put(SyncMetricsEntry.COLUMN_GEOCODE_QUERY, metrics.geocodeQuery);
+        values.put(SyncMetricsEntry.COLUMN_GEOCODE_HIT, metrics.geocodeHit ? 1 : 0);
+        return values;
+    }
+
+    private static void putUnlessNaN(ContentValues values, String column, double value) {
+        if (Double.isNaN(value)) {
+            values.putNull(column);
+        } else {
+            values.put(column, value);
+        }
+    }
+
+    /**
+     * Stores the metrics of a sync. Failing to do so is logged, never thrown: metrics must not
+     * turn a sync into a failure.
+     *
+     * @return The URI of the recorded sync, or null if it couldn't be recorded
+     */
+    public static Uri save(Context context, SyncMetrics metrics) {
+        try {
+            return context.getContentResolver()
+                    .insert(SyncMetricsEntry.CONTENT_URI, toContentValues(metrics));
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Couldn't record sync metrics", e);
+            return null;
+        }
+    }
+
+    /**
+     * Adds the duration of a phase that finished after its sync was recorded, such as
+     * {@link SyncPhase#NOTIFICATION_BUILD}, to the sync's row. Failures are logged, as for save.
+     *
+     * @param syncUri The URI save returned for the sync
+     */
+    public static void savePhase(Context context, Uri syncUri, SyncPhase phase, long nanos) {
+        ContentValues values = new ContentValues();
+        values.put(phase.getColumnName(), TimeUnit.NANOSECONDS.toMicros(nanos));
+        try {
+            context.getContentResolver().update(syncUri, values, null, null);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Couldn't record " + phase + " of " + syncUri, e);
+        }
+    }
+}
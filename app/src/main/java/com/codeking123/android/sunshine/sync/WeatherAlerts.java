@@ -0,0 +1,137 @@
+package com.codeking123.android.sunshine.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import com.codeking123.android.sunshine.DetailActivity;
+import com.codeking123.android.sunshine.core.alert.AlertEngine;
+import com.codeking123.android.sunshine.core.alert.AlertFiring;
+import com.codeking123.android.sunshine.core.alert.AlertRule;
+import com.codeking123.android.sunshine.core.alert.ForecastChangeSet;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.data.ForecastDayCache;
+import com.codeking123.android.sunshine.data.SunshinePreferences;
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates the user's alert rules, see {@link SunshinePreferences#getAlertRules}, against what a
+ * sync changed of the stored forecast: the forecast is read before the sync replaces it and
+ * compared with the new one, and only the days that differ are evaluated, see
+ * {@link AlertEngine}. The rules are compiled once, and again only when they are edited.
+ * <p>
+ * Alerts only add to a sync: a rule that doesn't compile, or a forecast that can't be read, is
+ * logged and skipped, never thrown. Syncs run one at a time, which the engine relies on.
+ */
+final class WeatherAlerts {
+
+    private static final String TAG = WeatherAlerts.class.getSimpleName();
+
+    /* The engine of the rules last read, and those rules; guarded by the class lock */
+    private static String sRules;
+    private static AlertEngine sEngine;
+
+    private WeatherAlerts() {
+    }
+
+    /**
+     * @return The engine of the user's rules, or null if there are none
+     */
+    static synchronized AlertEngine getEngine(Context context) {
+        String rules = SunshinePreferences.getAlertRules(context);
+        if (rules == null) {
+            return null;
+        }
+        if (!rules.equals(sRules)) {
+            sEngine = new AlertEngine(parseRules(rules));
+            sRules = rules;
+        }
+        return sEngine.getRuleCount() > 0 ? sEngine : null;
+    }
+
+    /**
+     * @param rules One "name: condition" a line. Blank lines and lines starting with # are
+     *              skipped, and so are rules that don't compile.
+     */
+    static List<AlertRule> parseRules(String rules) {
+        List<AlertRule> compiled = new ArrayList<>();
+        for (String line : rules.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                Log.w(TAG, "Skipping alert rule without a name: " + line);
+                continue;
+            }
+            try {
+                compiled.add(AlertRule.compile(line.substring(0, colon).trim(),
+                        line.substring(colon + 1).trim()));
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Skipping alert rule: " + e.getMessage());
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * @return The stored forecast in date order, or null if it couldn't be read
+     */
+    static WeatherRecord[] readForecast(Context context) {
+        Cursor cursor = null;
+        try {
+            cursor = context.getContentResolver().query(WeatherEntry.CONTENT_URI,
+                    DetailActivity.WEATHER_DETAIL_PROJECTION,
+                    null,
+                    null,
+                    WeatherEntry.COLUMN_DATE + " ASC");
+            if (cursor == null) {
+                return null;
+            }
+            WeatherRecord[] forecast = new WeatherRecord[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                forecast[i] = ForecastDayCache.readDay(cursor);
+            }
+            return forecast;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Couldn't read the forecast to compare with", e);
+            return null;
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+    }
+
+    /**
+     * @param previous      The forecast before the sync, see {@link #readForecast}
+     * @param weatherValues The forecast the sync stored, in the columns of the weather table
+     * @return The rules that came to hold, or an empty list
+     */
+    static List<AlertFiring> evaluate(AlertEngine engine, String location,
+                                      WeatherRecord[] previous, ContentValues[] weatherValues) {
+        ForecastChangeSet changes = new ForecastChangeSet();
+        changes.add(location, previous, toRecords(weatherValues));
+        return engine.evaluate(changes);
+    }
+
+    static WeatherRecord[] toRecords(ContentValues[] weatherValues) {
+        WeatherRecord[] records = new WeatherRecord[weatherValues.length];
+        for (int i = 0; i < weatherValues.length; i++) {
+            ContentValues values = weatherValues[i];
+            records[i] = new WeatherRecord(
+                    values.getAsLong(WeatherEntry.COLUMN_DATE),
+                    values.getAsInteger(WeatherEntry.COLUMN_WEATHER_ID),
+                    values.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP),
+                    values.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP),
+                    values.getAsDouble(WeatherEntry.COLUMN_HUMIDITY),
+                    values.getAsDouble(WeatherEntry.COLUMN_PRESSURE),
+                    values.getAsDouble(WeatherEntry.COLUMN_WIND_SPEED),
+                    values.getAsDouble(WeatherEntry.COLUMN_DEGREES));
+        }
+        return records;
+    }
+}
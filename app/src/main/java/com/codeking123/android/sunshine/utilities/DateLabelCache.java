@@ -0,0 +1,129 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.v4.util.LongSparseArray;
+
+import java.util.Calendar;
+
+/**
+ * Caches the labels produced by {@link SunshineDateUtils#getFriendlyDateString} per day, so the
+ * forecast list doesn't create a SimpleDateFormat and go through DateUtils every time a row is
+ * bound. Labels are keyed by the number of days since the epoch of the normalized date.
+ * <p>
+ * A label such as "Today" or "Tomorrow" depends on when it is asked for, so the cache drops
+ * everything when the day rolls over and whenever the time zone, locale, date or time is changed
+ * by the system. The day "rolls over" at whichever of local and UTC midnight comes first, as
+ * {@link SunshineDateUtils#getFriendlyDateString} compares local dates against the current UTC day.
+ * <p>
+ * All methods are thread-safe. A cache hit doesn't allocate.
+ */
+public final class DateLabelCache {
+
+    /*
+     * Far more days than the forecast ever holds, but keeps the cache bounded if it is used to
+     * label long archives.
+     */
+    private static final int MAX_LABELS_PER_STYLE = 512;
+
+    private static DateLabelCache sInstance;
+
+    private final Context mContext;
+
+    /* Labels as shown in the forecast list, and with the full date as shown on the detail screen */
+    private final LongSparseArray<String> mShortLabels = new LongSparseArray<>();
+    private final LongSparseArray<String> mFullLabels = new LongSparseArray<>();
+
+    /* The labels cached are valid until the current time reaches this instant */
+    private long mValidUntilMillis;
+
+    private DateLabelCache(Context context) {
+        mContext = context;
+    }
+
+    public static synchronized DateLabelCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new DateLabelCache(appContext);
+            sInstance.registerInvalidationReceiver(appContext);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the same String as {@link SunshineDateUtils#getFriendlyDateString}, computing it only
+     * the first time a given day is asked for since the cache was last invalidated.
+     *
+     * @param normalizedUtcMidnight Normalized date, as stored in the database
+     * @param showFullDate          Whether to include the full date, as the detail screen does
+     * @return A user-friendly representation of the date
+     */
+    public String getFriendlyDateString(long normalizedUtcMidnight, boolean showFullDate) {
+        long epochDay = normalizedUtcMidnight / SunshineDateUtils.DAY_IN_MILLIS;
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            if (now >= mValidUntilMillis) {
+                clear();
+                mValidUntilMillis = getNextDayBoundary(now);
+            }
+
+            LongSparseArray<String> labels = showFullDate ? mFullLabels : mShortLabels;
+            String label = labels.get(epochDay);
+            if (label == null) {
+                label = SunshineDateUtils
+                        .getFriendlyDateString(mContext, normalizedUtcMidnight, showFullDate);
+                if (labels.size() >= MAX_LABELS_PER_STYLE) {
+                    labels.clear();
+                }
+                labels.put(epochDay, label);
+            }
+            return label;
+        }
+    }
+
+    /**
+     * Drops every cached label. The next lookup starts a new cache for the current day.
+     */
+    public synchronized void invalidate() {
+        clear();
+        mValidUntilMillis = 0;
+    }
+
+    private void clear() {
+        mShortLabels.clear();
+        mFullLabels.clear();
+    }
+
+    private static long getNextDayBoundary(long nowMillis) {
+        long nextUtcMidnight = (nowMillis / SunshineDateUtils.DAY_IN_MILLIS + 1)
+                * SunshineDateUtils.DAY_IN_MILLIS;
+
+        Calendar nextLocalMidnight = Calendar.getInstance();
+        nextLocalMidnight.setTimeInMillis(nowMillis);
+        nextLocalMidnight.set(Calendar.HOUR_OF_DAY, 0);
+        nextLocalMidnight.set(Calendar.MINUTE, 0);
+        nextLocalMidnight.set(Calendar.SECOND, 0);
+        nextLocalMidnight.set(Calendar.MILLISECOND, 0);
+        nextLocalMidnight.add(Calendar.DAY_OF_MONTH, 1);
+
+        return Math.min(nextUtcMidnight, nextLocalMidnight.getTimeInMillis());
+    }
+
+    private void registerInvalidationReceiver(Context appContext) {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        filter.addAction(Intent.ACTION_DATE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+
+        appContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+    }
+}
@@ -1,47 +1,61 @@
 package com.codeking123.android.sunshine.utilities;
 
+import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 
-import com.codeking123.android.sunshine.data.WeatherContract;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
-
-import static com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticForecastGenerator;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticLocation;
+import com.codeking123.android.sunshine.data.WeatherContract.WeatherEntry;
 
+/**
+ * Fills the weather table with made up but realistic weather, for development, stress tests and
+ * benchmarks. The weather comes from {@link SyntheticForecastGenerator}, so the same seed always
+ * stores the same forecast, and it is inserted in batches, so storing millions of days takes no
+ * more memory than storing a week.
+ */
 public class FakeDataUtils {
 
-    private static int [] weatherIDs = {200,300,500,711,900,962};
-
-
-    private static ContentValues createTestWeatherContentValues(long date) {
-        ContentValues testWeatherValues = new ContentValues();
-        testWeatherValues.put(WeatherEntry.COLUMN_DATE, date);
-        testWeatherValues.put(WeatherEntry.COLUMN_DEGREES, Math.random()*2);
-        testWeatherValues.put(WeatherEntry.COLUMN_HUMIDITY, Math.random()*100);
-        testWeatherValues.put(WeatherEntry.COLUMN_PRESSURE, 870 + Math.random()*100);
-        int maxTemp = (int)(Math.random()*100);
-        testWeatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, maxTemp);
-        testWeatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, maxTemp - (int) (Math.random()*10));
-        testWeatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, Math.random()*10);
-        testWeatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, weatherIDs[(int)(Math.random()*10)%5]);
-        return testWeatherValues;
-    }
+    public static final long DEFAULT_SEED = 1;
 
+    /* Days per bulkInsert, so only one batch of ContentValues exists at a time */
+    private static final int DAYS_PER_INSERT = 1000;
 
+    /**
+     * Stores a week of weather from today onwards.
+     */
     public static void insertFakeData(Context context) {
-        //Get today's normalized date
-        long today = SunshineDateUtils.normalizeDate(System.currentTimeMillis());
-        List<ContentValues> fakeValues = new ArrayList<ContentValues>();
-        //loop over 7 days starting today onwards
-        for(int i=0; i<7; i++) {
-            fakeValues.add(FakeDataUtils.createTestWeatherContentValues(today + TimeUnit.DAYS.toMillis(i)));
+        long today = SunshineDateUtils.getNormalizedUtcDateForToday();
+        insertSyntheticData(context, DEFAULT_SEED, 0, today, 7);
+    }
+
+    /**
+     * Stores consecutive days of synthetic weather for one location. Days already stored are
+     * replaced.
+     *
+     * @param context       Used to reach the WeatherProvider
+     * @param seed          Seed of the data set
+     * @param locationIndex Which of the generator's locations, and so which climate, to use
+     * @param firstDay      Normalized date of the first day
+     * @param days          Number of days to store, which may run into the millions
+     * @return The number of days stored
+     */
+    public static int insertSyntheticData(Context context, long seed, int locationIndex,
+                                          long firstDay, int days) {
+        SyntheticForecastGenerator generator = new SyntheticForecastGenerator(seed);
+        SyntheticLocation location = generator.getLocation(locationIndex);
+        ContentResolver resolver = context.getContentResolver();
+
+        long date = firstDay;
+        int inserted = 0;
+        while (inserted < days) {
+            ContentValues[] values = new ContentValues[Math.min(DAYS_PER_INSERT, days - inserted)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = OpenWeatherJsonUtils.toContentValues(generator.getDay(location, date));
+                date += SunshineDateUtils.DAY_IN_MILLIS;
+            }
+            inserted += resolver.bulkInsert(WeatherEntry.CONTENT_URI, values);
         }
-        // Bulk Insert our new weather data into Sunshine's Database
-        context.getContentResolver().bulkInsert(
-                WeatherContract.WeatherEntry.CONTENT_URI,
-                fakeValues.toArray(new ContentValues[7]));
+        return inserted;
     }
 }
@@ -0,0 +1,219 @@
+package com.codeking123.android.sunshine.utilities;
+
+import com.codeking123.android.sunshine.core.replay.HttpTape;
+import com.codeking123.android.sunshine.core.replay.PacedInputStream;
+import com.codeking123.android.sunshine.core.replay.RecordedExchange;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Okio;
+
+/**
+ * Records the HTTP traffic of {@link NetworkUtils} to an {@link HttpTape} file, or answers it
+ * from one without touching the network, so syncs can be benchmarked offline, and the same way
+ * every run, against payloads a real server sent. Installed with
+ * {@link NetworkUtils#setTapeInterceptor}.
+ * <p>
+ * It runs in front of OkHttp's own interceptors, so it sees requests as the app builds them and
+ * response bodies already decompressed. Requests that fail before a response arrives aren't
+ * recorded, so a replay only ever serves responses.
+ */
+public final class HttpTapeInterceptor implements Interceptor {
+
+    /* How often a paced replay checks whether its call has been cancelled */
+    private static final long CANCEL_CHECK_MILLIS = 10;
+
+    private final HttpTape mTape;
+
+    /* Where a recording is saved, or null when replaying */
+    private final File mFile;
+
+    /* What a replay serves from, or null when recording */
+    private final HttpTape.Player mPlayer;
+    private final boolean mPaced;
+
+    private HttpTapeInterceptor(HttpTape tape, File file, HttpTape.Player player,
+                                boolean paced) {
+        mTape = tape;
+        mFile = file;
+        mPlayer = player;
+        mPaced = paced;
+    }
+
+    /**
+     * Passes requests on to the network and records them with their responses. The file is
+     * rewritten after every response, in one rename, so it holds a complete tape whenever the
+     * recording stops.
+     */
+    public static HttpTapeInterceptor record(File file) {
+        return new HttpTapeInterceptor(new HttpTape(), file, null, false);
+    }
+
+    /**
+     * Answers requests from the tape in a file, see {@link #replay(HttpTape, boolean)}.
+     *
+     * @throws IOException If the file can't be read or isn't a tape
+     */
+    public static HttpTapeInterceptor replay(File file, boolean paced) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return replay(HttpTape.readFrom(in), paced);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Answers requests from a tape, as matched by {@link HttpTape.Player}. A request that was
+     * never recorded fails with an IOException, as if the server couldn't be reached.
+     *
+     * @param paced Whether to take as long as the recorded response did: waiting out its time to
+     *              the headers and handing out its body at the bandwidth it arrived at. Otherwise
+     *              responses are served as fast as they can be read.
+     */
+    public static HttpTapeInterceptor replay(HttpTape tape, boolean paced) {
+        return new HttpTapeInterceptor(tape, null, tape.newPlayer(), paced);
+    }
+
+    /**
+     * @return The tape being recorded to or replayed
+     */
+    public HttpTape getTape() {
+        return mTape;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        return mPlayer == null ? record(chain) : replay(chain);
+    }
+
+    private Response record(Chain chain) throws IOException {
+        Request request = chain.request();
+        long start = System.nanoTime();
+        Response response = chain.proceed(request);
+        long headersNanos = System.nanoTime() - start;
+
+        MediaType contentType = response.body().contentType();
+        byte[] body = response.body().bytes();
+        long bodyNanos = System.nanoTime() - start - headersNanos;
+
+        RecordedExchange.Builder exchange =
+                new RecordedExchange.Builder(request.url().toString()).method(request.method());
+        Headers requestHeaders = request.headers();
+        for (int i = 0; i < requestHeaders.size(); i++) {
+            exchange.addRequestHeader(requestHeaders.name(i), requestHeaders.value(i));
+        }
+        exchange.status(response.code(), response.message());
+        Headers responseHeaders = response.headers();
+        for (int i = 0; i < responseHeaders.size(); i++) {
+            exchange.addResponseHeader(responseHeaders.name(i), responseHeaders.value(i));
+        }
+        exchange.body(body).timing(TimeUnit.NANOSECONDS.toMillis(headersNanos),
+                TimeUnit.NANOSECONDS.toMillis(bodyNanos));
+        mTape.add(exchange.build());
+        save();
+
+        return response.newBuilder().body(ResponseBody.create(contentType, body)).build();
+    }
+
+    private synchronized void save() throws IOException {
+        File temp = new File(mFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            mTape.writeTo(out);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(mFile)) {
+            throw new IOException("Couldn't replace " + mFile);
+        }
+    }
+
+    private Response replay(Chain chain) throws IOException {
+        Request request = chain.request();
+        RecordedExchange exchange = mPlayer.next(request.method(), request.url().toString());
+        if (exchange == null) {
+            throw new IOException("Nothing recorded for " + request.method() + " "
+                    + request.url());
+        }
+
+        CallPause pause = new CallPause(chain.call());
+        long sentAtMillis = System.currentTimeMillis();
+        if (mPaced) {
+            pause.pause(exchange.getHeadersMillis());
+        }
+
+        Headers.Builder headers = new Headers.Builder();
+        for (int i = 0; i < exchange.getResponseHeaderCount(); i++) {
+            headers.add(exchange.getResponseHeaderName(i), exchange.getResponseHeaderValue(i));
+        }
+        Headers responseHeaders = headers.build();
+
+        InputStream body = exchange.openBody();
+        long bytesPerSecond = exchange.getBytesPerSecond();
+        if (mPaced && bytesPerSecond > 0) {
+            body = new PacedInputStream(body, bytesPerSecond, pause);
+        }
+        String contentType = responseHeaders.get("Content-Type");
+
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(exchange.getStatusCode())
+                .message(exchange.getMessage())
+                .headers(responseHeaders)
+                .body(ResponseBody.create(
+                        contentType != null ? MediaType.parse(contentType) : null,
+                        exchange.getBodyLength(),
+                        Okio.buffer(Okio.source(body))))
+                .sentRequestAtMillis(sentAtMillis)
+                .receivedResponseAtMillis(System.currentTimeMillis())
+                .build();
+    }
+
+    /**
+     * Waits out a replayed delay in short sleeps, giving up as a real request would once the
+     * call is cancelled, by a hedge that won or by its deadline.
+     */
+    private static final class CallPause implements PacedInputStream.Pause {
+
+        private final Call mCall;
+
+        CallPause(Call call) {
+            mCall = call;
+        }
+
+        @Override
+        public void pause(long millis) throws IOException {
+            long endNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            try {
+                long remainingNanos;
+                while ((remainingNanos = endNanos - System.nanoTime()) > 0) {
+                    if (mCall.isCanceled()) {
+                        throw new IOException("Canceled");
+                    }
+                    /* Rounded up, so a pause is never cut short */
+                    long remainingMillis = (remainingNanos + 999999) / 1000000;
+                    Thread.sleep(Math.min(remainingMillis, CANCEL_CHECK_MILLIS));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted during a replayed delay");
+            }
+        }
+    }
+}
@@ -7,15 +7,32 @@ import android.os.Build;
 import android.support.annotation.RequiresApi;
 import android.util.Log;
 
+import com.codeking123.android.sunshine.core.geo.Geohash;
+import com.codeking123.android.sunshine.core.metrics.SyncPhase;
+import com.codeking123.android.sunshine.core.metrics.SyncRecorder;
+import com.codeking123.android.sunshine.core.sync.Deadline;
+import com.codeking123.android.sunshine.core.sync.Endpoint;
+import com.codeking123.android.sunshine.core.sync.EndpointRegistry;
+import com.codeking123.android.sunshine.core.sync.HttpStatusException;
+import com.codeking123.android.sunshine.data.ForecastTileStore;
 import com.codeking123.android.sunshine.data.SunshinePreferences;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.EventListener;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -34,6 +51,17 @@ public final class NetworkUtils {
 
     private static final String FORECAST_BASE_URL = STATIC_WEATHER_URL;
 
+    /*
+     * Syncs pick between the two as mirrors: each is tried once, then the one that has been
+     * answering soonest is used, and a request slower than the 95th percentile of its endpoint's
+     * recent latencies is hedged to the other.
+     */
+    private static final double ENDPOINT_EWMA_ALPHA = 0.3;
+    private static final double HEDGE_PERCENTILE = 95;
+    private static final double EXPLORE_PROBABILITY = 0.05;
+
+    private static final EndpointRegistry sEndpoints = createEndpointRegistry();
+
 
     private static final String format = "json";
     /* The units we want our API to return */
@@ -54,22 +82,80 @@ public final class NetworkUtils {
     /* The days parameter allows us to designate how many days of weather data we want */
     private static final String DAYS_PARAM = "cnt";
 
+    /*
+     * A stalled connect or read fails after these; a server that keeps trickling bytes is cut
+     * off by the call timeout, which a sync's deadline shortens.
+     */
+    private static final long CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+    private static final long READ_TIMEOUT_MILLIS = 15 * 1000;
+    private static final long CALL_TIMEOUT_MILLIS = 60 * 1000;
+
+    /*
+     * Shared so that syncs reuse pooled connections. Timed requests and requests with a deadline
+     * get a copy of this client with their own EventListener and timeouts, which still shares
+     * its connection pool and dispatcher.
+     */
+    private static final OkHttpClient sClient = new OkHttpClient.Builder()
+            .connectTimeout(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+            .readTimeout(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+            .writeTimeout(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+            .callTimeout(CALL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+            .build();
+
+    /* Records or replays every request when set, see HttpTapeInterceptor */
+    private static volatile HttpTapeInterceptor sTapeInterceptor;
+
+
+    private static EndpointRegistry createEndpointRegistry() {
+        EndpointRegistry registry = new EndpointRegistry(ENDPOINT_EWMA_ALPHA, HEDGE_PERCENTILE,
+                EXPLORE_PROBABILITY, new Random());
+        registry.register("static", STATIC_WEATHER_URL);
+        registry.register("dynamic", DYNAMIC_WEATHER_URL);
+        return registry;
+    }
+
+    /**
+     * The weather endpoints syncs pick from. More can be registered, such as local stand-ins in
+     * tests and benchmarks.
+     */
+    public static EndpointRegistry getEndpointRegistry() {
+        return sEndpoints;
+    }
+
+    /**
+     * Sends every request made from now on through the interceptor, to record the traffic to a
+     * file or to answer it from one. For benchmarks and tests; null goes back to the network.
+     */
+    public static void setTapeInterceptor(HttpTapeInterceptor interceptor) {
+        sTapeInterceptor = interceptor;
+    }
+
 
     public static URL getUrl(Context context) {
-        if (SunshinePreferences.isLocationLatLonAvailable(context)) {
-            double[] preferredCoordinates = SunshinePreferences.getLocationCoordinates(context);
-            double latitude = preferredCoordinates[0];
-            double longitude = preferredCoordinates[1];
-            return buildUrlWithLatitudeLongitude(latitude, longitude);
+        return getUrl(context, FORECAST_BASE_URL);
+    }
+
+
+    /**
+     * Builds the forecast request for the user's location on the base URL of an endpoint. A
+     * location known by its coordinates is asked for as the center of its geohash tile, so every
+     * location of the tile gets the same forecast, see ForecastTileStore.
+     */
+    public static URL getUrl(Context context, String baseUrl) {
+        String tile = ForecastTileStore.getTile(context);
+        if (tile != null) {
+            double[] center = Geohash.getCenter(tile);
+            return buildUrlWithLatitudeLongitude(baseUrl, center[0], center[1]);
         } else {
             String locationQuery = SunshinePreferences.getPreferredWeatherLocation(context);
-            return buildUrlWithLocationQuery(locationQuery);
+            return buildUrlWithLocationQuery(baseUrl, locationQuery);
         }
     }
 
 
-    private static URL buildUrlWithLatitudeLongitude(Double latitude, Double longitude) {
-        Uri weatherQueryUri = Uri.parse(FORECAST_BASE_URL).buildUpon()
+    private static URL buildUrlWithLatitudeLongitude(String baseUrl, Double latitude,
+                                                     Double longitude) {
+        Uri weatherQueryUri = Uri.parse(baseUrl).buildUpon()
                 .appendQueryParameter(LAT_PARAM, String.valueOf(latitude))
                 .appendQueryParameter(LON_PARAM, String.valueOf(longitude))
                 .appendQueryParameter(FORMAT_PARAM, format)
@@ -87,8 +173,8 @@ public final class NetworkUtils {
         }
     }
 
-    private static URL buildUrlWithLocationQuery(String locationQuery) {
-        Uri weatherQueryUri = Uri.parse(FORECAST_BASE_URL).buildUpon()
+    private static URL buildUrlWithLocationQuery(String baseUrl, String locationQuery) {
+        Uri weatherQueryUri = Uri.parse(baseUrl).buildUpon()
                 .appendQueryParameter(QUERY_PARAM, locationQuery)
                 .appendQueryParameter(FORMAT_PARAM, format)
                 .appendQueryParameter(UNITS_PARAM, units)
@@ -107,19 +193,345 @@ public final class NetworkUtils {
 
     @RequiresApi(api = Build.VERSION_CODES.KITKAT)
     public static String getResponseFromHttpUrl(URL url) throws IOException {
+        return getResponseFromHttpUrl(url, null);
+    }
 
-        OkHttpClient client=new OkHttpClient();
-        String Jsonresponse = null;
-        String Url=url.toString();
-        Request request = new Request.Builder()
-                .url(url)
-                .build();
+    /**
+     * Fetches the response body of the URL, reporting the connect, time to first byte and
+     * download phases and the number of bytes read to the recorder.
+     *
+     * @param url      The URL to fetch the HTTP response from
+     * @param recorder Where to report the phases of the request, or null not to time it
+     * @return The contents of the HTTP response
+     * @throws HttpStatusException If the server answered with a status other than 2xx
+     * @throws IOException         Related to network and stream reading
+     */
+    @RequiresApi(api = Build.VERSION_CODES.KITKAT)
+    public static String getResponseFromHttpUrl(URL url, SyncRecorder recorder)
+            throws IOException {
+        return getResponseFromHttpUrl(url, recorder, null);
+    }
+
+    /**
+     * Fetches the response body of the URL like {@link #getResponseFromHttpUrl(URL, SyncRecorder)},
+     * giving up when the deadline passes. The call is cancelled then, wherever it is, and no
+     * connect or read waits past it.
+     *
+     * @param deadline When the fetch has to be over, or null for the default timeouts
+     * @throws InterruptedIOException If the deadline passed or a connect or read timed out
+     */
+    @RequiresApi(api = Build.VERSION_CODES.KITKAT)
+    public static String getResponseFromHttpUrl(URL url, SyncRecorder recorder,
+                                                Deadline deadline) throws IOException {
+        SunshineTrace.beginSection("NetworkUtils.fetch");
+        try {
+            OkHttpClient client =
+                    buildClient(recorder != null ? new SyncPhaseListener(recorder) : null,
+                            deadline);
+
+            String Jsonresponse = null;
+            Request request = new Request.Builder()
+                    .url(url)
+                    .build();
+
+            try (Response response = client.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    throw new HttpStatusException(response.code());
+                }
+                Jsonresponse = response.body().string();
+            }
+
+            if (recorder != null) {
+                recorder.end(SyncPhase.DOWNLOAD);
+            }
+            return Jsonresponse;
+        } finally {
+            SunshineTrace.endSection();
+        }
+    }
+
+    /**
+     * Fetches the forecast for the user's location from the endpoint of the registry that is
+     * expected to answer soonest. If it hasn't answered by the registry's hedge delay, the
+     * request is also sent to the next best endpoint, and whichever succeeds first is used; the
+     * other is cancelled. If it fails before then, the request is sent to the next best endpoint
+     * straight away instead. How each endpoint did is recorded in the registry, and which were
+     * used in the recorder, whose phases are those of the first request; the download is only
+     * timed if that request's answer was used.
+     *
+     * @param registry The endpoints to pick from
+     * @param recorder Where to report the phases of the request, or null not to time it
+     * @param deadline When the fetch has to be over, or null for the default timeouts
+     * @return The contents of the HTTP response
+     * @throws HttpStatusException    If the endpoints answered with a status other than 2xx, or
+     *                                either answered with a client error
+     * @throws InterruptedIOException If the deadline passed or a connect or read timed out
+     * @throws IOException            Related to network and stream reading
+     */
+    public static String getForecastFromEndpoints(Context context, EndpointRegistry registry,
+                                                  SyncRecorder recorder, Deadline deadline)
+            throws IOException {
+        SunshineTrace.beginSection("NetworkUtils.fetchFromEndpoints");
+        SyncPhaseListener listener = recorder != null ? new SyncPhaseListener(recorder) : null;
+        EndpointFetch primary = null;
+        EndpointFetch hedge = null;
+        try {
+            Endpoint primaryEndpoint = registry.select();
+            if (recorder != null) {
+                recorder.setEndpoint(primaryEndpoint.getName(),
+                        primaryEndpoint.getLatencyEwmaMillis(),
+                        primaryEndpoint.getErrorRateEwma());
+                recorder.begin(SyncPhase.URL_BUILD);
+            }
+            URL primaryUrl = getUrl(context, primaryEndpoint.getBaseUrl());
+            if (recorder != null) {
+                recorder.end(SyncPhase.URL_BUILD);
+            }
+
+            BlockingQueue<EndpointFetch> finished = new LinkedBlockingQueue<>();
+            primary = new EndpointFetch(primaryEndpoint,
+                    buildClient(listener, deadline), primaryUrl, finished);
+            long hedgeDelayMillis = registry.getHedgeDelayMillis(primaryEndpoint);
+
+            int running = 1;
+            EndpointFetch winner = null;
+            IOException firstFailure = null;
+            while (running > 0) {
+                EndpointFetch done;
+                if (hedge == null && hedgeDelayMillis != EndpointRegistry.NO_HEDGE) {
+                    done = finished.poll(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+                    if (done == null) {
+                        hedge = startHedge(context, registry, primaryEndpoint, deadline, finished);
+                        if (hedge != null) running++;
+                        hedgeDelayMillis = EndpointRegistry.NO_HEDGE;
+                        continue;
+                    }
+                } else {
+                    done = finished.take();
+                }
+                running--;
+
+                if (done.mFailure == null) {
+                    winner = done;
+                    break;
+                }
+                /* Any endpoint would turn the request down alike; don't hold it against this one */
+                if (done.mFailure instanceof HttpStatusException
+                        && ((HttpStatusException) done.mFailure).isClientError()) {
+                    throw done.mFailure;
+                }
+                registry.recordFailure(done.mEndpoint);
+                if (firstFailure == null) firstFailure = done.mFailure;
+                /* The primary failed before it was hedged; another endpoint may still answer */
+                if (hedge == null) {
+                    hedge = startHedge(context, registry, primaryEndpoint, deadline, finished);
+                    if (hedge != null) running++;
+                }
+            }
+
+            if (winner == null) throw firstFailure;
+            /* The request's phases are over; the loser, still running, mustn't add to them */
+            if (listener != null) listener.detach();
+
+            registry.recordSuccess(winner.mEndpoint, winner.mLatencyMillis);
+            if (hedge != null) {
+                EndpointFetch loser = winner == primary ? hedge : primary;
+                if (!loser.isFinished()) {
+                    registry.recordAbandoned(loser.mEndpoint, loser.getElapsedMillis());
+                }
+                if (recorder != null) {
+                    recorder.setHedge(hedge.mEndpoint.getName(), winner == hedge);
+                }
+            }
+            /* The hedge's phases weren't timed, so the primary's download would be the loser's */
+            if (recorder != null && winner == primary) {
+                recorder.end(SyncPhase.DOWNLOAD);
+            }
+            return winner.mBody;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching the forecast");
+        } finally {
+            /* Nothing more from a request that lost or was given up on reaches the recorder */
+            if (listener != null) listener.detach();
+            if (primary != null) primary.cancel();
+            if (hedge != null) hedge.cancel();
+            SunshineTrace.endSection();
+        }
+    }
+
+    /* Sends the request to the next best endpoint than the primary, or returns null if none */
+    private static EndpointFetch startHedge(Context context, EndpointRegistry registry,
+                                            Endpoint primary, Deadline deadline,
+                                            BlockingQueue<EndpointFetch> finished)
+            throws InterruptedIOException {
+        Endpoint hedgeEndpoint = registry.selectHedge(primary);
+        if (hedgeEndpoint == null) return null;
+        return new EndpointFetch(hedgeEndpoint, buildClient(null, deadline),
+                getUrl(context, hedgeEndpoint.getBaseUrl()), finished);
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            Jsonresponse = response.body().string();
+    /*
+     * A copy of the shared client reporting to the listener, if any, with its timeouts cut to
+     * the time left before the deadline, if any, and going through the tape interceptor, if set.
+     */
+    private static OkHttpClient buildClient(EventListener listener, Deadline deadline)
+            throws InterruptedIOException {
+        HttpTapeInterceptor tapeInterceptor = sTapeInterceptor;
+        if (listener == null && deadline == null && tapeInterceptor == null) return sClient;
+
+        OkHttpClient.Builder builder = sClient.newBuilder();
+        if (tapeInterceptor != null) {
+            builder.addInterceptor(tapeInterceptor);
+        }
+        if (listener != null) {
+            builder.eventListener(listener);
+        }
+        if (deadline != null) {
+            long remainingMillis = deadline.remainingMillis();
+            if (remainingMillis == 0) {
+                throw new InterruptedIOException("The deadline passed before the fetch");
+            }
+            builder.callTimeout(remainingMillis, TimeUnit.MILLISECONDS)
+                    .connectTimeout(Math.min(CONNECT_TIMEOUT_MILLIS, remainingMillis),
+                            TimeUnit.MILLISECONDS)
+                    .readTimeout(Math.min(READ_TIMEOUT_MILLIS, remainingMillis),
+                            TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    /**
+     * One request of {@link #getForecastFromEndpoints}, run on OkHttp's dispatcher. Puts itself
+     * in the queue it was given once it has the response body or has failed.
+     */
+    private static final class EndpointFetch implements Callback {
+
+        final Endpoint mEndpoint;
+
+        private final Call mCall;
+        private final BlockingQueue<EndpointFetch> mFinished;
+        private final long mStartNanos = System.nanoTime();
+
+        /* Written before the fetch is queued as finished, so safe to read after taking it */
+        String mBody;
+        IOException mFailure;
+        long mLatencyMillis;
+        private volatile boolean mIsFinished;
+
+        EndpointFetch(Endpoint endpoint, OkHttpClient client, URL url,
+                      BlockingQueue<EndpointFetch> finished) {
+            mEndpoint = endpoint;
+            mFinished = finished;
+            mCall = client.newCall(new Request.Builder().url(url).build());
+            mCall.enqueue(this);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            try {
+                if (!response.isSuccessful()) {
+                    throw new HttpStatusException(response.code());
+                }
+                mBody = response.body().string();
+            } catch (IOException e) {
+                mFailure = e;
+            } finally {
+                response.close();
+            }
+            finish();
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            mFailure = e;
+            finish();
+        }
+
+        boolean isFinished() {
+            return mIsFinished;
+        }
+
+        long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mStartNanos);
+        }
+
+        void cancel() {
+            if (!mIsFinished) mCall.cancel();
+        }
+
+        private void finish() {
+            mLatencyMillis = getElapsedMillis();
+            mIsFinished = true;
+            mFinished.add(this);
+        }
+    }
+
+    /**
+     * Turns OkHttp's call events into sync phases. Follow-up requests, such as redirects, add to
+     * the same phases.
+     */
+    private static final class SyncPhaseListener extends EventListener {
+
+        private final SyncRecorder mRecorder;
+
+        /*
+         * Set once the sync is done with the call, which may still be running if it was hedged.
+         * Guarded by the recorder's lock, so no event is half reported once it is set.
+         */
+        private boolean mDetached;
+
+        SyncPhaseListener(SyncRecorder recorder) {
+            mRecorder = recorder;
         }
-         return Jsonresponse;
 
+        void detach() {
+            synchronized (mRecorder) {
+                mDetached = true;
+            }
+        }
 
+        @Override
+        public void callStart(Call call) {
+            synchronized (mRecorder) {
+                if (mDetached) return;
+                mRecorder.begin(SyncPhase.CONNECT);
+            }
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            synchronized (mRecorder) {
+                if (mDetached) return;
+                mRecorder.end(SyncPhase.CONNECT);
+                mRecorder.begin(SyncPhase.FIRST_BYTE);
+            }
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            synchronized (mRecorder) {
+                if (mDetached) return;
+                mRecorder.end(SyncPhase.FIRST_BYTE);
+                mRecorder.begin(SyncPhase.DOWNLOAD);
+            }
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            synchronized (mRecorder) {
+                if (mDetached) return;
+                mRecorder.addBytes(byteCount);
+            }
+        }
+
+        @Override
+        public void connectionReleased(Call call, Connection connection) {
+            synchronized (mRecorder) {
+                if (mDetached) return;
+                /* A follow-up request has to acquire a connection again */
+                mRecorder.begin(SyncPhase.CONNECT);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,76 +2,95 @@ package com.codeking123.android.sunshine.utilities;
 
 import android.app.NotificationManager;
 import android.app.PendingIntent;
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
-import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.app.TaskStackBuilder;
 import android.support.v4.content.ContextCompat;
+import android.util.LruCache;
 
 import com.codeking123.android.sunshine.DetailActivity;
 import com.codeking123.android.sunshine.R;
+import com.codeking123.android.sunshine.core.alert.AlertFiring;
 import com.codeking123.android.sunshine.data.SunshinePreferences;
 import com.codeking123.android.sunshine.data.WeatherContract;
 
-public class NotificationUtils {
-
-
-    public static final String[] WEATHER_NOTIFICATION_PROJECTION = {
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-    };
+import java.util.List;
 
-
-    public static final int INDEX_WEATHER_ID = 0;
-    public static final int INDEX_MAX_TEMP = 1;
-    public static final int INDEX_MIN_TEMP = 2;
+public class NotificationUtils {
 
 
     private static final int WEATHER_NOTIFICATION_ID = 3004;
 
+    /* Alerts have a notification of their own, so they don't replace the daily one */
+    private static final int ALERT_NOTIFICATION_ID = 3005;
+
+    /*
+     * Large icons decoded at notification size, by art resource id. A few days' worth of
+     * conditions fit; the bound is in bytes, as the size of an icon depends on the screen.
+     */
+    private static final int LARGE_ICON_CACHE_BYTES = 1024 * 1024;
+
+    private static final LruCache<Integer, Bitmap> sLargeIcons =
+            new LruCache<Integer, Bitmap>(LARGE_ICON_CACHE_BYTES) {
+                @Override
+                protected int sizeOf(Integer resourceId, Bitmap icon) {
+                    return icon.getRowBytes() * icon.getHeight();
+                }
+            };
+
+
+    /**
+     * Picks today's weather out of a forecast, such as the one a sync just parsed, so the
+     * notification doesn't need to read it back from the database.
+     *
+     * @return Today's weather, or null if the forecast doesn't have it
+     */
+    public static ContentValues getTodaysWeather(ContentValues[] weatherValues) {
+        long today = SunshineDateUtils.normalizeDate(System.currentTimeMillis());
+        for (ContentValues values : weatherValues) {
+            Long date = values.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
+            if (date != null && date == today) {
+                return values;
+            }
+        }
+        return null;
+    }
 
-    public static void notifyUserOfNewWeather(Context context) {
-
-        /* Build the URI for today's weather in order to show up to date data in notification */
-        Uri todaysWeatherUri = WeatherContract.WeatherEntry
-                .buildWeatherUriWithDate(SunshineDateUtils.normalizeDate(System.currentTimeMillis()));
-
-
-        Cursor todayWeatherCursor = context.getContentResolver().query(
-                todaysWeatherUri,
-                WEATHER_NOTIFICATION_PROJECTION,
-                null,
-                null,
-                null);
 
-        if (todayWeatherCursor.moveToFirst()) {
+    /**
+     * Builds and posts the notification of today's weather. This decodes an image, so call it
+     * off the main thread.
+     *
+     * @param todaysWeather Today's weather, in the columns of the weather table
+     */
+    public static void notifyUserOfNewWeather(Context context, ContentValues todaysWeather) {
+        SunshineTrace.beginSection("NotificationUtils.notifyUserOfNewWeather");
+        try {
+            long date = todaysWeather.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
+            Uri todaysWeatherUri = WeatherContract.WeatherEntry.buildWeatherUriWithDate(date);
 
             /* Weather ID as returned by API, used to identify the icon to be used */
-            int weatherId = todayWeatherCursor.getInt(INDEX_WEATHER_ID);
-            double high = todayWeatherCursor.getDouble(INDEX_MAX_TEMP);
-            double low = todayWeatherCursor.getDouble(INDEX_MIN_TEMP);
-
-            Resources resources = context.getResources();
-            int largeArtResourceId = SunshineWeatherUtils
-                    .getLargeArtResourceIdForWeatherCondition(weatherId);
+            int weatherId =
+                    todaysWeather.getAsInteger(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
+            double high = todaysWeather.getAsDouble(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP);
+            double low = todaysWeather.getAsDouble(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP);
 
-            Bitmap largeIcon = BitmapFactory.decodeResource(
-                    resources,
-                    largeArtResourceId);
+            Bitmap largeIcon = getLargeIcon(context, weatherId);
 
             String notificationTitle = context.getString(R.string.app_name);
 
             String notificationText = getNotificationText(context, weatherId, high, low);
 
-            /* getSmallArtResourceIdForWeatherCondition returns the proper art to show given an ID */
-            int smallArtResourceId = SunshineWeatherUtils
-                    .getSmallArtResourceIdForWeatherCondition(weatherId);
+            /* getSmallArtResourceId returns the proper art to show given an ID */
+            int smallArtResourceId = WeatherConditionCatalog.getSmallArtResourceId(weatherId);
 
 
             NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(context)
@@ -103,18 +122,151 @@ public class NotificationUtils {
              * next time the weather is refreshed if we should show another notification.
              */
             SunshinePreferences.saveLastNotificationTime(context, System.currentTimeMillis());
+        } finally {
+            SunshineTrace.endSection();
         }
+    }
 
-        /* Always close your cursor when you're done with it to avoid wasting resources. */
-        todayWeatherCursor.close();
+
+    /**
+     * Builds and posts the notification of the user's alert rules that came to hold in a sync, a
+     * line for each, opening the day of the first. Unlike the weather notification, it isn't
+     * limited to once a day, as a rule only fires when the forecast changes.
+     *
+     * @param firings What fired, in the order to show it
+     */
+    public static void notifyUserOfAlerts(Context context, List<AlertFiring> firings) {
+        SunshineTrace.beginSection("NotificationUtils.notifyUserOfAlerts");
+        try {
+            NotificationCompat.InboxStyle lines = new NotificationCompat.InboxStyle();
+            for (AlertFiring firing : firings) {
+                lines.addLine(getAlertText(context, firing));
+            }
+
+            AlertFiring first = firings.get(0);
+            NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(context)
+                    .setColor(ContextCompat.getColor(context, R.color.colorPrimary))
+                    .setSmallIcon(WeatherConditionCatalog.getSmallArtResourceId(
+                            first.record.weatherId))
+                    .setContentTitle(context.getString(R.string.alert_notification_title))
+                    .setContentText(getAlertText(context, first))
+                    .setNumber(firings.size())
+                    .setStyle(lines)
+                    .setAutoCancel(true);
+
+            Intent detailIntent = new Intent(context, DetailActivity.class);
+            detailIntent.setData(WeatherContract.WeatherEntry.buildWeatherUriWithDate(first.date));
+
+            TaskStackBuilder taskStackBuilder = TaskStackBuilder.create(context);
+            taskStackBuilder.addNextIntentWithParentStack(detailIntent);
+            notificationBuilder.setContentIntent(taskStackBuilder
+                    .getPendingIntent(0, PendingIntent.FLAG_UPDATE_CURRENT));
+
+            NotificationManager notificationManager = (NotificationManager)
+                    context.getSystemService(Context.NOTIFICATION_SERVICE);
+            notificationManager.notify(ALERT_NOTIFICATION_ID, notificationBuilder.build());
+        } finally {
+            SunshineTrace.endSection();
+        }
+    }
+
+
+    static String getAlertText(Context context, AlertFiring firing) {
+        return context.getString(R.string.format_alert, firing.rule.getName(),
+                SunshineDateUtils.getFriendlyDateString(context, firing.date, false));
+    }
+
+
+    /**
+     * Returns the large art for a condition at the size of a notification's large icon. Art is
+     * drawn for the detail screen and much bigger than that, so only the scaled result is kept.
+     * Where the art is a bitmap, as before Android 5.0 that builds it from the vector drawables,
+     * it is subsampled while decoding; a vector is drawn at the icon's size instead.
+     *
+     * @return The icon, or null if the art couldn't be loaded
+     */
+    static Bitmap getLargeIcon(Context context, int weatherId) {
+        int resourceId = WeatherConditionCatalog.getLargeArtResourceId(weatherId);
+        Bitmap icon = sLargeIcons.get(resourceId);
+        if (icon == null) {
+            icon = decodeLargeIcon(context.getResources(), resourceId);
+            if (icon == null) {
+                icon = drawLargeIcon(context, resourceId);
+            }
+            /* LruCache doesn't take nulls, and art that failed to load may load next time */
+            if (icon != null) {
+                sLargeIcons.put(resourceId, icon);
+            }
+        }
+        return icon;
+    }
+
+
+    /* Null if the art isn't a bitmap, which BitmapFactory can't decode */
+    private static Bitmap decodeLargeIcon(Resources resources, int resourceId) {
+        int width = resources
+                .getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        int height = resources
+                .getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        /* Sizes are worked out here, not from the density of the drawable folder */
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, resourceId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        /* The largest power of two that keeps the art at least as big as the icon */
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width
+                && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap sampled = BitmapFactory.decodeResource(resources, resourceId, options);
+        if (sampled == null) {
+            return null;
+        }
+        if (sampled.getWidth() == width && sampled.getHeight() == height) {
+            return sampled;
+        }
+
+        Bitmap icon = Bitmap.createScaledBitmap(sampled, width, height, true);
+        if (icon != sampled) {
+            sampled.recycle();
+        }
+        return icon;
+    }
+
+
+    /* Draws the art, such as a vector drawable, into a bitmap of the icon's size */
+    private static Bitmap drawLargeIcon(Context context, int resourceId) {
+        Resources resources = context.getResources();
+        int width = resources
+                .getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        int height = resources
+                .getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+
+        Drawable art = ContextCompat.getDrawable(context, resourceId);
+        if (art == null) {
+            return null;
+        }
+        Bitmap icon = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        art.setBounds(0, 0, width, height);
+        art.draw(new Canvas(icon));
+        return icon;
     }
 
 
     private static String getNotificationText(Context context, int weatherId, double high, double low) {
 
 
-        String shortDescription = SunshineWeatherUtils
-                .getStringForWeatherCondition(context, weatherId);
+        String shortDescription = WeatherConditionCatalog.getInstance(context)
+                .getDescription(weatherId);
 
         String notificationFormat = context.getString(R.string.format_notification);
 
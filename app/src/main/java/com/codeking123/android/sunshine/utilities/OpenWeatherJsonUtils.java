@@ -1,141 +1,68 @@
-
 package com.codeking123.android.sunshine.utilities;
 
 import android.content.ContentValues;
 import android.content.Context;
 
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.core.parse.ForecastParser;
+import com.codeking123.android.sunshine.core.parse.OpenWeatherForecastParser;
 import com.codeking123.android.sunshine.data.SunshinePreferences;
 import com.codeking123.android.sunshine.data.WeatherContract;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.net.HttpURLConnection;
 
 
 public final class OpenWeatherJsonUtils {
 
-    /* Location information */
-    private static final String OWM_CITY = "city";
-    private static final String OWM_COORD = "coord";
-
-    /* Location coordinate */
-    private static final String OWM_LATITUDE = "lat";
-    private static final String OWM_LONGITUDE = "lon";
-
-    /* Weather information. Each day's forecast info is an element of the "list" array */
-    private static final String OWM_LIST = "list";
-
-    private static final String OWM_PRESSURE = "pressure";
-    private static final String OWM_HUMIDITY = "humidity";
-    private static final String OWM_WINDSPEED = "speed";
-    private static final String OWM_WIND_DIRECTION = "deg";
-
-    /* All temperatures are children of the "temp" object */
-    private static final String OWM_TEMPERATURE = "temp";
-
-    /* Max temperature for the day */
-    private static final String OWM_MAX = "max";
-    private static final String OWM_MIN = "min";
-
-    private static final String OWM_WEATHER = "weather";
-    private static final String OWM_WEATHER_ID = "id";
-
-    private static final String OWM_MESSAGE_CODE = "cod";
+    /* Parsing itself is platform independent and lives in sunshine-core */
+    private static final ForecastParser sParser = new OpenWeatherForecastParser();
 
 
     public static ContentValues[] getWeatherContentValuesFromJson(Context context, String forecastJsonStr)
             throws JSONException {
+        SunshineTrace.beginSection("OpenWeatherJsonUtils.parse");
+        try {
+            long normalizedUtcStartDay = SunshineDateUtils.getNormalizedUtcDateForToday();
 
-        JSONObject forecastJson = new JSONObject(forecastJsonStr);
-
-        /* Is there an error? */
-        if (forecastJson.has(OWM_MESSAGE_CODE)) {
-            int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
-
-            switch (errorCode) {
-                case HttpURLConnection.HTTP_OK:
-                    break;
-                case HttpURLConnection.HTTP_NOT_FOUND:
-                    /* Location invalid */
-                    return null;
-                default:
-                    /* Server probably down */
-                    return null;
-            }
-        }
-
-        JSONArray jsonWeatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-        JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-
-        JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-        double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-        double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
-
-        SunshinePreferences.setLocationDetails(context, cityLatitude, cityLongitude);
-
-        ContentValues[] weatherContentValues = new ContentValues[jsonWeatherArray.length()];
+            Forecast forecast = sParser.parse(forecastJsonStr, normalizedUtcStartDay);
 
+            /* The server reported an error, such as an invalid location */
+            if (forecast == null) {
+                return null;
+            }
 
+            SunshinePreferences.setLocationDetails(context,
+                    forecast.cityLatitude, forecast.cityLongitude);
 
-        long normalizedUtcStartDay = SunshineDateUtils.getNormalizedUtcDateForToday();
-
-        for (int i = 0; i < jsonWeatherArray.length(); i++) {
-
-            long dateTimeMillis;
-            double pressure;
-            int humidity;
-            double windSpeed;
-            double windDirection;
-
-            double high;
-            double low;
-
-            int weatherId;
-
-            /* Get the JSON object representing the day */
-            JSONObject dayForecast = jsonWeatherArray.getJSONObject(i);
-
-            /*
-             * We ignore all the datetime values embedded in the JSON and assume that
-             * the values are returned in-order by day (which is not guaranteed to be correct).
-             */
-            dateTimeMillis = normalizedUtcStartDay + SunshineDateUtils.DAY_IN_MILLIS * i;
-
-            pressure = dayForecast.getDouble(OWM_PRESSURE);
-            humidity = dayForecast.getInt(OWM_HUMIDITY);
-            windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-            windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
-
-            /*
-             * Description is in a child array called "weather", which is 1 element long.
-             * That element also contains a weather code.
-             */
-            JSONObject weatherObject =
-                    dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-
-            weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
+            return toContentValues(forecast.records);
+        } finally {
+            SunshineTrace.endSection();
+        }
+    }
 
-            JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-            high = temperatureObject.getDouble(OWM_MAX);
-            low = temperatureObject.getDouble(OWM_MIN);
 
-            ContentValues weatherValues = new ContentValues();
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTimeMillis);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+    public static ContentValues[] toContentValues(WeatherRecord[] records) {
+        ContentValues[] weatherContentValues = new ContentValues[records.length];
 
-            weatherContentValues[i] = weatherValues;
+        for (int i = 0; i < records.length; i++) {
+            weatherContentValues[i] = toContentValues(records[i]);
         }
 
         return weatherContentValues;
     }
-}
\ No newline at end of file
+
+
+    public static ContentValues toContentValues(WeatherRecord record) {
+        ContentValues weatherValues = new ContentValues();
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, record.date);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, record.humidity);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, record.pressure);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, record.windSpeed);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, record.degrees);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, record.maxTemp);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, record.minTemp);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, record.weatherId);
+        return weatherValues;
+    }
+}
@@ -5,72 +5,38 @@ import android.content.Context;
 import android.text.format.DateUtils;
 
 import com.codeking123.android.sunshine.R;
+import com.codeking123.android.sunshine.core.date.Clock;
+import com.codeking123.android.sunshine.core.date.SunshineDates;
 
 import java.text.SimpleDateFormat;
 import java.util.TimeZone;
-import java.util.concurrent.TimeUnit;
 
 public final class SunshineDateUtils {
 
     /* Milliseconds in a day */
-    public static final long DAY_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
+    public static final long DAY_IN_MILLIS = SunshineDates.DAY_IN_MILLIS;
 
 
     public static long getNormalizedUtcDateForToday() {
-
-        long utcNowMillis = System.currentTimeMillis();
-
-
-        TimeZone currentTimeZone = TimeZone.getDefault();
-
-
-        long gmtOffsetMillis = currentTimeZone.getOffset(utcNowMillis);
-
-
-        long timeSinceEpochLocalTimeMillis = utcNowMillis + gmtOffsetMillis;
-
-        /* This method simply converts milliseconds to days, disregarding any fractional days */
-        long daysSinceEpochLocal = TimeUnit.MILLISECONDS.toDays(timeSinceEpochLocalTimeMillis);
-
-        /*
-         * Finally, we convert back to milliseconds. This time stamp represents today's date at
-         * midnight in GMT time. We will need to account for local time zone offsets when
-         * extracting this information from the database.
-         */
-        long normalizedUtcMidnightMillis = TimeUnit.DAYS.toMillis(daysSinceEpochLocal);
-
-        return normalizedUtcMidnightMillis;
+        return SunshineDates.getNormalizedUtcDateForToday(Clock.SYSTEM);
     }
 
     private static long elapsedDaysSinceEpoch(long utcDate) {
-        return TimeUnit.MILLISECONDS.toDays(utcDate);
+        return SunshineDates.elapsedDaysSinceEpoch(utcDate);
     }
 
     public static long normalizeDate(long date) {
-        long daysSinceEpoch = elapsedDaysSinceEpoch(date);
-        long millisFromEpochToTodayAtMidnightUtc = daysSinceEpoch * DAY_IN_MILLIS;
-        return millisFromEpochToTodayAtMidnightUtc;
+        return SunshineDates.normalizeDate(date);
     }
 
     public static boolean isDateNormalized(long millisSinceEpoch) {
-        boolean isDateNormalized = false;
-        if (millisSinceEpoch % DAY_IN_MILLIS == 0) {
-            isDateNormalized = true;
-        }
-
-        return isDateNormalized;
+        return SunshineDates.isDateNormalized(millisSinceEpoch);
     }
 
     private static long getLocalMidnightFromNormalizedUtcDate(long normalizedUtcDate) {
         /* The timeZone object will provide us the current user's time zone offset */
-        TimeZone timeZone = TimeZone.getDefault();
-        /*
-         * This offset, in milliseconds, when added to a UTC date time, will produce the local
-         * time.
-         */
-        long gmtOffset = timeZone.getOffset(normalizedUtcDate);
-        long localMidnightMillis = normalizedUtcDate - gmtOffset;
-        return localMidnightMillis;
+        return SunshineDates.getLocalMidnightFromNormalizedUtcDate(normalizedUtcDate,
+                TimeZone.getDefault());
     }
 
 
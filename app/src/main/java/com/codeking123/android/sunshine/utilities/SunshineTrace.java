@@ -0,0 +1,34 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.support.v4.os.TraceCompat;
+
+import com.codeking123.android.sunshine.BuildConfig;
+
+/**
+ * Named sections for system traces (systrace and the Android Studio profiler), so a slow launch
+ * or a janky scroll can be broken down into Sunshine's own work.
+ * <p>
+ * Sections must be ended on the thread that began them, so wrap the traced code in try/finally.
+ * Pass constant names: building a name per call would allocate even when nobody is tracing.
+ * <p>
+ * While no trace is being captured a section costs about as much as checking a flag. Building
+ * with -PsunshineTracing=false makes {@link BuildConfig#TRACING_ENABLED} a constant false, so
+ * these methods compile to nothing and the calls to them are inlined away.
+ */
+public final class SunshineTrace {
+
+    private SunshineTrace() {
+    }
+
+    public static void beginSection(String sectionName) {
+        if (BuildConfig.TRACING_ENABLED) {
+            TraceCompat.beginSection(sectionName);
+        }
+    }
+
+    public static void endSection() {
+        if (BuildConfig.TRACING_ENABLED) {
+            TraceCompat.endSection();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.codeking123.android.sunshine.R;
+
+import java.util.Locale;
+
+/**
+ * Precomputed lookup tables for everything we derive from an Open Weather Map condition id: the
+ * localized description, the small (list) art and the large (today / detail) art.
+ * <p>
+ * The mappings are exactly those of {@link SunshineWeatherUtils#getStringForWeatherCondition},
+ * {@link SunshineWeatherUtils#getSmallArtResourceIdForWeatherCondition} and
+ * {@link SunshineWeatherUtils#getLargeArtResourceIdForWeatherCondition}, but resolved once into
+ * arrays indexed by the condition id, so a lookup is a bounds check and an array read instead of
+ * a chain of range checks and a switch over ~60 cases. Art resource ids do not depend on the
+ * locale and are built once per process; the description strings are rebuilt only when the
+ * locale of the resources changes.
+ */
+public final class WeatherConditionCatalog {
+
+    private static final String LOG_TAG = WeatherConditionCatalog.class.getSimpleName();
+
+    /* Open Weather Map condition ids are three digit codes, so this covers all of them */
+    private static final int CONDITION_ID_LIMIT = 1000;
+
+    /*
+     * Each row is {first id, last id, small art, large art}. When ranges overlap, the first row
+     * wins, which mirrors the order of the checks in SunshineWeatherUtils.
+     */
+    private static final int[][] ART_RANGES = {
+            {200, 232, R.drawable.ic_storm, R.drawable.art_storm},
+            {300, 321, R.drawable.ic_light_rain, R.drawable.art_light_rain},
+            {500, 504, R.drawable.ic_rain, R.drawable.art_rain},
+            {511, 511, R.drawable.ic_snow, R.drawable.art_snow},
+            {520, 531, R.drawable.ic_rain, R.drawable.art_rain},
+            {600, 622, R.drawable.ic_snow, R.drawable.art_snow},
+            {701, 761, R.drawable.ic_fog, R.drawable.art_fog},
+            {761, 761, R.drawable.ic_storm, R.drawable.art_storm},
+            {771, 771, R.drawable.ic_storm, R.drawable.art_storm},
+            {781, 781, R.drawable.ic_storm, R.drawable.art_storm},
+            {800, 800, R.drawable.ic_clear, R.drawable.art_clear},
+            {801, 801, R.drawable.ic_light_clouds, R.drawable.art_light_clouds},
+            {802, 804, R.drawable.ic_cloudy, R.drawable.art_clouds},
+            {900, 906, R.drawable.ic_storm, R.drawable.art_storm},
+            {958, 962, R.drawable.ic_storm, R.drawable.art_storm},
+            {951, 957, R.drawable.ic_clear, R.drawable.art_clear},
+    };
+
+    /* Each row is {first id, last id, description string} */
+    private static final int[][] DESCRIPTION_RANGES = {
+            {200, 232, R.string.condition_2xx},
+            {300, 321, R.string.condition_3xx},
+            {500, 500, R.string.condition_500},
+            {501, 501, R.string.condition_501},
+            {502, 502, R.string.condition_502},
+            {503, 503, R.string.condition_503},
+            {504, 504, R.string.condition_504},
+            {511, 511, R.string.condition_511},
+            {520, 520, R.string.condition_520},
+            {531, 531, R.string.condition_531},
+            {600, 600, R.string.condition_600},
+            {601, 601, R.string.condition_601},
+            {602, 602, R.string.condition_602},
+            {611, 611, R.string.condition_611},
+            {612, 612, R.string.condition_612},
+            {615, 615, R.string.condition_615},
+            {616, 616, R.string.condition_616},
+            {620, 620, R.string.condition_620},
+            {621, 621, R.string.condition_621},
+            {622, 622, R.string.condition_622},
+            {701, 701, R.string.condition_701},
+            {711, 711, R.string.condition_711},
+            {721, 721, R.string.condition_721},
+            {731, 731, R.string.condition_731},
+            {741, 741, R.string.condition_741},
+            {751, 751, R.string.condition_751},
+            {761, 761, R.string.condition_761},
+            {762, 762, R.string.condition_762},
+            {771, 771, R.string.condition_771},
+            {781, 781, R.string.condition_781},
+            {800, 800, R.string.condition_800},
+            {801, 801, R.string.condition_801},
+            {802, 802, R.string.condition_802},
+            {803, 803, R.string.condition_803},
+            {804, 804, R.string.condition_804},
+            {900, 900, R.string.condition_900},
+            {901, 901, R.string.condition_901},
+            {902, 902, R.string.condition_902},
+            {903, 903, R.string.condition_903},
+            {904, 904, R.string.condition_904},
+            {905, 905, R.string.condition_905},
+            {906, 906, R.string.condition_906},
+            {951, 951, R.string.condition_951},
+            {952, 952, R.string.condition_952},
+            {953, 953, R.string.condition_953},
+            {954, 954, R.string.condition_954},
+            {955, 955, R.string.condition_955},
+            {956, 956, R.string.condition_956},
+            {957, 957, R.string.condition_957},
+            {958, 958, R.string.condition_958},
+            {959, 959, R.string.condition_959},
+            {960, 960, R.string.condition_960},
+            {961, 961, R.string.condition_961},
+            {962, 962, R.string.condition_962},
+    };
+
+    /* Art resource ids by condition id. A zero entry means the condition id is unknown. */
+    private static final int[] sSmallArt = new int[CONDITION_ID_LIMIT];
+    private static final int[] sLargeArt = new int[CONDITION_ID_LIMIT];
+
+    static {
+        for (int[] range : ART_RANGES) {
+            for (int weatherId = range[0]; weatherId <= range[1]; weatherId++) {
+                if (sSmallArt[weatherId] == 0) {
+                    sSmallArt[weatherId] = range[2];
+                    sLargeArt[weatherId] = range[3];
+                }
+            }
+        }
+    }
+
+    private static volatile WeatherConditionCatalog sInstance;
+
+    private final Context mContext;
+    private final Locale mLocale;
+    private final String[] mDescriptions;
+
+    private WeatherConditionCatalog(Context context, Locale locale) {
+        mContext = context;
+        mLocale = locale;
+        mDescriptions = new String[CONDITION_ID_LIMIT];
+
+        /* Resolve each distinct string once and share it between the ids that map to it */
+        for (int[] range : DESCRIPTION_RANGES) {
+            String description = context.getString(range[2]);
+            for (int weatherId = range[0]; weatherId <= range[1]; weatherId++) {
+                mDescriptions[weatherId] = description;
+            }
+        }
+    }
+
+    /**
+     * Returns the catalog for the current locale of the given Context's resources, building it
+     * the first time it is requested and again whenever that locale changes.
+     *
+     * @param context Used to access the resources
+     * @return The catalog for the current locale
+     */
+    public static WeatherConditionCatalog getInstance(Context context) {
+        Locale locale = context.getResources().getConfiguration().locale;
+
+        WeatherConditionCatalog catalog = sInstance;
+        if (catalog != null && catalog.mLocale.equals(locale)) {
+            return catalog;
+        }
+
+        synchronized (WeatherConditionCatalog.class) {
+            catalog = sInstance;
+            if (catalog == null || !catalog.mLocale.equals(locale)) {
+                catalog = new WeatherConditionCatalog(context.getApplicationContext(), locale);
+                sInstance = catalog;
+            }
+            return catalog;
+        }
+    }
+
+    /**
+     * Returns the localized description of a weather condition, such as "Light Rain".
+     *
+     * @param weatherId Open Weather Map condition id
+     * @return Description of the condition, or the "Unknown (id)" string for unmapped ids
+     */
+    public String getDescription(int weatherId) {
+        if (weatherId >= 0 && weatherId < CONDITION_ID_LIMIT) {
+            String description = mDescriptions[weatherId];
+            if (description != null) {
+                return description;
+            }
+        }
+        return mContext.getString(R.string.condition_unknown, weatherId);
+    }
+
+    /**
+     * Returns the resource id of the icon shown for a condition in the forecast list.
+     *
+     * @param weatherId Open Weather Map condition id
+     * @return Drawable resource id, falling back to the storm icon for unknown conditions
+     */
+    public static int getSmallArtResourceId(int weatherId) {
+        if (weatherId >= 0 && weatherId < CONDITION_ID_LIMIT && sSmallArt[weatherId] != 0) {
+            return sSmallArt[weatherId];
+        }
+        Log.e(LOG_TAG, "Unknown Weather: " + weatherId);
+        return R.drawable.ic_storm;
+    }
+
+    /**
+     * Returns the resource id of the art shown for a condition on the today and detail views.
+     *
+     * @param weatherId Open Weather Map condition id
+     * @return Drawable resource id, falling back to the storm art for unknown conditions
+     */
+    public static int getLargeArtResourceId(int weatherId) {
+        if (weatherId >= 0 && weatherId < CONDITION_ID_LIMIT && sLargeArt[weatherId] != 0) {
+            return sLargeArt[weatherId];
+        }
+        Log.e(LOG_TAG, "Unknown Weather: " + weatherId);
+        return R.drawable.art_storm;
+    }
+}
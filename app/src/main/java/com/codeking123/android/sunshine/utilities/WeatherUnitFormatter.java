@@ -0,0 +1,138 @@
+package com.codeking123.android.sunshine.utilities;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import com.codeking123.android.sunshine.R;
+import com.codeking123.android.sunshine.core.format.CompiledFormat;
+import com.codeking123.android.sunshine.core.units.CompassDirections;
+import com.codeking123.android.sunshine.core.units.UnitSystem;
+import com.codeking123.android.sunshine.data.SunshinePreferences;
+
+import java.util.Locale;
+
+/**
+ * Formats temperatures and wind for display with format strings compiled once per locale and
+ * unit system, rather than fetching the format resource and running String.format on every
+ * call. The output is identical to what {@link SunshineWeatherUtils} used to produce.
+ * <p>
+ * The instance is rebuilt when the locale changes or when the user switches units.
+ */
+public final class WeatherUnitFormatter {
+
+    private static volatile WeatherUnitFormatter sInstance;
+
+    /*
+     * SharedPreferences only keeps weak references to its listeners, so hold on to ours for as
+     * long as the process lives.
+     */
+    private static SharedPreferences.OnSharedPreferenceChangeListener sUnitsListener;
+
+    private final Locale mResourceLocale;
+    private final Locale mFormatLocale;
+    private final UnitSystem mUnitSystem;
+
+    private final CompiledFormat mTemperatureFormat;
+    private final CompiledFormat mWindFormat;
+
+    private WeatherUnitFormatter(Context context, Locale resourceLocale, Locale formatLocale) {
+        mResourceLocale = resourceLocale;
+        mFormatLocale = formatLocale;
+        mUnitSystem = SunshinePreferences.isMetric(context)
+                ? UnitSystem.METRIC
+                : UnitSystem.IMPERIAL;
+
+        mTemperatureFormat = CompiledFormat
+                .compile(context.getString(R.string.format_temperature), formatLocale);
+
+        int windFormat = mUnitSystem == UnitSystem.METRIC
+                ? R.string.format_wind_kmh
+                : R.string.format_wind_mph;
+        mWindFormat = CompiledFormat.compile(context.getString(windFormat), formatLocale);
+    }
+
+    /**
+     * Returns the formatter for the current locale and unit preference.
+     *
+     * @param context Used to access resources and preferences
+     * @return A formatter that is valid until the locale or units change
+     */
+    public static WeatherUnitFormatter getInstance(Context context) {
+        Locale resourceLocale = context.getResources().getConfiguration().locale;
+        /* String.format, which we are replacing, formats with the default locale */
+        Locale formatLocale = Locale.getDefault();
+
+        WeatherUnitFormatter formatter = sInstance;
+        if (formatter != null && formatter.isValidFor(resourceLocale, formatLocale)) {
+            return formatter;
+        }
+
+        synchronized (WeatherUnitFormatter.class) {
+            registerUnitsListener(context.getApplicationContext());
+
+            formatter = sInstance;
+            if (formatter == null || !formatter.isValidFor(resourceLocale, formatLocale)) {
+                formatter = new WeatherUnitFormatter(
+                        context.getApplicationContext(), resourceLocale, formatLocale);
+                sInstance = formatter;
+            }
+            return formatter;
+        }
+    }
+
+    private boolean isValidFor(Locale resourceLocale, Locale formatLocale) {
+        return mResourceLocale.equals(resourceLocale) && mFormatLocale.equals(formatLocale);
+    }
+
+    private static void registerUnitsListener(final Context appContext) {
+        if (sUnitsListener != null) return;
+
+        final String unitsKey = appContext.getString(R.string.pref_units_key);
+        sUnitsListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
+                                                  String key) {
+                if (unitsKey.equals(key)) {
+                    sInstance = null;
+                }
+            }
+        };
+        PreferenceManager.getDefaultSharedPreferences(appContext)
+                .registerOnSharedPreferenceChangeListener(sUnitsListener);
+    }
+
+    public UnitSystem getUnitSystem() {
+        return mUnitSystem;
+    }
+
+    /**
+     * Formats a temperature for display, converting it to Fahrenheit if the user prefers
+     * imperial units. For example, 21.6 is displayed as "22°" in metric.
+     *
+     * @param temperatureInCelsius Temperature in degrees Celsius
+     * @return Formatted temperature String
+     */
+    public String formatTemperature(double temperatureInCelsius) {
+        return mTemperatureFormat.format(mUnitSystem.toDisplayTemperature(temperatureInCelsius));
+    }
+
+    /**
+     * Appends a formatted temperature to the given builder, as {@link #formatTemperature}.
+     */
+    public void formatTemperatureTo(StringBuilder out, double temperatureInCelsius) {
+        mTemperatureFormat.formatTo(out, mUnitSystem.toDisplayTemperature(temperatureInCelsius));
+    }
+
+    /**
+     * Formats wind speed and direction for display, for example "4 km/h SW".
+     *
+     * @param windSpeed Wind speed in kilometers / hour
+     * @param degrees   Compass degrees, 0 to 359
+     * @return Wind String in the preferred units
+     */
+    public String formatWind(float windSpeed, float degrees) {
+        return mWindFormat.format(mUnitSystem.toDisplayWindSpeed(windSpeed),
+                CompassDirections.fromDegrees(degrees));
+    }
+}
@@ -0,0 +1,74 @@
+package com.codeking123.android.sunshine.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs adb commands against one device and returns what they print.
+ */
+final class Adb {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /* Null to let adb pick the only connected device */
+    private final String mSerial;
+
+    Adb(String serial) {
+        mSerial = serial;
+    }
+
+    /**
+     * Runs "adb shell" with the given command line.
+     *
+     * @return Everything the command printed, standard error included
+     */
+    String shell(String command) throws IOException {
+        return run("shell", command);
+    }
+
+    /**
+     * Runs adb with the given arguments and waits for it to finish.
+     *
+     * @return Everything adb printed, standard error included
+     * @throws IOException If adb can't be started or exits with an error
+     */
+    String run(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("adb");
+        if (mSerial != null) {
+            command.add("-s");
+            command.add(mSerial);
+        }
+        command.addAll(Arrays.asList(args));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output;
+        try {
+            output = readFully(process.getInputStream());
+            if (process.waitFor() != 0) {
+                throw new IOException(command + " failed: " + output.trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + command);
+        } finally {
+            process.destroy();
+        }
+        return output;
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package com.codeking123.android.sunshine.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What to measure and where, as given on the command line.
+ */
+final class BenchmarkOptions {
+
+    static final String USAGE =
+            "Usage: sunshine-benchmark [options]\n" +
+            "\n" +
+            "Measures cold and warm startup, scrolling of the forecast list and opening the\n" +
+            "detail screen on a connected device. The debug build must already be installed.\n" +
+            "\n" +
+            "Options:\n" +
+            "  --serial <serial>      Device to use (default: the only one connected)\n" +
+            "  --iterations <n>       Runs of each scenario (default: 5)\n" +
+            "  --rows <n,n,...>       Forecast sizes to measure (default: 14,365,10000,100000)\n" +
+            "  --output <file>        Where to write the results\n" +
+            "                         (default: build/reports/macrobenchmark/results.json)\n";
+
+    static final int DEFAULT_ITERATIONS = 5;
+    static final int[] DEFAULT_ROWS = {14, 365, 10000, 100000};
+    static final File DEFAULT_OUTPUT = new File("build/reports/macrobenchmark/results.json");
+
+    /* Null to let adb pick the only connected device */
+    final String serial;
+    final int iterations;
+    final int[] rows;
+    final File output;
+
+    BenchmarkOptions(String serial, int iterations, int[] rows, File output) {
+        this.serial = serial;
+        this.iterations = iterations;
+        this.rows = rows;
+        this.output = output;
+    }
+
+    /**
+     * @throws IllegalArgumentException With a message for the user if the arguments are invalid
+     */
+    static BenchmarkOptions parse(String[] args) {
+        String serial = null;
+        int iterations = DEFAULT_ITERATIONS;
+        int[] rows = DEFAULT_ROWS;
+        File output = DEFAULT_OUTPUT;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--serial":
+                    serial = value(args, ++i, arg);
+                    break;
+                case "--iterations":
+                    iterations = parsePositiveInt(arg, value(args, ++i, arg));
+                    break;
+                case "--rows":
+                    rows = parseRows(value(args, ++i, arg));
+                    break;
+                case "--output":
+                    output = new File(value(args, ++i, arg));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        return new BenchmarkOptions(serial, iterations, rows, output);
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static int parsePositiveInt(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+            /* Reported below */
+        }
+        throw new IllegalArgumentException(option + " must be a positive number, not " + value);
+    }
+
+    private static int[] parseRows(String value) {
+        List<Integer> rows = new ArrayList<>();
+        for (String part : value.split(",")) {
+            rows.add(parsePositiveInt("--rows", part.trim()));
+        }
+
+        int[] result = new int[rows.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = rows.get(i);
+        }
+        return result;
+    }
+}
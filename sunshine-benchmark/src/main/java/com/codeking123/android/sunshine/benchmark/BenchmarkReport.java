@@ -0,0 +1,117 @@
+package com.codeking123.android.sunshine.benchmark;
+
+import com.codeking123.android.sunshine.core.metrics.Percentiles;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the samples of every metric measured and writes them, with a summary of each, as JSON:
+ * <pre>
+ * {
+ *   "device": {"model": "Pixel 3", "sdk": 28},
+ *   "iterations": 5,
+ *   "metrics": [
+ *     {"name": "startup_cold_fully_drawn", "rows": 14, "unit": "ms",
+ *      "samples": [...], "min": 412, "median": 430, "p90": 470, "max": 475},
+ *     ...
+ *   ]
+ * }
+ * </pre>
+ */
+final class BenchmarkReport {
+
+    private final String mDeviceModel;
+    private final int mDeviceSdk;
+    private final int mIterations;
+
+    /* Keyed by name and forecast size, in the order they were first measured */
+    private final Map<String, Metric> mMetrics = new LinkedHashMap<>();
+
+    private static final class Metric {
+        final String name;
+        final int rows;
+        final String unit;
+        final List<Long> samples = new ArrayList<>();
+
+        Metric(String name, int rows, String unit) {
+            this.name = name;
+            this.rows = rows;
+            this.unit = unit;
+        }
+    }
+
+    BenchmarkReport(String deviceModel, int deviceSdk, int iterations) {
+        mDeviceModel = deviceModel;
+        mDeviceSdk = deviceSdk;
+        mIterations = iterations;
+    }
+
+    void add(String name, int rows, String unit, long sample) {
+        String key = name + "@" + rows;
+        Metric metric = mMetrics.get(key);
+        if (metric == null) {
+            metric = new Metric(name, rows, unit);
+            mMetrics.put(key, metric);
+        }
+        metric.samples.add(sample);
+    }
+
+    JSONObject toJson() throws JSONException {
+        JSONObject device = new JSONObject();
+        device.put("model", mDeviceModel);
+        device.put("sdk", mDeviceSdk);
+
+        JSONArray metrics = new JSONArray();
+        for (Metric metric : mMetrics.values()) {
+            long[] samples = new long[metric.samples.size()];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = metric.samples.get(i);
+            }
+            Percentiles percentiles = new Percentiles(samples, samples.length);
+
+            JSONObject json = new JSONObject();
+            json.put("name", metric.name);
+            json.put("rows", metric.rows);
+            json.put("unit", metric.unit);
+            json.put("samples", new JSONArray(metric.samples));
+            /* The lowest rank above 0 is the smallest sample */
+            json.put("min", percentiles.get(Double.MIN_VALUE));
+            json.put("median", percentiles.get(50));
+            json.put("p90", percentiles.get(90));
+            json.put("max", percentiles.get(100));
+            metrics.put(json);
+        }
+
+        JSONObject report = new JSONObject();
+        report.put("device", device);
+        report.put("iterations", mIterations);
+        report.put("metrics", metrics);
+        return report;
+    }
+
+    void writeTo(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+            writer.write(toJson().toString(2));
+            writer.write('\n');
+        } catch (JSONException e) {
+            throw new IOException("Can't write the report", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.codeking123.android.sunshine.benchmark;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsers for the output of the shell commands the benchmarks run. Each returns -1 (or null) when
+ * the output doesn't contain what it looks for, so callers can poll until it does.
+ */
+final class DeviceOutput {
+
+    private static final Pattern TOTAL_TIME = Pattern.compile("^TotalTime: (\\d+)",
+            Pattern.MULTILINE);
+
+    private static final Pattern BROADCAST_DATA =
+            Pattern.compile("Broadcast completed: result=-?\\d+, data=\"([^\"]*)\"");
+
+    /* "Physical size: 1080x1920", followed by "Override size: ..." if it has been changed */
+    private static final Pattern SCREEN_SIZE =
+            Pattern.compile("^(Physical|Override) size: (\\d+)x(\\d+)", Pattern.MULTILINE);
+
+    /* "+345ms" or "+1s234ms", as ActivityManager prints durations */
+    private static final String DURATION = "\\+(?:(\\d+)s)?(\\d+)ms";
+
+    private DeviceOutput() {
+    }
+
+    /**
+     * @param amStartOutput What "am start -W" printed
+     * @return The time the Activity took to display its first frame, in ms, or -1
+     */
+    static long parseTotalTime(String amStartOutput) {
+        Matcher matcher = TOTAL_TIME.matcher(amStartOutput);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    /**
+     * Finds the last "Displayed" or "Fully drawn" line the system logged for an Activity.
+     *
+     * @param logcat    What "logcat -d" printed
+     * @param event     "Displayed" or "Fully drawn"
+     * @param component The Activity, as "package/.ActivityName"
+     * @return The time from the launch to the event, in ms, or -1 if it wasn't logged
+     */
+    static long parseLaunchEvent(String logcat, String event, String component) {
+        Pattern pattern = Pattern.compile(
+                Pattern.quote(event + " " + component + ": ") + DURATION);
+        Matcher matcher = pattern.matcher(logcat);
+
+        long millis = -1;
+        while (matcher.find()) {
+            long seconds = matcher.group(1) == null ? 0 : Long.parseLong(matcher.group(1));
+            millis = seconds * 1000 + Long.parseLong(matcher.group(2));
+        }
+        return millis;
+    }
+
+    /**
+     * @param amBroadcastOutput What "am broadcast" printed
+     * @return The result data the receiver set, or null if there was none
+     */
+    static String parseBroadcastData(String amBroadcastOutput) {
+        Matcher matcher = BROADCAST_DATA.matcher(amBroadcastOutput);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * @param wmSizeOutput What "wm size" printed
+     * @return {width, height} in pixels, preferring the override size, or null
+     */
+    static int[] parseScreenSize(String wmSizeOutput) {
+        Matcher matcher = SCREEN_SIZE.matcher(wmSizeOutput);
+        int[] size = null;
+        while (matcher.find()) {
+            size = new int[]{
+                    Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3))};
+            if (matcher.group(1).equals("Override")) {
+                break;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Reads the summary at the top of "dumpsys gfxinfo <package>". Percentiles are only
+     * reported from Android 6.0 onwards and are 0 on older devices.
+     *
+     * @return The frame timings, or null if no frames were reported at all
+     */
+    static FrameStats parseFrameStats(String gfxinfoOutput) {
+        long totalFrames = find(gfxinfoOutput, "Total frames rendered: (\\d+)");
+        if (totalFrames < 0) {
+            return null;
+        }
+        return new FrameStats(totalFrames,
+                Math.max(0, find(gfxinfoOutput, "Janky frames: (\\d+)")),
+                Math.max(0, find(gfxinfoOutput, "50th percentile: (\\d+)ms")),
+                Math.max(0, find(gfxinfoOutput, "90th percentile: (\\d+)ms")),
+                Math.max(0, find(gfxinfoOutput, "95th percentile: (\\d+)ms")),
+                Math.max(0, find(gfxinfoOutput, "99th percentile: (\\d+)ms")));
+    }
+
+    private static long find(String output, String regex) {
+        Matcher matcher = Pattern.compile(regex).matcher(output);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+}
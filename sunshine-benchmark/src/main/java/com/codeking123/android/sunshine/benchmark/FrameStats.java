@@ -0,0 +1,25 @@
+package com.codeking123.android.sunshine.benchmark;
+
+/**
+ * Frame timings of one window since they were last reset, as reported by
+ * "dumpsys gfxinfo <package>". Percentiles are frame durations in milliseconds.
+ */
+final class FrameStats {
+
+    final long totalFrames;
+    final long jankyFrames;
+    final long p50Millis;
+    final long p90Millis;
+    final long p95Millis;
+    final long p99Millis;
+
+    FrameStats(long totalFrames, long jankyFrames, long p50Millis, long p90Millis,
+               long p95Millis, long p99Millis) {
+        this.totalFrames = totalFrames;
+        this.jankyFrames = jankyFrames;
+        this.p50Millis = p50Millis;
+        this.p90Millis = p90Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+    }
+}
@@ -0,0 +1,221 @@
+package com.codeking123.android.sunshine.benchmark;
+
+import java.io.IOException;
+
+/**
+ * Command line entry point: measures the installed debug build on a connected device and writes
+ * the results as JSON. See {@link BenchmarkOptions#USAGE}.
+ * <p>
+ * For every forecast size, and as many times as asked, it measures
+ * <ul>
+ * <li>cold startup: from launching a stopped app to the forecast being on screen, once drawn
+ * from the database alone and once from the forecast snapshot the last sync left behind,</li>
+ * <li>warm startup: the same with the process still running, after backing out of the app,</li>
+ * <li>scrolling: frame timings while flinging the forecast list down and back up,</li>
+ * <li>navigation: from tapping a forecast day to the detail screen being displayed.</li>
+ * </ul>
+ * "On screen" is when MainActivity reports itself fully drawn, which it does on the first frame
+ * showing the forecast. Before each run the forecast is replaced with a known one by the debug
+ * build's SeedForecastReceiver, so a sync in between can't change what is measured.
+ */
+public final class MacroBenchmark {
+
+    static final String PACKAGE = "com.codeking123.android.sunshine";
+    static final String MAIN_ACTIVITY = PACKAGE + "/.MainActivity";
+    static final String DETAIL_ACTIVITY = PACKAGE + "/.DetailActivity";
+
+    private static final String SEED_RECEIVER = PACKAGE + "/.debug.SeedForecastReceiver";
+    private static final String ACTION_SEED_FORECAST = PACKAGE + ".debug.SEED_FORECAST";
+
+    /* FLAG_INCLUDE_STOPPED_PACKAGES, so the seed reaches the app after a force-stop */
+    private static final int FLAG_INCLUDE_STOPPED_PACKAGES = 0x20;
+
+    /* How long to wait for the system to log a launch event */
+    private static final long LAUNCH_TIMEOUT_MILLIS = 20000;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private static final int FLINGS = 10;
+    private static final int FLING_DURATION_MILLIS = 100;
+
+    /* Lets a fling come to rest before the next one, so frames are measured while scrolling */
+    private static final long FLING_SETTLE_MILLIS = 600;
+
+    /* Lets the Activity go idle after it is drawn, before it is interacted with */
+    private static final long SETTLE_MILLIS = 1000;
+
+    private final Adb mAdb;
+    private final BenchmarkOptions mOptions;
+    private final BenchmarkReport mReport;
+    private final int mScreenWidth;
+    private final int mScreenHeight;
+
+    private MacroBenchmark(Adb adb, BenchmarkOptions options) throws IOException {
+        mAdb = adb;
+        mOptions = options;
+
+        String model = adb.shell("getprop ro.product.model").trim();
+        int sdk = Integer.parseInt(adb.shell("getprop ro.build.version.sdk").trim());
+        mReport = new BenchmarkReport(model, sdk, options.iterations);
+
+        int[] size = DeviceOutput.parseScreenSize(adb.shell("wm size"));
+        if (size == null) {
+            throw new IOException("Can't read the screen size of the device");
+        }
+        mScreenWidth = size[0];
+        mScreenHeight = size[1];
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options;
+        try {
+            options = BenchmarkOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(BenchmarkOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        MacroBenchmark benchmark = new MacroBenchmark(new Adb(options.serial), options);
+        benchmark.run();
+        benchmark.mReport.writeTo(options.output);
+        System.out.println("Results written to " + options.output.getAbsolutePath());
+    }
+
+    private void run() throws IOException, InterruptedException {
+        for (int rows : mOptions.rows) {
+            for (int i = 0; i < mOptions.iterations; i++) {
+                System.err.println("Forecast of " + rows + " days, run " + (i + 1) + " of "
+                        + mOptions.iterations);
+                measureColdStartup(rows, false);
+                measureColdStartup(rows, true);
+                measureWarmStartup(rows);
+                measureScrolling(rows);
+                measureDetailOpen(rows);
+            }
+        }
+        mAdb.shell("am force-stop " + PACKAGE);
+    }
+
+    private void measureColdStartup(int rows, boolean snapshot)
+            throws IOException, InterruptedException {
+        startMainActivityCold(rows, snapshot, snapshot ? "startup_cold_snapshot" : "startup_cold");
+    }
+
+    private void measureWarmStartup(int rows) throws IOException, InterruptedException {
+        startMainActivityCold(rows, true, null);
+
+        /* Backing out of the root Activity finishes it but leaves the process running */
+        mAdb.shell("input keyevent KEYCODE_BACK");
+        Thread.sleep(SETTLE_MILLIS);
+        startMainActivity(rows, "startup_warm");
+    }
+
+    private void measureScrolling(int rows) throws IOException, InterruptedException {
+        startMainActivityCold(rows, true, null);
+        mAdb.shell("dumpsys gfxinfo " + PACKAGE + " reset");
+
+        int x = mScreenWidth / 2;
+        int bottom = mScreenHeight * 4 / 5;
+        int top = mScreenHeight / 5;
+        for (int i = 0; i < FLINGS; i++) {
+            fling(x, bottom, top);
+        }
+        for (int i = 0; i < FLINGS; i++) {
+            fling(x, top, bottom);
+        }
+
+        FrameStats stats = DeviceOutput.parseFrameStats(
+                mAdb.shell("dumpsys gfxinfo " + PACKAGE));
+        if (stats == null) {
+            throw new IOException("No frame timings were reported while scrolling");
+        }
+        mReport.add("scroll_total_frames", rows, "frames", stats.totalFrames);
+        mReport.add("scroll_janky_frames", rows, "frames", stats.jankyFrames);
+        mReport.add("scroll_frame_p50", rows, "ms", stats.p50Millis);
+        mReport.add("scroll_frame_p90", rows, "ms", stats.p90Millis);
+        mReport.add("scroll_frame_p95", rows, "ms", stats.p95Millis);
+        mReport.add("scroll_frame_p99", rows, "ms", stats.p99Millis);
+    }
+
+    private void measureDetailOpen(int rows) throws IOException, InterruptedException {
+        startMainActivityCold(rows, true, null);
+        Thread.sleep(SETTLE_MILLIS);
+
+        /* The top of the list is today's forecast, which fills the upper part of the screen */
+        mAdb.shell("logcat -c");
+        mAdb.shell("input tap " + mScreenWidth / 2 + " " + mScreenHeight / 3);
+        long displayed = awaitLaunchEvent("Displayed", DETAIL_ACTIVITY);
+        mReport.add("detail_open_displayed", rows, "ms", displayed);
+
+        mAdb.shell("input keyevent KEYCODE_BACK");
+    }
+
+    private void fling(int x, int fromY, int toY) throws IOException, InterruptedException {
+        mAdb.shell("input swipe " + x + " " + fromY + " " + x + " " + toY + " "
+                + FLING_DURATION_MILLIS);
+        Thread.sleep(FLING_SETTLE_MILLIS);
+    }
+
+    /*
+     * Seeds the forecast, with or without its snapshot, and launches MainActivity in a new
+     * process. The seed broadcast starts the app, so it is stopped again before the launch.
+     */
+    private void startMainActivityCold(int rows, boolean snapshot, String metric)
+            throws IOException, InterruptedException {
+        seedForecast(rows, snapshot);
+        mAdb.shell("am force-stop " + PACKAGE);
+        startMainActivity(rows, metric);
+    }
+
+    /*
+     * Launches MainActivity and waits until it reports itself fully drawn. If a metric name is
+     * given, the time to the first frame and to the forecast being drawn are recorded under it.
+     */
+    private void startMainActivity(int rows, String metric)
+            throws IOException, InterruptedException {
+        mAdb.shell("logcat -c");
+        String output = mAdb.shell("am start -W -n " + MAIN_ACTIVITY);
+        long fullyDrawn = awaitLaunchEvent("Fully drawn", MAIN_ACTIVITY);
+
+        if (metric != null) {
+            long totalTime = DeviceOutput.parseTotalTime(output);
+            if (totalTime >= 0) {
+                mReport.add(metric + "_displayed", rows, "ms", totalTime);
+            }
+            mReport.add(metric + "_fully_drawn", rows, "ms", fullyDrawn);
+        }
+    }
+
+    private void seedForecast(int rows, boolean snapshot) throws IOException {
+        String output = mAdb.shell("am broadcast -n " + SEED_RECEIVER
+                + " -a " + ACTION_SEED_FORECAST
+                + " -f " + FLAG_INCLUDE_STOPPED_PACKAGES
+                + " --ei rows " + rows
+                + " --ez snapshot " + snapshot);
+        if (!String.valueOf(rows).equals(DeviceOutput.parseBroadcastData(output))) {
+            throw new IOException("Seeding the forecast failed, is the debug build installed? "
+                    + output.trim());
+        }
+    }
+
+    /*
+     * Polls logcat until the system logs the event for the Activity. Depending on the version of
+     * Android, launch events are logged by ActivityManager or ActivityTaskManager.
+     */
+    private long awaitLaunchEvent(String event, String component)
+            throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + LAUNCH_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            String logcat = mAdb.shell(
+                    "logcat -d -s ActivityManager:I ActivityTaskManager:I");
+            long millis = DeviceOutput.parseLaunchEvent(logcat, event, component);
+            if (millis >= 0) {
+                return millis;
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+        throw new IOException("Timed out waiting for \"" + event + " " + component + "\"");
+    }
+}
@@ -0,0 +1,55 @@
+package com.codeking123.android.sunshine.benchmark;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+
+public class TestBenchmarkOptions {
+
+    private void assertRejected(String... args) {
+        try {
+            BenchmarkOptions.parse(args);
+            fail("Arguments should have been rejected");
+        } catch (IllegalArgumentException expected) {
+            assertFalse(expected.getMessage().isEmpty());
+        }
+    }
+
+
+    @Test
+    public void testDefaults() {
+        BenchmarkOptions options = BenchmarkOptions.parse(new String[0]);
+
+        assertNull(options.serial);
+        assertEquals(BenchmarkOptions.DEFAULT_ITERATIONS, options.iterations);
+        assertArrayEquals(new int[]{14, 365, 10000, 100000}, options.rows);
+        assertEquals(BenchmarkOptions.DEFAULT_OUTPUT, options.output);
+    }
+
+    @Test
+    public void testParsesOptions() {
+        BenchmarkOptions options = BenchmarkOptions.parse(new String[]{
+                "--serial", "emulator-5554", "--rows", "30, 1000", "--iterations", "2",
+                "--output", "out.json"});
+
+        assertEquals("emulator-5554", options.serial);
+        assertEquals(2, options.iterations);
+        assertArrayEquals(new int[]{30, 1000}, options.rows);
+        assertEquals(new File("out.json"), options.output);
+    }
+
+    @Test
+    public void testRejectsInvalidArguments() {
+        assertRejected("--iterations", "0");
+        assertRejected("--rows", "14,,365");
+        assertRejected("--rows");
+        assertRejected("--warmup");
+    }
+}
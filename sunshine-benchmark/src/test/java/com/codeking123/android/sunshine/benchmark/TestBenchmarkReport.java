@@ -0,0 +1,49 @@
+package com.codeking123.android.sunshine.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class TestBenchmarkReport {
+
+    @Test
+    public void testSummarizesEachMetricPerForecastSize() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("Pixel 3", 28, 5);
+        long[] coldStarts = {480, 430, 455, 441, 612};
+        for (long sample : coldStarts) {
+            report.add("startup_cold_fully_drawn", 14, "ms", sample);
+        }
+        report.add("startup_cold_fully_drawn", 10000, "ms", 700);
+
+        JSONObject json = report.toJson();
+        assertEquals("Pixel 3", json.getJSONObject("device").getString("model"));
+        assertEquals(28, json.getJSONObject("device").getInt("sdk"));
+        assertEquals(5, json.getInt("iterations"));
+
+        JSONArray metrics = json.getJSONArray("metrics");
+        assertEquals(2, metrics.length());
+
+        JSONObject small = metrics.getJSONObject(0);
+        assertEquals("startup_cold_fully_drawn", small.getString("name"));
+        assertEquals(14, small.getInt("rows"));
+        assertEquals("ms", small.getString("unit"));
+        assertEquals(430, small.getLong("min"));
+        assertEquals(455, small.getLong("median"));
+        assertEquals(612, small.getLong("p90"));
+        assertEquals(612, small.getLong("max"));
+
+        JSONArray samples = small.getJSONArray("samples");
+        long[] written = new long[samples.length()];
+        for (int i = 0; i < written.length; i++) {
+            written[i] = samples.getLong(i);
+        }
+        assertArrayEquals(coldStarts, written);
+
+        assertEquals(10000, metrics.getJSONObject(1).getInt("rows"));
+        assertEquals(700, metrics.getJSONObject(1).getLong("median"));
+    }
+}
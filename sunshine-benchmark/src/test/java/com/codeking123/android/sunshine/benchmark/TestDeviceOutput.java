@@ -0,0 +1,94 @@
+package com.codeking123.android.sunshine.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class TestDeviceOutput {
+
+    private static final String AM_START_OUTPUT = ""
+            + "Starting: Intent { cmp=com.codeking123.android.sunshine/.MainActivity }\n"
+            + "Status: ok\n"
+            + "Activity: com.codeking123.android.sunshine/.MainActivity\n"
+            + "ThisTime: 412\n"
+            + "TotalTime: 418\n"
+            + "WaitTime: 431\n"
+            + "Complete\n";
+
+    private static final String LOGCAT_OUTPUT = ""
+            + "--------- beginning of main\n"
+            + "10-19 10:00:01.123   512   540 I ActivityManager: Displayed "
+            + "com.codeking123.android.sunshine/.MainActivity: +418ms\n"
+            + "10-19 10:00:01.456   512   540 I ActivityManager: Fully drawn "
+            + "com.codeking123.android.sunshine/.MainActivity: +1s27ms\n"
+            + "10-19 10:00:03.001   512   540 I ActivityTaskManager: Displayed "
+            + "com.codeking123.android.sunshine/.DetailActivity: +96ms\n";
+
+    private static final String GFXINFO_OUTPUT = ""
+            + "Applications Graphics Acceleration Info:\n"
+            + "Uptime: 9510412 Realtime: 9510412\n"
+            + "\n"
+            + "** Graphics info for pid 4242 [com.codeking123.android.sunshine] **\n"
+            + "\n"
+            + "Stats since: 9483526453ns\n"
+            + "Total frames rendered: 312\n"
+            + "Janky frames: 17 (5.45%)\n"
+            + "50th percentile: 6ms\n"
+            + "90th percentile: 11ms\n"
+            + "95th percentile: 14ms\n"
+            + "99th percentile: 32ms\n"
+            + "Number Missed Vsync: 3\n";
+
+
+    @Test
+    public void testParsesTotalTime() {
+        assertEquals(418, DeviceOutput.parseTotalTime(AM_START_OUTPUT));
+        assertEquals(-1, DeviceOutput.parseTotalTime("Error: Activity not started\n"));
+    }
+
+    @Test
+    public void testParsesLaunchEvents() {
+        assertEquals(418, DeviceOutput.parseLaunchEvent(LOGCAT_OUTPUT,
+                "Displayed", MacroBenchmark.MAIN_ACTIVITY));
+        assertEquals(1027, DeviceOutput.parseLaunchEvent(LOGCAT_OUTPUT,
+                "Fully drawn", MacroBenchmark.MAIN_ACTIVITY));
+        assertEquals(96, DeviceOutput.parseLaunchEvent(LOGCAT_OUTPUT,
+                "Displayed", MacroBenchmark.DETAIL_ACTIVITY));
+        assertEquals(-1, DeviceOutput.parseLaunchEvent(LOGCAT_OUTPUT,
+                "Fully drawn", MacroBenchmark.DETAIL_ACTIVITY));
+    }
+
+    @Test
+    public void testParsesBroadcastData() {
+        assertEquals("365", DeviceOutput.parseBroadcastData(
+                "Broadcasting: Intent { act=com.codeking123.android.sunshine.debug.SEED_FORECAST }\n"
+                        + "Broadcast completed: result=-1, data=\"365\"\n"));
+        assertNull(DeviceOutput.parseBroadcastData("Broadcast completed: result=0\n"));
+    }
+
+    @Test
+    public void testPrefersOverrideScreenSize() {
+        assertArrayEquals(new int[]{1080, 1920},
+                DeviceOutput.parseScreenSize("Physical size: 1080x1920\n"));
+        assertArrayEquals(new int[]{720, 1280}, DeviceOutput.parseScreenSize(
+                "Physical size: 1080x1920\nOverride size: 720x1280\n"));
+        assertNull(DeviceOutput.parseScreenSize("error: no devices/emulators found\n"));
+    }
+
+    @Test
+    public void testParsesFrameStats() {
+        FrameStats stats = DeviceOutput.parseFrameStats(GFXINFO_OUTPUT);
+
+        assertEquals(312, stats.totalFrames);
+        assertEquals(17, stats.jankyFrames);
+        assertEquals(6, stats.p50Millis);
+        assertEquals(11, stats.p90Millis);
+        assertEquals(14, stats.p95Millis);
+        assertEquals(32, stats.p99Millis);
+
+        assertNull(DeviceOutput.parseFrameStats("No process found for: com.example\n"));
+    }
+}
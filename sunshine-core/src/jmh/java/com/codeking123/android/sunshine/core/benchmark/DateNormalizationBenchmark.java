@@ -0,0 +1,55 @@
+package com.codeking123.android.sunshine.core.benchmark;
+
+import com.codeking123.android.sunshine.core.date.Clock;
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The date arithmetic done for every row stored and every row displayed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DateNormalizationBenchmark {
+
+    private final TimeZone mTimeZone = TimeZone.getTimeZone("America/Los_Angeles");
+
+    /* Steps through a few years of timestamps, an hour and a bit at a time */
+    private long mTimestamp = 1475280000000L;
+
+    private long nextTimestamp() {
+        mTimestamp += 3700000L;
+        return mTimestamp;
+    }
+
+    @Benchmark
+    public long normalizeDate() {
+        return SunshineDates.normalizeDate(nextTimestamp());
+    }
+
+    @Benchmark
+    public long localMidnightFromNormalizedDate() {
+        return SunshineDates.getLocalMidnightFromNormalizedUtcDate(
+                SunshineDates.normalizeDate(nextTimestamp()), mTimeZone);
+    }
+
+    @Benchmark
+    public long normalizedDateForToday() {
+        return SunshineDates.getNormalizedUtcDateForToday(Clock.SYSTEM);
+    }
+}
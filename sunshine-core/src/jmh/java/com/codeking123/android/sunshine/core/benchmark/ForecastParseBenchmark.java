@@ -0,0 +1,49 @@
+package com.codeking123.android.sunshine.core.benchmark;
+
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.parse.ForecastParser;
+import com.codeking123.android.sunshine.core.parse.OpenWeatherForecastParser;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the sample two week Open Weather Map response the tests use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ForecastParseBenchmark {
+
+    /* October 1st, 2016 at midnight, GMT time */
+    private static final long DATE_NORMALIZED = 1475280000000L;
+
+    private final ForecastParser mParser = new OpenWeatherForecastParser();
+
+    private String mForecastJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        mForecastJson = Payloads.read("forecast_14_days.json");
+    }
+
+    @Benchmark
+    public Forecast parseFourteenDays() throws JSONException {
+        return mParser.parse(mForecastJson, DATE_NORMALIZED);
+    }
+}
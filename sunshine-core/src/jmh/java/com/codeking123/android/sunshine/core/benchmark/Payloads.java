@@ -0,0 +1,32 @@
+package com.codeking123.android.sunshine.core.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the sample payloads shared with the tests from the classpath.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    static String read(String name) throws IOException {
+        InputStream in = Payloads.class.getResourceAsStream("/" + name);
+        if (in == null) {
+            throw new IOException("Missing payload " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
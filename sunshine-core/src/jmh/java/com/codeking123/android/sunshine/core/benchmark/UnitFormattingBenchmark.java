@@ -0,0 +1,82 @@
+package com.codeking123.android.sunshine.core.benchmark;
+
+import com.codeking123.android.sunshine.core.format.CompiledFormat;
+import com.codeking123.android.sunshine.core.units.CompassDirections;
+import com.codeking123.android.sunshine.core.units.UnitSystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit conversion and display formatting of temperatures and wind, comparing String.format with
+ * the compiled patterns the app uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class UnitFormattingBenchmark {
+
+    /* The patterns of format_temperature and format_wind_kmh once Android trims them */
+    private static final String TEMPERATURE_PATTERN = "%1.0f°";
+    private static final String WIND_PATTERN = "%1$1.0f km/h %2$s";
+
+    @Param({"METRIC", "IMPERIAL"})
+    public UnitSystem unitSystem;
+
+    private CompiledFormat mTemperatureFormat;
+    private CompiledFormat mWindFormat;
+
+    private int mIteration;
+
+    @Setup
+    public void setUp() {
+        mTemperatureFormat = CompiledFormat.compile(TEMPERATURE_PATTERN, Locale.US);
+        mWindFormat = CompiledFormat.compile(WIND_PATTERN, Locale.US);
+    }
+
+    private double nextTemperature() {
+        mIteration++;
+        return (mIteration % 800) / 10.0 - 30.0;
+    }
+
+    @Benchmark
+    public String temperatureWithStringFormat() {
+        return String.format(Locale.US, TEMPERATURE_PATTERN,
+                unitSystem.toDisplayTemperature(nextTemperature()));
+    }
+
+    @Benchmark
+    public String temperatureWithCompiledFormat() {
+        return mTemperatureFormat.format(unitSystem.toDisplayTemperature(nextTemperature()));
+    }
+
+    @Benchmark
+    public String windWithStringFormat() {
+        float speed = (float) nextTemperature();
+        return String.format(Locale.US, WIND_PATTERN,
+                unitSystem.toDisplayWindSpeed(speed),
+                CompassDirections.fromDegrees(mIteration % 360));
+    }
+
+    @Benchmark
+    public String windWithCompiledFormat() {
+        float speed = (float) nextTemperature();
+        return mWindFormat.format(unitSystem.toDisplayWindSpeed(speed),
+                CompassDirections.fromDegrees(mIteration % 360));
+    }
+}
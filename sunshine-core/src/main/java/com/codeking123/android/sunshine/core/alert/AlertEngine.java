@@ -0,0 +1,135 @@
+package com.codeking123.android.sunshine.core.alert;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates alert rules against what a sync changed, so a sync reports the rules that came to
+ * hold rather than every rule that holds.
+ * <p>
+ * Rules are grouped by the columns they read. A day a sync added is evaluated against every
+ * rule; a day it changed only against the groups that read a column that changed, as the others
+ * evaluate the same as before; a day it dropped against none. A rule fires for a day when it
+ * holds and didn't hold for the day in the previous forecast, so a frost already forecast isn't
+ * reported again by every sync. A rule that reads the previous forecast itself is about the
+ * change, and fires whenever it holds. Each rule fires at most once for a day of a location.
+ * <p>
+ * The engine keeps no state between syncs, which is what the previous forecast is for. Not
+ * thread-safe, as it reuses its buffers and counts evaluations.
+ */
+public final class AlertEngine {
+
+    private final int mRuleCount;
+
+    /* The rules grouped by the columns they read, and those columns */
+    private final AlertRule[][] mGroups;
+    private final int[] mGroupColumns;
+
+    private final double[] mCurrent = new double[WeatherColumn.values().length];
+    private final double[] mPrevious = new double[WeatherColumn.values().length];
+
+    private long mEvaluations;
+
+    public AlertEngine(List<AlertRule> rules) {
+        Map<Integer, List<AlertRule>> byColumns = new LinkedHashMap<Integer, List<AlertRule>>();
+        for (AlertRule rule : rules) {
+            List<AlertRule> group = byColumns.get(rule.getColumns());
+            if (group == null) {
+                group = new ArrayList<AlertRule>();
+                byColumns.put(rule.getColumns(), group);
+            }
+            group.add(rule);
+        }
+
+        mRuleCount = rules.size();
+        mGroups = new AlertRule[byColumns.size()][];
+        mGroupColumns = new int[byColumns.size()];
+        int i = 0;
+        for (Map.Entry<Integer, List<AlertRule>> entry : byColumns.entrySet()) {
+            mGroupColumns[i] = entry.getKey();
+            mGroups[i] = entry.getValue().toArray(new AlertRule[entry.getValue().size()]);
+            i++;
+        }
+    }
+
+    public int getRuleCount() {
+        return mRuleCount;
+    }
+
+    /**
+     * @return How many times a rule was evaluated against a day, since the engine was created
+     */
+    public long getEvaluationCount() {
+        return mEvaluations;
+    }
+
+    /**
+     * @return The rules that came to hold for the days of the change set, in its order
+     */
+    public List<AlertFiring> evaluate(ForecastChangeSet changes) {
+        List<AlertFiring> firings = new ArrayList<AlertFiring>();
+        Set<FiringKey> fired = new HashSet<FiringKey>();
+        for (ForecastChange change : changes) {
+            if (change.current == null) {
+                continue;
+            }
+            double[] current = WeatherColumn.read(change.current, change.currentDay, mCurrent);
+            double[] previous = change.previous == null ? null
+                    : WeatherColumn.read(change.previous, change.previousDay, mPrevious);
+
+            for (int g = 0; g < mGroups.length; g++) {
+                if ((mGroupColumns[g] & change.changedColumns) == 0) {
+                    continue;
+                }
+                for (AlertRule rule : mGroups[g]) {
+                    mEvaluations++;
+                    if (!rule.matches(current, previous)) {
+                        continue;
+                    }
+                    if (!rule.readsPrevious() && previous != null
+                            && rule.matches(previous, null)) {
+                        continue;
+                    }
+                    if (fired.add(new FiringKey(rule, change.location, change.date))) {
+                        firings.add(new AlertFiring(rule, change.location, change.current,
+                                change.currentDay));
+                    }
+                }
+            }
+        }
+        return firings;
+    }
+
+    /* A rule, compared by identity, and a day of a location */
+    private static final class FiringKey {
+        final AlertRule rule;
+        final String location;
+        final long date;
+
+        FiringKey(AlertRule rule, String location, long date) {
+            this.rule = rule;
+            this.location = location;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FiringKey)) {
+                return false;
+            }
+            FiringKey other = (FiringKey) o;
+            return rule == other.rule && date == other.date && location.equals(other.location);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(rule);
+            hash = 31 * hash + location.hashCode();
+            return 31 * hash + (int) (date ^ (date >>> 32));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.codeking123.android.sunshine.core.alert;
+
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+/**
+ * A rule that came to hold for a day of a location's forecast in a sync.
+ */
+public final class AlertFiring {
+
+    public final AlertRule rule;
+    public final String location;
+    public final long date;
+
+    /* The day as the sync stored it, and its number in the forecast */
+    public final WeatherRecord record;
+    public final int day;
+
+    AlertFiring(AlertRule rule, String location, WeatherRecord record, int day) {
+        this.rule = rule;
+        this.location = location;
+        this.date = record.date;
+        this.record = record;
+        this.day = day;
+    }
+
+    @Override
+    public String toString() {
+        return rule.getName() + " " + location + " " + date;
+    }
+}
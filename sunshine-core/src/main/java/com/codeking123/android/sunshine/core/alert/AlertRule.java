@@ -0,0 +1,421 @@
+package com.codeking123.android.sunshine.core.alert;
+
+import java.util.Locale;
+
+/**
+ * A condition on a day of forecast that the user wants to be told about, such as frost tomorrow,
+ * "day = 1 and min < 0", or wind over 50 km/h, "wind > 50", in the units the forecast is stored
+ * in: °C and km/h. Rules are parsed once by {@link #compile} into a tree of conditions over the
+ * values of a day, so evaluating one reads an array and compares numbers.
+ * <p>
+ * A rule compares the {@link WeatherColumn columns} of the day, numbers and, through
+ * "previous.", the values the day had in the forecast before this one, with
+ * {@code < <= > >= = !=} and {@code x between a and b}, and combines comparisons with
+ * {@code and}, {@code or}, {@code not} and parentheses. "weather_id between 500 and 599 and
+ * not previous.weather_id between 500 and 599" is rain on a day that was dry. A rule that reads
+ * the previous forecast never holds for a day that wasn't in it.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class AlertRule {
+
+    private final String mName;
+    private final String mExpression;
+    private final Condition mCondition;
+    private final int mColumns;
+    private final boolean mReadsPrevious;
+
+    private AlertRule(String name, String expression, Condition condition, int columns,
+                      boolean readsPrevious) {
+        mName = name;
+        mExpression = expression;
+        mCondition = condition;
+        mColumns = columns;
+        mReadsPrevious = readsPrevious;
+    }
+
+    /**
+     * Parses a rule.
+     *
+     * @param name       What the user calls the rule, shown when it fires
+     * @param expression The condition, as described above
+     * @return The compiled rule
+     * @throws IllegalArgumentException If the expression isn't a valid condition, with the
+     *                                  position of the error
+     */
+    public static AlertRule compile(String name, String expression) {
+        Parser parser = new Parser(expression);
+        Condition condition = parser.parse();
+        return new AlertRule(name, expression, condition, parser.mColumns,
+                parser.mReadsPrevious);
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public String getExpression() {
+        return mExpression;
+    }
+
+    /**
+     * @return The columns the rule reads, of the day or of the previous forecast, as a mask of
+     * {@link WeatherColumn#getMask()}
+     */
+    public int getColumns() {
+        return mColumns;
+    }
+
+    /**
+     * @return Whether the rule reads the previous forecast of the day
+     */
+    public boolean readsPrevious() {
+        return mReadsPrevious;
+    }
+
+    /**
+     * @param current  The values of the day, see {@link WeatherColumn#read}
+     * @param previous The values of the day in the previous forecast, or null if it wasn't in it
+     * @return Whether the rule holds for the day
+     */
+    boolean matches(double[] current, double[] previous) {
+        if (mReadsPrevious && previous == null) {
+            return false;
+        }
+        return mCondition.test(current, previous);
+    }
+
+    @Override
+    public String toString() {
+        return mName + ": " + mExpression;
+    }
+
+    /* The comparison operators, in the order of OPERATORS */
+    private static final int LT = 0;
+    private static final int LE = 1;
+    private static final int GT = 2;
+    private static final int GE = 3;
+    private static final int EQ = 4;
+    private static final int NE = 5;
+
+    /* Two character operators first, so "<=" isn't read as "<" */
+    private static final String[] OPERATORS = {"<=", ">=", "!=", "<", ">", "="};
+    private static final int[] OPERATOR_CODES = {LE, GE, NE, LT, GT, EQ};
+
+    private static boolean compare(double a, int operator, double b) {
+        switch (operator) {
+            case LT:
+                return a < b;
+            case LE:
+                return a <= b;
+            case GT:
+                return a > b;
+            case GE:
+                return a >= b;
+            case EQ:
+                return a == b;
+            default:
+                return a != b;
+        }
+    }
+
+    private abstract static class Condition {
+        abstract boolean test(double[] current, double[] previous);
+    }
+
+    /* A number, a column of the day or a column of the previous forecast */
+    private static final class Operand {
+        final double constant;
+        final int column;
+        final boolean previous;
+
+        Operand(double constant, int column, boolean previous) {
+            this.constant = constant;
+            this.column = column;
+            this.previous = previous;
+        }
+
+        boolean isConstant() {
+            return column < 0;
+        }
+
+        double value(double[] current, double[] previous) {
+            if (column < 0) {
+                return constant;
+            }
+            return this.previous ? previous[column] : current[column];
+        }
+    }
+
+    /* The common case, a column of the day against a number, without going through Operand */
+    private static final class ColumnComparison extends Condition {
+        private final int mColumn;
+        private final int mOperator;
+        private final double mConstant;
+
+        ColumnComparison(int column, int operator, double constant) {
+            mColumn = column;
+            mOperator = operator;
+            mConstant = constant;
+        }
+
+        @Override
+        boolean test(double[] current, double[] previous) {
+            return compare(current[mColumn], mOperator, mConstant);
+        }
+    }
+
+    private static final class Comparison extends Condition {
+        private final Operand mLeft;
+        private final int mOperator;
+        private final Operand mRight;
+
+        Comparison(Operand left, int operator, Operand right) {
+            mLeft = left;
+            mOperator = operator;
+            mRight = right;
+        }
+
+        @Override
+        boolean test(double[] current, double[] previous) {
+            return compare(mLeft.value(current, previous), mOperator,
+                    mRight.value(current, previous));
+        }
+    }
+
+    private static final class Between extends Condition {
+        private final Operand mValue;
+        private final Operand mLow;
+        private final Operand mHigh;
+
+        Between(Operand value, Operand low, Operand high) {
+            mValue = value;
+            mLow = low;
+            mHigh = high;
+        }
+
+        @Override
+        boolean test(double[] current, double[] previous) {
+            double value = mValue.value(current, previous);
+            return value >= mLow.value(current, previous)
+                    && value <= mHigh.value(current, previous);
+        }
+    }
+
+    private static final class And extends Condition {
+        private final Condition mLeft;
+        private final Condition mRight;
+
+        And(Condition left, Condition right) {
+            mLeft = left;
+            mRight = right;
+        }
+
+        @Override
+        boolean test(double[] current, double[] previous) {
+            return mLeft.test(current, previous) && mRight.test(current, previous);
+        }
+    }
+
+    private static final class Or extends Condition {
+        private final Condition mLeft;
+        private final Condition mRight;
+
+        Or(Condition left, Condition right) {
+            mLeft = left;
+            mRight = right;
+        }
+
+        @Override
+        boolean test(double[] current, double[] previous) {
+            return mLeft.test(current, previous) || mRight.test(current, previous);
+        }
+    }
+
+    private static final class Not extends Condition {
+        private final Condition mCondition;
+
+        Not(Condition condition) {
+            mCondition = condition;
+        }
+
+        @Override
+        boolean test(double[] current, double[] previous) {
+            return !mCondition.test(current, previous);
+        }
+    }
+
+    /*
+     * A recursive descent parser of
+     *
+     *   or         := and ("or" and)*
+     *   and        := unary ("and" unary)*
+     *   unary      := "not" unary | "(" or ")" | comparison
+     *   comparison := operand (operator operand | "between" operand "and" operand)
+     *   operand    := number | column | "previous." column
+     *
+     * Words are case insensitive.
+     */
+    private static final class Parser {
+        private static final String PREVIOUS = "previous.";
+
+        private final String mText;
+        private int mPosition;
+
+        int mColumns;
+        boolean mReadsPrevious;
+
+        Parser(String text) {
+            mText = text;
+        }
+
+        Condition parse() {
+            Condition condition = parseOr();
+            skipSpaces();
+            if (mPosition < mText.length()) {
+                throw error("Expected the end of the rule");
+            }
+            return condition;
+        }
+
+        private Condition parseOr() {
+            Condition condition = parseAnd();
+            while (acceptWord("or")) {
+                condition = new Or(condition, parseAnd());
+            }
+            return condition;
+        }
+
+        private Condition parseAnd() {
+            Condition condition = parseUnary();
+            while (acceptWord("and")) {
+                condition = new And(condition, parseUnary());
+            }
+            return condition;
+        }
+
+        private Condition parseUnary() {
+            if (acceptWord("not")) {
+                return new Not(parseUnary());
+            }
+            if (accept("(")) {
+                Condition condition = parseOr();
+                if (!accept(")")) {
+                    throw error("Expected )");
+                }
+                return condition;
+            }
+            return parseComparison();
+        }
+
+        private Condition parseComparison() {
+            Operand left = parseOperand();
+            if (acceptWord("between")) {
+                Operand low = parseOperand();
+                if (!acceptWord("and")) {
+                    throw error("Expected and");
+                }
+                return new Between(left, low, parseOperand());
+            }
+
+            int operator = parseOperator();
+            Operand right = parseOperand();
+            if (!left.previous && !left.isConstant() && right.isConstant()) {
+                return new ColumnComparison(left.column, operator, right.constant);
+            }
+            return new Comparison(left, operator, right);
+        }
+
+        private int parseOperator() {
+            skipSpaces();
+            for (int i = 0; i < OPERATORS.length; i++) {
+                if (mText.startsWith(OPERATORS[i], mPosition)) {
+                    mPosition += OPERATORS[i].length();
+                    return OPERATOR_CODES[i];
+                }
+            }
+            throw error("Expected a comparison");
+        }
+
+        private Operand parseOperand() {
+            skipSpaces();
+            int start = mPosition;
+            if (mPosition < mText.length() && isNumberStart(mText.charAt(mPosition))) {
+                mPosition++;
+                while (mPosition < mText.length() && isNumberPart(mText.charAt(mPosition))) {
+                    mPosition++;
+                }
+                try {
+                    return new Operand(Double.parseDouble(mText.substring(start, mPosition)), -1,
+                            false);
+                } catch (NumberFormatException e) {
+                    mPosition = start;
+                    throw error("Expected a number");
+                }
+            }
+
+            String word = readWord();
+            boolean previous = word.startsWith(PREVIOUS);
+            WeatherColumn column = WeatherColumn.forName(
+                    previous ? word.substring(PREVIOUS.length()) : word);
+            if (column == null) {
+                mPosition = start;
+                throw error("Expected a number or a column");
+            }
+            mColumns |= column.getMask();
+            mReadsPrevious |= previous;
+            return new Operand(0, column.ordinal(), previous);
+        }
+
+        private boolean accept(String token) {
+            skipSpaces();
+            if (mText.startsWith(token, mPosition)) {
+                mPosition += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptWord(String word) {
+            skipSpaces();
+            int start = mPosition;
+            if (readWord().equals(word)) {
+                return true;
+            }
+            mPosition = start;
+            return false;
+        }
+
+        /* Letters, digits, underscores and dots, lower cased */
+        private String readWord() {
+            int start = mPosition;
+            while (mPosition < mText.length()) {
+                char c = mText.charAt(mPosition);
+                if (!Character.isLetterOrDigit(c) && c != '_' && c != '.') {
+                    break;
+                }
+                mPosition++;
+            }
+            return mText.substring(start, mPosition).toLowerCase(Locale.US);
+        }
+
+        private void skipSpaces() {
+            while (mPosition < mText.length() && Character.isWhitespace(mText.charAt(mPosition))) {
+                mPosition++;
+            }
+        }
+
+        private static boolean isNumberStart(char c) {
+            return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+        }
+
+        private static boolean isNumberPart(char c) {
+            return (c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E';
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(
+                    message + " at " + mPosition + " of \"" + mText + "\"");
+        }
+    }
+}
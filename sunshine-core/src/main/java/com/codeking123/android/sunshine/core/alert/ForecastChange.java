@@ -0,0 +1,36 @@
+package com.codeking123.android.sunshine.core.alert;
+
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+/**
+ * A day of a location's forecast that a sync added, changed or removed. Days are counted from the
+ * first day of their forecast, see {@link WeatherColumn#DAY}.
+ */
+public final class ForecastChange {
+
+    public final String location;
+    public final long date;
+
+    /* The day before the sync, or null if the sync added it */
+    public final WeatherRecord previous;
+    public final int previousDay;
+
+    /* The day after the sync, or null if the sync removed it */
+    public final WeatherRecord current;
+    public final int currentDay;
+
+    /* The columns that differ, as a mask of WeatherColumn.getMask(): all of them if either
+     * record is missing */
+    public final int changedColumns;
+
+    ForecastChange(String location, long date, WeatherRecord previous, int previousDay,
+                   WeatherRecord current, int currentDay, int changedColumns) {
+        this.location = location;
+        this.date = date;
+        this.previous = previous;
+        this.previousDay = previousDay;
+        this.current = current;
+        this.currentDay = currentDay;
+        this.changedColumns = changedColumns;
+    }
+}
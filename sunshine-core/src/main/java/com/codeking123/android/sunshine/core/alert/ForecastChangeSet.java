@@ -0,0 +1,105 @@
+package com.codeking123.android.sunshine.core.alert;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a sync changed of the forecasts it stored: the days each location's new forecast added,
+ * changed or dropped compared to the one it replaced, and nothing of the days that stayed the
+ * same. {@link AlertEngine} only evaluates rules against these, so a sync that changes little
+ * costs little however many rules there are.
+ * <p>
+ * Not thread-safe: a change set is built by one sync.
+ */
+public final class ForecastChangeSet implements Iterable<ForecastChange> {
+
+    private final List<ForecastChange> mChanges = new ArrayList<ForecastChange>();
+    private int mUnchanged;
+
+    /**
+     * Adds the changes between a location's forecast before and after a sync.
+     *
+     * @param previous The days stored before, or null if there were none
+     * @param current  The days stored by the sync, or null if it stored none
+     * @return How many days changed
+     */
+    public int add(String location, WeatherRecord[] previous, WeatherRecord[] current) {
+        if (previous == null) previous = new WeatherRecord[0];
+        if (current == null) current = new WeatherRecord[0];
+
+        long previousStart = firstDate(previous);
+        Map<Long, WeatherRecord> previousByDate =
+                new HashMap<Long, WeatherRecord>(previous.length * 2);
+        for (WeatherRecord record : previous) {
+            previousByDate.put(record.date, record);
+        }
+
+        int before = mChanges.size();
+        long currentStart = firstDate(current);
+        for (WeatherRecord record : current) {
+            int day = day(record.date, currentStart);
+            WeatherRecord old = previousByDate.remove(record.date);
+            if (old == null) {
+                mChanges.add(new ForecastChange(location, record.date, null, 0, record, day,
+                        ~0));
+                continue;
+            }
+
+            int oldDay = day(old.date, previousStart);
+            int changed = WeatherColumn.diff(old, oldDay, record, day);
+            if (changed == 0) {
+                mUnchanged++;
+            } else {
+                mChanges.add(new ForecastChange(location, record.date, old, oldDay, record, day,
+                        changed));
+            }
+        }
+
+        /* What is left was dropped, iterated in date order so the change set is stable */
+        for (WeatherRecord old : previous) {
+            if (previousByDate.remove(old.date) != null) {
+                mChanges.add(new ForecastChange(location, old.date, old,
+                        day(old.date, previousStart), null, 0, ~0));
+            }
+        }
+        return mChanges.size() - before;
+    }
+
+    private static long firstDate(WeatherRecord[] records) {
+        long first = Long.MAX_VALUE;
+        for (WeatherRecord record : records) {
+            first = Math.min(first, record.date);
+        }
+        return first;
+    }
+
+    private static int day(long date, long firstDate) {
+        return (int) ((date - firstDate) / SunshineDates.DAY_IN_MILLIS);
+    }
+
+    /**
+     * @return How many days changed
+     */
+    public int size() {
+        return mChanges.size();
+    }
+
+    /**
+     * @return How many days were stored again as they were, and aren't part of the change set
+     */
+    public int getUnchangedCount() {
+        return mUnchanged;
+    }
+
+    @Override
+    public Iterator<ForecastChange> iterator() {
+        return Collections.unmodifiableList(mChanges).iterator();
+    }
+}
@@ -0,0 +1,90 @@
+package com.codeking123.android.sunshine.core.alert;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+/**
+ * What an alert rule can read of a day of forecast: the weather columns, named as in the
+ * database, and the day itself, counted from the first day of its forecast, which is the day the
+ * forecast was synced: 0 is today, 1 tomorrow.
+ */
+public enum WeatherColumn {
+
+    WEATHER_ID(WeatherSchema.COLUMN_WEATHER_ID),
+    MIN_TEMP(WeatherSchema.COLUMN_MIN_TEMP),
+    MAX_TEMP(WeatherSchema.COLUMN_MAX_TEMP),
+    HUMIDITY(WeatherSchema.COLUMN_HUMIDITY),
+    PRESSURE(WeatherSchema.COLUMN_PRESSURE),
+    WIND_SPEED(WeatherSchema.COLUMN_WIND_SPEED),
+    DEGREES(WeatherSchema.COLUMN_DEGREES),
+    DAY("day");
+
+    private static final WeatherColumn[] VALUES = values();
+
+    private final String mName;
+
+    WeatherColumn(String name) {
+        mName = name;
+    }
+
+    /**
+     * @return The name rules refer to the column by
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return The bit of the column in a mask of columns, such as
+     * {@link ForecastChange#changedColumns}
+     */
+    public int getMask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @return The column of the name, or null if there is none
+     */
+    public static WeatherColumn forName(String name) {
+        for (WeatherColumn column : VALUES) {
+            if (column.mName.equals(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads every column of a day, indexed by ordinal, which is how rules are evaluated.
+     *
+     * @param day The day of the record in its forecast
+     */
+    static double[] read(WeatherRecord record, int day, double[] values) {
+        values[WEATHER_ID.ordinal()] = record.weatherId;
+        values[MIN_TEMP.ordinal()] = record.minTemp;
+        values[MAX_TEMP.ordinal()] = record.maxTemp;
+        values[HUMIDITY.ordinal()] = record.humidity;
+        values[PRESSURE.ordinal()] = record.pressure;
+        values[WIND_SPEED.ordinal()] = record.windSpeed;
+        values[DEGREES.ordinal()] = record.degrees;
+        values[DAY.ordinal()] = day;
+        return values;
+    }
+
+    /**
+     * @return The columns whose values differ between the two days, as a mask
+     */
+    static int diff(WeatherRecord previous, int previousDay, WeatherRecord current,
+                    int currentDay) {
+        int changed = 0;
+        if (previous.weatherId != current.weatherId) changed |= WEATHER_ID.getMask();
+        if (previous.minTemp != current.minTemp) changed |= MIN_TEMP.getMask();
+        if (previous.maxTemp != current.maxTemp) changed |= MAX_TEMP.getMask();
+        if (previous.humidity != current.humidity) changed |= HUMIDITY.getMask();
+        if (previous.pressure != current.pressure) changed |= PRESSURE.getMask();
+        if (previous.windSpeed != current.windSpeed) changed |= WIND_SPEED.getMask();
+        if (previous.degrees != current.degrees) changed |= DEGREES.getMask();
+        if (previousDay != currentDay) changed |= DAY.getMask();
+        return changed;
+    }
+}
@@ -0,0 +1,26 @@
+package com.codeking123.android.sunshine.core.date;
+
+import java.util.TimeZone;
+
+/**
+ * The current time and time zone, so date logic can be run against a fixed instant in tests and
+ * benchmarks.
+ */
+public interface Clock {
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public TimeZone getTimeZone() {
+            return TimeZone.getDefault();
+        }
+    };
+
+    long currentTimeMillis();
+
+    TimeZone getTimeZone();
+}
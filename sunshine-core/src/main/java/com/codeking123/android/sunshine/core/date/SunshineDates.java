@@ -0,0 +1,64 @@
+package com.codeking123.android.sunshine.core.date;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date arithmetic for Sunshine's storage format. Every forecast day is stored as a "normalized"
+ * date: the UTC midnight whose calendar day is the local calendar day the forecast is for.
+ */
+public final class SunshineDates {
+
+    /* Milliseconds in a day */
+    public static final long DAY_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private SunshineDates() {
+    }
+
+    /**
+     * Returns the normalized date for the local calendar day the clock is on.
+     */
+    public static long getNormalizedUtcDateForToday(Clock clock) {
+        long utcNowMillis = clock.currentTimeMillis();
+
+        long gmtOffsetMillis = clock.getTimeZone().getOffset(utcNowMillis);
+
+        long timeSinceEpochLocalTimeMillis = utcNowMillis + gmtOffsetMillis;
+
+        /* This method simply converts milliseconds to days, disregarding any fractional days */
+        long daysSinceEpochLocal = TimeUnit.MILLISECONDS.toDays(timeSinceEpochLocalTimeMillis);
+
+        /*
+         * Finally, we convert back to milliseconds. This time stamp represents today's date at
+         * midnight in GMT time. We will need to account for local time zone offsets when
+         * extracting this information from the database.
+         */
+        return TimeUnit.DAYS.toMillis(daysSinceEpochLocal);
+    }
+
+    public static long elapsedDaysSinceEpoch(long utcDate) {
+        return TimeUnit.MILLISECONDS.toDays(utcDate);
+    }
+
+    public static long normalizeDate(long date) {
+        long daysSinceEpoch = elapsedDaysSinceEpoch(date);
+        return daysSinceEpoch * DAY_IN_MILLIS;
+    }
+
+    public static boolean isDateNormalized(long millisSinceEpoch) {
+        return millisSinceEpoch % DAY_IN_MILLIS == 0;
+    }
+
+    /**
+     * Converts a normalized date back to the instant local midnight falls on in the given zone.
+     */
+    public static long getLocalMidnightFromNormalizedUtcDate(long normalizedUtcDate,
+                                                             TimeZone timeZone) {
+        /*
+         * This offset, in milliseconds, when added to a UTC date time, will produce the local
+         * time.
+         */
+        long gmtOffset = timeZone.getOffset(normalizedUtcDate);
+        return normalizedUtcDate - gmtOffset;
+    }
+}
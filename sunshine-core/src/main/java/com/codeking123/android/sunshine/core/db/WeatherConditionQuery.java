@@ -0,0 +1,118 @@
+package com.codeking123.android.sunshine.core.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A question about the stored forecast, such as the rainy days of the next two weeks or the
+ * first clear day, as a single query of the weather table: a selection, its arguments, an order
+ * and a LIMIT. Every query is bounded by date and ordered by date, so SQLite walks the days of
+ * the unique date index in order and stops at the limit, without reading the rest of the table
+ * or sorting. A single weather code is looked up in the weather code index instead, see
+ * {@link WeatherSchema#SQL_CREATE_WEATHER_ID_INDEX}.
+ */
+public final class WeatherConditionQuery {
+
+    /* Weather codes of the OpenWeatherMap API */
+    public static final int MIN_RAIN_WEATHER_ID = 500;
+    public static final int MAX_RAIN_WEATHER_ID = 599;
+    public static final int CLEAR_WEATHER_ID = 800;
+
+    /* The end date of a query of every day from its start on */
+    public static final long NO_END_DATE = Long.MAX_VALUE;
+
+    public final String selection;
+    public final String[] selectionArgs;
+    public final String orderBy;
+    public final String limit;
+
+    private WeatherConditionQuery(String condition, List<String> conditionArgs, long fromDate,
+                                  long toDate, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        if (toDate <= fromDate) {
+            throw new IllegalArgumentException("No days from " + fromDate + " to " + toDate);
+        }
+
+        StringBuilder selection = new StringBuilder(WeatherSchema.COLUMN_DATE + " >= ?");
+        List<String> args = new ArrayList<String>(conditionArgs.size() + 2);
+        args.add(Long.toString(fromDate));
+        if (toDate != NO_END_DATE) {
+            selection.append(" AND " + WeatherSchema.COLUMN_DATE + " < ?");
+            args.add(Long.toString(toDate));
+        }
+        selection.append(" AND ").append(condition);
+        args.addAll(conditionArgs);
+
+        this.selection = selection.toString();
+        this.selectionArgs = args.toArray(new String[args.size()]);
+        this.orderBy = WeatherSchema.COLUMN_DATE + " ASC";
+        this.limit = Integer.toString(limit);
+    }
+
+    /**
+     * The days whose weather code is between the two given, inclusive, such as
+     * {@link #MIN_RAIN_WEATHER_ID} and {@link #MAX_RAIN_WEATHER_ID} for rain.
+     *
+     * @param fromDate The first day, normalized
+     * @param toDate   The day after the last, or {@link #NO_END_DATE}
+     * @param limit    How many days to return, at most
+     * @throws IllegalArgumentException If the codes, the days or the limit are out of order
+     */
+    public static WeatherConditionQuery withWeatherIds(int minWeatherId, int maxWeatherId,
+                                                       long fromDate, long toDate, int limit) {
+        if (maxWeatherId < minWeatherId) {
+            throw new IllegalArgumentException(
+                    "No weather codes from " + minWeatherId + " to " + maxWeatherId);
+        }
+        List<String> args = new ArrayList<String>(2);
+        args.add(Integer.toString(minWeatherId));
+        if (minWeatherId == maxWeatherId) {
+            return new WeatherConditionQuery(WeatherSchema.COLUMN_WEATHER_ID + " = ?", args,
+                    fromDate, toDate, limit);
+        }
+        args.add(Integer.toString(maxWeatherId));
+        return new WeatherConditionQuery(
+                WeatherSchema.COLUMN_WEATHER_ID + " BETWEEN ? AND ?", args,
+                fromDate, toDate, limit);
+    }
+
+    /**
+     * The days whose high is above the temperature given, in °C like the stored forecast.
+     *
+     * @throws IllegalArgumentException If the days or the limit are out of order, or the
+     *                                  temperature is not a number
+     */
+    public static WeatherConditionQuery withMaxTempAbove(double temperature, long fromDate,
+                                                         long toDate, int limit) {
+        if (Double.isNaN(temperature)) {
+            throw new IllegalArgumentException("Temperature is not a number");
+        }
+        List<String> args = new ArrayList<String>(1);
+        args.add(Double.toString(temperature));
+        return new WeatherConditionQuery(WeatherSchema.COLUMN_MAX_TEMP + " > ?", args,
+                fromDate, toDate, limit);
+    }
+
+    /**
+     * @param columns The columns to select, or null for all of them
+     * @return The query as a statement, with a ? for each of the selection arguments
+     */
+    public String toSql(String[] columns) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (columns == null) {
+            sql.append('*');
+        } else {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) sql.append(", ");
+                sql.append(columns[i]);
+            }
+        }
+        return sql.append(" FROM ").append(WeatherSchema.TABLE_WEATHER)
+                .append(" WHERE ").append(selection)
+                .append(" ORDER BY ").append(orderBy)
+                .append(" LIMIT ").append(limit)
+                .toString();
+    }
+}
@@ -0,0 +1,248 @@
+package com.codeking123.android.sunshine.core.db;
+
+import com.codeking123.android.sunshine.core.metrics.SyncPhase;
+
+/**
+ * The SQLite schema of Sunshine's weather database, shared by the app's WeatherDbHelper and by
+ * the tools that build databases off the device, so both always agree on names and types.
+ */
+public final class WeatherSchema {
+
+    /* Bump this whenever a CREATE statement below changes */
+    public static final int DATABASE_VERSION = 11;
+
+    /* The same name as BaseColumns._ID, which cursor adapters on Android rely on */
+    public static final String COLUMN_ID = "_id";
+
+    public static final String TABLE_WEATHER = "weather";
+
+    public static final String COLUMN_DATE = "date";
+    public static final String COLUMN_WEATHER_ID = "weather_id";
+    public static final String COLUMN_MIN_TEMP = "min";
+    public static final String COLUMN_MAX_TEMP = "max";
+    public static final String COLUMN_HUMIDITY = "humidity";
+    public static final String COLUMN_PRESSURE = "pressure";
+    public static final String COLUMN_WIND_SPEED = "wind";
+    public static final String COLUMN_DEGREES = "degrees";
+
+    /* Column definitions of one day of weather, common to every table that stores it */
+    private static final String WEATHER_COLUMNS =
+            COLUMN_DATE       + " INTEGER NOT NULL, " +
+            COLUMN_WEATHER_ID + " INTEGER NOT NULL, " +
+            COLUMN_MIN_TEMP   + " REAL NOT NULL, "    +
+            COLUMN_MAX_TEMP   + " REAL NOT NULL, "    +
+            COLUMN_HUMIDITY   + " REAL NOT NULL, "    +
+            COLUMN_PRESSURE   + " REAL NOT NULL, "    +
+            COLUMN_WIND_SPEED + " REAL NOT NULL, "    +
+            COLUMN_DEGREES    + " REAL NOT NULL, ";
+
+    /*
+     * The app keeps the forecast of a single location, so a day's weather is unique by date and
+     * a new forecast for the same day replaces the old one.
+     */
+    public static final String SQL_CREATE_WEATHER_TABLE =
+            "CREATE TABLE " + TABLE_WEATHER + " (" +
+            COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            WEATHER_COLUMNS +
+            " UNIQUE (" + COLUMN_DATE + ") ON CONFLICT REPLACE);";
+
+    /*
+     * The days of a weather code by date, so the first day of a condition, such as the first
+     * clear day, is a single seek however many days are stored. See WeatherConditionQuery.
+     */
+    public static final String SQL_CREATE_WEATHER_ID_INDEX =
+            "CREATE INDEX " + TABLE_WEATHER + "_" + COLUMN_WEATHER_ID + " ON " + TABLE_WEATHER +
+            " (" + COLUMN_WEATHER_ID + ", " + COLUMN_DATE + ");";
+
+    /*
+     * Databases built offline hold the forecasts of many stations. A station is identified by
+     * the name of the dump it came from and located by the coordinates the server resolved it to.
+     */
+    public static final String TABLE_STATION = "station";
+
+    public static final String COLUMN_STATION = "station";
+    public static final String COLUMN_LATITUDE = "latitude";
+    public static final String COLUMN_LONGITUDE = "longitude";
+
+    public static final String SQL_CREATE_STATION_TABLE =
+            "CREATE TABLE " + TABLE_STATION + " (" +
+            COLUMN_STATION   + " TEXT PRIMARY KEY ON CONFLICT REPLACE, " +
+            COLUMN_LATITUDE  + " REAL NOT NULL, " +
+            COLUMN_LONGITUDE + " REAL NOT NULL);";
+
+    /* The weather table of the app with a station column, unique by station and date */
+    public static final String TABLE_STATION_WEATHER = "station_weather";
+
+    public static final String SQL_CREATE_STATION_WEATHER_TABLE =
+            "CREATE TABLE " + TABLE_STATION_WEATHER + " (" +
+            COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            COLUMN_STATION + " TEXT NOT NULL, " +
+            WEATHER_COLUMNS +
+            " UNIQUE (" + COLUMN_STATION + ", " + COLUMN_DATE + ") ON CONFLICT REPLACE);";
+
+    /*
+     * Forecasts kept by geohash tile, so a location near one synced recently is answered without
+     * fetching: the tile, when its forecast was fetched, and the forecast's days. Only the most
+     * recently fetched tiles are kept, see MAX_TILES.
+     */
+    public static final String TABLE_TILE = "tile";
+
+    public static final String COLUMN_TILE = "tile";
+    public static final String COLUMN_FETCHED_AT = "fetched_at";
+
+    public static final int MAX_TILES = 32;
+
+    public static final String SQL_CREATE_TILE_TABLE =
+            "CREATE TABLE " + TABLE_TILE + " (" +
+            COLUMN_TILE       + " TEXT PRIMARY KEY ON CONFLICT REPLACE, " +
+            COLUMN_FETCHED_AT + " INTEGER NOT NULL);";
+
+    /* The weather table of the app with a tile column, unique by tile and date */
+    public static final String TABLE_TILE_WEATHER = "tile_weather";
+
+    public static final String SQL_CREATE_TILE_WEATHER_TABLE =
+            "CREATE TABLE " + TABLE_TILE_WEATHER + " (" +
+            COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            COLUMN_TILE + " TEXT NOT NULL, " +
+            WEATHER_COLUMNS +
+            " UNIQUE (" + COLUMN_TILE + ", " + COLUMN_DATE + ") ON CONFLICT REPLACE);";
+
+    /*
+     * Drops the tiles, and their days, fetched longest ago once there are more than MAX_TILES.
+     * REPLACE deletes the old row of a tile before inserting the new one, so a tile fetched again
+     * counts once.
+     */
+    private static final String OLDEST_TILES =
+            "SELECT " + COLUMN_TILE + " FROM " + TABLE_TILE +
+            " ORDER BY " + COLUMN_FETCHED_AT + " DESC LIMIT -1 OFFSET " + MAX_TILES;
+
+    public static final String SQL_CREATE_TILE_TRIM_TRIGGER =
+            "CREATE TRIGGER " + TABLE_TILE + "_trim AFTER INSERT ON " + TABLE_TILE + " BEGIN " +
+            "DELETE FROM " + TABLE_TILE_WEATHER + " WHERE " + COLUMN_TILE +
+            " IN (" + OLDEST_TILES + "); " +
+            "DELETE FROM " + TABLE_TILE + " WHERE " + COLUMN_TILE +
+            " IN (" + OLDEST_TILES + "); END;";
+
+    /*
+     * Places whose weather is followed, by name, such as monitoring sites. Each is indexed by the
+     * geohash of its coordinates, so SpatialSearch can find those within a radius or nearest to a
+     * point from a few ranges of the index. The index holds the coordinates too, so measuring the
+     * candidates never reads the table.
+     */
+    public static final String TABLE_LOCATION = "location";
+
+    public static final String COLUMN_NAME = "name";
+    public static final String COLUMN_GEOHASH = "geohash";
+
+    /* About 5 metres, finer than a circle is ever covered with */
+    public static final int LOCATION_GEOHASH_PRECISION = 9;
+
+    /*
+     * The places are the user's, so an upgrade creates these if they are missing rather than
+     * dropping them, see WeatherDbHelper.
+     */
+    public static final String SQL_CREATE_LOCATION_TABLE =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_LOCATION + " (" +
+            COLUMN_ID        + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            COLUMN_NAME      + " TEXT NOT NULL UNIQUE ON CONFLICT REPLACE, " +
+            COLUMN_LATITUDE  + " REAL NOT NULL, " +
+            COLUMN_LONGITUDE + " REAL NOT NULL, " +
+            COLUMN_GEOHASH   + " TEXT NOT NULL);";
+
+    public static final String SQL_CREATE_LOCATION_GEOHASH_INDEX =
+            "CREATE INDEX IF NOT EXISTS " + TABLE_LOCATION + "_" + COLUMN_GEOHASH +
+            " ON " + TABLE_LOCATION +
+            " (" + COLUMN_GEOHASH + ", " + COLUMN_LATITUDE + ", " + COLUMN_LONGITUDE + ");";
+
+    /*
+     * The coordinates the server resolved locations set by name to, by the location normalized
+     * like CityCatalog.normalize, so going back to one needs no resolving. Only the most recently
+     * used are kept, see MAX_GEOCODES; using one stores it again, with the time it was used.
+     */
+    public static final String TABLE_GEOCODE = "geocode";
+
+    public static final String COLUMN_QUERY = "query";
+    public static final String COLUMN_USED_AT = "used_at";
+
+    public static final int MAX_GEOCODES = 64;
+
+    public static final String SQL_CREATE_GEOCODE_TABLE =
+            "CREATE TABLE " + TABLE_GEOCODE + " (" +
+            COLUMN_QUERY     + " TEXT PRIMARY KEY ON CONFLICT REPLACE, " +
+            COLUMN_LATITUDE  + " REAL NOT NULL, " +
+            COLUMN_LONGITUDE + " REAL NOT NULL, " +
+            COLUMN_USED_AT   + " INTEGER NOT NULL);";
+
+    /* Drops the locations used longest ago once there are more than MAX_GEOCODES, like tiles */
+    public static final String SQL_CREATE_GEOCODE_TRIM_TRIGGER =
+            "CREATE TRIGGER " + TABLE_GEOCODE + "_trim AFTER INSERT ON " + TABLE_GEOCODE +
+            " BEGIN DELETE FROM " + TABLE_GEOCODE + " WHERE " + COLUMN_QUERY + " IN (" +
+            "SELECT " + COLUMN_QUERY + " FROM " + TABLE_GEOCODE +
+            " ORDER BY " + COLUMN_USED_AT + " DESC LIMIT -1 OFFSET " + MAX_GEOCODES + "); END;";
+
+    /*
+     * One row per sync: when it started, how long it and each of its phases took in
+     * microseconds, how much it downloaded and stored, and how it ended. A phase that didn't run
+     * is NULL. Then the endpoint the forecast was requested from with the moving averages it was
+     * picked on, and the endpoint the request was hedged to, if any, with whether the hedge's
+     * answer was used. Then the geohash tile of the location, if known, with the TileLookup of
+     * what was stored for it. Last the location looked up in the geocode table, if it was set by
+     * name and had no coordinates yet, with whether they were found there. Only the most recent
+     * syncs are kept, see MAX_SYNC_METRICS.
+     */
+    public static final String TABLE_SYNC_METRICS = "sync_metrics";
+
+    public static final String COLUMN_STARTED_AT = "started_at";
+    public static final String COLUMN_TOTAL_US = "total_us";
+    public static final String COLUMN_BYTES = "bytes";
+    public static final String COLUMN_ROWS = "rows";
+    public static final String COLUMN_OUTCOME = "outcome";
+    public static final String COLUMN_ENDPOINT = "endpoint";
+    public static final String COLUMN_ENDPOINT_LATENCY_MS = "endpoint_latency_ms";
+    public static final String COLUMN_ENDPOINT_ERROR_RATE = "endpoint_error_rate";
+    public static final String COLUMN_HEDGE_ENDPOINT = "hedge_endpoint";
+    public static final String COLUMN_HEDGE_WON = "hedge_won";
+    public static final String COLUMN_TILE_LOOKUP = "tile_lookup";
+    public static final String COLUMN_GEOCODE_QUERY = "geocode_query";
+    public static final String COLUMN_GEOCODE_HIT = "geocode_hit";
+
+    public static final int MAX_SYNC_METRICS = 200;
+
+    public static final String SQL_CREATE_SYNC_METRICS_TABLE;
+
+    static {
+        StringBuilder sql = new StringBuilder("CREATE TABLE " + TABLE_SYNC_METRICS + " (" +
+                COLUMN_ID         + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_STARTED_AT + " INTEGER NOT NULL, " +
+                COLUMN_TOTAL_US   + " INTEGER NOT NULL, ");
+        for (SyncPhase phase : SyncPhase.values()) {
+            sql.append(phase.getColumnName()).append(" INTEGER, ");
+        }
+        sql.append(COLUMN_BYTES               + " INTEGER NOT NULL, " +
+                   COLUMN_ROWS                + " INTEGER NOT NULL, " +
+                   COLUMN_OUTCOME             + " TEXT NOT NULL, " +
+                   COLUMN_ENDPOINT            + " TEXT, " +
+                   COLUMN_ENDPOINT_LATENCY_MS + " REAL, " +
+                   COLUMN_ENDPOINT_ERROR_RATE + " REAL, " +
+                   COLUMN_HEDGE_ENDPOINT      + " TEXT, " +
+                   COLUMN_HEDGE_WON           + " INTEGER NOT NULL DEFAULT 0, " +
+                   COLUMN_TILE                + " TEXT, " +
+                   COLUMN_TILE_LOOKUP         + " TEXT, " +
+                   COLUMN_GEOCODE_QUERY       + " TEXT, " +
+                   COLUMN_GEOCODE_HIT         + " INTEGER NOT NULL DEFAULT 0);");
+        SQL_CREATE_SYNC_METRICS_TABLE = sql.toString();
+    }
+
+    /*
+     * Keeps the table bounded without the writer having to do anything: AUTOINCREMENT ids never
+     * repeat, so everything more than MAX_SYNC_METRICS ids behind the newest row can go.
+     */
+    public static final String SQL_CREATE_SYNC_METRICS_TRIM_TRIGGER =
+            "CREATE TRIGGER " + TABLE_SYNC_METRICS + "_trim AFTER INSERT ON " +
+            TABLE_SYNC_METRICS + " BEGIN " +
+            "DELETE FROM " + TABLE_SYNC_METRICS + " WHERE " + COLUMN_ID + " <= NEW." + COLUMN_ID +
+            " - " + MAX_SYNC_METRICS + "; END;";
+
+    private WeatherSchema() {
+    }
+}
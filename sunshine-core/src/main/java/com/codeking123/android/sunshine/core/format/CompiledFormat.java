@@ -0,0 +1,288 @@
+package com.codeking123.android.sunshine.core.format;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * A format string, such as "%1.0f°" or "%1$1.0f km/h %2$s", parsed once so it can be applied
+ * many times without going through {@link String#format}, which parses the pattern and creates a
+ * Formatter on every call.
+ * <p>
+ * Only the specifiers Sunshine's weather strings use are compiled: a number rounded to a whole
+ * value ("%.0f", optionally with a width and an explicit argument index) as the first argument, a
+ * String ("%s") as the second argument, and "%%". Anything else, as well as numbers that can't be
+ * rounded exactly with long arithmetic and locales that don't use ASCII digits, is handed to
+ * {@link String#format} with the same locale and arguments, so the output is always identical to
+ * what String.format produces.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class CompiledFormat {
+
+    private static final int SEGMENT_LITERAL = 0;
+    private static final int SEGMENT_NUMBER = 1;
+    private static final int SEGMENT_TEXT = 2;
+
+    /* Beyond this magnitude a double may not be rounded exactly by the long arithmetic below */
+    private static final double MAX_FAST_MAGNITUDE = 1L << 52;
+
+    private final String mPattern;
+    private final Locale mLocale;
+
+    /* False when the pattern uses a construct that isn't compiled and must use String.format */
+    private final boolean mCompiled;
+    private final boolean mUsesText;
+
+    private final int[] mSegmentKinds;
+    private final String[] mLiterals;
+    private final int[] mWidths;
+
+    /* Reused output buffer, and the digits of a rounded number, least significant first */
+    private final StringBuilder mBuffer = new StringBuilder();
+    private final char[] mDigits = new char[20];
+
+    private CompiledFormat(String pattern, Locale locale, boolean compiled, boolean usesText,
+                           int[] segmentKinds, String[] literals, int[] widths) {
+        mPattern = pattern;
+        mLocale = locale;
+        mCompiled = compiled;
+        mUsesText = usesText;
+        mSegmentKinds = segmentKinds;
+        mLiterals = literals;
+        mWidths = widths;
+    }
+
+    /**
+     * Parses a format string for the given locale.
+     *
+     * @param pattern A format string as accepted by {@link String#format}
+     * @param locale  The locale String.format would use, normally {@link Locale#getDefault()}
+     * @return The compiled format
+     */
+    public static CompiledFormat compile(String pattern, Locale locale) {
+        int length = pattern.length();
+        int[] kinds = new int[length + 1];
+        String[] literals = new String[length + 1];
+        int[] widths = new int[length + 1];
+        int segments = 0;
+
+        boolean compiled = usesAsciiDigits(locale);
+        boolean usesText = false;
+        int ordinaryIndex = 0;
+
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (compiled && i < length) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            /* %[argument_index$][width][.precision]conversion, without flags */
+            int j = i + 1;
+            int argumentIndex = 0;
+            int width = 0;
+            int precision = -1;
+
+            int numberStart = j;
+            while (j < length && Character.isDigit(pattern.charAt(j))) j++;
+            if (j > numberStart) {
+                if (pattern.charAt(numberStart) == '0') {
+                    /* A leading zero is the zero padding flag */
+                    compiled = false;
+                    break;
+                }
+                int number = Integer.parseInt(pattern.substring(numberStart, j));
+                if (j < length && pattern.charAt(j) == '$') {
+                    argumentIndex = number;
+                    j++;
+                    numberStart = j;
+                    while (j < length && Character.isDigit(pattern.charAt(j))) j++;
+                    if (j > numberStart) {
+                        if (pattern.charAt(numberStart) == '0') {
+                            compiled = false;
+                            break;
+                        }
+                        width = Integer.parseInt(pattern.substring(numberStart, j));
+                    }
+                } else {
+                    width = number;
+                }
+            }
+
+            if (j < length && pattern.charAt(j) == '.') {
+                j++;
+                numberStart = j;
+                while (j < length && Character.isDigit(pattern.charAt(j))) j++;
+                if (j == numberStart) {
+                    compiled = false;
+                    break;
+                }
+                precision = Integer.parseInt(pattern.substring(numberStart, j));
+            }
+
+            if (j >= length) {
+                compiled = false;
+                break;
+            }
+
+            char conversion = pattern.charAt(j);
+            if (conversion == '%' && argumentIndex == 0 && width == 0 && precision == -1) {
+                literal.append('%');
+                i = j + 1;
+                continue;
+            }
+
+            if (argumentIndex == 0) {
+                argumentIndex = ++ordinaryIndex;
+            }
+
+            int kind;
+            if (conversion == 'f' && precision == 0 && argumentIndex == 1) {
+                kind = SEGMENT_NUMBER;
+            } else if (conversion == 's' && precision == -1 && width == 0 && argumentIndex == 2) {
+                kind = SEGMENT_TEXT;
+                usesText = true;
+            } else {
+                compiled = false;
+                break;
+            }
+
+            if (literal.length() > 0) {
+                kinds[segments] = SEGMENT_LITERAL;
+                literals[segments] = literal.toString();
+                segments++;
+                literal.setLength(0);
+            }
+            kinds[segments] = kind;
+            widths[segments] = width;
+            segments++;
+            i = j + 1;
+        }
+
+        if (compiled && literal.length() > 0) {
+            kinds[segments] = SEGMENT_LITERAL;
+            literals[segments] = literal.toString();
+            segments++;
+        }
+
+        int[] segmentKinds = new int[segments];
+        String[] segmentLiterals = new String[segments];
+        int[] segmentWidths = new int[segments];
+        System.arraycopy(kinds, 0, segmentKinds, 0, segments);
+        System.arraycopy(literals, 0, segmentLiterals, 0, segments);
+        System.arraycopy(widths, 0, segmentWidths, 0, segments);
+
+        return new CompiledFormat(pattern, locale, compiled, usesText,
+                segmentKinds, segmentLiterals, segmentWidths);
+    }
+
+    /* Sunshine's formats are only compiled for locales whose digits and minus sign are ASCII */
+    private static boolean usesAsciiDigits(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        return symbols.getZeroDigit() == '0' && symbols.getMinusSign() == '-';
+    }
+
+    public Locale getLocale() {
+        return mLocale;
+    }
+
+    /**
+     * Equivalent to {@code String.format(locale, pattern, number)}.
+     */
+    public String format(double number) {
+        if (!canFormat(number, false)) {
+            return String.format(mLocale, mPattern, number);
+        }
+        synchronized (this) {
+            mBuffer.setLength(0);
+            appendSegments(mBuffer, number, null);
+            return mBuffer.toString();
+        }
+    }
+
+    /**
+     * Equivalent to {@code String.format(locale, pattern, number, text)}. The number is a float
+     * because that is what String.format is given for wind speeds, which matters when a pattern
+     * can't be compiled.
+     */
+    public String format(float number, String text) {
+        if (!canFormat(number, true)) {
+            return String.format(mLocale, mPattern, number, text);
+        }
+        synchronized (this) {
+            mBuffer.setLength(0);
+            appendSegments(mBuffer, number, text);
+            return mBuffer.toString();
+        }
+    }
+
+    /**
+     * Appends {@code String.format(locale, pattern, number)} to the given builder.
+     */
+    public void formatTo(StringBuilder out, double number) {
+        if (!canFormat(number, false)) {
+            out.append(String.format(mLocale, mPattern, number));
+            return;
+        }
+        synchronized (this) {
+            appendSegments(out, number, null);
+        }
+    }
+
+    private boolean canFormat(double number, boolean hasText) {
+        return mCompiled
+                && (hasText || !mUsesText)
+                && Math.abs(number) < MAX_FAST_MAGNITUDE;
+    }
+
+    private void appendSegments(StringBuilder out, double number, String text) {
+        for (int i = 0; i < mSegmentKinds.length; i++) {
+            switch (mSegmentKinds[i]) {
+                case SEGMENT_LITERAL:
+                    out.append(mLiterals[i]);
+                    break;
+                case SEGMENT_NUMBER:
+                    appendRounded(out, number, mWidths[i]);
+                    break;
+                case SEGMENT_TEXT:
+                    out.append(text);
+                    break;
+            }
+        }
+    }
+
+    /*
+     * Formatter rounds "%.0f" half up, and writes a minus sign for any negative value, including
+     * -0.0 and values that round to zero. Since |number| < 2^52, floor() and the subtraction below
+     * are exact, so comparing the fraction with one half rounds exactly as Formatter does.
+     */
+    private void appendRounded(StringBuilder out, double number, int width) {
+        boolean negative = Double.compare(number, 0.0) < 0;
+        double magnitude = Math.abs(number);
+        double whole = Math.floor(magnitude);
+        long rounded = (long) whole;
+        if (magnitude - whole >= 0.5) {
+            rounded++;
+        }
+
+        int digitCount = 0;
+        do {
+            mDigits[digitCount++] = (char) ('0' + (rounded % 10));
+            rounded /= 10;
+        } while (rounded != 0);
+
+        int length = digitCount + (negative ? 1 : 0);
+        for (int pad = length; pad < width; pad++) {
+            out.append(' ');
+        }
+        if (negative) {
+            out.append('-');
+        }
+        while (digitCount > 0) {
+            out.append(mDigits[--digitCount]);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.codeking123.android.sunshine.core.geo;
+
+/**
+ * A city of a {@link CityCatalog}.
+ */
+public final class City {
+
+    public final String name;
+
+    /* ISO 3166 code of the country, such as GB */
+    public final String country;
+
+    public final double latitude;
+    public final double longitude;
+
+    /* Ranks the suggestions for a prefix, most populous first */
+    public final int population;
+
+    public City(String name, String country, double latitude, double longitude, int population) {
+        this.name = name;
+        this.country = country;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.population = population;
+    }
+
+    /**
+     * @return The name and the country, such as "London, GB", which {@link CityCatalog#resolve}
+     * finds the city by again
+     */
+    public String getLabel() {
+        return name + ", " + country;
+    }
+
+    @Override
+    public String toString() {
+        return getLabel();
+    }
+}
@@ -0,0 +1,505 @@
+package com.codeking123.android.sunshine.core.geo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An offline catalogue of cities, searched by the start of a name as it is typed and resolved to
+ * coordinates once one is picked. Immutable, so one catalogue can serve every thread.
+ * <p>
+ * The names, normalized by {@link #normalize}, are kept in a radix trie: a node wherever names
+ * branch, labelled with the characters they share since the last one. The nodes are packed into
+ * arrays in breadth-first order, so the children of a node are next to each other, and the
+ * cities under a node, sorted by name, are a range. A node with more cities under it than a
+ * search returns keeps its most populous ones, so a one letter prefix costs no more than a
+ * whole name.
+ * <p>
+ * A catalogue is read from lines of tab separated name, country, latitude, longitude and
+ * population, as {@link #write} writes them. Lines starting with # are comments.
+ */
+public final class CityCatalog {
+
+    /* The most suggestions a search returns */
+    public static final int MAX_SUGGESTIONS = 8;
+
+    private static final int FIELDS = 5;
+
+    /* A city and its normalized name */
+    private static final class Entry {
+        final String key;
+        final City city;
+
+        Entry(String key, City city) {
+            this.key = key;
+            this.city = city;
+        }
+    }
+
+    /* By name, then the most populous first */
+    private static final Comparator<Entry> BY_KEY = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int byKey = a.key.compareTo(b.key);
+            if (byKey != 0) {
+                return byKey;
+            }
+            if (a.city.population != b.city.population) {
+                return a.city.population > b.city.population ? -1 : 1;
+            }
+            int byName = a.city.name.compareTo(b.city.name);
+            return byName != 0 ? byName : a.city.country.compareTo(b.city.country);
+        }
+    };
+
+    /* The cities in the order of BY_KEY; the name of city i is in [mNameOffsets[i], [i + 1]) */
+    private final char[] mNames;
+    private final int[] mNameOffsets;
+    private final String[] mCountries;
+    private final short[] mCountryIndexes;
+    private final float[] mLatitudes;
+    private final float[] mLongitudes;
+    private final int[] mPopulations;
+
+    /*
+     * The trie, the root first. The label of node i is in [mLabelOffsets[i], [i + 1]), its
+     * children are [mFirstChildren[i], [i + 1]) and its cities [mFirstCities[i], mEndCities[i]).
+     * The cities named exactly by the node come before those of its children.
+     */
+    private final char[] mLabels;
+    private final int[] mLabelOffsets;
+    private final int[] mFirstChildren;
+    private final int[] mFirstCities;
+    private final int[] mEndCities;
+
+    /*
+     * The most populous cities of each node with more than MAX_SUGGESTIONS of them, most
+     * populous first, in [mTopOffsets[i], [i + 1]) of mTop
+     */
+    private final int[] mTopOffsets;
+    private final int[] mTop;
+
+    private CityCatalog(List<Entry> entries) {
+        int count = entries.size();
+        mNameOffsets = new int[count + 1];
+        mCountryIndexes = new short[count];
+        mLatitudes = new float[count];
+        mLongitudes = new float[count];
+        mPopulations = new int[count];
+        StringBuilder names = new StringBuilder();
+        Map<String, Integer> countryIndexes = new HashMap<String, Integer>();
+        List<String> countries = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            City city = entries.get(i).city;
+            names.append(city.name);
+            mNameOffsets[i + 1] = names.length();
+            Integer countryIndex = countryIndexes.get(city.country);
+            if (countryIndex == null) {
+                countryIndex = countries.size();
+                countryIndexes.put(city.country, countryIndex);
+                countries.add(city.country);
+            }
+            mCountryIndexes[i] = (short) (int) countryIndex;
+            mLatitudes[i] = (float) city.latitude;
+            mLongitudes[i] = (float) city.longitude;
+            mPopulations[i] = city.population;
+        }
+        mNames = new char[names.length()];
+        names.getChars(0, names.length(), mNames, 0);
+        mCountries = countries.toArray(new String[countries.size()]);
+
+        /*
+         * Each node waiting to be laid out is {first city, end city, depth of its parent, depth}.
+         * Laying them out in the order they are found keeps siblings together.
+         */
+        List<int[]> nodes = new ArrayList<int[]>();
+        nodes.add(new int[]{0, count, 0, 0});
+        StringBuilder labels = new StringBuilder();
+        List<Integer> labelOffsets = new ArrayList<Integer>();
+        List<Integer> firstChildren = new ArrayList<Integer>();
+        for (int node = 0; node < nodes.size(); node++) {
+            int[] range = nodes.get(node);
+            int depth = range[3];
+            labelOffsets.add(labels.length());
+            if (depth > range[2]) {
+                labels.append(entries.get(range[0]).key, range[2], depth);
+            }
+            firstChildren.add(nodes.size());
+
+            int first = range[0];
+            while (first < range[1] && entries.get(first).key.length() == depth) {
+                first++;
+            }
+            while (first < range[1]) {
+                char branch = entries.get(first).key.charAt(depth);
+                int end = first + 1;
+                while (end < range[1] && entries.get(end).key.charAt(depth) == branch) {
+                    end++;
+                }
+                nodes.add(new int[]{first, end, depth, depth + commonPrefixLength(
+                        entries.get(first).key, entries.get(end - 1).key, depth)});
+                first = end;
+            }
+        }
+
+        int nodeCount = nodes.size();
+        labelOffsets.add(labels.length());
+        firstChildren.add(nodeCount);
+        mLabels = new char[labels.length()];
+        labels.getChars(0, labels.length(), mLabels, 0);
+        mLabelOffsets = toArray(labelOffsets);
+        mFirstChildren = toArray(firstChildren);
+        mFirstCities = new int[nodeCount];
+        mEndCities = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            mFirstCities[node] = nodes.get(node)[0];
+            mEndCities[node] = nodes.get(node)[1];
+        }
+
+        /* Children come after their parent, so going backwards their tops are known already */
+        int[][] tops = new int[nodeCount][];
+        int topCount = 0;
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            if (mEndCities[node] - mFirstCities[node] <= MAX_SUGGESTIONS) {
+                continue;
+            }
+            /* The cities of exactly this name are in order already */
+            List<Integer> candidates = new ArrayList<Integer>();
+            int exactEnd = Math.min(getExactEnd(node), mFirstCities[node] + MAX_SUGGESTIONS);
+            for (int city = mFirstCities[node]; city < exactEnd; city++) {
+                candidates.add(city);
+            }
+            for (int child = mFirstChildren[node]; child < mFirstChildren[node + 1]; child++) {
+                if (tops[child] != null) {
+                    for (int city : tops[child]) {
+                        candidates.add(city);
+                    }
+                } else {
+                    for (int city = mFirstCities[child]; city < mEndCities[child]; city++) {
+                        candidates.add(city);
+                    }
+                }
+            }
+            int[] ranked = rank(toArray(candidates), candidates.size());
+            tops[node] = new int[MAX_SUGGESTIONS];
+            System.arraycopy(ranked, 0, tops[node], 0, MAX_SUGGESTIONS);
+            topCount += MAX_SUGGESTIONS;
+        }
+        mTopOffsets = new int[nodeCount + 1];
+        mTop = new int[topCount];
+        for (int node = 0; node < nodeCount; node++) {
+            int offset = mTopOffsets[node];
+            if (tops[node] != null) {
+                System.arraycopy(tops[node], 0, mTop, offset, MAX_SUGGESTIONS);
+                offset += MAX_SUGGESTIONS;
+            }
+            mTopOffsets[node + 1] = offset;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException If a city's coordinates are out of range, its population
+     *                                  is negative, or its name or country can't be written
+     */
+    public static CityCatalog build(Collection<City> cities) {
+        List<Entry> entries = new ArrayList<Entry>(cities.size());
+        for (City city : cities) {
+            if (!(city.latitude >= -90 && city.latitude <= 90)
+                    || !(city.longitude >= -180 && city.longitude <= 180)) {
+                throw new IllegalArgumentException("Not a coordinate of " + city + ": "
+                        + city.latitude + ", " + city.longitude);
+            }
+            if (city.population < 0) {
+                throw new IllegalArgumentException("Population of " + city + " is negative");
+            }
+            checkField(city.name);
+            checkField(city.country);
+            String key = normalize(city.name);
+            /* A name of punctuation alone can't be typed, so can't be suggested */
+            if (!key.isEmpty()) {
+                entries.add(new Entry(key, city));
+            }
+        }
+        Collections.sort(entries, BY_KEY);
+        return new CityCatalog(entries);
+    }
+
+    /**
+     * Reads a catalogue as {@link #write} writes it.
+     *
+     * @throws IOException If it can't be read, or a line isn't a city
+     */
+    public static CityCatalog read(Reader reader) throws IOException {
+        try {
+            return build(readCities(reader));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the cities of a catalogue as {@link #write} writes them, without checking them as
+     * {@link #build} does.
+     *
+     * @throws IOException If they can't be read, or a line isn't a city
+     */
+    public static List<City> readCities(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<City> cities = new ArrayList<City>();
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            if (fields.length != FIELDS) {
+                throw new IOException("Line " + number + " has " + fields.length
+                        + " fields rather than " + FIELDS + ": " + line);
+            }
+            try {
+                cities.add(new City(fields[0], fields[1], Double.parseDouble(fields[2]),
+                        Double.parseDouble(fields[3]), Integer.parseInt(fields[4])));
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + number + " is not a city: " + line, e);
+            }
+        }
+        return cities;
+    }
+
+    /**
+     * Writes the cities a line each, their coordinates to 4 decimals, about 10 m.
+     *
+     * @throws IllegalArgumentException If a name or country has a tab or a line break
+     */
+    public static void write(Collection<City> cities, Writer writer) throws IOException {
+        for (City city : cities) {
+            checkField(city.name);
+            checkField(city.country);
+            writer.write(String.format(Locale.US, "%s\t%s\t%.4f\t%.4f\t%d\n", city.name,
+                    city.country, city.latitude, city.longitude, city.population));
+        }
+    }
+
+    /**
+     * The form names are searched in: without accents, in lower case, and with every run of
+     * spaces and punctuation made a single space, so "Saint-Étienne" is "saint etienne".
+     */
+    public static String normalize(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder key = new StringBuilder(decomposed.length());
+        boolean separated = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (separated && key.length() > 0) {
+                    key.append(' ');
+                }
+                separated = false;
+                key.append(Character.toLowerCase(c));
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                separated = true;
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param prefix The start of a name, as typed
+     * @param limit  How many suggestions to return, at most {@link #MAX_SUGGESTIONS}
+     * @return The most populous cities whose names start with the prefix, most populous first
+     * @throws IllegalArgumentException If the limit is out of range
+     */
+    public List<City> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("Limit out of range: " + limit);
+        }
+        String key = normalize(prefix);
+        int node = key.isEmpty() ? -1 : find(key, false);
+        if (node < 0) {
+            return Collections.emptyList();
+        }
+
+        List<City> suggestions = new ArrayList<City>(limit);
+        if (mTopOffsets[node + 1] > mTopOffsets[node]) {
+            for (int i = 0; i < limit; i++) {
+                suggestions.add(getCity(mTop[mTopOffsets[node] + i]));
+            }
+        } else {
+            int count = mEndCities[node] - mFirstCities[node];
+            int[] ranked = new int[count];
+            for (int i = 0; i < count; i++) {
+                ranked[i] = mFirstCities[node] + i;
+            }
+            rank(ranked, count);
+            for (int i = 0; i < count && i < limit; i++) {
+                suggestions.add(getCity(ranked[i]));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Finds a city by its name, or by its name and country as {@link City#getLabel} gives them.
+     * Of the cities of the same name, the most populous.
+     *
+     * @return The city, or null if there is none of that name
+     */
+    public City resolve(String query) {
+        City city = resolve(normalize(query), null);
+        int comma = query.lastIndexOf(',');
+        if (city == null && comma >= 0) {
+            city = resolve(normalize(query.substring(0, comma)),
+                    query.substring(comma + 1).trim());
+        }
+        return city;
+    }
+
+    private City resolve(String key, String country) {
+        int node = key.isEmpty() ? -1 : find(key, true);
+        if (node < 0) {
+            return null;
+        }
+        for (int city = mFirstCities[node]; city < getExactEnd(node); city++) {
+            if (country == null || country.equalsIgnoreCase(mCountries[mCountryIndexes[city]])) {
+                return getCity(city);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of cities
+     */
+    public int size() {
+        return mPopulations.length;
+    }
+
+    /**
+     * @return The number of nodes of the trie
+     */
+    public int getNodeCount() {
+        return mFirstCities.length;
+    }
+
+    /**
+     * @return Roughly what the catalogue takes of the heap, counting its arrays but not the
+     * country codes, which are few and short
+     */
+    public long getSizeInBytes() {
+        final int header = 16;
+        return 2L * mNames.length + 4L * mNameOffsets.length + 2L * mCountryIndexes.length
+                + 4L * mLatitudes.length + 4L * mLongitudes.length + 4L * mPopulations.length
+                + 2L * mLabels.length + 4L * mLabelOffsets.length + 4L * mFirstChildren.length
+                + 4L * mFirstCities.length + 4L * mEndCities.length + 4L * mTopOffsets.length
+                + 4L * mTop.length + 13 * header;
+    }
+
+    /*
+     * The node of the key, or with exact false the node under which every name starts with the
+     * key; -1 if there is none
+     */
+    private int find(String key, boolean exact) {
+        int node = 0;
+        int i = 0;
+        while (i < key.length()) {
+            node = getChild(node, key.charAt(i));
+            if (node < 0) {
+                return -1;
+            }
+            for (int j = mLabelOffsets[node]; j < mLabelOffsets[node + 1]; j++, i++) {
+                if (i == key.length()) {
+                    /* The key ends part way along the label */
+                    return exact ? -1 : node;
+                }
+                if (mLabels[j] != key.charAt(i)) {
+                    return -1;
+                }
+            }
+        }
+        return node;
+    }
+
+    /* The child whose label starts with the character, found by bisecting the children */
+    private int getChild(int node, char c) {
+        int low = mFirstChildren[node];
+        int high = mFirstChildren[node + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char first = mLabels[mLabelOffsets[middle]];
+            if (first < c) {
+                low = middle + 1;
+            } else if (first > c) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /* The end of the cities named exactly by the node, which come before those of its children */
+    private int getExactEnd(int node) {
+        return mFirstChildren[node + 1] > mFirstChildren[node]
+                ? mFirstCities[mFirstChildren[node]]
+                : mEndCities[node];
+    }
+
+    private City getCity(int city) {
+        return new City(new String(mNames, mNameOffsets[city],
+                mNameOffsets[city + 1] - mNameOffsets[city]),
+                mCountries[mCountryIndexes[city]], mLatitudes[city], mLongitudes[city],
+                mPopulations[city]);
+    }
+
+    /*
+     * Sorts the first count cities most populous first, the first in the catalogue first at the
+     * same population. By insertion, as there are never more than a few hundred.
+     */
+    private int[] rank(int[] cities, int count) {
+        for (int i = 1; i < count; i++) {
+            int city = cities[i];
+            int j = i - 1;
+            while (j >= 0 && (mPopulations[cities[j]] < mPopulations[city]
+                    || (mPopulations[cities[j]] == mPopulations[city] && cities[j] > city))) {
+                cities[j + 1] = cities[j];
+                j--;
+            }
+            cities[j + 1] = city;
+        }
+        return cities;
+    }
+
+    private static int commonPrefixLength(String a, String b, int from) {
+        int i = from;
+        while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i - from;
+    }
+
+    private static void checkField(String field) {
+        if (field.indexOf('\t') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Tab or line break in " + field);
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
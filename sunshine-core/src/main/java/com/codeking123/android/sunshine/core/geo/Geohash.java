@@ -0,0 +1,132 @@
+package com.codeking123.android.sunshine.core.geo;
+
+import java.util.Arrays;
+
+/**
+ * Geohashes: a point's cell in a grid that halves the world alternately by longitude and by
+ * latitude, five halvings per base 32 character. Every point of a cell has the same hash, and a
+ * hash's prefixes are the cells that contain it, so nearby points mostly share a long prefix.
+ * <p>
+ * At precision 5 a cell is about 4.9 km wide and 4.9 km high at the equator, at 6 about 1.2 km by
+ * 0.6 km, and each further character divides it by 32.
+ */
+public final class Geohash {
+
+    /* 12 characters is 60 bits, past the precision of the coordinates anyone gives us */
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private static final int[] BASE32_VALUES = new int['z' + 1];
+
+    static {
+        Arrays.fill(BASE32_VALUES, -1);
+        for (int i = 0; i < BASE32.length; i++) {
+            BASE32_VALUES[BASE32[i]] = i;
+        }
+    }
+
+    private Geohash() {
+    }
+
+    /**
+     * @param latitude  Between -90 and 90
+     * @param longitude Between -180 and 180
+     * @param precision The number of characters, between 1 and {@link #MAX_PRECISION}
+     * @return The hash of the cell of the point
+     * @throws IllegalArgumentException If a coordinate or the precision is out of range
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException(
+                    "Not a coordinate: " + latitude + ", " + longitude);
+        }
+        checkPrecision(precision);
+
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean isLongitudeBit = true;
+        for (int i = 0; i < precision; i++) {
+            int value = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                value <<= 1;
+                if (isLongitudeBit) {
+                    double middle = (minLon + maxLon) / 2;
+                    if (longitude >= middle) {
+                        value |= 1;
+                        minLon = middle;
+                    } else {
+                        maxLon = middle;
+                    }
+                } else {
+                    double middle = (minLat + maxLat) / 2;
+                    if (latitude >= middle) {
+                        value |= 1;
+                        minLat = middle;
+                    } else {
+                        maxLat = middle;
+                    }
+                }
+                isLongitudeBit = !isLongitudeBit;
+            }
+            hash[i] = BASE32[value];
+        }
+        return new String(hash);
+    }
+
+    /**
+     * @return The south, west, north and east edges of the cell, in that order
+     * @throws IllegalArgumentException If the hash is empty, too long or not base 32
+     */
+    public static double[] getBounds(String hash) {
+        checkPrecision(hash.length());
+
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        boolean isLongitudeBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            int value = c < BASE32_VALUES.length ? BASE32_VALUES[c] : -1;
+            if (value == -1) {
+                throw new IllegalArgumentException("Not a geohash: " + hash);
+            }
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean isSet = (value & (1 << bit)) != 0;
+                if (isLongitudeBit) {
+                    double middle = (minLon + maxLon) / 2;
+                    if (isSet) {
+                        minLon = middle;
+                    } else {
+                        maxLon = middle;
+                    }
+                } else {
+                    double middle = (minLat + maxLat) / 2;
+                    if (isSet) {
+                        minLat = middle;
+                    } else {
+                        maxLat = middle;
+                    }
+                }
+                isLongitudeBit = !isLongitudeBit;
+            }
+        }
+        return new double[]{minLat, minLon, maxLat, maxLon};
+    }
+
+    /**
+     * @return The latitude and longitude of the middle of the cell, the one point that stands for
+     * every point of it
+     * @throws IllegalArgumentException If the hash is empty, too long or not base 32
+     */
+    public static double[] getCenter(String hash) {
+        double[] bounds = getBounds(hash);
+        return new double[]{(bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2};
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision out of range: " + precision);
+        }
+    }
+}
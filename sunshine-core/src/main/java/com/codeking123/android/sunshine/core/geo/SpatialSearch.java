@@ -0,0 +1,342 @@
+package com.codeking123.android.sunshine.core.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Radius and nearest neighbour searches over points indexed by their geohash, such as the
+ * location table of WeatherSchema. A circle is covered by the few geohash cells it overlaps, the
+ * points of a cell are a range of the sorted geohashes, so an index on the geohash finds them
+ * without looking at the rest, and only those points are measured.
+ * <p>
+ * Reading the ranges is left to a {@link PointSource}, which runs {@link #selection} against
+ * its store; this class decides which ranges to read and ranks what they hold.
+ */
+public final class SpatialSearch {
+
+    /* The mean radius of the Earth */
+    public static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    /* Half way round the Earth, which no two points are further apart than */
+    public static final double MAX_DISTANCE_METERS = Math.PI * EARTH_RADIUS_METERS;
+
+    /*
+     * A circle is covered by the smallest cells that take no more than this many, so not much
+     * more than its bounding box is read. Cells next to each other in geohash order are read as
+     * one range.
+     */
+    static final int MAX_CELLS = 64;
+
+    /*
+     * The nearest points are looked for within a radius that grows until enough are found. It
+     * starts at about the spacing of a million points over the globe, then grows by the factor
+     * that would have found enough were the points spread evenly, within these bounds.
+     */
+    static final double NEAREST_INITIAL_RADIUS_METERS = 25000;
+    static final double NEAREST_MIN_GROWTH = 2;
+    static final double NEAREST_MAX_GROWTH = 16;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    /**
+     * Reads points from wherever they are stored.
+     */
+    public interface PointSource {
+
+        /**
+         * Adds every stored point whose geohash is in one of the ranges to the candidates.
+         *
+         * @param ranges The ranges as the selection arguments of {@link #selection}: pairs of
+         *               the first geohash of a range and the geohash after its last. Null to
+         *               add every point.
+         */
+        void scan(String[] ranges, Candidates candidates);
+    }
+
+    /**
+     * The points of a scan within the radius of the search, by distance.
+     */
+    public static final class Candidates {
+
+        private final double mLatitude;
+        private final double mLongitude;
+        private final double mRadiusMeters;
+
+        private final List<Neighbor> mNeighbors = new ArrayList<Neighbor>();
+
+        Candidates(double latitude, double longitude, double radiusMeters) {
+            mLatitude = latitude;
+            mLongitude = longitude;
+            mRadiusMeters = radiusMeters;
+        }
+
+        public void add(long id, double latitude, double longitude) {
+            double distance = distanceMeters(mLatitude, mLongitude, latitude, longitude);
+            if (distance <= mRadiusMeters) {
+                mNeighbors.add(new Neighbor(id, distance));
+            }
+        }
+
+        int size() {
+            return mNeighbors.size();
+        }
+
+        /* The count nearest of the points within the radius, nearest first */
+        List<Neighbor> nearest(int count) {
+            Collections.sort(mNeighbors, Neighbor.BY_DISTANCE);
+            return mNeighbors.size() <= count
+                    ? mNeighbors
+                    : new ArrayList<Neighbor>(mNeighbors.subList(0, count));
+        }
+    }
+
+    /**
+     * A point found by a search: the id its store knows it by and how far it is from the center
+     * of the search.
+     */
+    public static final class Neighbor {
+
+        /* Nearest first; the lower id first at the same distance, so results are stable */
+        static final Comparator<Neighbor> BY_DISTANCE = new Comparator<Neighbor>() {
+            @Override
+            public int compare(Neighbor a, Neighbor b) {
+                int byDistance = Double.compare(a.distanceMeters, b.distanceMeters);
+                return byDistance != 0 ? byDistance : (a.id < b.id ? -1 : (a.id == b.id ? 0 : 1));
+            }
+        };
+
+        public final long id;
+        public final double distanceMeters;
+
+        Neighbor(long id, double distanceMeters) {
+            this.id = id;
+            this.distanceMeters = distanceMeters;
+        }
+    }
+
+    private SpatialSearch() {
+    }
+
+    /**
+     * @param precision The precision the source's geohashes are stored at
+     * @return The points within the radius of the coordinates, nearest first
+     * @throws IllegalArgumentException If a coordinate, the radius or the precision is out of
+     *                                  range
+     */
+    public static List<Neighbor> withinRadius(PointSource source, double latitude,
+                                              double longitude, double radiusMeters,
+                                              int precision) {
+        if (!(radiusMeters >= 0)) {
+            throw new IllegalArgumentException("Radius out of range: " + radiusMeters);
+        }
+        Candidates candidates = new Candidates(latitude, longitude, radiusMeters);
+        source.scan(cover(latitude, longitude, radiusMeters, precision), candidates);
+        return candidates.nearest(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the points nearest to the coordinates by searching ever larger circles around them
+     * until one holds enough points. Every point nearer than the edge of a circle is in it, so
+     * the nearest of those are the nearest of all.
+     *
+     * @param count             How many points to find
+     * @param maxDistanceMeters How far a point may be, at most {@link #MAX_DISTANCE_METERS}
+     * @param precision         The precision the source's geohashes are stored at
+     * @return Up to count points, nearest first; fewer if there aren't that many within the
+     * distance
+     * @throws IllegalArgumentException If a coordinate, the count, the distance or the precision
+     *                                  is out of range
+     */
+    public static List<Neighbor> nearest(PointSource source, double latitude, double longitude,
+                                         int count, double maxDistanceMeters, int precision) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count out of range: " + count);
+        }
+        if (!(maxDistanceMeters >= 0)) {
+            throw new IllegalArgumentException("Distance out of range: " + maxDistanceMeters);
+        }
+        maxDistanceMeters = Math.min(maxDistanceMeters, MAX_DISTANCE_METERS);
+
+        double radius = Math.min(NEAREST_INITIAL_RADIUS_METERS, maxDistanceMeters);
+        while (true) {
+            String[] ranges = cover(latitude, longitude, radius, precision);
+            /* Past a certain size every point is read; keep all of them */
+            if (ranges == null) {
+                radius = maxDistanceMeters;
+            }
+
+            Candidates candidates = new Candidates(latitude, longitude, radius);
+            source.scan(ranges, candidates);
+            if (candidates.size() >= count || radius >= maxDistanceMeters) {
+                return candidates.nearest(count);
+            }
+            /* With a quarter more, as the points are seldom spread that evenly */
+            double growth = candidates.size() == 0
+                    ? NEAREST_MAX_GROWTH
+                    : 1.25 * Math.sqrt((double) count / candidates.size());
+            growth = Math.max(NEAREST_MIN_GROWTH, Math.min(growth, NEAREST_MAX_GROWTH));
+            radius = Math.min(radius * growth, maxDistanceMeters);
+        }
+    }
+
+    /**
+     * Covers a circle with geohash cells: the smallest cells, no finer than the precision, of
+     * which no more than {@link #MAX_CELLS} overlap the circle's bounding box.
+     *
+     * @param precision The precision the geohashes searched are stored at
+     * @return The cells as ranges of geohashes, see {@link PointSource#scan}; or null if the
+     * circle is so large that reading every point is as good
+     * @throws IllegalArgumentException If a coordinate, the radius or the precision is out of
+     *                                  range
+     */
+    public static String[] cover(double latitude, double longitude, double radiusMeters,
+                                 int precision) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException(
+                    "Not a coordinate: " + latitude + ", " + longitude);
+        }
+        if (!(radiusMeters >= 0)) {
+            throw new IllegalArgumentException("Radius out of range: " + radiusMeters);
+        }
+        if (precision < 1 || precision > Geohash.MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision out of range: " + precision);
+        }
+
+        double angle = radiusMeters / EARTH_RADIUS_METERS;
+        if (angle >= Math.PI) {
+            return null;
+        }
+
+        double latitudeSpan = Math.toDegrees(angle);
+        double minLatitude = latitude - latitudeSpan;
+        double maxLatitude = latitude + latitudeSpan;
+        double minLongitude;
+        double maxLongitude;
+        if (minLatitude <= -90 || maxLatitude >= 90) {
+            /* The circle takes in a pole, and so every longitude */
+            minLatitude = Math.max(minLatitude, -90);
+            maxLatitude = Math.min(maxLatitude, 90);
+            minLongitude = -180;
+            maxLongitude = 180;
+        } else {
+            /* The widest point of a circle is nearer the pole than its center */
+            double longitudeSpan = Math.toDegrees(Math.asin(
+                    Math.sin(angle) / Math.cos(Math.toRadians(latitude))));
+            minLongitude = longitude - longitudeSpan;
+            maxLongitude = longitude + longitudeSpan;
+        }
+
+        for (; precision >= 1; precision--) {
+            /* The bits of a geohash alternate, starting with longitude */
+            long columns = 1L << ((5 * precision + 1) / 2);
+            long rows = 1L << (5 * precision / 2);
+            double cellWidth = 360.0 / columns;
+            double cellHeight = 180.0 / rows;
+
+            long firstRow = (long) Math.floor((minLatitude + 90) / cellHeight);
+            long lastRow = Math.min((long) Math.floor((maxLatitude + 90) / cellHeight), rows - 1);
+            /* Beyond ±180° the columns wrap round, see below */
+            long firstColumn = (long) Math.floor((minLongitude + 180) / cellWidth);
+            long columnCount = Math.min(
+                    (long) Math.floor((maxLongitude + 180) / cellWidth) - firstColumn + 1,
+                    columns);
+
+            if ((lastRow - firstRow + 1) * columnCount > MAX_CELLS) {
+                continue;
+            }
+
+            String[] cells = new String[(int) ((lastRow - firstRow + 1) * columnCount)];
+            int i = 0;
+            for (long row = firstRow; row <= lastRow; row++) {
+                for (long column = firstColumn; column < firstColumn + columnCount; column++) {
+                    long wrapped = ((column % columns) + columns) % columns;
+                    cells[i++] = Geohash.encode(-90 + (row + 0.5) * cellHeight,
+                            -180 + (wrapped + 0.5) * cellWidth, precision);
+                }
+            }
+            return toRanges(cells);
+        }
+        return null;
+    }
+
+    /**
+     * @param column The column of the geohashes
+     * @param ranges Ranges returned by {@link #cover}, which are the selection's arguments
+     * @return A SQL selection of the rows in the ranges, which an index on the column answers
+     */
+    public static String selection(String column, String[] ranges) {
+        StringBuilder selection = new StringBuilder();
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (i > 0) {
+                selection.append(" OR ");
+            }
+            selection.append('(').append(column).append(" >= ? AND ")
+                    .append(column).append(" < ?)");
+        }
+        return selection.toString();
+    }
+
+    /**
+     * @return The great circle distance between two points
+     */
+    public static double distanceMeters(double latitude1, double longitude1,
+                                        double latitude2, double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfDeltaLambda = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinHalfDeltaPhi * sinHalfDeltaPhi
+                + Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /*
+     * Sorts the cells and merges the neighbours in geohash order, which are often neighbours on
+     * the map too, into ranges.
+     */
+    private static String[] toRanges(String[] cells) {
+        Arrays.sort(cells);
+        List<String> ranges = new ArrayList<String>();
+        String first = cells[0];
+        String last = cells[0];
+        for (int i = 1; i < cells.length; i++) {
+            if (!cells[i].equals(next(last))) {
+                ranges.add(first);
+                ranges.add(after(last));
+                first = cells[i];
+            }
+            last = cells[i];
+        }
+        ranges.add(first);
+        ranges.add(after(last));
+        return ranges.toArray(new String[ranges.size()]);
+    }
+
+    /* The cell after the one given in geohash order, or null after the last */
+    private static String next(String cell) {
+        char[] chars = cell.toCharArray();
+        for (int i = chars.length - 1; i >= 0; i--) {
+            int value = BASE32.indexOf(chars[i]);
+            if (value < BASE32.length() - 1) {
+                chars[i] = BASE32.charAt(value + 1);
+                return new String(chars);
+            }
+            chars[i] = BASE32.charAt(0);
+        }
+        return null;
+    }
+
+    /*
+     * A string after every geohash in the cell, and before any outside it that sorts after it:
+     * the last character bumped past its base 32 digit. That may not be base 32 itself, as after
+     * '9' and 'z', but sorts right.
+     */
+    private static String after(String cell) {
+        char[] chars = cell.toCharArray();
+        chars[chars.length - 1]++;
+        return new String(chars);
+    }
+}
@@ -0,0 +1,30 @@
+package com.codeking123.android.sunshine.core.geo;
+
+/**
+ * What a sync found stored for the geohash tile of its location. Stored by name.
+ */
+public enum TileLookup {
+
+    /* A forecast fetched within the time to live, used instead of fetching */
+    HIT,
+    /* A forecast older than the time to live, fetched again */
+    EXPIRED,
+    /* No forecast for the tile */
+    MISS;
+
+    /* The time a tile was fetched at when it never was */
+    public static final long NOT_FETCHED = -1;
+
+    /**
+     * @param fetchedAtMillis When the tile's forecast was stored, or {@link #NOT_FETCHED}
+     * @param ttlMillis       How long a stored forecast stays fresh
+     */
+    public static TileLookup of(long fetchedAtMillis, long nowMillis, long ttlMillis) {
+        if (fetchedAtMillis == NOT_FETCHED) {
+            return MISS;
+        }
+        /* A forecast from the future means the clock was changed; don't trust it */
+        long age = nowMillis - fetchedAtMillis;
+        return age >= 0 && age < ttlMillis ? HIT : EXPIRED;
+    }
+}
@@ -0,0 +1,41 @@
+package com.codeking123.android.sunshine.core.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Percentiles of a sample, using the nearest-rank method: the p-th percentile is the smallest
+ * value that at least p percent of the sample is less than or equal to. Every percentile is
+ * therefore a value that was actually observed, which is what we want for latencies.
+ */
+public final class Percentiles {
+
+    private final long[] mSorted;
+
+    /**
+     * @param values The sample. Only the first {@code count} values are used; the array isn't
+     *               modified.
+     */
+    public Percentiles(long[] values, int count) {
+        mSorted = Arrays.copyOf(values, count);
+        Arrays.sort(mSorted);
+    }
+
+    public int getCount() {
+        return mSorted.length;
+    }
+
+    /**
+     * @param percentile Between 0 (exclusive) and 100 (inclusive)
+     * @return The value at the percentile, or 0 for an empty sample
+     */
+    public long get(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile out of range: " + percentile);
+        }
+        if (mSorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * mSorted.length / 100);
+        return mSorted[Math.max(rank, 1) - 1];
+    }
+}
@@ -0,0 +1,75 @@
+package com.codeking123.android.sunshine.core.metrics;
+
+import com.codeking123.android.sunshine.core.geo.TileLookup;
+
+/**
+ * What one sync did and how long each of its phases took. Phases the sync never reached, because
+ * it failed or had nothing to store, have no duration.
+ */
+public final class SyncMetrics {
+
+    /* Marks a phase that didn't run */
+    public static final long NOT_RUN = -1;
+
+    public final long startedAtMillis;
+    public final long totalNanos;
+    public final long bytes;
+    public final int rows;
+    public final SyncOutcome outcome;
+
+    /*
+     * The endpoint the forecast was requested from and its moving averages when it was picked,
+     * see EndpointRegistry. Null and NaN if the sync didn't get as far as picking one.
+     */
+    public final String endpoint;
+    public final double endpointLatencyEwmaMillis;
+    public final double endpointErrorRateEwma;
+
+    /* The endpoint the request was hedged to, or null, and whether its answer was used */
+    public final String hedgeEndpoint;
+    public final boolean hedgeWon;
+
+    /*
+     * The geohash tile of the location and what was stored for it. Null if the sync had no
+     * coordinates to find the tile by.
+     */
+    public final String tile;
+    public final TileLookup tileLookup;
+
+    /*
+     * The location looked up in the geocode cache and whether its coordinates were found there.
+     * Null if the location had coordinates already.
+     */
+    public final String geocodeQuery;
+    public final boolean geocodeHit;
+
+    private final long[] mPhaseNanos;
+
+    SyncMetrics(long startedAtMillis, long totalNanos, long[] phaseNanos, long bytes, int rows,
+                SyncOutcome outcome, String endpoint, double endpointLatencyEwmaMillis,
+                double endpointErrorRateEwma, String hedgeEndpoint, boolean hedgeWon,
+                String tile, TileLookup tileLookup, String geocodeQuery, boolean geocodeHit) {
+        this.startedAtMillis = startedAtMillis;
+        this.totalNanos = totalNanos;
+        this.bytes = bytes;
+        this.rows = rows;
+        this.outcome = outcome;
+        this.endpoint = endpoint;
+        this.endpointLatencyEwmaMillis = endpointLatencyEwmaMillis;
+        this.endpointErrorRateEwma = endpointErrorRateEwma;
+        this.hedgeEndpoint = hedgeEndpoint;
+        this.hedgeWon = hedgeWon;
+        this.tile = tile;
+        this.tileLookup = tileLookup;
+        this.geocodeQuery = geocodeQuery;
+        this.geocodeHit = geocodeHit;
+        mPhaseNanos = phaseNanos;
+    }
+
+    /**
+     * @return How long the phase took in nanoseconds, or {@link #NOT_RUN}
+     */
+    public long getPhaseNanos(SyncPhase phase) {
+        return mPhaseNanos[phase.ordinal()];
+    }
+}
@@ -0,0 +1,24 @@
+package com.codeking123.android.sunshine.core.metrics;
+
+/**
+ * How a sync ended. Stored by name.
+ */
+public enum SyncOutcome {
+
+    /* New weather was stored */
+    SUCCESS,
+    /* The forecast held an error or no days, so nothing was stored */
+    NO_DATA,
+    /* The request could not be made or the response not read */
+    NETWORK_ERROR,
+    /* The response didn't arrive within the sync's timeouts or its deadline */
+    TIMEOUT,
+    /* The server answered with an error status */
+    HTTP_ERROR,
+    /* The response was not a forecast we could parse */
+    PARSE_ERROR,
+    /* The forecast couldn't be written to the database */
+    DB_ERROR,
+    /* Anything else */
+    ERROR
+}
@@ -0,0 +1,47 @@
+package com.codeking123.android.sunshine.core.metrics;
+
+/**
+ * The steps of a weather sync, in the order they run. Each is stored in its own column of the
+ * sync metrics table, as a duration in microseconds.
+ */
+public enum SyncPhase {
+
+    /*
+     * Looking up the forecast stored for the geohash tile of the location, and reading it when
+     * it's fresh enough to be used instead of fetching
+     */
+    TILE_LOOKUP("tile_lookup_us"),
+    /* Reading the location preference and building the request URL */
+    URL_BUILD("url_build_us"),
+    /* From starting the call until a connection is ready: DNS, TCP and TLS, or pool reuse */
+    CONNECT("connect_us"),
+    /* From having a connection until the response headers start to arrive */
+    FIRST_BYTE("first_byte_us"),
+    /* From the response headers until the whole body has been read */
+    DOWNLOAD("download_us"),
+    PARSE("parse_us"),
+    DB_DELETE("db_delete_us"),
+    DB_INSERT("db_insert_us"),
+    /* Deciding whether to notify and picking today's weather out of what was parsed */
+    NOTIFICATION("notification_us"),
+    /*
+     * Reading the forecast the sync replaces, before DB_DELETE, and evaluating the user's alert
+     * rules against what changed. Only runs if there are rules.
+     */
+    ALERTS("alerts_us"),
+    /*
+     * Decoding the icon, building and posting the notification. This runs on its own thread
+     * after the sync has finished, and is added to the sync's row once it is done.
+     */
+    NOTIFICATION_BUILD("notification_build_us");
+
+    private final String mColumnName;
+
+    SyncPhase(String columnName) {
+        mColumnName = columnName;
+    }
+
+    public String getColumnName() {
+        return mColumnName;
+    }
+}
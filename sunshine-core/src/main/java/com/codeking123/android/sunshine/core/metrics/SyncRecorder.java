@@ -0,0 +1,140 @@
+package com.codeking123.android.sunshine.core.metrics;
+
+import com.codeking123.android.sunshine.core.geo.TileLookup;
+
+import java.util.Arrays;
+
+/**
+ * Times the phases of a single sync. Phases are bracketed with {@link #begin} and {@link #end},
+ * which may also be called from callbacks such as an HTTP client's events; durations measured
+ * some other way are added with {@link #record}.
+ * <p>
+ * Thread-safe: the sync's own thread and the HTTP client's threads report to it at once. A
+ * caller that has to check something before reporting can hold the recorder's lock meanwhile.
+ */
+public final class SyncRecorder {
+
+    /* Marks a phase that hasn't begun */
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final Ticker mTicker;
+    private final long mStartedAtMillis;
+    private final long mStartNanos;
+
+    private final long[] mPhaseNanos = new long[SyncPhase.values().length];
+    private final long[] mPhaseStartNanos = new long[SyncPhase.values().length];
+
+    private long mBytes;
+    private int mRows;
+
+    private String mEndpoint;
+    private double mEndpointLatencyEwmaMillis = Double.NaN;
+    private double mEndpointErrorRateEwma = Double.NaN;
+    private String mHedgeEndpoint;
+    private boolean mHedgeWon;
+
+    private String mTile;
+    private TileLookup mTileLookup;
+
+    private String mGeocodeQuery;
+    private boolean mGeocodeHit;
+
+    public SyncRecorder(Ticker ticker, long startedAtMillis) {
+        mTicker = ticker;
+        mStartedAtMillis = startedAtMillis;
+        mStartNanos = ticker.nanoTime();
+        Arrays.fill(mPhaseNanos, SyncMetrics.NOT_RUN);
+        Arrays.fill(mPhaseStartNanos, NOT_STARTED);
+    }
+
+    public synchronized void begin(SyncPhase phase) {
+        mPhaseStartNanos[phase.ordinal()] = mTicker.nanoTime();
+    }
+
+    /**
+     * Ends a phase started with {@link #begin}. Ending a phase that wasn't begun does nothing.
+     */
+    public synchronized void end(SyncPhase phase) {
+        int index = phase.ordinal();
+        if (mPhaseStartNanos[index] != NOT_STARTED) {
+            record(phase, mTicker.nanoTime() - mPhaseStartNanos[index]);
+            mPhaseStartNanos[index] = NOT_STARTED;
+        }
+    }
+
+    /**
+     * Adds to the time spent in a phase. A phase that runs more than once, such as a connect that
+     * is retried, is reported as the sum of its runs.
+     */
+    public synchronized void record(SyncPhase phase, long nanos) {
+        int index = phase.ordinal();
+        mPhaseNanos[index] = (mPhaseNanos[index] == SyncMetrics.NOT_RUN ? 0 : mPhaseNanos[index])
+                + Math.max(0, nanos);
+    }
+
+    public synchronized void addBytes(long bytes) {
+        mBytes += bytes;
+    }
+
+    public synchronized void setRows(int rows) {
+        mRows = rows;
+    }
+
+    /**
+     * Records the endpoint picked for the request and the moving averages it was picked on.
+     */
+    public synchronized void setEndpoint(String name, double latencyEwmaMillis,
+                                         double errorRateEwma) {
+        mEndpoint = name;
+        mEndpointLatencyEwmaMillis = latencyEwmaMillis;
+        mEndpointErrorRateEwma = errorRateEwma;
+    }
+
+    /**
+     * Records that the request was hedged to a second endpoint, and whether that one's answer
+     * was used.
+     */
+    public synchronized void setHedge(String name, boolean won) {
+        mHedgeEndpoint = name;
+        mHedgeWon = won;
+    }
+
+    /**
+     * Records the geohash tile of the location and what was stored for it.
+     */
+    public synchronized void setTile(String tile, TileLookup lookup) {
+        mTile = tile;
+        mTileLookup = lookup;
+    }
+
+    /**
+     * Records the location looked up in the geocode cache, and whether its coordinates were
+     * found there.
+     */
+    public synchronized void setGeocode(String query, boolean hit) {
+        mGeocodeQuery = query;
+        mGeocodeHit = hit;
+    }
+
+    /**
+     * Ends the sync. The recorder can still be used afterwards, but later phases are not part of
+     * the metrics returned.
+     */
+    public synchronized SyncMetrics finish(SyncOutcome outcome) {
+        return new SyncMetrics(mStartedAtMillis,
+                mTicker.nanoTime() - mStartNanos,
+                mPhaseNanos.clone(),
+                mBytes,
+                mRows,
+                outcome,
+                mEndpoint,
+                mEndpointLatencyEwmaMillis,
+                mEndpointErrorRateEwma,
+                mHedgeEndpoint,
+                mHedgeWon,
+                mTile,
+                mTileLookup,
+                mGeocodeQuery,
+                mGeocodeHit);
+    }
+}
@@ -0,0 +1,16 @@
+package com.codeking123.android.sunshine.core.metrics;
+
+/**
+ * A source of monotonic nanoseconds for measuring durations, replaceable in tests.
+ */
+public interface Ticker {
+
+    Ticker SYSTEM = new Ticker() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    long nanoTime();
+}
@@ -0,0 +1,18 @@
+package com.codeking123.android.sunshine.core.model;
+
+/**
+ * A parsed forecast: the location the server resolved the request to, and one record per day,
+ * in date order.
+ */
+public final class Forecast {
+
+    public final double cityLatitude;
+    public final double cityLongitude;
+    public final WeatherRecord[] records;
+
+    public Forecast(double cityLatitude, double cityLongitude, WeatherRecord[] records) {
+        this.cityLatitude = cityLatitude;
+        this.cityLongitude = cityLongitude;
+        this.records = records;
+    }
+}
@@ -0,0 +1,29 @@
+package com.codeking123.android.sunshine.core.model;
+
+/**
+ * One day of forecast, in the units Sunshine stores: temperatures in °C, wind speed in km/h,
+ * wind direction in compass degrees and the date normalized to UTC midnight.
+ */
+public final class WeatherRecord {
+
+    public final long date;
+    public final int weatherId;
+    public final double minTemp;
+    public final double maxTemp;
+    public final double humidity;
+    public final double pressure;
+    public final double windSpeed;
+    public final double degrees;
+
+    public WeatherRecord(long date, int weatherId, double minTemp, double maxTemp,
+                         double humidity, double pressure, double windSpeed, double degrees) {
+        this.date = date;
+        this.weatherId = weatherId;
+        this.minTemp = minTemp;
+        this.maxTemp = maxTemp;
+        this.humidity = humidity;
+        this.pressure = pressure;
+        this.windSpeed = windSpeed;
+        this.degrees = degrees;
+    }
+}
@@ -0,0 +1,19 @@
+package com.codeking123.android.sunshine.core.parse;
+
+import com.codeking123.android.sunshine.core.model.Forecast;
+
+import org.json.JSONException;
+
+/**
+ * Turns a forecast payload from the weather server into a {@link Forecast}.
+ */
+public interface ForecastParser {
+
+    /**
+     * @param forecastJson          The response body
+     * @param normalizedUtcStartDay The normalized date given to the first day of the forecast
+     * @return The forecast, or null if the server reported an error instead of a forecast
+     * @throws JSONException If the payload is not a well formed forecast
+     */
+    Forecast parse(String forecastJson, long normalizedUtcStartDay) throws JSONException;
+}
@@ -0,0 +1,111 @@
+package com.codeking123.android.sunshine.core.parse;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.HttpURLConnection;
+
+/**
+ * Parses the daily forecast format of Open Weather Map.
+ */
+public final class OpenWeatherForecastParser implements ForecastParser {
+
+    /* Location information */
+    private static final String OWM_CITY = "city";
+    private static final String OWM_COORD = "coord";
+
+    /* Location coordinate */
+    private static final String OWM_LATITUDE = "lat";
+    private static final String OWM_LONGITUDE = "lon";
+
+    /* Weather information. Each day's forecast info is an element of the "list" array */
+    private static final String OWM_LIST = "list";
+
+    private static final String OWM_PRESSURE = "pressure";
+    private static final String OWM_HUMIDITY = "humidity";
+    private static final String OWM_WINDSPEED = "speed";
+    private static final String OWM_WIND_DIRECTION = "deg";
+
+    /* All temperatures are children of the "temp" object */
+    private static final String OWM_TEMPERATURE = "temp";
+
+    /* Max temperature for the day */
+    private static final String OWM_MAX = "max";
+    private static final String OWM_MIN = "min";
+
+    private static final String OWM_WEATHER = "weather";
+    private static final String OWM_WEATHER_ID = "id";
+
+    private static final String OWM_MESSAGE_CODE = "cod";
+
+    @Override
+    public Forecast parse(String forecastJson, long normalizedUtcStartDay) throws JSONException {
+        JSONObject forecastObject = new JSONObject(forecastJson);
+
+        /* Is there an error? */
+        if (forecastObject.has(OWM_MESSAGE_CODE)) {
+            int errorCode = forecastObject.getInt(OWM_MESSAGE_CODE);
+
+            switch (errorCode) {
+                case HttpURLConnection.HTTP_OK:
+                    break;
+                case HttpURLConnection.HTTP_NOT_FOUND:
+                    /* Location invalid */
+                    return null;
+                default:
+                    /* Server probably down */
+                    return null;
+            }
+        }
+
+        JSONArray jsonWeatherArray = forecastObject.getJSONArray(OWM_LIST);
+
+        JSONObject cityJson = forecastObject.getJSONObject(OWM_CITY);
+
+        JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
+        double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
+        double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
+
+        WeatherRecord[] records = new WeatherRecord[jsonWeatherArray.length()];
+
+        for (int i = 0; i < records.length; i++) {
+
+            /* Get the JSON object representing the day */
+            JSONObject dayForecast = jsonWeatherArray.getJSONObject(i);
+
+            /*
+             * We ignore all the datetime values embedded in the JSON and assume that
+             * the values are returned in-order by day (which is not guaranteed to be correct).
+             */
+            long dateTimeMillis = normalizedUtcStartDay + SunshineDates.DAY_IN_MILLIS * i;
+
+            double pressure = dayForecast.getDouble(OWM_PRESSURE);
+            int humidity = dayForecast.getInt(OWM_HUMIDITY);
+            double windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
+            double windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
+
+            /*
+             * Description is in a child array called "weather", which is 1 element long.
+             * That element also contains a weather code.
+             */
+            JSONObject weatherObject =
+                    dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
+
+            int weatherId = weatherObject.getInt(OWM_WEATHER_ID);
+
+            JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
+            double high = temperatureObject.getDouble(OWM_MAX);
+            double low = temperatureObject.getDouble(OWM_MIN);
+
+            records[i] = new WeatherRecord(dateTimeMillis, weatherId, low, high,
+                    humidity, pressure, windSpeed, windDirection);
+        }
+
+        return new Forecast(cityLatitude, cityLongitude, records);
+    }
+}
@@ -0,0 +1,191 @@
+package com.codeking123.android.sunshine.core.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP exchanges in the order they were recorded, so real forecast traffic can be saved once and
+ * served back offline, for example to benchmark syncs without depending on the network.
+ * <p>
+ * The file layout, in the big endian of {@link DataOutputStream}, with strings as modified UTF-8:
+ * <pre>
+ *   int    magic        "TAPE"
+ *   int    version
+ *   int    exchange count
+ *   exchange count times:
+ *     utf    method
+ *     utf    url
+ *     int    request header count, then that many names and values as utf
+ *     int    status code
+ *     utf    status message
+ *     int    response header count, then that many names and values as utf
+ *     long   milliseconds to the response headers
+ *     long   milliseconds from the headers to the end of the body
+ *     int    body length, then that many bytes
+ * </pre>
+ * Exchanges are added from whichever thread made the request, so all methods are thread-safe.
+ */
+public final class HttpTape {
+
+    static final int MAGIC = 0x54415045;
+    static final int VERSION = 1;
+
+    private final List<RecordedExchange> mExchanges = new ArrayList<>();
+
+    public synchronized void add(RecordedExchange exchange) {
+        mExchanges.add(exchange);
+    }
+
+    public synchronized int size() {
+        return mExchanges.size();
+    }
+
+    public synchronized List<RecordedExchange> getExchanges() {
+        return Collections.unmodifiableList(new ArrayList<>(mExchanges));
+    }
+
+    /**
+     * Writes every exchange recorded so far. The stream is flushed, not closed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        List<RecordedExchange> exchanges = getExchanges();
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(exchanges.size());
+        for (RecordedExchange exchange : exchanges) {
+            data.writeUTF(exchange.getMethod());
+            data.writeUTF(exchange.getUrl());
+            data.writeInt(exchange.getRequestHeaderCount());
+            for (int i = 0; i < exchange.getRequestHeaderCount(); i++) {
+                data.writeUTF(exchange.getRequestHeaderName(i));
+                data.writeUTF(exchange.getRequestHeaderValue(i));
+            }
+            data.writeInt(exchange.getStatusCode());
+            data.writeUTF(exchange.getMessage());
+            data.writeInt(exchange.getResponseHeaderCount());
+            for (int i = 0; i < exchange.getResponseHeaderCount(); i++) {
+                data.writeUTF(exchange.getResponseHeaderName(i));
+                data.writeUTF(exchange.getResponseHeaderValue(i));
+            }
+            data.writeLong(exchange.getHeadersMillis());
+            data.writeLong(exchange.getBodyMillis());
+            data.writeInt(exchange.getBodyLength());
+            InputStream body = exchange.openBody();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                data.write(buffer, 0, read);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a tape written by {@link #writeTo}. The stream is read to the end of the tape, not
+     * closed.
+     *
+     * @throws IOException If the stream can't be read, or isn't a tape of this version
+     */
+    public static HttpTape readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not an HTTP tape");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported HTTP tape version " + version);
+        }
+
+        HttpTape tape = new HttpTape();
+        int count = readCount(data);
+        for (int e = 0; e < count; e++) {
+            String method = data.readUTF();
+            RecordedExchange.Builder builder =
+                    new RecordedExchange.Builder(data.readUTF()).method(method);
+            int requestHeaders = readCount(data);
+            for (int i = 0; i < requestHeaders; i++) {
+                builder.addRequestHeader(data.readUTF(), data.readUTF());
+            }
+            int statusCode = data.readInt();
+            builder.status(statusCode, data.readUTF());
+            int responseHeaders = readCount(data);
+            for (int i = 0; i < responseHeaders; i++) {
+                builder.addResponseHeader(data.readUTF(), data.readUTF());
+            }
+            long headersMillis = data.readLong();
+            builder.timing(headersMillis, data.readLong());
+            byte[] body = new byte[readCount(data)];
+            data.readFully(body);
+            tape.add(builder.body(body).build());
+        }
+        return tape;
+    }
+
+    private static int readCount(DataInputStream data) throws IOException {
+        int count = data.readInt();
+        if (count < 0) {
+            throw new IOException("Damaged HTTP tape, negative count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * @return A player over the exchanges recorded so far
+     */
+    public Player newPlayer() {
+        return new Player(getExchanges());
+    }
+
+    /**
+     * Serves a tape's responses back. Requests are matched on their method and URL; repeated
+     * requests get the responses recorded for them in order, and the last one again once those
+     * run out, so a short recording can drive any number of syncs.
+     */
+    public static final class Player {
+
+        private final Map<String, List<RecordedExchange>> mByRequest = new HashMap<>();
+        private final Map<String, Integer> mPlayed = new HashMap<>();
+
+        private Player(List<RecordedExchange> exchanges) {
+            for (RecordedExchange exchange : exchanges) {
+                String key = key(exchange.getMethod(), exchange.getUrl());
+                List<RecordedExchange> recorded = mByRequest.get(key);
+                if (recorded == null) {
+                    recorded = new ArrayList<>();
+                    mByRequest.put(key, recorded);
+                }
+                recorded.add(exchange);
+            }
+        }
+
+        /**
+         * @return The exchange to answer the request with, or null if it was never recorded
+         */
+        public synchronized RecordedExchange next(String method, String url) {
+            String key = key(method, url);
+            List<RecordedExchange> recorded = mByRequest.get(key);
+            if (recorded == null) return null;
+
+            Integer played = mPlayed.get(key);
+            int index = played == null ? 0 : played;
+            mPlayed.put(key, index + 1);
+            return recorded.get(Math.min(index, recorded.size() - 1));
+        }
+
+        private static String key(String method, String url) {
+            return method + ' ' + url;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.codeking123.android.sunshine.core.replay;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Hands out the bytes of another stream no faster than a given rate, pausing between small
+ * chunks, so a replayed response body arrives at the bandwidth it was recorded at.
+ * <p>
+ * Pauses are owed on the bytes handed out in total, not per chunk, so rounding doesn't add up
+ * over a long body. Time the reader spends between reads isn't deducted; a network wouldn't give
+ * it back either.
+ */
+public final class PacedInputStream extends FilterInputStream {
+
+    /**
+     * Waits out a pause. Implementations decide how a wait is cut short, such as by throwing an
+     * InterruptedIOException when the request is cancelled.
+     */
+    public interface Pause {
+        void pause(long millis) throws IOException;
+    }
+
+    /* Chunks are a twentieth of a second's worth of bytes, so the pacing looks smooth */
+    private static final int CHUNKS_PER_SECOND = 20;
+
+    private final long mBytesPerSecond;
+    private final Pause mPause;
+    private final int mChunkBytes;
+
+    private long mBytesRead;
+    private long mPausedMillis;
+
+    /**
+     * @param bytesPerSecond The rate to hand bytes out at, more than 0
+     */
+    public PacedInputStream(InputStream in, long bytesPerSecond, Pause pause) {
+        super(in);
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive: "
+                    + bytesPerSecond);
+        }
+        mBytesPerSecond = bytesPerSecond;
+        mPause = pause;
+        mChunkBytes = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                bytesPerSecond / CHUNKS_PER_SECOND));
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, Math.min(length, mChunkBytes));
+        if (read > 0) pace(read);
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(Math.min(count, mChunkBytes));
+        if (skipped > 0) pace(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void pace(long bytes) throws IOException {
+        mBytesRead += bytes;
+        long dueMillis = mBytesRead * 1000 / mBytesPerSecond;
+        if (dueMillis > mPausedMillis) {
+            mPause.pause(dueMillis - mPausedMillis);
+            mPausedMillis = dueMillis;
+        }
+    }
+}
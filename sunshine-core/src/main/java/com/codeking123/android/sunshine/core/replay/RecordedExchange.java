@@ -0,0 +1,168 @@
+package com.codeking123.android.sunshine.core.replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One HTTP request and the response it got, as recorded in an {@link HttpTape}: the request line
+ * and headers, the status, headers and body of the response, and how long the response took to
+ * start and to finish arriving.
+ */
+public final class RecordedExchange {
+
+    private final String mMethod;
+    private final String mUrl;
+    private final String[] mRequestHeaders;
+    private final int mStatusCode;
+    private final String mMessage;
+    private final String[] mResponseHeaders;
+    private final byte[] mBody;
+    private final long mHeadersMillis;
+    private final long mBodyMillis;
+
+    private RecordedExchange(Builder builder) {
+        mMethod = builder.mMethod;
+        mUrl = builder.mUrl;
+        mRequestHeaders = builder.mRequestHeaders.toArray(new String[0]);
+        mStatusCode = builder.mStatusCode;
+        mMessage = builder.mMessage;
+        mResponseHeaders = builder.mResponseHeaders.toArray(new String[0]);
+        mBody = builder.mBody;
+        mHeadersMillis = builder.mHeadersMillis;
+        mBodyMillis = builder.mBodyMillis;
+    }
+
+    public String getMethod() {
+        return mMethod;
+    }
+
+    public String getUrl() {
+        return mUrl;
+    }
+
+    public int getRequestHeaderCount() {
+        return mRequestHeaders.length / 2;
+    }
+
+    public String getRequestHeaderName(int index) {
+        return mRequestHeaders[2 * index];
+    }
+
+    public String getRequestHeaderValue(int index) {
+        return mRequestHeaders[2 * index + 1];
+    }
+
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    public String getMessage() {
+        return mMessage;
+    }
+
+    public int getResponseHeaderCount() {
+        return mResponseHeaders.length / 2;
+    }
+
+    public String getResponseHeaderName(int index) {
+        return mResponseHeaders[2 * index];
+    }
+
+    public String getResponseHeaderValue(int index) {
+        return mResponseHeaders[2 * index + 1];
+    }
+
+    public int getBodyLength() {
+        return mBody.length;
+    }
+
+    /**
+     * @return A new stream over the response body. The body itself is never handed out, so a
+     * recording can be replayed any number of times.
+     */
+    public InputStream openBody() {
+        return new ByteArrayInputStream(mBody);
+    }
+
+    /**
+     * @return The time from sending the request to having the response headers
+     */
+    public long getHeadersMillis() {
+        return mHeadersMillis;
+    }
+
+    /**
+     * @return The time from having the response headers to having the whole body
+     */
+    public long getBodyMillis() {
+        return mBodyMillis;
+    }
+
+    /**
+     * @return The rate the body arrived at, or 0 if it arrived too quickly to measure
+     */
+    public long getBytesPerSecond() {
+        if (mBodyMillis <= 0) return 0;
+        return Math.max(1, mBody.length * 1000L / mBodyMillis);
+    }
+
+    public static final class Builder {
+
+        private String mMethod = "GET";
+        private String mUrl;
+        private final List<String> mRequestHeaders = new ArrayList<>();
+        private int mStatusCode = 200;
+        private String mMessage = "";
+        private final List<String> mResponseHeaders = new ArrayList<>();
+        private byte[] mBody = new byte[0];
+        private long mHeadersMillis;
+        private long mBodyMillis;
+
+        public Builder(String url) {
+            mUrl = url;
+        }
+
+        public Builder method(String method) {
+            mMethod = method;
+            return this;
+        }
+
+        public Builder addRequestHeader(String name, String value) {
+            mRequestHeaders.add(name);
+            mRequestHeaders.add(value);
+            return this;
+        }
+
+        public Builder status(int code, String message) {
+            mStatusCode = code;
+            mMessage = message;
+            return this;
+        }
+
+        public Builder addResponseHeader(String name, String value) {
+            mResponseHeaders.add(name);
+            mResponseHeaders.add(value);
+            return this;
+        }
+
+        /**
+         * @param body The response body, which must not be changed afterwards
+         */
+        public Builder body(byte[] body) {
+            mBody = body;
+            return this;
+        }
+
+        public Builder timing(long headersMillis, long bodyMillis) {
+            mHeadersMillis = Math.max(0, headersMillis);
+            mBodyMillis = Math.max(0, bodyMillis);
+            return this;
+        }
+
+        public RecordedExchange build() {
+            return new RecordedExchange(this);
+        }
+    }
+}
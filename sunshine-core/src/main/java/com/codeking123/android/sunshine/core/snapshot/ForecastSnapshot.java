@@ -0,0 +1,184 @@
+package com.codeking123.android.sunshine.core.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/**
+ * The first days of the forecast list in a compact binary form, so they can be drawn straight
+ * from a memory-mapped file before the database is opened. Values are read from the buffer when
+ * asked for; nothing is copied.
+ * <p>
+ * The layout, in little endian:
+ * <pre>
+ *   int    magic        "SNAP"
+ *   int    version
+ *   int    day count
+ *   day count times:
+ *     long   normalized UTC date
+ *     double max temperature, °C
+ *     double min temperature, °C
+ *     int    weather id
+ *   int    CRC32 of everything before it
+ * </pre>
+ * A buffer that is truncated, from another version or otherwise damaged is rejected as a whole.
+ */
+public final class ForecastSnapshot {
+
+    static final int MAGIC = 0x50414e53;
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 12;
+    private static final int DAY_BYTES = 28;
+    private static final int CHECKSUM_BYTES = 4;
+
+    private static final int DATE_OFFSET = 0;
+    private static final int MAX_TEMP_OFFSET = 8;
+    private static final int MIN_TEMP_OFFSET = 16;
+    private static final int WEATHER_ID_OFFSET = 24;
+
+    private final ByteBuffer mBuffer;
+    private final int mCount;
+
+    private ForecastSnapshot(ByteBuffer buffer, int count) {
+        mBuffer = buffer;
+        mCount = count;
+    }
+
+    /**
+     * @param buffer The bytes of a snapshot, from its position to its limit. The buffer is read,
+     *               not modified, and must not change while the snapshot is in use.
+     * @return The snapshot, or null if the bytes aren't a valid snapshot
+     */
+    public static ForecastSnapshot read(ByteBuffer buffer) {
+        ByteBuffer snapshot = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (snapshot.remaining() < HEADER_BYTES + CHECKSUM_BYTES
+                || snapshot.getInt(0) != MAGIC
+                || snapshot.getInt(4) != VERSION) {
+            return null;
+        }
+
+        int count = snapshot.getInt(8);
+        long length = HEADER_BYTES + (long) count * DAY_BYTES + CHECKSUM_BYTES;
+        if (count < 0 || length != snapshot.remaining()) {
+            return null;
+        }
+
+        int checksumOffset = (int) length - CHECKSUM_BYTES;
+        if (snapshot.getInt(checksumOffset) != checksum(snapshot, checksumOffset)) {
+            return null;
+        }
+        return new ForecastSnapshot(snapshot, count);
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public long getDate(int day) {
+        return mBuffer.getLong(offsetOf(day) + DATE_OFFSET);
+    }
+
+    public double getMaxTemperature(int day) {
+        return mBuffer.getDouble(offsetOf(day) + MAX_TEMP_OFFSET);
+    }
+
+    public double getMinTemperature(int day) {
+        return mBuffer.getDouble(offsetOf(day) + MIN_TEMP_OFFSET);
+    }
+
+    public int getWeatherId(int day) {
+        return mBuffer.getInt(offsetOf(day) + WEATHER_ID_OFFSET);
+    }
+
+    /**
+     * @return The first day on or after the given date, or {@link #getCount()} if there is none.
+     * Days are in ascending order, as they are written.
+     */
+    public int indexOfFirstDayFrom(long normalizedUtcDate) {
+        int low = 0;
+        int high = mCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getDate(middle) < normalizedUtcDate) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int offsetOf(int day) {
+        if (day < 0 || day >= mCount) {
+            throw new IndexOutOfBoundsException("Day " + day + " of " + mCount);
+        }
+        return HEADER_BYTES + day * DAY_BYTES;
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.position(0);
+        content.limit(length);
+        if (content.hasArray()) {
+            crc.update(content.array(), content.arrayOffset(), length);
+        } else {
+            byte[] chunk = new byte[Math.min(length, 4096)];
+            while (content.hasRemaining()) {
+                int read = Math.min(chunk.length, content.remaining());
+                content.get(chunk, 0, read);
+                crc.update(chunk, 0, read);
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes a snapshot of days added in ascending date order.
+     */
+    public static final class Builder {
+
+        private final ByteBuffer mBuffer;
+        private final int mCapacity;
+        private int mCount;
+
+        /**
+         * @param capacity The most days that will be added
+         */
+        public Builder(int capacity) {
+            mCapacity = capacity;
+            mBuffer = ByteBuffer
+                    .allocate(HEADER_BYTES + capacity * DAY_BYTES + CHECKSUM_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            mBuffer.position(HEADER_BYTES);
+        }
+
+        public Builder add(long normalizedUtcDate, double maxTemperature, double minTemperature,
+                           int weatherId) {
+            if (mCount == mCapacity) {
+                throw new IllegalStateException("Snapshot is full at " + mCapacity + " days");
+            }
+            mBuffer.putLong(normalizedUtcDate);
+            mBuffer.putDouble(maxTemperature);
+            mBuffer.putDouble(minTemperature);
+            mBuffer.putInt(weatherId);
+            mCount++;
+            return this;
+        }
+
+        /**
+         * @return The encoded snapshot, from position 0 to its limit
+         */
+        public ByteBuffer build() {
+            mBuffer.putInt(0, MAGIC);
+            mBuffer.putInt(4, VERSION);
+            mBuffer.putInt(8, mCount);
+
+            int checksumOffset = mBuffer.position();
+            mBuffer.putInt(checksum(mBuffer, checksumOffset));
+            mBuffer.flip();
+            return mBuffer;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import com.codeking123.android.sunshine.core.date.Clock;
+
+/**
+ * Stops requests to an endpoint that keeps failing. After a number of consecutive failures the
+ * circuit opens and requests are refused for a while; then one trial request is let through,
+ * which closes the circuit again if it succeeds and reopens it if it fails.
+ * <p>
+ * Its state is two numbers, so it can be saved and restored across processes with
+ * {@link #getConsecutiveFailures}, {@link #getOpenedAtMillis} and {@link #restore}. Times come
+ * from a wall {@link Clock} for the same reason.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        /* Requests go through */
+        CLOSED,
+        /* Requests are refused */
+        OPEN,
+        /* The open period is over; the next request is a trial */
+        HALF_OPEN
+    }
+
+    /* mOpenedAtMillis of a closed circuit */
+    public static final long NOT_OPEN = -1;
+
+    private final int mFailureThreshold;
+    private final long mOpenMillis;
+    private final Clock mClock;
+
+    private int mConsecutiveFailures;
+    private long mOpenedAtMillis = NOT_OPEN;
+
+    /**
+     * @param failureThreshold Consecutive failures that open the circuit
+     * @param openMillis       How long the circuit stays open before a trial request
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, Clock clock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException(
+                    "failureThreshold must be at least 1: " + failureThreshold);
+        }
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+        mClock = clock;
+    }
+
+    public synchronized void restore(int consecutiveFailures, long openedAtMillis) {
+        mConsecutiveFailures = Math.max(0, consecutiveFailures);
+        mOpenedAtMillis = openedAtMillis;
+    }
+
+    public synchronized State getState() {
+        if (mOpenedAtMillis == NOT_OPEN) return State.CLOSED;
+
+        long openFor = mClock.currentTimeMillis() - mOpenedAtMillis;
+        /* A clock set back leaves the circuit open for no longer than usual */
+        return openFor >= 0 && openFor < mOpenMillis ? State.OPEN : State.HALF_OPEN;
+    }
+
+    /**
+     * Whether a request may be made now. Only refused while the circuit is open.
+     */
+    public boolean allowRequest() {
+        return getState() != State.OPEN;
+    }
+
+    public synchronized void onSuccess() {
+        mConsecutiveFailures = 0;
+        mOpenedAtMillis = NOT_OPEN;
+    }
+
+    /**
+     * Counts a failed request. Opens the circuit at the threshold, and reopens it if the failure
+     * was a trial request.
+     */
+    public synchronized void onFailure() {
+        mConsecutiveFailures++;
+        if (mConsecutiveFailures >= mFailureThreshold) {
+            mOpenedAtMillis = mClock.currentTimeMillis();
+        }
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return mConsecutiveFailures;
+    }
+
+    public synchronized long getOpenedAtMillis() {
+        return mOpenedAtMillis;
+    }
+}
@@ -0,0 +1,42 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import com.codeking123.android.sunshine.core.metrics.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a piece of work, such as a sync and all its retries, has to be over.
+ * Measured on a monotonic {@link Ticker}, so changing the clock doesn't move it.
+ */
+public final class Deadline {
+
+    private final Ticker mTicker;
+    private final long mExpiresAtNanos;
+
+    private Deadline(Ticker ticker, long expiresAtNanos) {
+        mTicker = ticker;
+        mExpiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * @param budgetMillis How long from now the work may take
+     */
+    public static Deadline after(long budgetMillis, Ticker ticker) {
+        return new Deadline(ticker,
+                ticker.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+    }
+
+    /**
+     * The time left, rounded up so that a deadline that hasn't passed never has 0 left.
+     */
+    public long remainingMillis() {
+        long remainingNanos = mExpiresAtNanos - mTicker.nanoTime();
+        if (remainingNanos <= 0) return 0;
+        return (remainingNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1)
+                / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public boolean isExpired() {
+        return mExpiresAtNanos - mTicker.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import com.codeking123.android.sunshine.core.metrics.Percentiles;
+
+/**
+ * A server the forecast can be fetched from, with exponentially weighted moving averages of how
+ * long it takes to answer and how often it fails. Created and updated by {@link EndpointRegistry}.
+ */
+public final class Endpoint {
+
+    /* Latencies kept for percentiles, such as the delay before hedging a request */
+    static final int RECENT_LATENCIES = 32;
+
+    /* Above this error rate every endpoint looks equally bad, rather than infinitely so */
+    private static final double MAX_ERROR_RATE = 0.99;
+
+    private final String mName;
+    private final String mBaseUrl;
+
+    private double mLatencyEwmaMillis = Double.NaN;
+    private double mErrorRateEwma;
+    private int mSamples;
+
+    private final long[] mRecentLatencies = new long[RECENT_LATENCIES];
+    private int mRecentCount;
+    private int mNextRecent;
+
+    Endpoint(String name, String baseUrl) {
+        mName = name;
+        mBaseUrl = baseUrl;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public String getBaseUrl() {
+        return mBaseUrl;
+    }
+
+    /**
+     * @return The moving average of the time to a response, or NaN before the first
+     */
+    public synchronized double getLatencyEwmaMillis() {
+        return mLatencyEwmaMillis;
+    }
+
+    /**
+     * @return The moving average of failures, 0 if every request succeeded and 1 if every one
+     * failed
+     */
+    public synchronized double getErrorRateEwma() {
+        return mErrorRateEwma;
+    }
+
+    /**
+     * @return How many requests to the endpoint have been recorded as succeeded or failed
+     */
+    public synchronized int getSampleCount() {
+        return mSamples;
+    }
+
+    /**
+     * How long a successful response can be expected to take, counting the requests that fail
+     * before it: the average latency divided by the success rate. Infinite for an endpoint that
+     * has only ever failed, and 0 for one never tried, so that it gets tried.
+     */
+    synchronized double getExpectedLatencyMillis() {
+        if (Double.isNaN(mLatencyEwmaMillis)) {
+            return mSamples == 0 ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return mLatencyEwmaMillis / (1 - Math.min(mErrorRateEwma, MAX_ERROR_RATE));
+    }
+
+    synchronized Percentiles getRecentLatencies() {
+        return new Percentiles(mRecentLatencies, mRecentCount);
+    }
+
+    synchronized void recordLatency(long latencyMillis, double alpha) {
+        mLatencyEwmaMillis = Double.isNaN(mLatencyEwmaMillis)
+                ? latencyMillis
+                : alpha * latencyMillis + (1 - alpha) * mLatencyEwmaMillis;
+
+        mRecentLatencies[mNextRecent] = latencyMillis;
+        mNextRecent = (mNextRecent + 1) % RECENT_LATENCIES;
+        mRecentCount = Math.min(mRecentCount + 1, RECENT_LATENCIES);
+    }
+
+    synchronized void recordOutcome(boolean failed, double alpha) {
+        mErrorRateEwma = alpha * (failed ? 1 : 0) + (1 - alpha) * mErrorRateEwma;
+        mSamples++;
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
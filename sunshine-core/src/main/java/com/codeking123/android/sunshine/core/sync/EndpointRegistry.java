@@ -0,0 +1,147 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import com.codeking123.android.sunshine.core.metrics.Percentiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The servers the forecast can be fetched from, picked by how fast and reliable they have been.
+ * Each request is recorded against its endpoint, and the endpoint that can be expected to answer
+ * soonest, see {@link Endpoint#getExpectedLatencyMillis}, is picked for the next one. A small
+ * share of requests goes to another endpoint at random, so that one that failed for a while
+ * gets the chance to show it is back.
+ * <p>
+ * A request that is slow to answer can be hedged: sent to the next best endpoint as well once it
+ * has taken longer than a percentile of its endpoint's recent latencies, using whichever answer
+ * comes first.
+ * <p>
+ * Thread-safe.
+ */
+public final class EndpointRegistry {
+
+    /* Returned by getHedgeDelayMillis when a request shouldn't be hedged */
+    public static final long NO_HEDGE = -1;
+
+    /* Latencies an endpoint needs before its percentile is trusted as a hedge delay */
+    static final int MIN_SAMPLES_TO_HEDGE = 5;
+
+    private final double mAlpha;
+    private final double mHedgePercentile;
+    private final double mExploreProbability;
+    private final Random mRandom;
+
+    private final List<Endpoint> mEndpoints = new ArrayList<>();
+
+    /**
+     * @param alpha              Weight of the newest request in the moving averages
+     * @param hedgePercentile    Percentile of an endpoint's recent latencies after which its
+     *                           requests are hedged, or 0 never to hedge
+     * @param exploreProbability Share of requests sent to an endpoint picked at random
+     * @param random             Source of the random picks
+     */
+    public EndpointRegistry(double alpha, double hedgePercentile, double exploreProbability,
+                            Random random) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha out of range: " + alpha);
+        }
+        if (hedgePercentile < 0 || hedgePercentile > 100) {
+            throw new IllegalArgumentException("hedgePercentile out of range: " + hedgePercentile);
+        }
+        mAlpha = alpha;
+        mHedgePercentile = hedgePercentile;
+        mExploreProbability = exploreProbability;
+        mRandom = random;
+    }
+
+    /**
+     * Adds an endpoint. Endpoints never tried are picked before any other.
+     *
+     * @param name    Identifies the endpoint in sync metrics
+     * @param baseUrl The URL forecast requests are built on
+     */
+    public synchronized Endpoint register(String name, String baseUrl) {
+        for (Endpoint endpoint : mEndpoints) {
+            if (endpoint.getName().equals(name)) {
+                throw new IllegalArgumentException("Endpoint already registered: " + name);
+            }
+        }
+        Endpoint endpoint = new Endpoint(name, baseUrl);
+        mEndpoints.add(endpoint);
+        return endpoint;
+    }
+
+    public synchronized List<Endpoint> getEndpoints() {
+        return Collections.unmodifiableList(new ArrayList<>(mEndpoints));
+    }
+
+    /**
+     * @return The endpoint to send the next request to
+     * @throws IllegalStateException If none is registered
+     */
+    public synchronized Endpoint select() {
+        if (mEndpoints.isEmpty()) throw new IllegalStateException("No endpoints registered");
+
+        if (mEndpoints.size() > 1 && mRandom.nextDouble() < mExploreProbability) {
+            return mEndpoints.get(mRandom.nextInt(mEndpoints.size()));
+        }
+        return best(null);
+    }
+
+    /**
+     * @return The endpoint to hedge a request to the given one with, or null if there is no other
+     */
+    public synchronized Endpoint selectHedge(Endpoint primary) {
+        return best(primary);
+    }
+
+    /**
+     * How long to wait for an answer from the endpoint before hedging: the configured percentile
+     * of its recent latencies. A request isn't hedged if hedging is off, there is no other
+     * endpoint or this one hasn't answered often enough for its percentile to mean anything.
+     *
+     * @return The delay, or {@link #NO_HEDGE}
+     */
+    public synchronized long getHedgeDelayMillis(Endpoint primary) {
+        if (mHedgePercentile == 0 || mEndpoints.size() < 2) return NO_HEDGE;
+
+        Percentiles latencies = primary.getRecentLatencies();
+        if (latencies.getCount() < MIN_SAMPLES_TO_HEDGE) return NO_HEDGE;
+        return latencies.get(mHedgePercentile);
+    }
+
+    public void recordSuccess(Endpoint endpoint, long latencyMillis) {
+        endpoint.recordLatency(latencyMillis, mAlpha);
+        endpoint.recordOutcome(false, mAlpha);
+    }
+
+    public void recordFailure(Endpoint endpoint) {
+        endpoint.recordOutcome(true, mAlpha);
+    }
+
+    /**
+     * Records a request given up on because another endpoint answered first. It hadn't answered
+     * after elapsedMillis, so that is recorded as its latency, which keeps a slow endpoint from
+     * being picked again just because its requests are always hedged.
+     */
+    public void recordAbandoned(Endpoint endpoint, long elapsedMillis) {
+        endpoint.recordLatency(elapsedMillis, mAlpha);
+    }
+
+    /* The endpoint expected to answer soonest, first registered on ties, other than excluded */
+    private Endpoint best(Endpoint excluded) {
+        Endpoint best = null;
+        double bestLatency = Double.POSITIVE_INFINITY;
+        for (Endpoint endpoint : mEndpoints) {
+            if (endpoint == excluded) continue;
+            double latency = endpoint.getExpectedLatencyMillis();
+            if (best == null || latency < bestLatency) {
+                best = endpoint;
+                bestLatency = latency;
+            }
+        }
+        return best;
+    }
+}
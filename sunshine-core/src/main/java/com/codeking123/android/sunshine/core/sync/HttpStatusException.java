@@ -0,0 +1,36 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import java.io.IOException;
+
+/**
+ * The server answered, but with a status other than 2xx. Thrown by HTTP fetches so that callers
+ * can tell an error response from a request that never got one.
+ */
+public class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int mStatusCode;
+
+    public HttpStatusException(int statusCode) {
+        super("HTTP " + statusCode);
+        mStatusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    /**
+     * Whether the request itself was at fault, such as a location the server doesn't know: a
+     * 4xx other than a request timeout (408) or rate limiting (429). Any endpoint would answer
+     * it the same way, so it says nothing about the endpoint's health.
+     */
+    public boolean isClientError() {
+        return isClientError(mStatusCode);
+    }
+
+    static boolean isClientError(int statusCode) {
+        return statusCode >= 400 && statusCode < 500 && statusCode != 408 && statusCode != 429;
+    }
+}
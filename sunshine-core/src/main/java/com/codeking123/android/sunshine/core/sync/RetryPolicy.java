@@ -0,0 +1,65 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import java.util.Random;
+
+/**
+ * How often and how soon a failed sync is tried again. Only transient failures are retried, after
+ * a delay drawn uniformly between zero and an exponentially growing cap ("full jitter"), so that
+ * devices that failed together don't all come back at the same moment.
+ */
+public final class RetryPolicy {
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+
+    /**
+     * @param maxAttempts     Attempts in all, including the first
+     * @param baseDelayMillis Cap on the delay before the first retry, doubled for every retry
+     *                        after it
+     * @param maxDelayMillis  Cap on the delay before any retry
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1: " + maxAttempts);
+        }
+        if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException(
+                    "Bad delays: " + baseDelayMillis + ", " + maxDelayMillis);
+        }
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+    }
+
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * Whether to try again after the given attempt, counted from 1, failed.
+     */
+    public boolean shouldRetry(SyncFailure failure, int attempt) {
+        return failure.isTransient() && attempt < mMaxAttempts;
+    }
+
+    /**
+     * The longest the delay after the given failed attempt can be: the base delay doubled for
+     * each attempt after the first, up to the maximum.
+     */
+    public long getDelayCapMillis(int attempt) {
+        int doublings = Math.max(0, attempt - 1);
+        /* Past 62 doublings the shift overflows, and any real cap has long been reached */
+        if (doublings >= 62 || mBaseDelayMillis > mMaxDelayMillis >> doublings) {
+            return mMaxDelayMillis;
+        }
+        return mBaseDelayMillis << doublings;
+    }
+
+    /**
+     * The delay before retrying after the given failed attempt, counted from 1.
+     */
+    public long getDelayMillis(int attempt, Random random) {
+        return (long) (random.nextDouble() * getDelayCapMillis(attempt));
+    }
+}
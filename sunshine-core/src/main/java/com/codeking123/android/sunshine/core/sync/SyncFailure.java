@@ -0,0 +1,135 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import com.codeking123.android.sunshine.core.metrics.SyncOutcome;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Why an attempt to sync failed, classified so the caller can decide whether to try again and
+ * whether the weather endpoint is to blame.
+ */
+public class SyncFailure extends Exception {
+
+    public enum Kind {
+        /* No response: the connection failed or was reset */
+        NETWORK,
+        /* No response in time: a connect or read timed out, or the sync's deadline passed */
+        TIMEOUT,
+        /* The server answered with an error status */
+        HTTP_STATUS,
+        /* The response wasn't a forecast we could parse */
+        PARSE,
+        /* The forecast couldn't be stored */
+        DB,
+        /* Anything else, which is a bug rather than an outage */
+        UNEXPECTED
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /* The status code of an HTTP_STATUS failure, 0 otherwise */
+    private final int mHttpStatus;
+    private final Kind mKind;
+
+    private SyncFailure(Kind kind, int httpStatus, String message, Throwable cause) {
+        super(message, cause);
+        mKind = kind;
+        mHttpStatus = httpStatus;
+    }
+
+    /**
+     * Classifies an IOException from a fetch: an {@link HttpStatusException} is an HTTP_STATUS
+     * failure, an InterruptedIOException, which is what socket and call timeouts throw, a
+     * TIMEOUT and anything else a NETWORK one.
+     */
+    public static SyncFailure network(IOException e) {
+        if (e instanceof HttpStatusException) {
+            return httpStatus(((HttpStatusException) e).getStatusCode());
+        }
+        if (e instanceof InterruptedIOException) {
+            return new SyncFailure(Kind.TIMEOUT, 0, "The forecast took too long to fetch", e);
+        }
+        return new SyncFailure(Kind.NETWORK, 0, "Couldn't fetch the forecast", e);
+    }
+
+    public static SyncFailure httpStatus(int statusCode) {
+        return new SyncFailure(Kind.HTTP_STATUS, statusCode, "The server answered " + statusCode,
+                null);
+    }
+
+    public static SyncFailure parse(Exception e) {
+        return new SyncFailure(Kind.PARSE, 0, "Couldn't parse the forecast", e);
+    }
+
+    public static SyncFailure database(Exception e) {
+        return new SyncFailure(Kind.DB, 0, "Couldn't store the forecast", e);
+    }
+
+    public static SyncFailure unexpected(Exception e) {
+        return new SyncFailure(Kind.UNEXPECTED, 0, "Sync failed", e);
+    }
+
+    public Kind getKind() {
+        return mKind;
+    }
+
+    public int getHttpStatus() {
+        return mHttpStatus;
+    }
+
+    /**
+     * Whether trying again shortly may succeed: network failures, request timeouts, rate
+     * limiting and server errors. A client error, a response we can't parse or a database that
+     * can't be written to will fail the same way until something else changes.
+     */
+    public boolean isTransient() {
+        switch (mKind) {
+            case NETWORK:
+            case TIMEOUT:
+                return true;
+            case HTTP_STATUS:
+                return mHttpStatus == 408 || mHttpStatus == 429 || mHttpStatus >= 500;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Whether the failure is the endpoint's, and so counts towards opening a
+     * {@link CircuitBreaker}. Failures on the device don't say anything about the server, and
+     * neither do client errors, see {@link HttpStatusException#isClientError}.
+     */
+    public boolean isEndpointFailure() {
+        switch (mKind) {
+            case NETWORK:
+            case TIMEOUT:
+            case PARSE:
+                return true;
+            case HTTP_STATUS:
+                return !HttpStatusException.isClientError(mHttpStatus);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * How a sync that ended with this failure is recorded.
+     */
+    public SyncOutcome toOutcome() {
+        switch (mKind) {
+            case NETWORK:
+                return SyncOutcome.NETWORK_ERROR;
+            case TIMEOUT:
+                return SyncOutcome.TIMEOUT;
+            case HTTP_STATUS:
+                return SyncOutcome.HTTP_ERROR;
+            case PARSE:
+                return SyncOutcome.PARSE_ERROR;
+            case DB:
+                return SyncOutcome.DB_ERROR;
+            default:
+                return SyncOutcome.ERROR;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import java.util.Random;
+
+/**
+ * Runs a sync attempt until it succeeds, retrying transient failures as a {@link RetryPolicy}
+ * allows and going through a {@link CircuitBreaker} for every attempt.
+ */
+public final class SyncRetrier {
+
+    /**
+     * One try at a sync.
+     */
+    public interface Attempt {
+        /**
+         * @param attempt Which attempt this is, counted from 1
+         */
+        void run(int attempt) throws SyncFailure;
+    }
+
+    /**
+     * Waits between attempts, replaceable in tests.
+     */
+    public interface Sleeper {
+
+        Sleeper SYSTEM = new Sleeper() {
+            @Override
+            public void sleep(long millis) throws InterruptedException {
+                Thread.sleep(millis);
+            }
+        };
+
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private final RetryPolicy mPolicy;
+    private final CircuitBreaker mBreaker;
+    private final Random mRandom;
+    private final Sleeper mSleeper;
+
+    public SyncRetrier(RetryPolicy policy, CircuitBreaker breaker, Random random,
+                       Sleeper sleeper) {
+        mPolicy = policy;
+        mBreaker = breaker;
+        mRandom = random;
+        mSleeper = sleeper;
+    }
+
+    /**
+     * Runs the attempt with no deadline, see {@link #run(Attempt, Deadline)}.
+     */
+    public boolean run(Attempt attempt) throws SyncFailure, InterruptedException {
+        return run(attempt, null);
+    }
+
+    /**
+     * Runs the attempt, retrying it while it fails transiently, the policy allows another try,
+     * the circuit lets it through and the wait before it ends before the deadline. Endpoint
+     * failures are counted by the circuit breaker, and a success closes it.
+     *
+     * @param deadline When to stop retrying, or null to retry as long as the policy allows. The
+     *                 attempts themselves have to keep to it.
+     * @return True if an attempt succeeded, false if the circuit was open so nothing was tried
+     * @throws SyncFailure          The failure of the last attempt made
+     * @throws InterruptedException If interrupted while waiting to retry
+     */
+    public boolean run(Attempt attempt, Deadline deadline)
+            throws SyncFailure, InterruptedException {
+        SyncFailure lastFailure = null;
+        for (int number = 1; ; number++) {
+            if (!mBreaker.allowRequest()) {
+                if (lastFailure != null) throw lastFailure;
+                return false;
+            }
+
+            try {
+                attempt.run(number);
+                mBreaker.onSuccess();
+                return true;
+            } catch (SyncFailure failure) {
+                if (failure.isEndpointFailure()) mBreaker.onFailure();
+                if (!mPolicy.shouldRetry(failure, number)) throw failure;
+                lastFailure = failure;
+            }
+
+            long delayMillis = mPolicy.getDelayMillis(number, mRandom);
+            /* A retry that couldn't start in time would only fail with a timeout */
+            if (deadline != null && delayMillis >= deadline.remainingMillis()) throw lastFailure;
+            mSleeper.sleep(delayMillis);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.codeking123.android.sunshine.core.synthetic;
+
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a forecast in the daily forecast format of Open Weather Map, one day at a time, so a
+ * forecast of any length can be written without holding it in memory. What it writes is read back
+ * unchanged by {@link com.codeking123.android.sunshine.core.parse.OpenWeatherForecastParser}.
+ */
+public final class ForecastDumpWriter implements Closeable {
+
+    /* Open Weather Map dates forecasts at noon UTC */
+    private static final long NOON_SECONDS = 12 * 60 * 60;
+
+    private final Writer mOut;
+    private int mDays;
+
+    /**
+     * Writes everything that comes before the days of the forecast.
+     */
+    public ForecastDumpWriter(Writer out, String cityName, double latitude, double longitude)
+            throws IOException {
+        mOut = out;
+        mOut.write("{\"city\":{\"name\":");
+        mOut.write(JSONObject.quote(cityName));
+        mOut.write(",\"coord\":{\"lon\":");
+        writeNumber(longitude);
+        mOut.write(",\"lat\":");
+        writeNumber(latitude);
+        mOut.write("}},\"cod\":\"200\",\"list\":[");
+    }
+
+    /**
+     * Appends the next day. Days must be written in order, as the parser dates them by position.
+     */
+    public void write(WeatherRecord record) throws IOException {
+        if (mDays > 0) {
+            mOut.write(',');
+        }
+        mDays++;
+
+        mOut.write("{\"dt\":");
+        mOut.write(Long.toString(record.date / 1000 + NOON_SECONDS));
+        mOut.write(",\"temp\":{\"min\":");
+        writeNumber(record.minTemp);
+        mOut.write(",\"max\":");
+        writeNumber(record.maxTemp);
+        mOut.write("},\"pressure\":");
+        writeNumber(record.pressure);
+        mOut.write(",\"humidity\":");
+        /* The parser reads humidity as a whole number */
+        mOut.write(Long.toString(Math.round(record.humidity)));
+        mOut.write(",\"weather\":[{\"id\":");
+        mOut.write(Integer.toString(record.weatherId));
+        mOut.write("}],\"speed\":");
+        writeNumber(record.windSpeed);
+        mOut.write(",\"deg\":");
+        writeNumber(record.degrees);
+        mOut.write('}');
+    }
+
+    /**
+     * Writes the end of the forecast and closes the underlying Writer.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            mOut.write("],\"cnt\":");
+            mOut.write(Integer.toString(mDays));
+            mOut.write("}\n");
+        } finally {
+            mOut.close();
+        }
+    }
+
+    private void writeNumber(double value) throws IOException {
+        try {
+            mOut.write(JSONObject.numberToString(value));
+        } catch (JSONException e) {
+            /* Only thrown for NaN and infinities, which a forecast never contains */
+            throw new IllegalArgumentException("Not a finite number: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.codeking123.android.sunshine.core.synthetic;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import java.util.Locale;
+
+/**
+ * Makes up realistic forecasts for load tests and benchmarks. Everything is derived from the seed
+ * by hashing, so the same seed always gives the same locations and the same weather, and any day
+ * of any location can be generated on its own, in any order and from any thread. Generating a
+ * data set therefore takes constant memory, however large it is.
+ * <p>
+ * Each location gets a climate from its latitude: warmer and with milder seasons near the
+ * equator, seasons reversed in the southern hemisphere. Day to day, smooth noise moves weather
+ * systems through over a few days, so wet, cloudy and clear spells last more than a day, and the
+ * condition follows from the cloud cover and the temperature: snow only when it is freezing,
+ * thunderstorms only when it is warm.
+ */
+public final class SyntheticForecastGenerator {
+
+    private static final double DAYS_IN_YEAR = 365.2425;
+
+    /* Days since January 1st of the coldest day of a northern year */
+    private static final double COLDEST_DAY_OF_YEAR = 15;
+
+    /* Weather systems change over a few days, temperatures a little faster */
+    private static final double WEATHER_SYSTEM_DAYS = 4;
+    private static final double TEMPERATURE_SWING_DAYS = 3;
+
+    /* Independent streams of randomness, so changing one property doesn't shift the others */
+    private static final int CHANNEL_LATITUDE = 1;
+    private static final int CHANNEL_LONGITUDE = 2;
+    private static final int CHANNEL_CLIMATE = 3;
+    private static final int CHANNEL_WETNESS = 4;
+    private static final int CHANNEL_WEATHER_SYSTEM = 5;
+    private static final int CHANNEL_TEMPERATURE = 6;
+    private static final int CHANNEL_CLOUDS = 7;
+    private static final int CHANNEL_HUMIDITY = 8;
+    private static final int CHANNEL_PRESSURE = 9;
+    private static final int CHANNEL_WIND_SPEED = 10;
+    private static final int CHANNEL_WIND_DIRECTION = 11;
+
+    private final long mSeed;
+
+    public SyntheticForecastGenerator(long seed) {
+        mSeed = seed;
+    }
+
+    /**
+     * @param index Any non-negative number; each gives a different location
+     */
+    public SyntheticLocation getLocation(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Location index must not be negative: " + index);
+        }
+
+        /* Uniform in sin(latitude), so locations are spread evenly over the globe's area */
+        double latitude = Math.toDegrees(Math.asin(
+                -0.87 + 1.81 * random(index, CHANNEL_LATITUDE, 0)));
+        double longitude = -180 + 360 * random(index, CHANNEL_LONGITUDE, 0);
+
+        double distanceFromEquator = Math.abs(latitude);
+        double meanTemperature = 28 - 0.45 * distanceFromEquator
+                + 4 * (random(index, CHANNEL_CLIMATE, 0) - 0.5);
+        double seasonalAmplitude = 0.5 + 0.25 * distanceFromEquator;
+        double wetness = 0.1 + 0.8 * random(index, CHANNEL_WETNESS, 0);
+
+        return new SyntheticLocation(index,
+                String.format(Locale.US, "synthetic-%06d", index),
+                round(latitude, 4),
+                round(longitude, 4),
+                meanTemperature,
+                seasonalAmplitude,
+                wetness);
+    }
+
+    /**
+     * @param location             A location of this generator
+     * @param normalizedUtcDate    The day, normalized as the app stores dates
+     * @return The weather of that day at that location, always the same for the same seed
+     */
+    public WeatherRecord getDay(SyntheticLocation location, long normalizedUtcDate) {
+        int index = location.index;
+        long epochDay = SunshineDates.elapsedDaysSinceEpoch(normalizedUtcDate);
+
+        /* Seasons, reversed south of the equator */
+        double dayOfYear = epochDay % DAYS_IN_YEAR;
+        double season = -Math.cos(2 * Math.PI * (dayOfYear - COLDEST_DAY_OF_YEAR) / DAYS_IN_YEAR);
+        if (location.latitude < 0) {
+            season = -season;
+        }
+        double dailyMean = location.meanTemperature
+                + location.seasonalAmplitude * season
+                + 8 * (smoothRandom(index, CHANNEL_TEMPERATURE, epochDay / TEMPERATURE_SWING_DAYS)
+                - 0.5);
+
+        /* 0 is a clear sky, 1 a downpour */
+        double weatherSystem =
+                smoothRandom(index, CHANNEL_WEATHER_SYSTEM, epochDay / WEATHER_SYSTEM_DAYS);
+        double clouds = clamp(0.6 * weatherSystem + 0.4 * location.wetness
+                + 0.2 * (random(index, CHANNEL_CLOUDS, epochDay) - 0.5), 0, 1);
+
+        /* Clear days warm up more in the afternoon and cool down more at night */
+        double dailyRange = 4 + 10 * (1 - clouds);
+        double maxTemperature = dailyMean + dailyRange / 2;
+        double minTemperature = dailyMean - dailyRange / 2;
+
+        double humidity = Math.round(clamp(30 + 60 * clouds
+                + 10 * (random(index, CHANNEL_HUMIDITY, epochDay) - 0.5), 5, 100));
+        double pressure = 1013 + 40 * (0.5 - weatherSystem)
+                + 4 * (random(index, CHANNEL_PRESSURE, epochDay) - 0.5);
+        double windSpeed = 2 + 10 * clouds
+                + 25 * Math.pow(random(index, CHANNEL_WIND_SPEED, epochDay), 3);
+        double windDirection = Math.floor(360 * random(index, CHANNEL_WIND_DIRECTION, epochDay));
+
+        return new WeatherRecord(normalizedUtcDate,
+                getWeatherId(clouds, dailyMean, humidity, windSpeed),
+                round(minTemperature, 2),
+                round(maxTemperature, 2),
+                humidity,
+                round(pressure, 2),
+                round(windSpeed, 2),
+                windDirection);
+    }
+
+    /*
+     * Open Weather Map condition ids, all of which the app has descriptions and art for.
+     */
+    private static int getWeatherId(double clouds, double temperature, double humidity,
+                                    double windSpeed) {
+        if (clouds > 0.92 && temperature > 20) {
+            return clouds > 0.97 ? 211 : 200;
+        }
+        if (clouds > 0.75) {
+            /* Light, moderate or heavy, by how far past the threshold the clouds are */
+            int intensity = (int) Math.min(2, (clouds - 0.75) / 0.25 * 3);
+            return (temperature < 1 ? 600 : 500) + intensity;
+        }
+        if (clouds > 0.7) {
+            return temperature < 1 ? 600 : 300;
+        }
+        /* Overcast and humid days with hardly any wind beyond the calmest for their cloud cover */
+        if (clouds > 0.55 && humidity > 60 && windSpeed < 2.2 + 10 * clouds) {
+            return 741;
+        }
+        if (clouds > 0.55) {
+            return 804;
+        }
+        if (clouds > 0.4) {
+            return 803;
+        }
+        if (clouds > 0.3) {
+            return 802;
+        }
+        if (clouds > 0.15) {
+            return 801;
+        }
+        return 800;
+    }
+
+    /* Uniform in [0, 1), a fixed function of the seed and the arguments */
+    private double random(int index, int channel, long step) {
+        long hash = mix(mSeed ^ mix(((long) index << 8 | channel) ^ mix(step)));
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    /* Like random, but changes gradually as position moves between whole steps */
+    private double smoothRandom(int index, int channel, double position) {
+        long step = (long) Math.floor(position);
+        double fraction = position - step;
+        double eased = fraction * fraction * (3 - 2 * fraction);
+        double from = random(index, channel, step);
+        double to = random(index, channel, step + 1);
+        return from + (to - from) * eased;
+    }
+
+    /* The finalizer of SplitMix64, which spreads every input bit over the whole output */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+}
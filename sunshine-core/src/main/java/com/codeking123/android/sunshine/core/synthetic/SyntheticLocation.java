@@ -0,0 +1,36 @@
+package com.codeking123.android.sunshine.core.synthetic;
+
+/**
+ * A made up place with a climate of its own, as created by {@link SyntheticForecastGenerator}.
+ */
+public final class SyntheticLocation {
+
+    /* Position in the generator's sequence of locations */
+    public final int index;
+
+    /* A name that is unique within a generator, usable as a file or station name */
+    public final String name;
+
+    public final double latitude;
+    public final double longitude;
+
+    /* Mean temperature over the year in °C */
+    final double meanTemperature;
+
+    /* How far the seasonal mean swings above and below the yearly mean, in °C */
+    final double seasonalAmplitude;
+
+    /* From 0 (desert) to 1 (rain forest), how often the sky is overcast or worse */
+    final double wetness;
+
+    SyntheticLocation(int index, String name, double latitude, double longitude,
+                      double meanTemperature, double seasonalAmplitude, double wetness) {
+        this.index = index;
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.meanTemperature = meanTemperature;
+        this.seasonalAmplitude = seasonalAmplitude;
+        this.wetness = wetness;
+    }
+}
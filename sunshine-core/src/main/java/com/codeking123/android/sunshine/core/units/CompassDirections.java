@@ -0,0 +1,29 @@
+package com.codeking123.android.sunshine.core.units;
+
+/**
+ * Maps wind directions in degrees onto the eight points of the compass.
+ */
+public final class CompassDirections {
+
+    /* Compass sectors, 45 degrees wide, starting with North centered on 0 degrees */
+    private static final String[] SECTORS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+    private static final String UNKNOWN = "Unknown";
+
+    private CompassDirections() {
+    }
+
+    /**
+     * @param degrees Wind direction in compass degrees
+     * @return One of N, NE, E, SE, S, SW, W or NW, or "Unknown" if degrees is not a number
+     */
+    public static String fromDegrees(float degrees) {
+        if (Float.isNaN(degrees)) {
+            return UNKNOWN;
+        }
+        if (degrees >= 337.5 || degrees < 22.5) {
+            return SECTORS[0];
+        }
+        /* Done in double precision so values just below a sector boundary never round up */
+        return SECTORS[(int) ((degrees + 22.5) / 45.0)];
+    }
+}
@@ -0,0 +1,42 @@
+package com.codeking123.android.sunshine.core.units;
+
+/**
+ * Converts the metric values Sunshine stores into the units the user wants to see.
+ */
+public enum UnitSystem {
+
+    METRIC {
+        @Override
+        public double toDisplayTemperature(double temperatureInCelsius) {
+            return temperatureInCelsius;
+        }
+
+        @Override
+        public float toDisplayWindSpeed(float windSpeedInKmh) {
+            return windSpeedInKmh;
+        }
+    },
+
+    IMPERIAL {
+        @Override
+        public double toDisplayTemperature(double temperatureInCelsius) {
+            return (temperatureInCelsius * 1.8) + 32;
+        }
+
+        @Override
+        public float toDisplayWindSpeed(float windSpeedInKmh) {
+            return .621371192237334f * windSpeedInKmh;
+        }
+    };
+
+    /**
+     * @return The temperature in °C for metric, or °F for imperial
+     */
+    public abstract double toDisplayTemperature(double temperatureInCelsius);
+
+    /**
+     * @return The wind speed in km/h for metric, or mph for imperial. Computed in float
+     * precision, which is what the displayed values have always been rounded from.
+     */
+    public abstract float toDisplayWindSpeed(float windSpeedInKmh);
+}
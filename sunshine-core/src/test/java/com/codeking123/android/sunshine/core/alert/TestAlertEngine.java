@@ -0,0 +1,102 @@
+package com.codeking123.android.sunshine.core.alert;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+
+public class TestAlertEngine {
+
+    private static final long DAY = SunshineDates.DAY_IN_MILLIS;
+    private static final long TODAY = 17000 * DAY;
+
+    private static final AlertRule FROST =
+            AlertRule.compile("Frost tomorrow", "day = 1 and min < 0");
+    private static final AlertRule WIND = AlertRule.compile("Wind", "wind > 50");
+    private static final AlertRule RAIN = AlertRule.compile("Rain on a dry day",
+            "weather_id between 500 and 599 and not previous.weather_id between 500 and 599");
+
+    private static WeatherRecord day(int day, int weatherId, double min, double wind) {
+        return new WeatherRecord(TODAY + day * DAY, weatherId, min, 10, 80, 1010, wind, 270);
+    }
+
+    private static String names(List<AlertFiring> firings) {
+        StringBuilder names = new StringBuilder();
+        for (AlertFiring firing : firings) {
+            if (names.length() > 0) names.append(", ");
+            names.append(firing.rule.getName()).append(' ').append(firing.location)
+                    .append(' ').append(firing.day);
+        }
+        return names.toString();
+    }
+
+
+    @Test
+    public void testFiresWhenARuleComesToHold() {
+        AlertEngine engine = new AlertEngine(Arrays.asList(FROST, WIND, RAIN));
+        WeatherRecord[] previous = {day(0, 800, 2, 10), day(1, 800, 1, 60), day(2, 800, 3, 10)};
+        WeatherRecord[] current = {day(0, 800, 2, 10), day(1, 800, -1, 60), day(2, 502, 3, 55)};
+
+        ForecastChangeSet changes = new ForecastChangeSet();
+        changes.add("london", previous, current);
+        List<AlertFiring> firings = engine.evaluate(changes);
+
+        /* The wind tomorrow was already forecast, so it isn't reported again */
+        assertEquals("Frost tomorrow london 1, Wind london 2, Rain on a dry day london 2",
+                names(firings));
+        assertSame(current[1], firings.get(0).record);
+        assertEquals(TODAY + DAY, firings.get(0).date);
+
+        /* The same forecast again changes nothing and fires nothing */
+        ForecastChangeSet again = new ForecastChangeSet();
+        again.add("london", current, current);
+        assertEquals(0, engine.evaluate(again).size());
+    }
+
+
+    @Test
+    public void testOnlyRulesReadingAChangedColumnAreEvaluated() {
+        AlertEngine engine = new AlertEngine(Arrays.asList(FROST, WIND, RAIN));
+        WeatherRecord[] previous = {day(0, 800, 2, 10), day(1, 800, 1, 10)};
+        WeatherRecord[] current = {day(0, 800, 2, 70), day(1, 800, 1, 10)};
+
+        ForecastChangeSet changes = new ForecastChangeSet();
+        changes.add("london", previous, current);
+        assertEquals("Wind london 0", names(engine.evaluate(changes)));
+        assertEquals(1, engine.getEvaluationCount());
+
+        /* A new location is evaluated against every rule on every day */
+        ForecastChangeSet first = new ForecastChangeSet();
+        first.add("paris", null, current);
+        assertEquals("Wind paris 0", names(engine.evaluate(first)));
+        assertEquals(1 + 3 * 2, engine.getEvaluationCount());
+    }
+
+
+    @Test
+    public void testEachRuleFiresOnceForADay() {
+        AlertEngine engine = new AlertEngine(Arrays.asList(WIND, WIND, FROST));
+        WeatherRecord[] current = {day(0, 800, 2, 70), day(1, 800, -2, 10)};
+
+        ForecastChangeSet changes = new ForecastChangeSet();
+        changes.add("london", null, current);
+        changes.add("london", null, current);
+        changes.add("paris", null, current);
+        assertEquals("Wind london 0, Frost tomorrow london 1, Wind paris 0, " +
+                "Frost tomorrow paris 1", names(engine.evaluate(changes)));
+        assertEquals(3, engine.getRuleCount());
+
+        /* Days the sync dropped fire nothing */
+        ForecastChangeSet dropped = new ForecastChangeSet();
+        dropped.add("london", current, null);
+        assertEquals(2, dropped.size());
+        assertEquals(0, engine.evaluate(dropped).size());
+    }
+}
@@ -0,0 +1,83 @@
+package com.codeking123.android.sunshine.core.alert;
+
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class TestAlertRule {
+
+    private static double[] values(int weatherId, double min, double max, double wind, int day) {
+        WeatherRecord record = new WeatherRecord(0, weatherId, min, max, 80, 1010, wind, 270);
+        return WeatherColumn.read(record, day, new double[WeatherColumn.values().length]);
+    }
+
+    private static void assertRejected(String expression, String position) {
+        try {
+            AlertRule.compile("rule", expression);
+            fail("Should have been rejected: " + expression);
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains(position));
+        }
+    }
+
+
+    @Test
+    public void testComparesColumnsWithNumbers() {
+        AlertRule frost = AlertRule.compile("Frost tomorrow", "day = 1 and min < 0");
+        assertTrue(frost.matches(values(800, -0.5, 4, 10, 1), null));
+        assertFalse(frost.matches(values(800, 0, 4, 10, 1), null));
+        assertFalse(frost.matches(values(800, -3, 4, 10, 2), null));
+        assertEquals(WeatherColumn.DAY.getMask() | WeatherColumn.MIN_TEMP.getMask(),
+                frost.getColumns());
+        assertFalse(frost.readsPrevious());
+
+        AlertRule wind = AlertRule.compile("Gale", "WIND >= 50 or (max>35 AND NOT day != 0)");
+        assertTrue(wind.matches(values(800, 10, 20, 50, 3), null));
+        assertFalse(wind.matches(values(800, 10, 20, 49.9, 0), null));
+        assertTrue(wind.matches(values(800, 10, 36, 0, 0), null));
+        assertFalse(wind.matches(values(800, 10, 36, 0, 1), null));
+
+        AlertRule mild = AlertRule.compile("Mild", "-2.5 <= min and max <= 1.5e1");
+        assertTrue(mild.matches(values(800, -2.5, 15, 0, 0), null));
+        assertFalse(mild.matches(values(800, -2.6, 15, 0, 0), null));
+    }
+
+
+    @Test
+    public void testBetweenAndThePreviousForecast() {
+        AlertRule rain = AlertRule.compile("Rain on a dry day",
+                "weather_id between 500 and 599 and not previous.weather_id between 500 and 599");
+        assertTrue(rain.readsPrevious());
+        assertEquals(WeatherColumn.WEATHER_ID.getMask(), rain.getColumns());
+
+        assertTrue(rain.matches(values(501, 5, 10, 0, 1), values(800, 5, 10, 0, 2)));
+        assertFalse(rain.matches(values(501, 5, 10, 0, 1), values(500, 5, 10, 0, 2)));
+        assertFalse(rain.matches(values(800, 5, 10, 0, 1), values(800, 5, 10, 0, 2)));
+        assertFalse("A day that wasn't forecast before has nothing to compare with",
+                rain.matches(values(501, 5, 10, 0, 1), null));
+
+        AlertRule warmer = AlertRule.compile("Warmer", "max > previous.max");
+        assertTrue(warmer.matches(values(800, 5, 10.5, 0, 1), values(800, 5, 10, 0, 2)));
+        assertFalse(warmer.matches(values(800, 5, 10, 0, 1), values(800, 5, 10, 0, 2)));
+    }
+
+
+    @Test
+    public void testReportsWhereTheRuleIsWrong() {
+        assertRejected("", "at 0");
+        assertRejected("min <", "at 5");
+        assertRejected("snow > 1", "at 0");
+        assertRejected("min < 0 and", "at 11");
+        assertRejected("(min < 0", "at 8");
+        assertRejected("min between 1 2", "at 14");
+        assertRejected("min < 0 max > 1", "at 8");
+        assertRejected("min < 1..2", "at 6");
+        assertRejected("min ~ 2", "at 4");
+    }
+}
@@ -0,0 +1,83 @@
+package com.codeking123.android.sunshine.core.alert;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+public class TestForecastChangeSet {
+
+    private static final long DAY = SunshineDates.DAY_IN_MILLIS;
+    private static final long TODAY = 17000 * DAY;
+
+    private static WeatherRecord day(int day, int weatherId, double min) {
+        return new WeatherRecord(TODAY + day * DAY, weatherId, min, 10, 80, 1010, 12, 270);
+    }
+
+    private static List<ForecastChange> changes(ForecastChangeSet set) {
+        List<ForecastChange> changes = new ArrayList<ForecastChange>();
+        for (ForecastChange change : set) {
+            changes.add(change);
+        }
+        return changes;
+    }
+
+
+    @Test
+    public void testOnlyChangedDaysAreKept() {
+        WeatherRecord[] previous = {day(0, 800, 1), day(1, 800, 2), day(2, 500, 3)};
+        WeatherRecord[] current = {day(0, 800, 1), day(1, 800, -1), day(2, 501, 3)};
+
+        ForecastChangeSet set = new ForecastChangeSet();
+        assertEquals(2, set.add("london", previous, current));
+        assertEquals(2, set.size());
+        assertEquals(1, set.getUnchangedCount());
+
+        List<ForecastChange> changes = changes(set);
+        assertEquals(TODAY + DAY, changes.get(0).date);
+        assertEquals(WeatherColumn.MIN_TEMP.getMask(), changes.get(0).changedColumns);
+        assertSame(previous[1], changes.get(0).previous);
+        assertSame(current[1], changes.get(0).current);
+        assertEquals(WeatherColumn.WEATHER_ID.getMask(), changes.get(1).changedColumns);
+        assertEquals("london", changes.get(1).location);
+    }
+
+
+    @Test
+    public void testAddedAndDroppedDays() {
+        /* Synced the day after: yesterday is dropped, the last day is new, and every day that is
+         * still forecast has moved a day closer */
+        WeatherRecord[] previous = {day(0, 800, 1), day(1, 800, 2), day(2, 800, 3)};
+        WeatherRecord[] current = {day(1, 800, 2), day(2, 800, 3), day(3, 800, 4)};
+
+        ForecastChangeSet set = new ForecastChangeSet();
+        assertEquals(4, set.add("paris", previous, current));
+        assertEquals(0, set.getUnchangedCount());
+
+        List<ForecastChange> changes = changes(set);
+        assertEquals(WeatherColumn.DAY.getMask(), changes.get(0).changedColumns);
+        assertEquals(1, changes.get(0).previousDay);
+        assertEquals(0, changes.get(0).currentDay);
+
+        ForecastChange added = changes.get(2);
+        assertNull(added.previous);
+        assertEquals(2, added.currentDay);
+        assertEquals(~0, added.changedColumns);
+
+        ForecastChange dropped = changes.get(3);
+        assertEquals(TODAY, dropped.date);
+        assertNull(dropped.current);
+        assertSame(previous[0], dropped.previous);
+
+        /* A first sync adds everything */
+        assertEquals(3, new ForecastChangeSet().add("rome", null, current));
+    }
+}
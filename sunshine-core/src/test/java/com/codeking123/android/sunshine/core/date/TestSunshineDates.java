@@ -0,0 +1,63 @@
+package com.codeking123.android.sunshine.core.date;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestSunshineDates {
+
+    /* October 1st, 2016 at midnight, GMT time */
+    private static final long DATE_NORMALIZED = 1475280000000L;
+
+    private static Clock fixedClock(final long now, final String timeZoneId) {
+        return new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+
+            @Override
+            public TimeZone getTimeZone() {
+                return TimeZone.getTimeZone(timeZoneId);
+            }
+        };
+    }
+
+
+    @Test
+    public void testNormalizeDate() {
+        long afternoon = DATE_NORMALIZED + 15 * 60 * 60 * 1000L;
+
+        assertEquals(DATE_NORMALIZED, SunshineDates.normalizeDate(afternoon));
+        assertTrue(SunshineDates.isDateNormalized(DATE_NORMALIZED));
+        assertFalse(SunshineDates.isDateNormalized(afternoon));
+    }
+
+
+    @Test
+    public void testTodayFollowsTheLocalCalendarDay() {
+        /* 20:00 UTC on October 1st is already October 2nd in Tokyo, but still the 1st in LA */
+        long eveningUtc = DATE_NORMALIZED + 20 * 60 * 60 * 1000L;
+
+        assertEquals(DATE_NORMALIZED + SunshineDates.DAY_IN_MILLIS,
+                SunshineDates.getNormalizedUtcDateForToday(fixedClock(eveningUtc, "Asia/Tokyo")));
+        assertEquals(DATE_NORMALIZED,
+                SunshineDates.getNormalizedUtcDateForToday(
+                        fixedClock(eveningUtc, "America/Los_Angeles")));
+    }
+
+
+    @Test
+    public void testLocalMidnight() {
+        TimeZone losAngeles = TimeZone.getTimeZone("America/Los_Angeles");
+
+        /* Los Angeles is on daylight time, seven hours behind UTC, on October 1st 2016 */
+        assertEquals(DATE_NORMALIZED + 7 * 60 * 60 * 1000L,
+                SunshineDates.getLocalMidnightFromNormalizedUtcDate(DATE_NORMALIZED, losAngeles));
+    }
+}
@@ -0,0 +1,81 @@
+package com.codeking123.android.sunshine.core.db;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+
+public class TestWeatherConditionQuery {
+
+    private static final long DAY = 86400000L;
+    private static final long FROM = 17000 * DAY;
+
+    private static void assertRejected(int minWeatherId, int maxWeatherId, long toDate,
+                                       int limit) {
+        try {
+            WeatherConditionQuery.withWeatherIds(minWeatherId, maxWeatherId, FROM, toDate, limit);
+            fail("Should have been rejected: " + minWeatherId + ".." + maxWeatherId + " to " +
+                    toDate + " limit " + limit);
+        } catch (IllegalArgumentException expected) {
+            /* Expected */
+        }
+    }
+
+
+    @Test
+    public void testWeatherIdRangeWithinDays() {
+        WeatherConditionQuery query = WeatherConditionQuery.withWeatherIds(
+                WeatherConditionQuery.MIN_RAIN_WEATHER_ID,
+                WeatherConditionQuery.MAX_RAIN_WEATHER_ID, FROM, FROM + 14 * DAY, 14);
+
+        assertEquals("SELECT * FROM weather WHERE date >= ? AND date < ? AND " +
+                "weather_id BETWEEN ? AND ? ORDER BY date ASC LIMIT 14", query.toSql(null));
+        assertArrayEquals(new String[]{Long.toString(FROM), Long.toString(FROM + 14 * DAY),
+                "500", "599"}, query.selectionArgs);
+    }
+
+
+    @Test
+    public void testSingleWeatherIdIsAnEquality() {
+        WeatherConditionQuery query = WeatherConditionQuery.withWeatherIds(
+                WeatherConditionQuery.CLEAR_WEATHER_ID, WeatherConditionQuery.CLEAR_WEATHER_ID,
+                FROM, WeatherConditionQuery.NO_END_DATE, 1);
+
+        /* Without an end date, the days are only bounded from below */
+        assertEquals("SELECT date, weather_id FROM weather WHERE date >= ? AND " +
+                        "weather_id = ? ORDER BY date ASC LIMIT 1",
+                query.toSql(new String[]{"date", "weather_id"}));
+        assertArrayEquals(new String[]{Long.toString(FROM), "800"}, query.selectionArgs);
+    }
+
+
+    @Test
+    public void testMaxTempAbove() {
+        WeatherConditionQuery query = WeatherConditionQuery.withMaxTempAbove(25.5, FROM,
+                FROM + 7 * DAY, 3);
+
+        assertEquals("date >= ? AND date < ? AND max > ?", query.selection);
+        assertEquals("date ASC", query.orderBy);
+        assertEquals("3", query.limit);
+        assertArrayEquals(new String[]{Long.toString(FROM), Long.toString(FROM + 7 * DAY),
+                "25.5"}, query.selectionArgs);
+
+        try {
+            WeatherConditionQuery.withMaxTempAbove(Double.NaN, FROM, FROM + DAY, 1);
+            fail("A temperature that is not a number should have been rejected");
+        } catch (IllegalArgumentException expected) {
+            /* Expected */
+        }
+    }
+
+
+    @Test
+    public void testRejectsEmptyQueries() {
+        assertRejected(599, 500, FROM + DAY, 1);
+        assertRejected(500, 599, FROM, 1);
+        assertRejected(500, 599, FROM - DAY, 1);
+        assertRejected(500, 599, FROM + DAY, 0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.codeking123.android.sunshine.core.format;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Golden test for CompiledFormat on the JVM: in every available locale the output must be exactly
+ * what String.format produces. The app's instrumented tests run the same check against the
+ * device's Formatter.
+ */
+public class TestCompiledFormat {
+
+    private static final String[] NUMBER_PATTERNS = {
+            "%1.0f°", "%.0f", "%5.0f°", "%1.0f hPa", "%1.0f %%", "%.1f", "%,.0f", "%s"
+    };
+
+    private static final String[] NUMBER_AND_TEXT_PATTERNS = {
+            "%1$1.0f km/h %2$s", "%1$1.0f mph %2$s", "%2$s %1$.0f", "%.0f%s", "%1$s %2$s"
+    };
+
+    private static final double[] VALUES = {
+            0.0, -0.0, 0.4, -0.4, 0.5, -0.5, 1.5, 2.5, -2.5, 21.6, -40.0, 99.5, 451.0,
+            0.49999999999999994, -0.49999999999999994, 12345.678, 1e15 + 0.5,
+            4503599627370495.5, 1e300, Double.NaN, Double.POSITIVE_INFINITY
+    };
+
+
+    @Test
+    public void testMatchesStringFormatInEveryLocale() {
+        for (Locale locale : Locale.getAvailableLocales()) {
+            for (String pattern : NUMBER_PATTERNS) {
+                CompiledFormat format = CompiledFormat.compile(pattern, locale);
+                for (double value : VALUES) {
+                    assertEquals("Mismatch for \"" + pattern + "\" in " + locale + " with " + value,
+                            String.format(locale, pattern, value),
+                            format.format(value));
+                }
+            }
+
+            for (String pattern : NUMBER_AND_TEXT_PATTERNS) {
+                CompiledFormat format = CompiledFormat.compile(pattern, locale);
+                for (double value : VALUES) {
+                    float speed = (float) value;
+                    assertEquals("Mismatch for \"" + pattern + "\" in " + locale + " with " + speed,
+                            String.format(locale, pattern, speed, "NW"),
+                            format.format(speed, "NW"));
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testRoundingMatchesStringFormat() {
+        CompiledFormat format = CompiledFormat.compile("%1.0f°", Locale.US);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            double value = (random.nextDouble() - 0.5) * 200;
+            /* Every third value lands exactly on a half, where rounding mode matters */
+            if (i % 3 == 0) value = Math.round(value * 2) / 2.0;
+
+            assertEquals(String.format(Locale.US, "%1.0f°", value), format.format(value));
+        }
+    }
+
+
+    @Test
+    public void testFormatToAppends() {
+        StringBuilder out = new StringBuilder("High: ");
+        CompiledFormat.compile("%1.0f°", Locale.US).formatTo(out, 21.6);
+
+        assertEquals("High: 22°", out.toString());
+    }
+}
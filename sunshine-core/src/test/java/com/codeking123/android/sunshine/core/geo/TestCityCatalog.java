@@ -0,0 +1,194 @@
+package com.codeking123.android.sunshine.core.geo;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class TestCityCatalog {
+
+    private static final List<City> CITIES = Arrays.asList(
+            new City("London", "GB", 51.5085, -0.1257, 7556900),
+            new City("London", "CA", 42.9834, -81.2330, 346765),
+            new City("Londonderry", "GB", 54.9975, -7.3086, 83652),
+            new City("Los Angeles", "US", 34.0522, -118.2437, 3971883),
+            new City("São Paulo", "BR", -23.5475, -46.6361, 10021295),
+            new City("Saint-Étienne", "FR", 45.4339, 4.3900, 171483),
+            new City("Lyon", "FR", 45.7485, 4.8467, 472317),
+            new City("St. John's", "CA", 47.5649, -52.7093, 99182));
+
+    private static final String[] SYLLABLES = {
+            "ba", "ber", "ca", "do", "el", "fa", "gor", "ham", "in", "ka", "lon", "ma", "nor",
+            "os", "pa", "ri", "sa", "ta", "ur", "vil", "wes", "ya", "zo"};
+
+    private static List<String> getLabels(List<City> cities) {
+        List<String> labels = new ArrayList<String>();
+        for (City city : cities) {
+            labels.add(city.getLabel());
+        }
+        return labels;
+    }
+
+    /* Made up names, many of them sharing a start, with populations that are sometimes equal */
+    private static List<City> randomCities(Random random, int count) {
+        List<City> cities = new ArrayList<City>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            int syllables = 1 + random.nextInt(4);
+            for (int j = 0; j < syllables; j++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            if (random.nextInt(10) == 0) {
+                name.append(" ").append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            cities.add(new City(name.toString(), random.nextBoolean() ? "AA" : "BB",
+                    -90 + 180 * random.nextDouble(), -180 + 360 * random.nextDouble(),
+                    random.nextInt(1000)));
+        }
+        return cities;
+    }
+
+
+    @Test
+    public void testNormalizesNames() {
+        assertEquals("saint etienne", CityCatalog.normalize("Saint-Étienne"));
+        assertEquals("sao paulo", CityCatalog.normalize("  São   Paulo "));
+        assertEquals("st john s", CityCatalog.normalize("St. John's"));
+        assertEquals("", CityCatalog.normalize(" - "));
+    }
+
+
+    @Test
+    public void testSuggestsTheMostPopulousCitiesForAPrefix() {
+        CityCatalog catalog = CityCatalog.build(CITIES);
+        assertEquals(8, catalog.size());
+
+        assertEquals(Arrays.asList("London, GB", "Los Angeles, US", "Lyon, FR", "London, CA"),
+                getLabels(catalog.suggest("l", 4)));
+        assertEquals(Arrays.asList("London, GB", "London, CA", "Londonderry, GB"),
+                getLabels(catalog.suggest("LOND", CityCatalog.MAX_SUGGESTIONS)));
+        assertEquals(Arrays.asList("London, GB"), getLabels(catalog.suggest("lon", 1)));
+        /* Accents and punctuation needn't be typed */
+        assertEquals(Arrays.asList("São Paulo, BR", "Saint-Étienne, FR"),
+                getLabels(catalog.suggest("Sa", 2)));
+        assertEquals(Arrays.asList("Saint-Étienne, FR"),
+                getLabels(catalog.suggest("saint e", 2)));
+        assertEquals(Arrays.asList("St. John's, CA"), getLabels(catalog.suggest("st john", 2)));
+
+        assertEquals(Collections.<City>emptyList(), catalog.suggest("Lx", 4));
+        assertEquals(Collections.<City>emptyList(), catalog.suggest("Londonderryx", 4));
+        assertEquals(Collections.<City>emptyList(), catalog.suggest("", 4));
+    }
+
+
+    @Test
+    public void testSuggestsWhatSearchingEveryCityWouldFind() {
+        Random random = new Random(17);
+        List<City> cities = randomCities(random, 20000);
+        CityCatalog catalog = CityCatalog.build(cities);
+
+        /* Most populous first, then in the catalogue's order */
+        List<City> ranked = new ArrayList<City>(cities);
+        Collections.sort(ranked, new Comparator<City>() {
+            @Override
+            public int compare(City a, City b) {
+                int byKey = CityCatalog.normalize(a.name).compareTo(CityCatalog.normalize(b.name));
+                if (byKey != 0) {
+                    return byKey;
+                }
+                int byName = a.name.compareTo(b.name);
+                return byName != 0 ? byName : a.country.compareTo(b.country);
+            }
+        });
+        Collections.sort(ranked, new Comparator<City>() {
+            @Override
+            public int compare(City a, City b) {
+                return b.population - a.population;
+            }
+        });
+
+        for (int i = 0; i < 500; i++) {
+            String name = cities.get(random.nextInt(cities.size())).name;
+            String prefix = name.substring(0, 1 + random.nextInt(name.length()));
+            String key = CityCatalog.normalize(prefix);
+            List<String> expected = new ArrayList<String>();
+            for (City city : ranked) {
+                if (expected.size() < CityCatalog.MAX_SUGGESTIONS
+                        && CityCatalog.normalize(city.name).startsWith(key)) {
+                    expected.add(city.getLabel());
+                }
+            }
+            assertEquals(prefix, expected,
+                    getLabels(catalog.suggest(prefix, CityCatalog.MAX_SUGGESTIONS)));
+        }
+        assertTrue(catalog.getNodeCount() < 2 * catalog.size());
+    }
+
+
+    @Test
+    public void testResolvesNamesToCoordinates() {
+        CityCatalog catalog = CityCatalog.build(CITIES);
+
+        /* Of the cities of a name, the most populous */
+        City london = catalog.resolve("london");
+        assertEquals("London, GB", london.getLabel());
+        assertEquals(51.5085, london.latitude, 1e-4);
+        assertEquals(-0.1257, london.longitude, 1e-4);
+        assertEquals(7556900, london.population);
+
+        assertEquals("London, CA", catalog.resolve("London, ca").getLabel());
+        for (City city : CITIES) {
+            City resolved = catalog.resolve(city.getLabel());
+            assertEquals(city.getLabel(), resolved.getLabel());
+            assertEquals(city.latitude, resolved.latitude, 1e-4);
+            assertEquals(city.longitude, resolved.longitude, 1e-4);
+        }
+
+        assertNull(catalog.resolve("Lond"));
+        assertNull(catalog.resolve("London, US"));
+        assertNull(catalog.resolve("Mountain View, CA 94043"));
+        assertNull(catalog.resolve(""));
+    }
+
+
+    @Test
+    public void testReadsWhatItWrites() throws IOException {
+        StringWriter written = new StringWriter();
+        written.write("# Name, country, latitude, longitude and population\n");
+        CityCatalog.write(CITIES, written);
+        CityCatalog catalog = CityCatalog.read(new StringReader(written.toString()));
+
+        assertEquals(CITIES.size(), catalog.size());
+        assertEquals(getLabels(CityCatalog.build(CITIES).suggest("l", 8)),
+                getLabels(catalog.suggest("l", 8)));
+        assertEquals(-23.5475, catalog.resolve("Sao Paulo").latitude, 1e-4);
+
+        String[] malformed = {
+                "London\tGB\t51.5\n",
+                "London\tGB\t51.5\tWest\t1\n",
+                "London\tGB\t91\t0\t1\n",
+                "London\tGB\t51.5\t0\t-1\n"};
+        for (String catalogue : malformed) {
+            try {
+                CityCatalog.read(new StringReader(catalogue));
+                fail("Catalogue should have been rejected: " + catalogue);
+            } catch (IOException expected) {
+                /* Expected */
+            }
+        }
+    }
+}
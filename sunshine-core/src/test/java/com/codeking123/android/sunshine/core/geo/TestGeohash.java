@@ -0,0 +1,96 @@
+package com.codeking123.android.sunshine.core.geo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class TestGeohash {
+
+    private static void assertRejected(double latitude, double longitude, int precision) {
+        try {
+            Geohash.encode(latitude, longitude, precision);
+            fail("Should have been rejected: " + latitude + ", " + longitude + " @" + precision);
+        } catch (IllegalArgumentException expected) {
+            /* Expected */
+        }
+    }
+
+
+    @Test
+    public void testEncodesKnownPoints() {
+        assertEquals("ezs42", Geohash.encode(42.6, -5.6, 5));
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        /* Mountain View */
+        assertEquals("9q9hv", Geohash.encode(37.4220, -122.0841, 5));
+        /* Every prefix is the hash at a lower precision */
+        assertEquals("u4pr", Geohash.encode(57.64911, 10.40744, 4));
+    }
+
+
+    @Test
+    public void testNearbyPointsShareATile() {
+        /* About 300 metres apart in the same 4.9 km cell */
+        assertEquals(Geohash.encode(51.5007, -0.1246, 5), Geohash.encode(51.5033, -0.1195, 5));
+        /* But not at 150 metre precision */
+        assertTrue(!Geohash.encode(51.5007, -0.1246, 7)
+                .equals(Geohash.encode(51.5033, -0.1195, 7)));
+    }
+
+
+    @Test
+    public void testCenterEncodesToItsOwnCell() {
+        for (int precision = 1; precision <= Geohash.MAX_PRECISION; precision++) {
+            String hash = Geohash.encode(-33.8688, 151.2093, precision);
+            double[] center = Geohash.getCenter(hash);
+            assertEquals(hash, Geohash.encode(center[0], center[1], precision));
+
+            double[] bounds = Geohash.getBounds(hash);
+            assertTrue(bounds[0] <= -33.8688 && -33.8688 <= bounds[2]);
+            assertTrue(bounds[1] <= 151.2093 && 151.2093 <= bounds[3]);
+        }
+    }
+
+
+    @Test
+    public void testBoundsOfKnownCell() {
+        double[] bounds = Geohash.getBounds("ezs42");
+        assertEquals(42.583, bounds[0], 0.001);
+        assertEquals(-5.625, bounds[1], 0.001);
+        assertEquals(42.627, bounds[2], 0.001);
+        assertEquals(-5.581, bounds[3], 0.001);
+    }
+
+
+    @Test
+    public void testRejectsInvalidInput() {
+        assertRejected(91, 0, 5);
+        assertRejected(0, -180.5, 5);
+        assertRejected(Double.NaN, 0, 5);
+        assertRejected(0, 0, 0);
+        assertRejected(0, 0, Geohash.MAX_PRECISION + 1);
+
+        for (String hash : new String[]{"", "ezs4a", "EZS42", "ezs42ezs42ezs"}) {
+            try {
+                Geohash.getCenter(hash);
+                fail("Should have been rejected: " + hash);
+            } catch (IllegalArgumentException expected) {
+                /* Expected */
+            }
+        }
+    }
+
+
+    @Test
+    public void testTileLookupByAge() {
+        long hour = 60 * 60 * 1000;
+        assertEquals(TileLookup.MISS, TileLookup.of(TileLookup.NOT_FETCHED, 10 * hour, hour));
+        assertEquals(TileLookup.HIT, TileLookup.of(10 * hour, 10 * hour, hour));
+        assertEquals(TileLookup.HIT, TileLookup.of(10 * hour, 11 * hour - 1, hour));
+        assertEquals(TileLookup.EXPIRED, TileLookup.of(10 * hour, 11 * hour, hour));
+        /* Fetched after now: the clock went back, so the age can't be known */
+        assertEquals(TileLookup.EXPIRED, TileLookup.of(10 * hour, 9 * hour, hour));
+    }
+}
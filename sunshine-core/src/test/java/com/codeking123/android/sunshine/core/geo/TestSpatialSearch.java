@@ -0,0 +1,249 @@
+package com.codeking123.android.sunshine.core.geo;
+
+import com.codeking123.android.sunshine.core.geo.SpatialSearch.Candidates;
+import com.codeking123.android.sunshine.core.geo.SpatialSearch.Neighbor;
+import com.codeking123.android.sunshine.core.geo.SpatialSearch.PointSource;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class TestSpatialSearch {
+
+    private static final int PRECISION = 9;
+
+    /*
+     * Points kept sorted by geohash, scanned range by range like an index on the column. Counts
+     * the points it reads.
+     */
+    private static final class SortedPoints implements PointSource {
+
+        final TreeMap<String, double[]> mPoints = new TreeMap<String, double[]>();
+        int mScanned;
+
+        void add(long id, double latitude, double longitude) {
+            /* The id makes points in the same cell unique */
+            mPoints.put(Geohash.encode(latitude, longitude, PRECISION) + "#" + id,
+                    new double[]{id, latitude, longitude});
+        }
+
+        @Override
+        public void scan(String[] ranges, Candidates candidates) {
+            if (ranges == null) {
+                add(mPoints, candidates);
+                return;
+            }
+            for (int i = 0; i < ranges.length; i += 2) {
+                assertTrue(ranges[i].compareTo(ranges[i + 1]) < 0);
+                add(mPoints.subMap(ranges[i], ranges[i + 1]), candidates);
+            }
+        }
+
+        private void add(Map<String, double[]> points, Candidates candidates) {
+            for (double[] point : points.values()) {
+                mScanned++;
+                candidates.add((long) point[0], point[1], point[2]);
+            }
+        }
+
+        /* Every point within the distance, nearest first, by measuring them all */
+        List<Neighbor> bruteForce(double latitude, double longitude, double maxDistance) {
+            Candidates all = new Candidates(latitude, longitude, maxDistance);
+            for (double[] point : mPoints.values()) {
+                all.add((long) point[0], point[1], point[2]);
+            }
+            return all.nearest(Integer.MAX_VALUE);
+        }
+    }
+
+    private static SortedPoints randomPoints(Random random, int count) {
+        SortedPoints points = new SortedPoints();
+        for (int i = 0; i < count; i++) {
+            points.add(i, Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)),
+                    -180 + 360 * random.nextDouble());
+        }
+        return points;
+    }
+
+    private static void assertSameNeighbors(List<Neighbor> expected, List<Neighbor> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).id, actual.get(i).id);
+            assertEquals(expected.get(i).distanceMeters, actual.get(i).distanceMeters, 0);
+        }
+    }
+
+    /* Centers anywhere, and some where circles wrap round the 180th meridian or a pole */
+    private static double[][] centers(Random random) {
+        double[][] centers = new double[60][];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = new double[]{-90 + 180 * random.nextDouble(),
+                    -180 + 360 * random.nextDouble()};
+        }
+        centers[0] = new double[]{-17.8, 179.99};
+        centers[1] = new double[]{65.5, -180};
+        centers[2] = new double[]{89.9, 45};
+        centers[3] = new double[]{-90, 0};
+        centers[4] = new double[]{0, 0};
+        return centers;
+    }
+
+
+    @Test
+    public void testMeasuresGreatCircleDistances() {
+        /* London to Paris is 344 km, and a quarter of the way round the Earth is 10008 km */
+        assertEquals(343.5e3, SpatialSearch.distanceMeters(51.5074, -0.1278, 48.8566, 2.3522),
+                500);
+        assertEquals(SpatialSearch.MAX_DISTANCE_METERS / 2,
+                SpatialSearch.distanceMeters(0, 0, 0, 90), 1e-6);
+        assertEquals(SpatialSearch.MAX_DISTANCE_METERS,
+                SpatialSearch.distanceMeters(90, 0, -90, 0), 1e-6);
+        /* Across the 180th meridian */
+        assertEquals(SpatialSearch.distanceMeters(0, -0.5, 0, 0.5),
+                SpatialSearch.distanceMeters(0, 179.5, 0, -179.5), 1e-6);
+        assertEquals(0, SpatialSearch.distanceMeters(12.3, 45.6, 12.3, 45.6), 0);
+    }
+
+
+    @Test
+    public void testCoversCirclesWithFewRanges() {
+        /* 50 km round Amsterdam, in cells of 24 km by 20 km */
+        String[] ranges = SpatialSearch.cover(52.37, 4.90, 50000, PRECISION);
+        assertTrue(ranges.length / 2 <= SpatialSearch.MAX_CELLS);
+        assertEquals(4, ranges[0].length());
+        assertEquals("(geohash >= ? AND geohash < ?) OR (geohash >= ? AND geohash < ?)",
+                SpatialSearch.selection("geohash", new String[]{"u17", "u18", "u1k", "u1l"}));
+
+        /* Cells are never finer than the geohashes stored */
+        assertEquals(6, SpatialSearch.cover(52.37, 4.90, 1, 6)[0].length());
+
+        /* Half way round the Earth is everything */
+        assertNull(SpatialSearch.cover(0, 0, SpatialSearch.MAX_DISTANCE_METERS, PRECISION));
+    }
+
+
+    @Test
+    public void testCoverHoldsEveryPointOfTheCircle() {
+        Random random = new Random(7);
+        double[] radii = {0, 10, 1000, 50000, 700000, 5000000};
+        for (double[] center : centers(random)) {
+            for (double radius : radii) {
+                String[] ranges = SpatialSearch.cover(center[0], center[1], radius, PRECISION);
+                if (ranges == null) {
+                    continue;
+                }
+                /* Points on the circle's edge, in every direction */
+                for (int bearing = 0; bearing < 360; bearing += 5) {
+                    double[] point = destination(center, radius * 0.999, bearing);
+                    String hash = Geohash.encode(point[0], point[1], PRECISION);
+                    boolean covered = false;
+                    for (int i = 0; i < ranges.length; i += 2) {
+                        covered |= hash.compareTo(ranges[i]) >= 0
+                                && hash.compareTo(ranges[i + 1]) < 0;
+                    }
+                    assertTrue(hash + " at " + bearing + "° of " + center[0] + ", " + center[1]
+                            + " radius " + radius, covered);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testFindsThePointsWithinARadius() {
+        Random random = new Random(11);
+        SortedPoints points = randomPoints(random, 20000);
+        for (double[] center : centers(random)) {
+            for (double radius : new double[]{30000, 300000, 3000000}) {
+                points.mScanned = 0;
+                List<Neighbor> found = SpatialSearch.withinRadius(points, center[0], center[1],
+                        radius, PRECISION);
+                assertSameNeighbors(points.bruteForce(center[0], center[1], radius), found);
+                /* Reading only what the index points to is the whole point */
+                if (radius == 300000 && Math.abs(center[0]) < 60) {
+                    assertTrue(points.mScanned < points.mPoints.size() / 50);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testFindsTheNearestPoints() {
+        Random random = new Random(13);
+        SortedPoints points = randomPoints(random, 20000);
+        for (double[] center : centers(random)) {
+            List<Neighbor> everything = points.bruteForce(center[0], center[1],
+                    SpatialSearch.MAX_DISTANCE_METERS);
+            for (int count : new int[]{1, 10, 100}) {
+                List<Neighbor> found = SpatialSearch.nearest(points, center[0], center[1], count,
+                        SpatialSearch.MAX_DISTANCE_METERS, PRECISION);
+                assertSameNeighbors(everything.subList(0, count), found);
+            }
+        }
+
+        /* Within a distance, there may be fewer */
+        List<Neighbor> near = SpatialSearch.nearest(points, 0, 0, 1000, 200000, PRECISION);
+        assertSameNeighbors(points.bruteForce(0, 0, 200000), near);
+
+        SortedPoints none = new SortedPoints();
+        assertEquals(Collections.<Neighbor>emptyList(), new ArrayList<Neighbor>(
+                SpatialSearch.nearest(none, 10, 10, 5, SpatialSearch.MAX_DISTANCE_METERS, 9)));
+    }
+
+
+    @Test
+    public void testRejectsOutOfRangeSearches() {
+        SortedPoints points = new SortedPoints();
+        try {
+            SpatialSearch.withinRadius(points, 91, 0, 1000, PRECISION);
+            fail("A latitude past the pole should have been rejected");
+        } catch (IllegalArgumentException expected) {
+            /* Expected */
+        }
+        try {
+            SpatialSearch.withinRadius(points, 0, 0, -1, PRECISION);
+            fail("A negative radius should have been rejected");
+        } catch (IllegalArgumentException expected) {
+            /* Expected */
+        }
+        try {
+            SpatialSearch.nearest(points, 0, 0, 0, 1000, PRECISION);
+            fail("A count of 0 should have been rejected");
+        } catch (IllegalArgumentException expected) {
+            /* Expected */
+        }
+        try {
+            SpatialSearch.cover(0, 0, 1000, Geohash.MAX_PRECISION + 1);
+            fail("A precision past the maximum should have been rejected");
+        } catch (IllegalArgumentException expected) {
+            /* Expected */
+        }
+    }
+
+    /* The point the distance away from the center on the bearing, in degrees from north */
+    private static double[] destination(double[] center, double distance, double bearing) {
+        double angle = distance / SpatialSearch.EARTH_RADIUS_METERS;
+        double phi1 = Math.toRadians(center[0]);
+        double theta = Math.toRadians(bearing);
+        double phi2 = Math.asin(Math.sin(phi1) * Math.cos(angle)
+                + Math.cos(phi1) * Math.sin(angle) * Math.cos(theta));
+        double lambda2 = Math.toRadians(center[1]) + Math.atan2(
+                Math.sin(theta) * Math.sin(angle) * Math.cos(phi1),
+                Math.cos(angle) - Math.sin(phi1) * Math.sin(phi2));
+        double longitude = Math.toDegrees(lambda2);
+        longitude = ((longitude + 540) % 360) - 180;
+        return new double[]{Math.toDegrees(phi2), longitude};
+    }
+}
@@ -0,0 +1,64 @@
+package com.codeking123.android.sunshine.core.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+
+public class TestPercentiles {
+
+    @Test
+    public void testNearestRank() {
+        /* 1 to 100, shuffled, followed by values that are not part of the sample */
+        long[] values = new long[120];
+        for (int i = 0; i < 100; i++) {
+            values[i] = (i * 37) % 100 + 1;
+        }
+        for (int i = 100; i < values.length; i++) {
+            values[i] = 1000000;
+        }
+
+        Percentiles percentiles = new Percentiles(values, 100);
+
+        assertEquals(100, percentiles.getCount());
+        assertEquals(50, percentiles.get(50));
+        assertEquals(95, percentiles.get(95));
+        assertEquals(99, percentiles.get(99));
+        assertEquals(100, percentiles.get(100));
+        assertEquals(1, percentiles.get(0.1));
+        assertEquals("The sample shouldn't be sorted in place", 1, values[0]);
+    }
+
+
+    @Test
+    public void testSmallSamples() {
+        long[] twenty = new long[20];
+        for (int i = 0; i < twenty.length; i++) {
+            twenty[i] = i + 1;
+        }
+        Percentiles percentiles = new Percentiles(twenty, twenty.length);
+        assertEquals(10, percentiles.get(50));
+        assertEquals(19, percentiles.get(95));
+        assertEquals(20, percentiles.get(99));
+
+        Percentiles single = new Percentiles(new long[]{42}, 1);
+        assertEquals(42, single.get(50));
+        assertEquals(42, single.get(99));
+
+        assertEquals(0, new Percentiles(new long[0], 0).get(50));
+    }
+
+
+    @Test
+    public void testRejectsOutOfRangePercentiles() {
+        Percentiles percentiles = new Percentiles(new long[]{1, 2, 3}, 3);
+        for (double percentile : new double[]{0, -1, 100.5}) {
+            try {
+                percentiles.get(percentile);
+                fail("Percentile " + percentile + " should have been rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
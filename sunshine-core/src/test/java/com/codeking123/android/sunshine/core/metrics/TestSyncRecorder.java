@@ -0,0 +1,134 @@
+package com.codeking123.android.sunshine.core.metrics;
+
+import com.codeking123.android.sunshine.core.geo.TileLookup;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestSyncRecorder {
+
+    /* A ticker that only moves when told to */
+    private static final class ManualTicker implements Ticker {
+        long mNanos;
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+
+
+    @Test
+    public void testRecordsPhasesBytesRowsAndOutcome() {
+        ManualTicker ticker = new ManualTicker();
+        SyncRecorder recorder = new SyncRecorder(ticker, 1475280000000L);
+
+        recorder.begin(SyncPhase.URL_BUILD);
+        ticker.mNanos += 100;
+        recorder.end(SyncPhase.URL_BUILD);
+
+        recorder.begin(SyncPhase.CONNECT);
+        ticker.mNanos += 2000;
+        recorder.end(SyncPhase.CONNECT);
+
+        /* A second connect, as after a redirect, adds to the first */
+        recorder.begin(SyncPhase.CONNECT);
+        ticker.mNanos += 500;
+        recorder.end(SyncPhase.CONNECT);
+
+        recorder.record(SyncPhase.PARSE, 300);
+        recorder.addBytes(1000);
+        recorder.addBytes(24);
+        recorder.setRows(14);
+
+        SyncMetrics metrics = recorder.finish(SyncOutcome.SUCCESS);
+
+        assertEquals(1475280000000L, metrics.startedAtMillis);
+        assertEquals(2600, metrics.totalNanos);
+        assertEquals(100, metrics.getPhaseNanos(SyncPhase.URL_BUILD));
+        assertEquals(2500, metrics.getPhaseNanos(SyncPhase.CONNECT));
+        assertEquals(300, metrics.getPhaseNanos(SyncPhase.PARSE));
+        assertEquals(1024, metrics.bytes);
+        assertEquals(14, metrics.rows);
+        assertEquals(SyncOutcome.SUCCESS, metrics.outcome);
+    }
+
+
+    @Test
+    public void testPhasesNotRun() {
+        ManualTicker ticker = new ManualTicker();
+        SyncRecorder recorder = new SyncRecorder(ticker, 0);
+
+        /* Ending a phase that never began, as when a callback fires out of order, is ignored */
+        ticker.mNanos += 1000;
+        recorder.end(SyncPhase.FIRST_BYTE);
+
+        /* A phase that began but never ended, because the sync failed, has no duration */
+        recorder.begin(SyncPhase.DOWNLOAD);
+
+        SyncMetrics metrics = recorder.finish(SyncOutcome.NETWORK_ERROR);
+
+        for (SyncPhase phase : SyncPhase.values()) {
+            assertEquals(phase.name(), SyncMetrics.NOT_RUN, metrics.getPhaseNanos(phase));
+        }
+        assertEquals(SyncOutcome.NETWORK_ERROR, metrics.outcome);
+    }
+
+
+    @Test
+    public void testRecordsEndpointsUsed() {
+        SyncRecorder recorder = new SyncRecorder(new ManualTicker(), 0);
+
+        SyncMetrics unpicked = recorder.finish(SyncOutcome.ERROR);
+        assertNull(unpicked.endpoint);
+        assertTrue(Double.isNaN(unpicked.endpointLatencyEwmaMillis));
+        assertNull(unpicked.hedgeEndpoint);
+
+        recorder.setEndpoint("static", 250.5, 0.25);
+        recorder.setHedge("dynamic", true);
+        SyncMetrics metrics = recorder.finish(SyncOutcome.SUCCESS);
+
+        assertEquals("static", metrics.endpoint);
+        assertEquals(250.5, metrics.endpointLatencyEwmaMillis, 0);
+        assertEquals(0.25, metrics.endpointErrorRateEwma, 0);
+        assertEquals("dynamic", metrics.hedgeEndpoint);
+        assertTrue(metrics.hedgeWon);
+    }
+
+
+    @Test
+    public void testRecordsTile() {
+        SyncRecorder recorder = new SyncRecorder(new ManualTicker(), 0);
+
+        SyncMetrics unknown = recorder.finish(SyncOutcome.SUCCESS);
+        assertNull(unknown.tile);
+        assertNull(unknown.tileLookup);
+
+        recorder.setTile("u4pru", TileLookup.HIT);
+        SyncMetrics metrics = recorder.finish(SyncOutcome.SUCCESS);
+
+        assertEquals("u4pru", metrics.tile);
+        assertEquals(TileLookup.HIT, metrics.tileLookup);
+    }
+
+
+    @Test
+    public void testRecordsGeocodeLookup() {
+        SyncRecorder recorder = new SyncRecorder(new ManualTicker(), 0);
+
+        SyncMetrics unknown = recorder.finish(SyncOutcome.SUCCESS);
+        assertNull(unknown.geocodeQuery);
+        assertFalse(unknown.geocodeHit);
+
+        recorder.setGeocode("london gb", true);
+        SyncMetrics metrics = recorder.finish(SyncOutcome.SUCCESS);
+
+        assertEquals("london gb", metrics.geocodeQuery);
+        assertTrue(metrics.geocodeHit);
+    }
+}
@@ -0,0 +1,71 @@
+package com.codeking123.android.sunshine.core.parse;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+
+public class TestOpenWeatherForecastParser {
+
+    /* October 1st, 2016 at midnight, GMT time */
+    private static final long DATE_NORMALIZED = 1475280000000L;
+
+    private final ForecastParser mParser = new OpenWeatherForecastParser();
+
+    static String readResource(String name) {
+        InputStream in = TestOpenWeatherForecastParser.class.getResourceAsStream("/" + name);
+        assertNotNull("Missing test resource " + name, in);
+        Scanner scanner = new Scanner(in, "UTF-8").useDelimiter("\\A");
+        String content = scanner.next();
+        scanner.close();
+        return content;
+    }
+
+
+    @Test
+    public void testParsesFourteenDayForecast() throws JSONException {
+        Forecast forecast = mParser.parse(readResource("forecast_14_days.json"), DATE_NORMALIZED);
+
+        assertNotNull(forecast);
+        assertEquals(37.3861, forecast.cityLatitude, 0);
+        assertEquals(-122.0838, forecast.cityLongitude, 0);
+        assertEquals(14, forecast.records.length);
+
+        WeatherRecord first = forecast.records[0];
+        assertEquals(DATE_NORMALIZED, first.date);
+        assertEquals(800, first.weatherId);
+        assertEquals(8.65, first.minTemp, 0);
+        assertEquals(15.4, first.maxTemp, 0);
+        assertEquals(44, first.humidity, 0);
+        assertEquals(1019.76, first.pressure, 0);
+
+        for (int i = 0; i < forecast.records.length; i++) {
+            assertEquals("Days should be consecutive normalized dates",
+                    DATE_NORMALIZED + i * SunshineDates.DAY_IN_MILLIS,
+                    forecast.records[i].date);
+        }
+    }
+
+
+    @Test
+    public void testErrorCodeReturnsNull() throws JSONException {
+        assertNull(mParser.parse("{\"cod\":404,\"message\":\"city not found\"}", DATE_NORMALIZED));
+        assertNull(mParser.parse("{\"cod\":\"500\"}", DATE_NORMALIZED));
+    }
+
+
+    @Test(expected = JSONException.class)
+    public void testMalformedPayloadThrows() throws JSONException {
+        mParser.parse("{\"cod\":200,\"list\":[]}", DATE_NORMALIZED);
+    }
+}
@@ -0,0 +1,168 @@
+package com.codeking123.android.sunshine.core.replay;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+
+public class TestHttpTape {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String STATIC_URL =
+            "https://andfun-weather.udacity.com/staticweather?q=Mountain+View&cnt=14";
+    private static final String DYNAMIC_URL =
+            "https://andfun-weather.udacity.com/weather?q=Mountain+View&cnt=14";
+
+
+    @Test
+    public void testReadsBackWhatWasWritten() throws IOException {
+        HttpTape tape = new HttpTape();
+        tape.add(new RecordedExchange.Builder(STATIC_URL)
+                .addRequestHeader("Accept", "application/json")
+                .status(200, "OK")
+                .addResponseHeader("Content-Type", "application/json; charset=utf-8")
+                .addResponseHeader("Set-Cookie", "a=1")
+                .addResponseHeader("Set-Cookie", "b=2")
+                .body("{\"list\":[]}".getBytes(UTF_8))
+                .timing(120, 35)
+                .build());
+        tape.add(new RecordedExchange.Builder(DYNAMIC_URL)
+                .status(503, "Service Unavailable")
+                .build());
+
+        HttpTape read = roundTrip(tape);
+
+        assertEquals(2, read.size());
+        RecordedExchange first = read.getExchanges().get(0);
+        assertEquals("GET", first.getMethod());
+        assertEquals(STATIC_URL, first.getUrl());
+        assertEquals(1, first.getRequestHeaderCount());
+        assertEquals("Accept", first.getRequestHeaderName(0));
+        assertEquals("application/json", first.getRequestHeaderValue(0));
+        assertEquals(200, first.getStatusCode());
+        assertEquals("OK", first.getMessage());
+        assertEquals(3, first.getResponseHeaderCount());
+        assertEquals("Set-Cookie", first.getResponseHeaderName(2));
+        assertEquals("b=2", first.getResponseHeaderValue(2));
+        assertArrayEquals("{\"list\":[]}".getBytes(UTF_8), readBody(first));
+        assertEquals(120, first.getHeadersMillis());
+        assertEquals(35, first.getBodyMillis());
+
+        RecordedExchange second = read.getExchanges().get(1);
+        assertEquals(503, second.getStatusCode());
+        assertEquals(0, second.getBodyLength());
+    }
+
+
+    @Test
+    public void testLargeBinaryBodySurvives() throws IOException {
+        byte[] body = new byte[300 * 1024];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) (i * 31);
+        }
+        HttpTape tape = new HttpTape();
+        tape.add(new RecordedExchange.Builder(STATIC_URL).body(body).build());
+
+        assertArrayEquals(body, readBody(roundTrip(tape).getExchanges().get(0)));
+    }
+
+
+    @Test
+    public void testRejectsWhatIsNotATape() {
+        byte[] notATape = "{\"list\":[]}".getBytes(UTF_8);
+        try {
+            HttpTape.readFrom(new ByteArrayInputStream(notATape));
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+
+    @Test
+    public void testRejectsATruncatedTape() throws IOException {
+        HttpTape tape = new HttpTape();
+        tape.add(new RecordedExchange.Builder(STATIC_URL).body(new byte[1000]).build());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tape.writeTo(out);
+        byte[] bytes = out.toByteArray();
+
+        try {
+            HttpTape.readFrom(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+
+    @Test
+    public void testPlayerServesRepeatedRequestsInOrderThenRepeatsTheLast() {
+        HttpTape tape = new HttpTape();
+        tape.add(new RecordedExchange.Builder(STATIC_URL).status(500, "").build());
+        tape.add(new RecordedExchange.Builder(DYNAMIC_URL).status(200, "").build());
+        tape.add(new RecordedExchange.Builder(STATIC_URL).status(200, "").build());
+
+        HttpTape.Player player = tape.newPlayer();
+
+        assertEquals(500, player.next("GET", STATIC_URL).getStatusCode());
+        assertEquals(200, player.next("GET", STATIC_URL).getStatusCode());
+        assertEquals(200, player.next("GET", STATIC_URL).getStatusCode());
+        assertEquals(200, player.next("GET", DYNAMIC_URL).getStatusCode());
+
+        /* A second player starts from the beginning */
+        assertEquals(500, tape.newPlayer().next("GET", STATIC_URL).getStatusCode());
+    }
+
+
+    @Test
+    public void testPlayerHasNothingForRequestsNeverRecorded() {
+        HttpTape tape = new HttpTape();
+        tape.add(new RecordedExchange.Builder(STATIC_URL).build());
+
+        HttpTape.Player player = tape.newPlayer();
+
+        assertNull(player.next("GET", DYNAMIC_URL));
+        assertNull(player.next("POST", STATIC_URL));
+    }
+
+
+    @Test
+    public void testBandwidthOfTheRecordedBody() {
+        RecordedExchange slow = new RecordedExchange.Builder(STATIC_URL)
+                .body(new byte[10000]).timing(50, 2000).build();
+        RecordedExchange instant = new RecordedExchange.Builder(STATIC_URL)
+                .body(new byte[10000]).timing(50, 0).build();
+
+        assertEquals(5000, slow.getBytesPerSecond());
+        assertEquals(0, instant.getBytesPerSecond());
+    }
+
+
+    private static HttpTape roundTrip(HttpTape tape) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tape.writeTo(out);
+        return HttpTape.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+
+    private static byte[] readBody(RecordedExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream body = exchange.openBody();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
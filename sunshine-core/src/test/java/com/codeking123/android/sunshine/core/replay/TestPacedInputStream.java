@@ -0,0 +1,125 @@
+package com.codeking123.android.sunshine.core.replay;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class TestPacedInputStream {
+
+    /* Adds up the pauses instead of waiting them out */
+    private static final class CountingPause implements PacedInputStream.Pause {
+        long mMillis;
+        int mPauses;
+
+        @Override
+        public void pause(long millis) {
+            mMillis += millis;
+            mPauses++;
+        }
+    }
+
+    private final CountingPause mPause = new CountingPause();
+
+
+    @Test
+    public void testBodyTakesItsSizeOverTheRate() throws IOException {
+        PacedInputStream in = new PacedInputStream(
+                new ByteArrayInputStream(new byte[10000]), 4000, mPause);
+
+        assertEquals(10000, drain(in, 4096));
+
+        assertEquals(2500, mPause.mMillis);
+        /* In chunks of a twentieth of a second, 200 bytes */
+        assertEquals(50, mPause.mPauses);
+    }
+
+
+    @Test
+    public void testOneByteReadsDoNotRoundAway() throws IOException {
+        PacedInputStream in = new PacedInputStream(
+                new ByteArrayInputStream(new byte[3000]), 1500, mPause);
+
+        int read = 0;
+        while (in.read() != -1) {
+            read++;
+        }
+
+        assertEquals(3000, read);
+        assertEquals(2000, mPause.mMillis);
+    }
+
+
+    @Test
+    public void testSkippedBytesArePacedToo() throws IOException {
+        PacedInputStream in = new PacedInputStream(
+                new ByteArrayInputStream(new byte[2000]), 1000, mPause);
+
+        long skipped = 0;
+        long step;
+        while ((step = in.skip(2000 - skipped)) > 0) {
+            skipped += step;
+        }
+
+        assertEquals(2000, skipped);
+        assertEquals(2000, mPause.mMillis);
+    }
+
+
+    @Test
+    public void testFastRateNeverPausesForNothing() throws IOException {
+        PacedInputStream in = new PacedInputStream(
+                new ByteArrayInputStream(new byte[500]), 10 * 1000 * 1000, mPause);
+
+        assertEquals(500, drain(in, 100));
+
+        assertEquals(0, mPause.mMillis);
+        assertEquals(0, mPause.mPauses);
+    }
+
+
+    @Test
+    public void testCutShortPauseFailsTheRead() throws IOException {
+        PacedInputStream in = new PacedInputStream(new ByteArrayInputStream(new byte[1000]), 100,
+                new PacedInputStream.Pause() {
+                    @Override
+                    public void pause(long millis) throws IOException {
+                        throw new InterruptedIOException("Canceled");
+                    }
+                });
+
+        try {
+            drain(in, 1000);
+            fail("Expected an InterruptedIOException");
+        } catch (InterruptedIOException expected) {
+        }
+    }
+
+
+    @Test
+    public void testRejectsANonPositiveRate() {
+        try {
+            new PacedInputStream(new ByteArrayInputStream(new byte[1]), 0, mPause);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("bytesPerSecond"));
+        }
+    }
+
+
+    private static int drain(PacedInputStream in, int bufferSize) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        int total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+}
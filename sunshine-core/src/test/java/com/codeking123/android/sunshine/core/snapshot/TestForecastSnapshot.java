@@ -0,0 +1,172 @@
+package com.codeking123.android.sunshine.core.snapshot;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+
+public class TestForecastSnapshot {
+
+    /* January 1st, 2017 at midnight, GMT time */
+    private static final long JANUARY_1ST = 1483228800000L;
+
+    private static final long DAY = SunshineDates.DAY_IN_MILLIS;
+
+
+    @Test
+    public void testDaysReadBackAsWritten() {
+        ForecastSnapshot snapshot = ForecastSnapshot.read(buildWeek());
+
+        assertNotNull(snapshot);
+        assertEquals(7, snapshot.getCount());
+        for (int day = 0; day < 7; day++) {
+            assertEquals(JANUARY_1ST + day * DAY, snapshot.getDate(day));
+            assertEquals(10.25 + day, snapshot.getMaxTemperature(day), 0);
+            assertEquals(-3.5 + day, snapshot.getMinTemperature(day), 0);
+            assertEquals(800 + day, snapshot.getWeatherId(day));
+        }
+    }
+
+
+    @Test
+    public void testReadsMemoryMappedFile() throws Exception {
+        File file = File.createTempFile("forecast", ".snapshot");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.getChannel().write(buildWeek());
+            } finally {
+                out.close();
+            }
+
+            ForecastSnapshot snapshot;
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = in.getChannel();
+                snapshot = ForecastSnapshot.read(
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } finally {
+                in.close();
+            }
+
+            /* The mapping outlives the file being closed */
+            assertNotNull(snapshot);
+            assertEquals(7, snapshot.getCount());
+            assertEquals(JANUARY_1ST + 6 * DAY, snapshot.getDate(6));
+            assertEquals(806, snapshot.getWeatherId(6));
+        } finally {
+            file.delete();
+        }
+    }
+
+
+    @Test
+    public void testEmptySnapshot() {
+        ForecastSnapshot snapshot = ForecastSnapshot.read(new ForecastSnapshot.Builder(0).build());
+
+        assertNotNull(snapshot);
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.indexOfFirstDayFrom(JANUARY_1ST));
+    }
+
+
+    @Test
+    public void testFewerDaysThanCapacity() {
+        ForecastSnapshot.Builder builder = new ForecastSnapshot.Builder(50);
+        builder.add(JANUARY_1ST, 1, 0, 500);
+
+        ForecastSnapshot snapshot = ForecastSnapshot.read(builder.build());
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.getCount());
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddingPastCapacityThrows() {
+        new ForecastSnapshot.Builder(1)
+                .add(JANUARY_1ST, 1, 0, 500)
+                .add(JANUARY_1ST + DAY, 1, 0, 500);
+    }
+
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDayOutOfRangeThrows() {
+        ForecastSnapshot.read(buildWeek()).getDate(7);
+    }
+
+
+    @Test
+    public void testIndexOfFirstDayFrom() {
+        ForecastSnapshot snapshot = ForecastSnapshot.read(buildWeek());
+
+        assertEquals(0, snapshot.indexOfFirstDayFrom(JANUARY_1ST - DAY));
+        assertEquals(0, snapshot.indexOfFirstDayFrom(JANUARY_1ST));
+        assertEquals(3, snapshot.indexOfFirstDayFrom(JANUARY_1ST + 3 * DAY));
+        assertEquals(4, snapshot.indexOfFirstDayFrom(JANUARY_1ST + 3 * DAY + 1));
+        assertEquals(7, snapshot.indexOfFirstDayFrom(JANUARY_1ST + 7 * DAY));
+    }
+
+
+    @Test
+    public void testDamagedSnapshotsAreRejected() {
+        byte[] bytes = toBytes(buildWeek());
+
+        /* Any changed byte, in the header, the days or the checksum */
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] damaged = bytes.clone();
+            damaged[i] ^= 0x10;
+            assertNull("Byte " + i, ForecastSnapshot.read(ByteBuffer.wrap(damaged)));
+        }
+
+        /* Cut short, as a write interrupted before the rename would leave it */
+        for (int length = 0; length < bytes.length; length++) {
+            assertNull("Length " + length,
+                    ForecastSnapshot.read(ByteBuffer.wrap(bytes, 0, length)));
+        }
+
+        /* Or with something after it */
+        byte[] longer = new byte[bytes.length + 1];
+        System.arraycopy(bytes, 0, longer, 0, bytes.length);
+        assertNull(ForecastSnapshot.read(ByteBuffer.wrap(longer)));
+    }
+
+
+    @Test
+    public void testReadsFromBufferPosition() {
+        byte[] bytes = toBytes(buildWeek());
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 3);
+        buffer.position(3);
+        buffer.put(bytes);
+        buffer.position(3);
+
+        ForecastSnapshot snapshot = ForecastSnapshot.read(buffer);
+        assertNotNull(snapshot);
+        assertEquals(JANUARY_1ST, snapshot.getDate(0));
+    }
+
+
+    private static ByteBuffer buildWeek() {
+        ForecastSnapshot.Builder builder = new ForecastSnapshot.Builder(7);
+        for (int day = 0; day < 7; day++) {
+            builder.add(JANUARY_1ST + day * DAY, 10.25 + day, -3.5 + day, 800 + day);
+        }
+        return builder.build();
+    }
+
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,115 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for the weather server that fails requests on cue. Each request takes the
+ * next queued fault; once the queue is empty, requests get the forecast.
+ */
+final class FaultInjectingServer implements Closeable {
+
+    enum Fault {
+        /* 503 Service Unavailable */
+        UNAVAILABLE,
+        /* 429 Too Many Requests */
+        TOO_MANY_REQUESTS,
+        /* 404 Not Found */
+        NOT_FOUND,
+        /* The connection is closed partway through the forecast */
+        TRUNCATED,
+        /* 200, with a body that isn't JSON */
+        GARBAGE
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final HttpServer mServer;
+    private final String mForecastJson;
+    private final Deque<Fault> mFaults = new ArrayDeque<>();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    FaultInjectingServer(String forecastJson) throws IOException {
+        mForecastJson = forecastJson;
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequestCount.incrementAndGet();
+                Fault fault;
+                synchronized (mFaults) {
+                    fault = mFaults.poll();
+                }
+                respond(exchange, fault);
+            }
+        });
+        mServer.start();
+    }
+
+    void enqueue(Fault... faults) {
+        synchronized (mFaults) {
+            mFaults.addAll(Arrays.asList(faults));
+        }
+    }
+
+    URL getUrl() throws IOException {
+        return new URL("http", "127.0.0.1", mServer.getAddress().getPort(), "/weather");
+    }
+
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    private void respond(HttpExchange exchange, Fault fault) throws IOException {
+        if (fault == null) {
+            send(exchange, 200, mForecastJson);
+            return;
+        }
+        switch (fault) {
+            case UNAVAILABLE:
+                send(exchange, 503, "");
+                break;
+            case TOO_MANY_REQUESTS:
+                send(exchange, 429, "");
+                break;
+            case NOT_FOUND:
+                send(exchange, 404, "");
+                break;
+            case TRUNCATED:
+                byte[] forecast = mForecastJson.getBytes(UTF_8);
+                exchange.sendResponseHeaders(200, forecast.length);
+                exchange.getResponseBody().write(forecast, 0, forecast.length / 2);
+                exchange.close();
+                break;
+            case GARBAGE:
+                send(exchange, 200, "<html>Service temporarily unavailable</html>");
+                break;
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    @Override
+    public void close() {
+        mServer.stop(0);
+    }
+}
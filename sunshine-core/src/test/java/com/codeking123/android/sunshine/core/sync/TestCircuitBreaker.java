@@ -0,0 +1,120 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import com.codeking123.android.sunshine.core.date.Clock;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestCircuitBreaker {
+
+    private static final long OPEN_MILLIS = 60000;
+
+    /* A clock that only moves when told to */
+    static final class ManualClock implements Clock {
+        long mMillis = 1475280000000L;
+
+        @Override
+        public long currentTimeMillis() {
+            return mMillis;
+        }
+
+        @Override
+        public TimeZone getTimeZone() {
+            return TimeZone.getTimeZone("UTC");
+        }
+    }
+
+    private final ManualClock mClock = new ManualClock();
+    private final CircuitBreaker mBreaker = new CircuitBreaker(3, OPEN_MILLIS, mClock);
+
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        mBreaker.onFailure();
+        mBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+        assertTrue(mBreaker.allowRequest());
+
+        mBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+        assertFalse(mBreaker.allowRequest());
+    }
+
+
+    @Test
+    public void testSuccessResetsTheCount() {
+        mBreaker.onFailure();
+        mBreaker.onFailure();
+        mBreaker.onSuccess();
+        mBreaker.onFailure();
+        mBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+    }
+
+
+    @Test
+    public void testLetsATrialThroughOnceTheOpenPeriodIsOver() {
+        tripBreaker();
+
+        mClock.mMillis += OPEN_MILLIS - 1;
+        assertFalse(mBreaker.allowRequest());
+
+        mClock.mMillis += 1;
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mBreaker.getState());
+        assertTrue(mBreaker.allowRequest());
+
+        mBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+        assertEquals(0, mBreaker.getConsecutiveFailures());
+    }
+
+
+    @Test
+    public void testFailedTrialReopens() {
+        tripBreaker();
+        mClock.mMillis += OPEN_MILLIS;
+
+        mBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+        mClock.mMillis += OPEN_MILLIS - 1;
+        assertFalse(mBreaker.allowRequest());
+    }
+
+
+    @Test
+    public void testClockSetBackDoesNotKeepTheCircuitOpen() {
+        tripBreaker();
+
+        mClock.mMillis -= 24 * 60 * 60 * 1000L;
+
+        assertTrue(mBreaker.allowRequest());
+    }
+
+
+    @Test
+    public void testRestoresSavedState() {
+        tripBreaker();
+
+        CircuitBreaker restored = new CircuitBreaker(3, OPEN_MILLIS, mClock);
+        restored.restore(mBreaker.getConsecutiveFailures(), mBreaker.getOpenedAtMillis());
+
+        assertEquals(CircuitBreaker.State.OPEN, restored.getState());
+        assertEquals(3, restored.getConsecutiveFailures());
+    }
+
+
+    private void tripBreaker() {
+        for (int i = 0; i < 3; i++) {
+            mBreaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+    }
+}
@@ -0,0 +1,65 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import com.codeking123.android.sunshine.core.metrics.Ticker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestDeadline {
+
+    /* A ticker that only moves when told to */
+    static final class ManualTicker implements Ticker {
+        long mNanos = 123456789L;
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+
+    private final ManualTicker mTicker = new ManualTicker();
+
+
+    @Test
+    public void testCountsDownToZero() {
+        Deadline deadline = Deadline.after(2000, mTicker);
+        assertEquals(2000, deadline.remainingMillis());
+
+        mTicker.mNanos += 1500 * 1000000L;
+        assertEquals(500, deadline.remainingMillis());
+        assertFalse(deadline.isExpired());
+
+        mTicker.mNanos += 500 * 1000000L;
+        assertEquals(0, deadline.remainingMillis());
+        assertTrue(deadline.isExpired());
+
+        mTicker.mNanos += 1000 * 1000000L;
+        assertEquals(0, deadline.remainingMillis());
+    }
+
+
+    @Test
+    public void testPartOfAMillisecondLeftIsRoundedUp() {
+        Deadline deadline = Deadline.after(1, mTicker);
+
+        mTicker.mNanos += 999999;
+
+        assertEquals(1, deadline.remainingMillis());
+        assertFalse(deadline.isExpired());
+    }
+
+
+    @Test
+    public void testTickerWrappingAroundDoesNotExpireIt() {
+        mTicker.mNanos = Long.MAX_VALUE - 1000;
+        Deadline deadline = Deadline.after(1000, mTicker);
+
+        mTicker.mNanos += 1000 * 1000;
+
+        assertEquals(999, deadline.remainingMillis());
+    }
+}
@@ -0,0 +1,180 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestEndpointRegistry {
+
+    /* Never explores, so every pick is the best endpoint */
+    private final EndpointRegistry mRegistry = new EndpointRegistry(0.5, 95, 0, new Random(1));
+
+    private final Endpoint mFast = mRegistry.register("fast", "http://fast.example/weather");
+    private final Endpoint mSlow = mRegistry.register("slow", "http://slow.example/weather");
+
+
+    @Test
+    public void testEndpointsNeverTriedArePickedFirst() {
+        assertSame(mFast, mRegistry.select());
+        mRegistry.recordSuccess(mFast, 100);
+
+        /* The slow endpoint hasn't been tried, so it looks faster than anything measured */
+        assertSame(mSlow, mRegistry.select());
+        mRegistry.recordSuccess(mSlow, 900);
+
+        assertSame(mFast, mRegistry.select());
+    }
+
+
+    @Test
+    public void testLatencyIsAnExponentiallyWeightedMovingAverage() {
+        mRegistry.recordSuccess(mFast, 100);
+        assertEquals(100, mFast.getLatencyEwmaMillis(), 0);
+
+        mRegistry.recordSuccess(mFast, 300);
+        assertEquals(200, mFast.getLatencyEwmaMillis(), 0);
+
+        mRegistry.recordSuccess(mFast, 400);
+        assertEquals(300, mFast.getLatencyEwmaMillis(), 0);
+        assertEquals(3, mFast.getSampleCount());
+    }
+
+
+    @Test
+    public void testFailuresMakeAFastEndpointLessAttractive() {
+        mRegistry.recordSuccess(mFast, 100);
+        mRegistry.recordSuccess(mSlow, 300);
+        assertSame(mFast, mRegistry.select());
+
+        /* Error rate 0.5, so 100ms / 0.5 = 200ms expected, still the better pick */
+        mRegistry.recordFailure(mFast);
+        assertEquals(0.5, mFast.getErrorRateEwma(), 1e-9);
+        assertSame(mFast, mRegistry.select());
+
+        /* Error rate 0.75: 400ms expected */
+        mRegistry.recordFailure(mFast);
+        assertSame(mSlow, mRegistry.select());
+
+        /* And it recovers as it succeeds again */
+        mRegistry.recordSuccess(mFast, 100);
+        mRegistry.recordSuccess(mFast, 100);
+        assertSame(mFast, mRegistry.select());
+    }
+
+
+    @Test
+    public void testEndpointThatOnlyFailedIsPickedLast() {
+        mRegistry.recordFailure(mFast);
+        mRegistry.recordSuccess(mSlow, 5000);
+
+        assertSame(mSlow, mRegistry.select());
+        assertTrue(Double.isNaN(mFast.getLatencyEwmaMillis()));
+    }
+
+
+    @Test
+    public void testAbandonedRequestsCountAsSlow() {
+        mRegistry.recordSuccess(mFast, 100);
+        mRegistry.recordSuccess(mSlow, 300);
+
+        /* The fast endpoint stalled and its request was hedged away after 2 seconds */
+        mRegistry.recordAbandoned(mFast, 2000);
+
+        assertEquals(1050, mFast.getLatencyEwmaMillis(), 0);
+        assertEquals(0, mFast.getErrorRateEwma(), 0);
+        assertSame(mSlow, mRegistry.select());
+    }
+
+
+    @Test
+    public void testHedgeDelayIsAPercentileOfRecentLatencies() {
+        for (int i = 0; i < EndpointRegistry.MIN_SAMPLES_TO_HEDGE - 1; i++) {
+            mRegistry.recordSuccess(mFast, 100);
+        }
+        /* Too few latencies to tell what slow is */
+        assertEquals(EndpointRegistry.NO_HEDGE, mRegistry.getHedgeDelayMillis(mFast));
+
+        for (int i = 0; i < 15; i++) {
+            mRegistry.recordSuccess(mFast, 100);
+        }
+        mRegistry.recordSuccess(mFast, 1000);
+        /* 19 of 20 latencies at 100ms, so the 95th percentile is 100ms */
+        assertEquals(100, mRegistry.getHedgeDelayMillis(mFast));
+
+        mRegistry.recordSuccess(mFast, 1000);
+        assertEquals(1000, mRegistry.getHedgeDelayMillis(mFast));
+    }
+
+
+    @Test
+    public void testOnlyRecentLatenciesSetTheHedgeDelay() {
+        for (int i = 0; i < Endpoint.RECENT_LATENCIES; i++) {
+            mRegistry.recordSuccess(mFast, 5000);
+        }
+        for (int i = 0; i < Endpoint.RECENT_LATENCIES; i++) {
+            mRegistry.recordSuccess(mFast, 50);
+        }
+
+        assertEquals(50, mRegistry.getHedgeDelayMillis(mFast));
+    }
+
+
+    @Test
+    public void testHedgesToTheNextBestEndpoint() {
+        Endpoint third = mRegistry.register("third", "http://third.example/weather");
+        mRegistry.recordSuccess(mFast, 100);
+        mRegistry.recordSuccess(mSlow, 900);
+        mRegistry.recordSuccess(third, 500);
+
+        assertSame(third, mRegistry.selectHedge(mFast));
+        assertSame(mFast, mRegistry.selectHedge(third));
+    }
+
+
+    @Test
+    public void testNoHedgeWithoutASecondEndpointOrWhenOff() {
+        EndpointRegistry single = new EndpointRegistry(0.5, 95, 0, new Random(1));
+        Endpoint only = single.register("only", "http://only.example/weather");
+        EndpointRegistry off = new EndpointRegistry(0.5, 0, 0, new Random(1));
+        Endpoint first = off.register("first", "http://first.example/weather");
+        off.register("second", "http://second.example/weather");
+        for (int i = 0; i < 10; i++) {
+            single.recordSuccess(only, 100);
+            off.recordSuccess(first, 100);
+        }
+
+        assertEquals(EndpointRegistry.NO_HEDGE, single.getHedgeDelayMillis(only));
+        assertNull(single.selectHedge(only));
+        assertEquals(EndpointRegistry.NO_HEDGE, off.getHedgeDelayMillis(first));
+    }
+
+
+    @Test
+    public void testExploresOtherEndpointsNowAndThen() {
+        EndpointRegistry registry = new EndpointRegistry(0.5, 95, 0.1, new Random(7));
+        Endpoint good = registry.register("good", "http://good.example/weather");
+        Endpoint bad = registry.register("bad", "http://bad.example/weather");
+        registry.recordSuccess(good, 100);
+        registry.recordFailure(bad);
+
+        int picksOfBad = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (registry.select() == bad) picksOfBad++;
+        }
+
+        /* Explores 10% of the time and picks either endpoint when it does */
+        assertTrue("Picked " + picksOfBad, picksOfBad > 300 && picksOfBad < 700);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNamesAreUnique() {
+        mRegistry.register("fast", "http://other.example/weather");
+    }
+}
@@ -0,0 +1,108 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestRetryPolicy {
+
+    private final RetryPolicy mPolicy = new RetryPolicy(4, 1000, 5000);
+
+
+    @Test
+    public void testDelayCapDoublesUpToTheMaximum() {
+        assertEquals(1000, mPolicy.getDelayCapMillis(1));
+        assertEquals(2000, mPolicy.getDelayCapMillis(2));
+        assertEquals(4000, mPolicy.getDelayCapMillis(3));
+        assertEquals(5000, mPolicy.getDelayCapMillis(4));
+        assertEquals(5000, mPolicy.getDelayCapMillis(100));
+        assertEquals(5000, mPolicy.getDelayCapMillis(Integer.MAX_VALUE));
+    }
+
+
+    @Test
+    public void testDelaysAreJitteredBelowTheCap() {
+        Random random = new Random(42);
+        long smallest = Long.MAX_VALUE;
+        long largest = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long delay = mPolicy.getDelayMillis(3, random);
+            assertTrue("Delay out of range: " + delay, delay >= 0 && delay < 4000);
+            smallest = Math.min(smallest, delay);
+            largest = Math.max(largest, delay);
+        }
+        /* Spread over the whole range, not bunched at one end */
+        assertTrue(smallest < 400);
+        assertTrue(largest > 3600);
+    }
+
+
+    @Test
+    public void testRetriesOnlyTransientFailures() {
+        assertTrue(mPolicy.shouldRetry(SyncFailure.network(new IOException()), 1));
+        assertTrue(mPolicy.shouldRetry(SyncFailure.httpStatus(503), 1));
+        assertTrue(mPolicy.shouldRetry(SyncFailure.httpStatus(429), 1));
+        assertTrue(mPolicy.shouldRetry(SyncFailure.httpStatus(408), 1));
+
+        assertFalse(mPolicy.shouldRetry(SyncFailure.httpStatus(404), 1));
+        assertFalse(mPolicy.shouldRetry(SyncFailure.parse(new Exception()), 1));
+        assertFalse(mPolicy.shouldRetry(SyncFailure.database(new Exception()), 1));
+        assertFalse(mPolicy.shouldRetry(SyncFailure.unexpected(new Exception()), 1));
+    }
+
+
+    @Test
+    public void testStopsAfterMaxAttempts() {
+        SyncFailure failure = SyncFailure.httpStatus(503);
+
+        assertTrue(mPolicy.shouldRetry(failure, 3));
+        assertFalse(mPolicy.shouldRetry(failure, 4));
+    }
+
+
+    @Test
+    public void testHttpStatusExceptionIsClassifiedByStatus() {
+        SyncFailure failure = SyncFailure.network(new HttpStatusException(502));
+
+        assertEquals(SyncFailure.Kind.HTTP_STATUS, failure.getKind());
+        assertEquals(502, failure.getHttpStatus());
+    }
+
+
+    @Test
+    public void testClientErrorsAreNotTheEndpointsFault() {
+        HttpStatusException notFound = new HttpStatusException(404);
+        assertTrue(notFound.isClientError());
+        assertFalse(SyncFailure.network(notFound).isEndpointFailure());
+        assertFalse(SyncFailure.httpStatus(401).isEndpointFailure());
+
+        /* Timeouts and rate limiting are the server's, and so are server errors */
+        assertFalse(new HttpStatusException(429).isClientError());
+        assertTrue(SyncFailure.httpStatus(408).isEndpointFailure());
+        assertTrue(SyncFailure.httpStatus(429).isEndpointFailure());
+        assertTrue(SyncFailure.httpStatus(503).isEndpointFailure());
+    }
+
+
+    @Test
+    public void testTimeoutsAreClassifiedAsSuch() {
+        SyncFailure failure = SyncFailure.network(new SocketTimeoutException("Read timed out"));
+
+        assertEquals(SyncFailure.Kind.TIMEOUT, failure.getKind());
+        assertTrue(failure.isTransient());
+        assertTrue(failure.isEndpointFailure());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNoAttempts() {
+        new RetryPolicy(0, 1000, 5000);
+    }
+}
@@ -0,0 +1,276 @@
+package com.codeking123.android.sunshine.core.sync;
+
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.parse.ForecastParser;
+import com.codeking123.android.sunshine.core.parse.OpenWeatherForecastParser;
+import com.codeking123.android.sunshine.core.sync.FaultInjectingServer.Fault;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Runs syncs against a {@link FaultInjectingServer}, fetching and parsing as the app does.
+ */
+public class TestSyncRetrier {
+
+    /* October 1st, 2016 at midnight, GMT time */
+    private static final long DATE_NORMALIZED = 1475280000000L;
+
+    private static final long OPEN_MILLIS = 60000;
+
+    private final ForecastParser mParser = new OpenWeatherForecastParser();
+    private final TestCircuitBreaker.ManualClock mClock = new TestCircuitBreaker.ManualClock();
+    private final List<Long> mSleeps = new ArrayList<>();
+
+    private FaultInjectingServer mServer;
+    private CircuitBreaker mBreaker;
+    private SyncRetrier mRetrier;
+
+    private Forecast mForecast;
+
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new FaultInjectingServer(readResource("forecast_14_days.json"));
+        mBreaker = new CircuitBreaker(3, OPEN_MILLIS, mClock);
+        mRetrier = new SyncRetrier(new RetryPolicy(4, 1000, 8000), mBreaker, new Random(1),
+                new SyncRetrier.Sleeper() {
+                    @Override
+                    public void sleep(long millis) {
+                        mSleeps.add(millis);
+                    }
+                });
+    }
+
+
+    @After
+    public void tearDown() {
+        mServer.close();
+    }
+
+
+    @Test
+    public void testRetriesTransientFailuresUntilTheForecastIsFetched() throws Exception {
+        mServer.enqueue(Fault.UNAVAILABLE, Fault.TRUNCATED);
+
+        assertTrue(mRetrier.run(mSync));
+
+        assertNotNull(mForecast);
+        assertEquals(14, mForecast.records.length);
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(2, mSleeps.size());
+        assertTrue(mSleeps.get(0) < 1000);
+        assertTrue(mSleeps.get(1) < 2000);
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+    }
+
+
+    @Test
+    public void testClientErrorIsNotRetried() throws Exception {
+        mServer.enqueue(Fault.NOT_FOUND);
+
+        SyncFailure failure = runExpectingFailure();
+
+        assertEquals(SyncFailure.Kind.HTTP_STATUS, failure.getKind());
+        assertEquals(404, failure.getHttpStatus());
+        assertEquals(1, mServer.getRequestCount());
+        assertTrue(mSleeps.isEmpty());
+    }
+
+
+    @Test
+    public void testUnparseableResponseIsNotRetried() throws Exception {
+        mServer.enqueue(Fault.GARBAGE);
+
+        SyncFailure failure = runExpectingFailure();
+
+        assertEquals(SyncFailure.Kind.PARSE, failure.getKind());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+
+    @Test
+    public void testGivesUpWhenTheCircuitOpens() throws Exception {
+        mServer.enqueue(Fault.UNAVAILABLE, Fault.TOO_MANY_REQUESTS, Fault.UNAVAILABLE,
+                Fault.UNAVAILABLE);
+
+        SyncFailure failure = runExpectingFailure();
+
+        /* The third failure opens the circuit, so the policy's fourth attempt isn't made */
+        assertEquals(503, failure.getHttpStatus());
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+    }
+
+
+    @Test
+    public void testOpenCircuitMakesNoRequestsUntilItsTrial() throws Exception {
+        mServer.enqueue(Fault.TRUNCATED, Fault.TRUNCATED, Fault.TRUNCATED);
+        runExpectingFailure();
+        assertEquals(3, mServer.getRequestCount());
+
+        assertFalse(mRetrier.run(mSync));
+        assertEquals(3, mServer.getRequestCount());
+
+        mClock.mMillis += OPEN_MILLIS;
+        assertTrue(mRetrier.run(mSync));
+        assertEquals(4, mServer.getRequestCount());
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+    }
+
+
+    @Test
+    public void testDeviceFailuresDoNotCountAgainstTheEndpoint() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            try {
+                mRetrier.run(new SyncRetrier.Attempt() {
+                    @Override
+                    public void run(int attempt) throws SyncFailure {
+                        throw SyncFailure.database(new IllegalStateException("disk full"));
+                    }
+                });
+                fail("Expected a SyncFailure");
+            } catch (SyncFailure expected) {
+                assertEquals(SyncFailure.Kind.DB, expected.getKind());
+            }
+        }
+
+        assertEquals(0, mBreaker.getConsecutiveFailures());
+        assertTrue(mBreaker.allowRequest());
+    }
+
+
+    @Test
+    public void testDoesNotWaitToRetryPastTheDeadline() throws Exception {
+        final TestDeadline.ManualTicker ticker = new TestDeadline.ManualTicker();
+        Deadline deadline = Deadline.after(5000, ticker);
+        /* Every delay is at its cap: 1, 2, 4 seconds */
+        Random noJitter = new Random() {
+            @Override
+            public double nextDouble() {
+                return 0.9999;
+            }
+        };
+        SyncRetrier retrier = new SyncRetrier(new RetryPolicy(10, 1000, 8000), mBreaker,
+                noJitter, new SyncRetrier.Sleeper() {
+                    @Override
+                    public void sleep(long millis) {
+                        mSleeps.add(millis);
+                        ticker.mNanos += millis * 1000000L;
+                    }
+                });
+        final int[] attempts = new int[1];
+
+        try {
+            retrier.run(new SyncRetrier.Attempt() {
+                @Override
+                public void run(int attempt) throws SyncFailure {
+                    attempts[0]++;
+                    throw SyncFailure.network(new SocketTimeoutException());
+                }
+            }, deadline);
+            fail("Expected a SyncFailure");
+        } catch (SyncFailure expected) {
+            assertEquals(SyncFailure.Kind.TIMEOUT, expected.getKind());
+        }
+
+        /* After waiting 1 + 2 seconds, 2 are left, too few for the 4 second wait */
+        assertEquals(3, attempts[0]);
+        assertEquals(2, mSleeps.size());
+    }
+
+
+    /* Fetches and parses the forecast, classifying failures the way the app's sync does */
+    private final SyncRetrier.Attempt mSync = new SyncRetrier.Attempt() {
+        @Override
+        public void run(int attempt) throws SyncFailure {
+            try {
+                mForecast = mParser.parse(fetch(mServer.getUrl()), DATE_NORMALIZED);
+            } catch (IOException e) {
+                throw SyncFailure.network(e);
+            } catch (JSONException e) {
+                throw SyncFailure.parse(e);
+            }
+        }
+    };
+
+
+    private static String fetch(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        try {
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) throw new HttpStatusException(status);
+
+            byte[] body = readBytes(connection.getInputStream());
+            /* HttpURLConnection doesn't notice a body cut short, OkHttp does */
+            long expected = connection.getContentLengthLong();
+            if (expected != -1 && body.length != expected) {
+                throw new EOFException("Read " + body.length + " of " + expected + " bytes");
+            }
+            return new String(body, "UTF-8");
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+
+    private SyncFailure runExpectingFailure() throws InterruptedException {
+        try {
+            mRetrier.run(mSync);
+        } catch (SyncFailure expected) {
+            return expected;
+        }
+        fail("Expected a SyncFailure");
+        return null;
+    }
+
+
+    private static String readResource(String name) {
+        InputStream in = TestSyncRetrier.class.getResourceAsStream("/" + name);
+        assertNotNull("Missing test resource " + name, in);
+        return read(in);
+    }
+
+
+    private static String read(InputStream in) {
+        Scanner scanner = new Scanner(in, "UTF-8").useDelimiter("\\A");
+        String content = scanner.next();
+        scanner.close();
+        return content;
+    }
+
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
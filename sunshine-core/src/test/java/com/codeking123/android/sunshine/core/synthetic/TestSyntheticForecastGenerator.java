@@ -0,0 +1,167 @@
+package com.codeking123.android.sunshine.core.synthetic;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.core.parse.OpenWeatherForecastParser;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestSyntheticForecastGenerator {
+
+    /* January 1st, 2017 at midnight, GMT time */
+    private static final long JANUARY_1ST = 1483228800000L;
+
+    /* July 1st, 2017 at midnight, GMT time */
+    private static final long JULY_1ST = 1498867200000L;
+
+    private static final long DAY = SunshineDates.DAY_IN_MILLIS;
+
+    private final SyntheticForecastGenerator mGenerator = new SyntheticForecastGenerator(42);
+
+
+    @Test
+    public void testSameSeedGivesSameWeather() {
+        SyntheticForecastGenerator other = new SyntheticForecastGenerator(42);
+
+        for (int index = 0; index < 50; index++) {
+            SyntheticLocation location = mGenerator.getLocation(index);
+            SyntheticLocation otherLocation = other.getLocation(index);
+            assertEquals(location.name, otherLocation.name);
+            assertEquals(location.latitude, otherLocation.latitude, 0);
+
+            for (int day = 0; day < 30; day++) {
+                assertSameWeather(mGenerator.getDay(location, JANUARY_1ST + day * DAY),
+                        other.getDay(otherLocation, JANUARY_1ST + day * DAY));
+            }
+        }
+    }
+
+
+    @Test
+    public void testDifferentSeedsGiveDifferentLocations() {
+        SyntheticLocation location = mGenerator.getLocation(0);
+        SyntheticLocation other = new SyntheticForecastGenerator(43).getLocation(0);
+
+        assertNotEquals(location.latitude, other.latitude, 0);
+    }
+
+
+    @Test
+    public void testEveryConditionOccurs() {
+        /* The mix the generator can produce, in every band the app shows differently */
+        int[] expected = {200, 211, 300, 500, 501, 502, 600, 601, 602, 741,
+                800, 801, 802, 803, 804};
+
+        Set<Integer> seen = new HashSet<>();
+        for (int index = 0; index < 200; index++) {
+            SyntheticLocation location = mGenerator.getLocation(index);
+            for (int day = 0; day < 365; day++) {
+                seen.add(mGenerator.getDay(location, JANUARY_1ST + day * DAY).weatherId);
+            }
+        }
+
+        for (int weatherId : expected) {
+            assertTrue("Never generated condition " + weatherId, seen.contains(weatherId));
+        }
+        assertEquals(expected.length, seen.size());
+    }
+
+
+    @Test
+    public void testSeasonsFollowTheHemisphere() {
+        int northern = 0;
+        int southern = 0;
+        for (int index = 0; index < 500; index++) {
+            SyntheticLocation location = mGenerator.getLocation(index);
+            if (Math.abs(location.latitude) < 35) continue;
+
+            double winter = meanMaxTemperature(location, JANUARY_1ST);
+            double summer = meanMaxTemperature(location, JULY_1ST);
+            if (location.latitude > 0) {
+                assertTrue(location.name + " should be warmer in July", summer > winter);
+                northern++;
+            } else {
+                assertTrue(location.name + " should be warmer in January", winter > summer);
+                southern++;
+            }
+        }
+
+        assertTrue(northern > 0);
+        assertTrue(southern > 0);
+    }
+
+
+    @Test
+    public void testDaysAreConsistent() {
+        for (int index = 0; index < 100; index++) {
+            SyntheticLocation location = mGenerator.getLocation(index);
+            for (int day = 0; day < 365; day++) {
+                WeatherRecord record = mGenerator.getDay(location, JANUARY_1ST + day * DAY);
+
+                assertEquals(JANUARY_1ST + day * DAY, record.date);
+                assertTrue(record.minTemp < record.maxTemp);
+                assertTrue(record.humidity >= 5 && record.humidity <= 100);
+                assertTrue(record.windSpeed >= 0);
+                assertTrue(record.degrees >= 0 && record.degrees < 360);
+                if (record.weatherId / 100 == 6) {
+                    assertTrue("Snow above freezing", record.minTemp < 1);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testDumpIsReadBackUnchanged() throws Exception {
+        SyntheticLocation location = mGenerator.getLocation(7);
+        WeatherRecord[] expected = new WeatherRecord[14];
+
+        StringWriter json = new StringWriter();
+        ForecastDumpWriter writer = new ForecastDumpWriter(json, location.name,
+                location.latitude, location.longitude);
+        for (int day = 0; day < expected.length; day++) {
+            expected[day] = mGenerator.getDay(location, JANUARY_1ST + day * DAY);
+            writer.write(expected[day]);
+        }
+        writer.close();
+
+        Forecast forecast = new OpenWeatherForecastParser().parse(json.toString(), JANUARY_1ST);
+
+        assertEquals(location.latitude, forecast.cityLatitude, 0);
+        assertEquals(location.longitude, forecast.cityLongitude, 0);
+        assertEquals(expected.length, forecast.records.length);
+        for (int day = 0; day < expected.length; day++) {
+            assertSameWeather(expected[day], forecast.records[day]);
+        }
+    }
+
+
+    private double meanMaxTemperature(SyntheticLocation location, long firstDay) {
+        double sum = 0;
+        for (int day = 0; day < 31; day++) {
+            sum += mGenerator.getDay(location, firstDay + day * DAY).maxTemp;
+        }
+        return sum / 31;
+    }
+
+    private static void assertSameWeather(WeatherRecord expected, WeatherRecord actual) {
+        assertEquals(expected.date, actual.date);
+        assertEquals(expected.weatherId, actual.weatherId);
+        assertEquals(expected.minTemp, actual.minTemp, 0);
+        assertEquals(expected.maxTemp, actual.maxTemp, 0);
+        assertEquals(expected.humidity, actual.humidity, 0);
+        assertEquals(expected.pressure, actual.pressure, 0);
+        assertEquals(expected.windSpeed, actual.windSpeed, 0);
+        assertEquals(expected.degrees, actual.degrees, 0);
+    }
+}
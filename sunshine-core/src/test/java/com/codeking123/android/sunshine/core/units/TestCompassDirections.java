@@ -0,0 +1,31 @@
+package com.codeking123.android.sunshine.core.units;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class TestCompassDirections {
+
+    @Test
+    public void testSectors() {
+        assertEquals("N", CompassDirections.fromDegrees(0f));
+        assertEquals("N", CompassDirections.fromDegrees(22.49f));
+        assertEquals("NE", CompassDirections.fromDegrees(22.5f));
+        assertEquals("E", CompassDirections.fromDegrees(Math.nextAfter(112.5f, 0)));
+        assertEquals("SE", CompassDirections.fromDegrees(112.5f));
+        assertEquals("S", CompassDirections.fromDegrees(180f));
+        assertEquals("SW", CompassDirections.fromDegrees(225f));
+        assertEquals("W", CompassDirections.fromDegrees(270f));
+        assertEquals("NW", CompassDirections.fromDegrees(337.49f));
+        assertEquals("N", CompassDirections.fromDegrees(337.5f));
+    }
+
+
+    @Test
+    public void testOutOfRangeDegrees() {
+        assertEquals("N", CompassDirections.fromDegrees(400f));
+        assertEquals("N", CompassDirections.fromDegrees(-10f));
+        assertEquals("Unknown", CompassDirections.fromDegrees(Float.NaN));
+    }
+}
@@ -0,0 +1,284 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.alert.AlertEngine;
+import com.codeking123.android.sunshine.core.alert.AlertRule;
+import com.codeking123.android.sunshine.core.alert.ForecastChangeSet;
+import com.codeking123.android.sunshine.core.date.Clock;
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.metrics.Percentiles;
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticForecastGenerator;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticLocation;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line entry point: stores syncs of many locations' forecasts through {@link SyncStore},
+ * each revising some of the days, and times evaluating many alert rules against what each sync
+ * changed, and against every day of every forecast for comparison. See {@link #USAGE}.
+ */
+public final class AlertBenchmark {
+
+    static final String USAGE =
+            "Usage: sunshine-alert-benchmark [options]\n" +
+            "\n" +
+            "Syncs synthetic forecasts of the locations, revising some of their days each time,\n" +
+            "and times evaluating random alert rules against each sync.\n" +
+            "\n" +
+            "Options:\n" +
+            "  --locations <n>        Locations synced (default: 100)\n" +
+            "  --rules <n>            Alert rules evaluated (default: 1000)\n" +
+            "  --syncs <n>            Syncs timed (default: 50)\n" +
+            "  --seed <n>             Seed of the forecasts, the revisions and the rules\n" +
+            "                         (default: 1)\n";
+
+    static final int DEFAULT_LOCATIONS = 100;
+    static final int DEFAULT_RULES = 1000;
+    static final int DEFAULT_SYNCS = 50;
+    static final long DEFAULT_SEED = 1;
+
+    static final int DAYS = 14;
+
+    /* One day in this many is revised by a sync, as forecasts are between two syncs of a day */
+    static final int REVISED_DAY_ODDS = 8;
+
+    private static final int WARMUP_SYNCS = 5;
+
+    /* What a revision may change the weather of a day to: clear, cloudy, rain, storm, snow */
+    private static final int[] REVISED_WEATHER_IDS = {800, 801, 804, 500, 501, 211, 600};
+
+    private AlertBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int locations = DEFAULT_LOCATIONS;
+        int rules = DEFAULT_RULES;
+        int syncs = DEFAULT_SYNCS;
+        long seed = DEFAULT_SEED;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--locations":
+                        locations = IngestOptions.parsePositiveInt(arg,
+                                IngestOptions.value(args, ++i, arg));
+                        break;
+                    case "--rules":
+                        rules = IngestOptions.parsePositiveInt(arg,
+                                IngestOptions.value(args, ++i, arg));
+                        break;
+                    case "--syncs":
+                        syncs = IngestOptions.parsePositiveInt(arg,
+                                IngestOptions.value(args, ++i, arg));
+                        break;
+                    case "--seed":
+                        seed = GenerateOptions.parseSeed(IngestOptions.value(args, ++i, arg));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        File database = File.createTempFile("sunshine-alerts", ".db");
+        try {
+            run(database, locations, rules, syncs, seed, System.out);
+        } finally {
+            if (!database.delete()) {
+                database.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Stores a first forecast of every location, then times the syncs, each revising some days
+     * of every forecast, printing a line for storing them and one for each way of evaluating
+     * the rules.
+     */
+    static void run(File database, int locations, int ruleCount, int syncs, long seed,
+                    PrintStream out) throws SQLException {
+        Random random = new Random(seed);
+        List<AlertRule> rules = randomRules(random, ruleCount);
+        AlertEngine incremental = new AlertEngine(rules);
+        AlertEngine full = new AlertEngine(rules);
+
+        SyntheticForecastGenerator generator = new SyntheticForecastGenerator(seed);
+        long today = SunshineDates.getNormalizedUtcDateForToday(Clock.SYSTEM);
+        SyntheticLocation[] places = new SyntheticLocation[locations];
+        WeatherRecord[][] forecasts = new WeatherRecord[locations][DAYS];
+        for (int i = 0; i < locations; i++) {
+            places[i] = generator.getLocation(i);
+            for (int day = 0; day < DAYS; day++) {
+                forecasts[i][day] = generator.getDay(places[i],
+                        today + day * SunshineDates.DAY_IN_MILLIS);
+            }
+        }
+
+        try (SyncStore store = new SyncStore(database)) {
+            ForecastChangeSet first = new ForecastChangeSet();
+            for (int i = 0; i < locations; i++) {
+                store.replace(places[i].name, forecast(places[i], forecasts[i]), first);
+            }
+            int firstFirings = incremental.evaluate(first).size();
+            long firstEvaluations = incremental.getEvaluationCount();
+            out.println(String.format(Locale.US,
+                    "%d rules, %d locations of %d days: the first sync changed %d days, " +
+                            "%d evaluations, %d firings",
+                    ruleCount, locations, DAYS, first.size(), firstEvaluations, firstFirings));
+
+            long[] storeNanos = new long[syncs];
+            long[] incrementalNanos = new long[syncs];
+            long[] fullNanos = new long[syncs];
+            long changed = 0;
+            long incrementalFirings = 0;
+            long fullFirings = 0;
+            long incrementalEvaluations = 0;
+            long fullEvaluations = 0;
+            for (int sync = 0; sync < WARMUP_SYNCS + syncs; sync++) {
+                for (WeatherRecord[] forecast : forecasts) {
+                    revise(random, forecast);
+                }
+
+                long start = System.nanoTime();
+                ForecastChangeSet changes = new ForecastChangeSet();
+                for (int i = 0; i < locations; i++) {
+                    store.replace(places[i].name, forecast(places[i], forecasts[i]), changes);
+                }
+                long stored = System.nanoTime();
+                long evaluationsBefore = incremental.getEvaluationCount();
+                int firings = incremental.evaluate(changes).size();
+                long evaluated = System.nanoTime();
+
+                /* Without a change set, every day looks new */
+                ForecastChangeSet everything = new ForecastChangeSet();
+                for (int i = 0; i < locations; i++) {
+                    everything.add(places[i].name, null, forecasts[i]);
+                }
+                long fullEvaluationsBefore = full.getEvaluationCount();
+                long fullStart = System.nanoTime();
+                int allFirings = full.evaluate(everything).size();
+                long fullEnd = System.nanoTime();
+
+                if (sync >= WARMUP_SYNCS) {
+                    int timed = sync - WARMUP_SYNCS;
+                    storeNanos[timed] = stored - start;
+                    incrementalNanos[timed] = evaluated - stored;
+                    fullNanos[timed] = fullEnd - fullStart;
+                    changed += changes.size();
+                    incrementalFirings += firings;
+                    fullFirings += allFirings;
+                    incrementalEvaluations += incremental.getEvaluationCount() - evaluationsBefore;
+                    fullEvaluations += full.getEvaluationCount() - fullEvaluationsBefore;
+                }
+            }
+
+            print(out, "store and diff", storeNanos, syncs, String.format(Locale.US,
+                    "%7.1f days changed", (double) changed / syncs));
+            print(out, "evaluate changes", incrementalNanos, syncs, String.format(Locale.US,
+                    "%10.1f evaluations  %7.1f firings",
+                    (double) incrementalEvaluations / syncs, (double) incrementalFirings / syncs));
+            print(out, "evaluate every day", fullNanos, syncs, String.format(Locale.US,
+                    "%10.1f evaluations  %7.1f firings",
+                    (double) fullEvaluations / syncs, (double) fullFirings / syncs));
+        }
+    }
+
+    private static void print(PrintStream out, String name, long[] nanos, int syncs,
+                              String counts) {
+        Percentiles percentiles = new Percentiles(nanos, syncs);
+        out.println(String.format(Locale.US,
+                "  %-20s p50 %8.2f ms  p95 %8.2f ms  max %8.2f ms  %s",
+                name, millis(percentiles.get(50)), millis(percentiles.get(95)),
+                millis(percentiles.get(100)), counts));
+    }
+
+    private static Forecast forecast(SyntheticLocation location, WeatherRecord[] days) {
+        return new Forecast(location.latitude, location.longitude, days.clone());
+    }
+
+    /* Moves the temperatures and the wind of some of the days, and now and then the weather */
+    private static void revise(Random random, WeatherRecord[] forecast) {
+        for (int day = 0; day < forecast.length; day++) {
+            if (random.nextInt(REVISED_DAY_ODDS) != 0) {
+                continue;
+            }
+            WeatherRecord old = forecast[day];
+            int weatherId = random.nextInt(4) == 0
+                    ? REVISED_WEATHER_IDS[random.nextInt(REVISED_WEATHER_IDS.length)]
+                    : old.weatherId;
+            double shift = round(random.nextGaussian());
+            forecast[day] = new WeatherRecord(old.date, weatherId,
+                    round(old.minTemp + shift),
+                    round(old.maxTemp + shift),
+                    old.humidity,
+                    old.pressure,
+                    round(Math.max(0, old.windSpeed + 3 * random.nextGaussian())),
+                    old.degrees);
+        }
+    }
+
+    /* Rules of the kinds users set up, with random thresholds */
+    static List<AlertRule> randomRules(Random random, int count) {
+        List<AlertRule> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String expression;
+            switch (i % 8) {
+                case 0:
+                    expression = "min < " + threshold(random, -10, 5);
+                    break;
+                case 1:
+                    expression = "max > " + threshold(random, 20, 40);
+                    break;
+                case 2:
+                    expression = "wind > " + threshold(random, 15, 50);
+                    break;
+                case 3:
+                    expression = "day = " + random.nextInt(3) + " and min < "
+                            + threshold(random, -5, 5);
+                    break;
+                case 4:
+                    expression = "day <= " + random.nextInt(DAYS) + " and weather_id between " +
+                            "500 and 599 and not previous.weather_id between 500 and 599";
+                    break;
+                case 5:
+                    expression = "humidity > " + threshold(random, 60, 95) + " and max > "
+                            + threshold(random, 20, 35);
+                    break;
+                case 6:
+                    expression = "pressure < " + threshold(random, 990, 1010) + " or wind > "
+                            + threshold(random, 30, 60);
+                    break;
+                default:
+                    expression = "min < previous.min and min < " + threshold(random, -5, 10);
+            }
+            rules.add(AlertRule.compile(String.format(Locale.US, "rule-%04d", i), expression));
+        }
+        return rules;
+    }
+
+    private static String threshold(Random random, double low, double high) {
+        return String.format(Locale.US, "%.1f", low + (high - low) * random.nextDouble());
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,130 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.geo.City;
+import com.codeking123.android.sunshine.core.geo.CityCatalog;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Command line entry point: turns a GeoNames cities dump into the city catalogue the app bundles
+ * as an asset, see {@link CityCatalog}. See {@link #USAGE}.
+ */
+public final class BuildCityCatalog {
+
+    static final String USAGE =
+            "Usage: sunshine-cities [options] <geonames dump> <catalogue>\n" +
+            "\n" +
+            "Writes the cities of a GeoNames dump, such as cities15000.txt from\n" +
+            "https://download.geonames.org/export/dump/, as a city catalogue.\n" +
+            "\n" +
+            "Options:\n" +
+            "  --min-population <n>   Leave out smaller cities (default: 15000)\n";
+
+    static final int DEFAULT_MIN_POPULATION = 15000;
+
+    /* The columns of a GeoNames dump used, of the 19 there are */
+    private static final int GEONAMES_COLUMNS = 19;
+    private static final int COLUMN_NAME = 1;
+    private static final int COLUMN_LATITUDE = 4;
+    private static final int COLUMN_LONGITUDE = 5;
+    private static final int COLUMN_COUNTRY = 8;
+    private static final int COLUMN_POPULATION = 14;
+
+    private static final String HEADER =
+            "# Name, country, latitude, longitude and population, from GeoNames (CC BY 4.0)\n";
+
+    private BuildCityCatalog() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int minPopulation = DEFAULT_MIN_POPULATION;
+        List<File> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--min-population")) {
+                    minPopulation = IngestOptions.parsePositiveInt(arg,
+                            IngestOptions.value(args, ++i, arg));
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                } else {
+                    files.add(new File(arg));
+                }
+            }
+            if (files.size() != 2) {
+                throw new IllegalArgumentException("Expected a GeoNames dump and a catalogue");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        List<City> cities = readGeoNames(files.get(0), minPopulation);
+        write(cities, files.get(1));
+        System.out.println("Wrote " + cities.size() + " cities, " + files.get(1).length()
+                + " bytes");
+    }
+
+    /**
+     * @return The cities of the dump with at least the population, sorted by name
+     * @throws IOException If the dump can't be read, or a line isn't a city
+     */
+    static List<City> readGeoNames(File dump, int minPopulation) throws IOException {
+        List<City> cities = new ArrayList<>();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(
+                new FileInputStream(dump), StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = lines.readLine()) != null) {
+                number++;
+                String[] columns = line.split("\t", -1);
+                if (columns.length != GEONAMES_COLUMNS) {
+                    throw new IOException(dump + ":" + number + " has " + columns.length
+                            + " columns rather than " + GEONAMES_COLUMNS);
+                }
+                try {
+                    int population = Integer.parseInt(columns[COLUMN_POPULATION]);
+                    if (population >= minPopulation) {
+                        cities.add(new City(columns[COLUMN_NAME], columns[COLUMN_COUNTRY],
+                                Double.parseDouble(columns[COLUMN_LATITUDE]),
+                                Double.parseDouble(columns[COLUMN_LONGITUDE]), population));
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException(dump + ":" + number + " is not a city", e);
+                }
+            }
+        }
+        /* In a stable order, so a catalogue rebuilt from a newer dump diffs well */
+        Collections.sort(cities, new Comparator<City>() {
+            @Override
+            public int compare(City a, City b) {
+                int byName = a.name.compareTo(b.name);
+                return byName != 0 ? byName : a.country.compareTo(b.country);
+            }
+        });
+        return cities;
+    }
+
+    static void write(List<City> cities, File catalogue) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(catalogue),
+                StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            CityCatalog.write(cities, writer);
+        }
+    }
+}
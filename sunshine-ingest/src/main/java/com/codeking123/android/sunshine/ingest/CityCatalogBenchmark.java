@@ -0,0 +1,216 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.geo.City;
+import com.codeking123.android.sunshine.core.geo.CityCatalog;
+import com.codeking123.android.sunshine.core.metrics.Percentiles;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line entry point: measures what a {@link CityCatalog} takes of the heap and how long
+ * it takes to suggest cities for what is typed, for catalogues of made up cities of each size
+ * given or for a catalogue file. See {@link #USAGE}.
+ */
+public final class CityCatalogBenchmark {
+
+    static final String USAGE =
+            "Usage: sunshine-cities-benchmark [options] [<cities> ...]\n" +
+            "\n" +
+            "Builds a catalogue of each number of made up cities in turn (default: 25000, about\n" +
+            "the GeoNames cities of 15000 people or more, and 150000, about those of 1000) and\n" +
+            "times suggestions for the starts of their names.\n" +
+            "\n" +
+            "Options:\n" +
+            "  --catalogue <file>     Measure the catalogue file instead\n" +
+            "  --seed <n>             Seed of the cities and the searches (default: 1)\n" +
+            "  --queries <n>          Searches timed of each kind (default: 100000)\n";
+
+    static final int[] DEFAULT_CITIES = {25000, 150000};
+    static final long DEFAULT_SEED = 1;
+    static final int DEFAULT_QUERIES = 100000;
+
+    /* How much of a name is typed before a suggestion is picked, at most */
+    static final int MAX_PREFIX_LENGTH = 8;
+
+    private static final int WARMUP_QUERIES = 20000;
+
+    private static final String[] SYLLABLES = {
+            "a", "ba", "ber", "bu", "ca", "chi", "do", "el", "fa", "gor", "ham", "in", "ja",
+            "ka", "kov", "lon", "ma", "min", "nor", "o", "os", "pa", "po", "ri", "ro", "sa",
+            "san", "ta", "ton", "u", "ur", "vil", "wes", "ya", "zo"};
+
+    private static final String[] COUNTRIES = {
+            "BR", "CN", "DE", "FR", "GB", "IN", "JP", "MX", "NG", "RU", "US", "ZA"};
+
+    private CityCatalogBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        File catalogue = null;
+        long seed = DEFAULT_SEED;
+        int queries = DEFAULT_QUERIES;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--catalogue":
+                        catalogue = new File(IngestOptions.value(args, ++i, arg));
+                        break;
+                    case "--seed":
+                        seed = GenerateOptions.parseSeed(IngestOptions.value(args, ++i, arg));
+                        break;
+                    case "--queries":
+                        queries = IngestOptions.parsePositiveInt(arg,
+                                IngestOptions.value(args, ++i, arg));
+                        break;
+                    default:
+                        if (arg.startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + arg);
+                        }
+                        sizes.add(IngestOptions.parsePositiveInt("Cities", arg));
+                }
+            }
+            if (catalogue != null && !sizes.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "Give either a catalogue or numbers of cities");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if (catalogue != null) {
+            run(catalogue.getName(), readCities(catalogue), queries, seed, System.out);
+            return;
+        }
+        if (sizes.isEmpty()) {
+            for (int size : DEFAULT_CITIES) {
+                sizes.add(size);
+            }
+        }
+        for (int size : sizes) {
+            run(size + " cities", randomCities(new Random(seed), size), queries, seed,
+                    System.out);
+        }
+    }
+
+    /**
+     * Builds a catalogue of the cities, then times suggestions for the starts of random ones'
+     * names and resolving their labels, printing a line for each.
+     */
+    static void run(String name, List<City> cities, int queries, long seed, PrintStream out) {
+        long heapBefore = getUsedHeap();
+        long start = System.nanoTime();
+        CityCatalog catalog = CityCatalog.build(cities);
+        long built = System.nanoTime();
+        long heap = getUsedHeap() - heapBefore;
+
+        out.println(String.format(Locale.US,
+                "%s: built in %.2f s, %d nodes, %.2f MB of arrays, %.2f MB of heap measured",
+                name, (built - start) / (double) TimeUnit.SECONDS.toNanos(1),
+                catalog.getNodeCount(), megabytes(catalog.getSizeInBytes()), megabytes(heap)));
+
+        /* What is typed: the first few characters of a city's name, a different one each time */
+        Random random = new Random(seed);
+        String[] prefixes = new String[WARMUP_QUERIES + queries];
+        String[] labels = new String[prefixes.length];
+        for (int i = 0; i < prefixes.length; i++) {
+            City city = cities.get(random.nextInt(cities.size()));
+            int length = Math.min(city.name.length(), MAX_PREFIX_LENGTH);
+            prefixes[i] = city.name.substring(0, 1 + random.nextInt(length));
+            labels[i] = city.getLabel();
+        }
+
+        long[] nanos = new long[queries];
+        long found = 0;
+        for (int i = 0; i < prefixes.length; i++) {
+            long queryStart = System.nanoTime();
+            found += catalog.suggest(prefixes[i], CityCatalog.MAX_SUGGESTIONS).size();
+            if (i >= WARMUP_QUERIES) {
+                nanos[i - WARMUP_QUERIES] = System.nanoTime() - queryStart;
+            }
+        }
+        print(out, "suggest, 1 to " + MAX_PREFIX_LENGTH + " characters", nanos, queries,
+                (double) found / prefixes.length);
+
+        found = 0;
+        for (int i = 0; i < labels.length; i++) {
+            long queryStart = System.nanoTime();
+            found += catalog.resolve(labels[i]) != null ? 1 : 0;
+            if (i >= WARMUP_QUERIES) {
+                nanos[i - WARMUP_QUERIES] = System.nanoTime() - queryStart;
+            }
+        }
+        print(out, "resolve a label", nanos, queries, (double) found / labels.length);
+    }
+
+    private static void print(PrintStream out, String name, long[] nanos, int queries,
+                              double found) {
+        Percentiles percentiles = new Percentiles(nanos, queries);
+        out.println(String.format(Locale.US,
+                "  %-28s p50 %7.2f µs  p95 %7.2f µs  p99 %7.2f µs  %5.2f found",
+                name, micros(percentiles.get(50)), micros(percentiles.get(95)),
+                micros(percentiles.get(99)), found));
+    }
+
+    /* Made up names of one to four syllables, some of two words, ranked like real cities */
+    static List<City> randomCities(Random random, int count) {
+        List<City> cities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            int syllables = 1 + random.nextInt(4);
+            for (int j = 0; j < syllables; j++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            if (random.nextInt(8) == 0) {
+                name.append(' ').append(SYLLABLES[random.nextInt(SYLLABLES.length)])
+                        .append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            /* Few large cities and many small ones, as Zipf has it */
+            int population = (int) (10000000 / (1 + random.nextDouble() * count));
+            cities.add(new City(name.toString(), COUNTRIES[random.nextInt(COUNTRIES.length)],
+                    Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)),
+                    -180 + 360 * random.nextDouble(), population));
+        }
+        return cities;
+    }
+
+    private static List<City> readCities(File catalogue) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(catalogue),
+                StandardCharsets.UTF_8)) {
+            return CityCatalog.readCities(reader);
+        }
+    }
+
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,56 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.synthetic.ForecastDumpWriter;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticForecastGenerator;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticLocation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+
+/**
+ * Writes synthetic forecast dumps, one file per location named after it, streaming every day
+ * straight to disk so data sets of any size take the same memory.
+ */
+final class DumpGenerator {
+
+    private static final String DUMP_EXTENSION = ".json";
+
+    private final GenerateOptions mOptions;
+
+    DumpGenerator(GenerateOptions options) {
+        mOptions = options;
+    }
+
+    /**
+     * @return The number of days written, over all locations
+     */
+    long run() throws IOException {
+        File directory = mOptions.outputDirectory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+
+        SyntheticForecastGenerator generator = new SyntheticForecastGenerator(mOptions.seed);
+        long rows = 0;
+        for (int index = 0; index < mOptions.locations; index++) {
+            SyntheticLocation location = generator.getLocation(index);
+            File file = new File(directory, location.name + DUMP_EXTENSION);
+
+            try (ForecastDumpWriter writer = new ForecastDumpWriter(
+                    new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8")),
+                    location.name, location.latitude, location.longitude)) {
+                long date = mOptions.normalizedUtcStartDay;
+                for (int day = 0; day < mOptions.days; day++) {
+                    writer.write(generator.getDay(location, date));
+                    date += SunshineDates.DAY_IN_MILLIS;
+                }
+            }
+            rows += mOptions.days;
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,31 @@
+package com.codeking123.android.sunshine.ingest;
+
+/**
+ * Command line entry point: ingests a directory of forecast dumps into a new SQLite database and
+ * reports how fast it went. See {@link IngestOptions#USAGE}.
+ */
+public final class ForecastIngest {
+
+    private ForecastIngest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        IngestOptions options;
+        try {
+            options = IngestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(IngestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        IngestReport report = new ForecastIngester(options, System.err).run();
+        System.out.println("Ingested " + report);
+
+        if (report.filesIngested == 0 && report.filesRead() > 0) {
+            System.exit(1);
+        }
+    }
+}
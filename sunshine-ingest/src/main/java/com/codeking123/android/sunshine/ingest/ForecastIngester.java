@@ -0,0 +1,171 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.parse.ForecastParser;
+import com.codeking123.android.sunshine.core.parse.OpenWeatherForecastParser;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the forecast dumps of a directory into a station database.
+ * <p>
+ * One thread lists the directory and hands each file to a pool of parser threads, which read and
+ * parse it. The calling thread takes the parsed forecasts and writes them, as SQLite only ever
+ * has one writer. The number of files between listing and writing is bounded, so memory use
+ * depends on the number of threads and not on the size of the directory.
+ */
+final class ForecastIngester {
+
+    /* Files each parser thread may have in flight, so parsing doesn't stall on the writer */
+    private static final int FILES_IN_FLIGHT_PER_THREAD = 4;
+
+    private static final String DUMP_GLOB = "*.json";
+    private static final String DUMP_EXTENSION = ".json";
+
+    /* Tells the writer that every file has been parsed */
+    private static final ParsedFile END = new ParsedFile(null, 0, null, null);
+
+    private final IngestOptions mOptions;
+    private final ForecastParser mParser = new OpenWeatherForecastParser();
+    private final PrintStream mLog;
+
+    private final BlockingQueue<ParsedFile> mParsedFiles;
+    private final Semaphore mFilesInFlight;
+
+    /* Set by the listing thread if it can't read the directory */
+    private volatile IOException mListingError;
+
+    ForecastIngester(IngestOptions options, PrintStream log) {
+        mOptions = options;
+        mLog = log;
+        int capacity = options.threads * FILES_IN_FLIGHT_PER_THREAD;
+        mParsedFiles = new ArrayBlockingQueue<>(capacity);
+        mFilesInFlight = new Semaphore(capacity);
+    }
+
+    IngestReport run() throws IOException, SQLException, InterruptedException {
+        if (mOptions.overwrite) {
+            Files.deleteIfExists(mOptions.database.toPath());
+        }
+
+        long start = System.nanoTime();
+        long filesIngested = 0;
+        long filesSkipped = 0;
+        long filesFailed = 0;
+        long rows = 0;
+        long bytes = 0;
+
+        try (StationDatabaseWriter writer =
+                     new StationDatabaseWriter(mOptions.database, mOptions.batchSize)) {
+            Thread lister = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    listAndParse();
+                }
+            }, "ingest-lister");
+            lister.start();
+
+            try {
+                ParsedFile file;
+                while ((file = mParsedFiles.take()) != END) {
+                    mFilesInFlight.release();
+                    bytes += file.bytes;
+
+                    if (file.error != null) {
+                        filesFailed++;
+                        mLog.println("Skipping " + file.station + ": " + file.error);
+                    } else if (file.forecast == null) {
+                        filesSkipped++;
+                    } else {
+                        writer.write(file.station, file.forecast);
+                        filesIngested++;
+                        rows += file.forecast.records.length;
+                    }
+                }
+            } finally {
+                /* If writing failed, the lister may be waiting for room; stop it and the parsers */
+                lister.interrupt();
+                lister.join();
+            }
+
+            if (mListingError != null) {
+                throw mListingError;
+            }
+            writer.finish();
+        }
+
+        return new IngestReport(filesIngested, filesSkipped, filesFailed, rows, bytes,
+                System.nanoTime() - start);
+    }
+
+    private void listAndParse() {
+        ExecutorService parsers = Executors.newFixedThreadPool(mOptions.threads);
+        try (DirectoryStream<Path> dumps =
+                     Files.newDirectoryStream(mOptions.inputDirectory.toPath(), DUMP_GLOB)) {
+            for (final Path dump : dumps) {
+                mFilesInFlight.acquire();
+                parsers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        /* The queue has room for every file in flight, so this never blocks */
+                        mParsedFiles.add(parse(dump));
+                    }
+                });
+            }
+        } catch (IOException e) {
+            mListingError = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            parsers.shutdown();
+            try {
+                parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                mParsedFiles.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private ParsedFile parse(Path dump) {
+        String fileName = dump.getFileName().toString();
+        String station = fileName.substring(0, fileName.length() - DUMP_EXTENSION.length());
+        byte[] content = null;
+        try {
+            content = Files.readAllBytes(dump);
+            Forecast forecast = mParser.parse(new String(content, StandardCharsets.UTF_8),
+                    mOptions.normalizedUtcStartDay);
+            return new ParsedFile(station, content.length, forecast, null);
+        } catch (Exception e) {
+            /* A bad dump shouldn't stop the others from being ingested */
+            return new ParsedFile(station, content == null ? 0 : content.length, null, e);
+        }
+    }
+
+    private static final class ParsedFile {
+        final String station;
+        final long bytes;
+        /* Null if the server reported an error or the file couldn't be parsed */
+        final Forecast forecast;
+        final Exception error;
+
+        ParsedFile(String station, long bytes, Forecast forecast, Exception error) {
+            this.station = station;
+            this.bytes = bytes;
+            this.forecast = forecast;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.codeking123.android.sunshine.ingest;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line entry point: writes a reproducible data set of synthetic forecast dumps for
+ * sunshine-ingest, load tests and benchmarks. See {@link GenerateOptions#USAGE}.
+ */
+public final class GenerateDumps {
+
+    private GenerateDumps() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        GenerateOptions options;
+        try {
+            options = GenerateOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(GenerateOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long rows = new DumpGenerator(options).run();
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        System.out.println(String.format(Locale.US,
+                "Generated %d files, %d rows in %.2f s: %.1f rows/sec",
+                options.locations, rows, seconds, rows / seconds));
+    }
+}
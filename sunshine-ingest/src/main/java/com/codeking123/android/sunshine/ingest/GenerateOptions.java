@@ -0,0 +1,98 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.date.Clock;
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+
+import java.io.File;
+
+/**
+ * What synthetic dumps to generate, as given on the command line.
+ */
+final class GenerateOptions {
+
+    static final String USAGE =
+            "Usage: sunshine-generate [options] <dump directory>\n" +
+            "\n" +
+            "Writes one made up forecast per location, as sunshine-ingest reads them. The same\n" +
+            "seed always produces the same locations and weather.\n" +
+            "\n" +
+            "Options:\n" +
+            "  --seed <n>             Seed of the data set (default: 1)\n" +
+            "  --locations <n>        Number of locations, one file each (default: 1000)\n" +
+            "  --days <n>             Days per forecast (default: 14)\n" +
+            "  --start-date <date>    Date of the first forecast day, yyyy-MM-dd (default: today)\n";
+
+    static final long DEFAULT_SEED = 1;
+    static final int DEFAULT_LOCATIONS = 1000;
+    static final int DEFAULT_DAYS = 14;
+
+    final File outputDirectory;
+    final long seed;
+    final int locations;
+    final int days;
+    final long normalizedUtcStartDay;
+
+    GenerateOptions(File outputDirectory, long seed, int locations, int days,
+                    long normalizedUtcStartDay) {
+        this.outputDirectory = outputDirectory;
+        this.seed = seed;
+        this.locations = locations;
+        this.days = days;
+        this.normalizedUtcStartDay = normalizedUtcStartDay;
+    }
+
+    /**
+     * @throws IllegalArgumentException With a message for the user if the arguments are invalid
+     */
+    static GenerateOptions parse(String[] args) {
+        long seed = DEFAULT_SEED;
+        int locations = DEFAULT_LOCATIONS;
+        int days = DEFAULT_DAYS;
+        long startDay = SunshineDates.getNormalizedUtcDateForToday(Clock.SYSTEM);
+        File outputDirectory = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--seed":
+                    seed = parseSeed(IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--locations":
+                    locations = IngestOptions.parsePositiveInt(arg,
+                            IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--days":
+                    days = IngestOptions.parsePositiveInt(arg, IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--start-date":
+                    startDay = IngestOptions.parseDate(IngestOptions.value(args, ++i, arg));
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    } else if (outputDirectory == null) {
+                        outputDirectory = new File(arg);
+                    } else {
+                        throw new IllegalArgumentException("Unexpected argument " + arg);
+                    }
+            }
+        }
+
+        if (outputDirectory == null) {
+            throw new IllegalArgumentException("A dump directory is required");
+        }
+        if (outputDirectory.exists() && !outputDirectory.isDirectory()) {
+            throw new IllegalArgumentException(outputDirectory + " is not a directory");
+        }
+
+        return new GenerateOptions(outputDirectory, seed, locations, days, startDay);
+    }
+
+    static long parseSeed(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--seed must be a number, not " + value);
+        }
+    }
+}
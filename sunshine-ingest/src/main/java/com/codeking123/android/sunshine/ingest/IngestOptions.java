@@ -0,0 +1,132 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.date.Clock;
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+
+import java.io.File;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * What to ingest and how, as given on the command line.
+ */
+final class IngestOptions {
+
+    static final String USAGE =
+            "Usage: sunshine-ingest [options] <dump directory> <database>\n" +
+            "\n" +
+            "Parses every *.json forecast in the directory and writes them to a new SQLite\n" +
+            "database, one station per file.\n" +
+            "\n" +
+            "Options:\n" +
+            "  --threads <n>          Parser threads (default: number of cores)\n" +
+            "  --batch-size <n>       Rows per transaction (default: 50000)\n" +
+            "  --start-date <date>    Date of the first forecast day, yyyy-MM-dd (default: today)\n" +
+            "  --overwrite            Replace the database if it already exists\n";
+
+    static final int DEFAULT_BATCH_SIZE = 50000;
+
+    final File inputDirectory;
+    final File database;
+    final int threads;
+    final int batchSize;
+    final long normalizedUtcStartDay;
+    final boolean overwrite;
+
+    IngestOptions(File inputDirectory, File database, int threads, int batchSize,
+                  long normalizedUtcStartDay, boolean overwrite) {
+        this.inputDirectory = inputDirectory;
+        this.database = database;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.normalizedUtcStartDay = normalizedUtcStartDay;
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * @throws IllegalArgumentException With a message for the user if the arguments are invalid
+     */
+    static IngestOptions parse(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = DEFAULT_BATCH_SIZE;
+        long startDay = SunshineDates.getNormalizedUtcDateForToday(Clock.SYSTEM);
+        boolean overwrite = false;
+        File inputDirectory = null;
+        File database = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--threads":
+                    threads = parsePositiveInt(arg, value(args, ++i, arg));
+                    break;
+                case "--batch-size":
+                    batchSize = parsePositiveInt(arg, value(args, ++i, arg));
+                    break;
+                case "--start-date":
+                    startDay = parseDate(value(args, ++i, arg));
+                    break;
+                case "--overwrite":
+                    overwrite = true;
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    } else if (inputDirectory == null) {
+                        inputDirectory = new File(arg);
+                    } else if (database == null) {
+                        database = new File(arg);
+                    } else {
+                        throw new IllegalArgumentException("Unexpected argument " + arg);
+                    }
+            }
+        }
+
+        if (database == null) {
+            throw new IllegalArgumentException("A dump directory and a database are required");
+        }
+        if (!inputDirectory.isDirectory()) {
+            throw new IllegalArgumentException(inputDirectory + " is not a directory");
+        }
+        if (database.exists() && !overwrite) {
+            throw new IllegalArgumentException(
+                    database + " already exists, pass --overwrite to replace it");
+        }
+
+        return new IngestOptions(inputDirectory, database, threads, batchSize, startDay,
+                overwrite);
+    }
+
+    static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    static int parsePositiveInt(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+            /* Reported below */
+        }
+        throw new IllegalArgumentException(option + " must be a positive number, not " + value);
+    }
+
+    static long parseDate(String value) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+        try {
+            /* Midnight UTC of the given day is exactly the normalized date of that day */
+            return format.parse(value).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Dates are written as yyyy-MM-dd, not " + value);
+        }
+    }
+}
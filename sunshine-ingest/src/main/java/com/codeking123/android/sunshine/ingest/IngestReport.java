@@ -0,0 +1,57 @@
+package com.codeking123.android.sunshine.ingest;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts of what an ingest run did and how fast it went.
+ */
+final class IngestReport {
+
+    /* Files written to the database */
+    final long filesIngested;
+    /* Files in which the server reported an error instead of a forecast */
+    final long filesSkipped;
+    /* Files that could not be read or parsed */
+    final long filesFailed;
+    final long rows;
+    final long bytes;
+    final long elapsedNanos;
+
+    IngestReport(long filesIngested, long filesSkipped, long filesFailed, long rows, long bytes,
+                 long elapsedNanos) {
+        this.filesIngested = filesIngested;
+        this.filesSkipped = filesSkipped;
+        this.filesFailed = filesFailed;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long filesRead() {
+        return filesIngested + filesSkipped + filesFailed;
+    }
+
+    double filesPerSecond() {
+        return perSecond(filesRead());
+    }
+
+    double rowsPerSecond() {
+        return perSecond(rows);
+    }
+
+    private double perSecond(long count) {
+        if (elapsedNanos == 0) return 0;
+        return count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%d files (%d skipped, %d failed), %d rows, %.1f MB in %.2f s: "
+                        + "%.1f files/sec, %.1f rows/sec",
+                filesRead(), filesSkipped, filesFailed, rows, bytes / (1024.0 * 1024.0),
+                elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1),
+                filesPerSecond(), rowsPerSecond());
+    }
+}
@@ -0,0 +1,40 @@
+package com.codeking123.android.sunshine.ingest;
+
+/**
+ * Command line entry point: loads the sync pipeline with many concurrent syncs against a local
+ * stand-in server and reports how it held up. See {@link LoadTestOptions#USAGE}.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        /*
+         * HttpURLConnection keeps 5 idle connections per server by default, which would have
+         * most clients connect anew for every sync. A device keeps its own connection, so let
+         * every client keep one.
+         */
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", Integer.toString(options.clients));
+        }
+
+        LoadTestReport report = new SyncLoadTest(options, System.err).run();
+        System.out.println(report);
+
+        if (report.succeeded == 0) {
+            System.exit(1);
+        }
+    }
+}
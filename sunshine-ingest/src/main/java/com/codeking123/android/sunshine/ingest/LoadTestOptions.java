@@ -0,0 +1,155 @@
+package com.codeking123.android.sunshine.ingest;
+
+import java.io.File;
+
+/**
+ * How hard to load the sync pipeline and for how long, as given on the command line.
+ */
+final class LoadTestOptions {
+
+    static final String USAGE =
+            "Usage: sunshine-load-test [options] [database]\n" +
+            "\n" +
+            "Runs many syncs at once against a local stand-in forecast server: each fetches a\n" +
+            "forecast over HTTP, parses it and replaces the location's stored forecast in a\n" +
+            "shared SQLite database. Reports throughput, latency percentiles and GC activity.\n" +
+            "The database is a temporary file unless one is given.\n" +
+            "\n" +
+            "Options:\n" +
+            "  --clients <n>          Virtual clients syncing concurrently (default: 64)\n" +
+            "  --syncs <n>            Syncs to run in total (default: 10000)\n" +
+            "  --rate <n>             Syncs started per second, spread at random like\n" +
+            "                         independent devices; 0 has every client sync back to\n" +
+            "                         back (default: 0)\n" +
+            "  --locations <n>        Locations the server has forecasts for (default: 1000)\n" +
+            "  --days <n>             Days per forecast (default: 14)\n" +
+            "  --server-threads <n>   Threads answering requests (default: 8)\n" +
+            "  --server-delay <ms>    Time the server takes before answering (default: 0)\n" +
+            "  --seed <n>             Seed of the locations, weather and arrivals (default: 1)\n" +
+            "  --overwrite            Replace the database if it already exists\n";
+
+    static final int DEFAULT_CLIENTS = 64;
+    static final int DEFAULT_SYNCS = 10000;
+    static final int DEFAULT_LOCATIONS = 1000;
+    static final int DEFAULT_DAYS = 14;
+    static final int DEFAULT_SERVER_THREADS = 8;
+    static final long DEFAULT_SEED = 1;
+
+    final int clients;
+    final int syncs;
+    /* Syncs started per second, or 0 for a closed loop */
+    final double rate;
+    final int locations;
+    final int days;
+    final int serverThreads;
+    final long serverDelayMillis;
+    final long seed;
+    /* Null for a temporary database */
+    final File database;
+    final boolean overwrite;
+
+    LoadTestOptions(int clients, int syncs, double rate, int locations, int days,
+                    int serverThreads, long serverDelayMillis, long seed, File database,
+                    boolean overwrite) {
+        this.clients = clients;
+        this.syncs = syncs;
+        this.rate = rate;
+        this.locations = locations;
+        this.days = days;
+        this.serverThreads = serverThreads;
+        this.serverDelayMillis = serverDelayMillis;
+        this.seed = seed;
+        this.database = database;
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * @throws IllegalArgumentException With a message for the user if the arguments are invalid
+     */
+    static LoadTestOptions parse(String[] args) {
+        int clients = DEFAULT_CLIENTS;
+        int syncs = DEFAULT_SYNCS;
+        double rate = 0;
+        int locations = DEFAULT_LOCATIONS;
+        int days = DEFAULT_DAYS;
+        int serverThreads = DEFAULT_SERVER_THREADS;
+        long serverDelayMillis = 0;
+        long seed = DEFAULT_SEED;
+        File database = null;
+        boolean overwrite = false;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--clients":
+                    clients = IngestOptions.parsePositiveInt(arg,
+                            IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--syncs":
+                    syncs = IngestOptions.parsePositiveInt(arg,
+                            IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--rate":
+                    rate = parseNonNegative(arg, IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--locations":
+                    locations = IngestOptions.parsePositiveInt(arg,
+                            IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--days":
+                    days = IngestOptions.parsePositiveInt(arg, IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--server-threads":
+                    serverThreads = IngestOptions.parsePositiveInt(arg,
+                            IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--server-delay":
+                    serverDelayMillis = (long) parseNonNegative(arg,
+                            IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--seed":
+                    seed = parseSeed(IngestOptions.value(args, ++i, arg));
+                    break;
+                case "--overwrite":
+                    overwrite = true;
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    } else if (database == null) {
+                        database = new File(arg);
+                    } else {
+                        throw new IllegalArgumentException("Unexpected argument " + arg);
+                    }
+            }
+        }
+
+        if (database != null && database.exists() && !overwrite) {
+            throw new IllegalArgumentException(
+                    database + " already exists, pass --overwrite to replace it");
+        }
+
+        return new LoadTestOptions(clients, syncs, rate, locations, days, serverThreads,
+                serverDelayMillis, seed, database, overwrite);
+    }
+
+    private static double parseNonNegative(String option, String value) {
+        try {
+            double number = Double.parseDouble(value);
+            if (number >= 0 && !Double.isInfinite(number)) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+            /* Reported below */
+        }
+        throw new IllegalArgumentException(option + " must be 0 or more, not " + value);
+    }
+
+    private static long parseSeed(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--seed must be a number, not " + value);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.metrics.Percentiles;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a load test did: how many syncs got through and how fast, the latency percentiles of the
+ * syncs that succeeded, overall and per stage, and how much garbage the clients made.
+ */
+final class LoadTestReport {
+
+    /* Marks allocation counts the JVM can't report */
+    static final long UNKNOWN = -1;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+    final int clients;
+    final long succeeded;
+    final long failed;
+    /* Failures by the name of the exception that ended the sync */
+    final Map<String, Long> failures;
+    final long rows;
+    final long bytes;
+    final long elapsedNanos;
+
+    /* From when each sync was due to start, so time spent waiting for a free client counts */
+    final Percentiles totalNanos;
+    final Percentiles fetchNanos;
+    final Percentiles parseNanos;
+    final Percentiles writeNanos;
+
+    final long gcCount;
+    final long gcMillis;
+    /* Allocated by the client threads, or UNKNOWN */
+    final long allocatedBytes;
+
+    LoadTestReport(int clients, long succeeded, Map<String, Long> failures, long rows,
+                   long bytes, long elapsedNanos, Percentiles totalNanos,
+                   Percentiles fetchNanos, Percentiles parseNanos, Percentiles writeNanos,
+                   long gcCount, long gcMillis, long allocatedBytes) {
+        this.clients = clients;
+        this.succeeded = succeeded;
+        this.failures = new TreeMap<>(failures);
+        long failed = 0;
+        for (long count : failures.values()) {
+            failed += count;
+        }
+        this.failed = failed;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.totalNanos = totalNanos;
+        this.fetchNanos = fetchNanos;
+        this.parseNanos = parseNanos;
+        this.writeNanos = writeNanos;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    long syncs() {
+        return succeeded + failed;
+    }
+
+    double syncsPerSecond() {
+        if (elapsedNanos == 0) return 0;
+        return syncs() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(Locale.US,
+                "%d syncs by %d clients in %.2f s: %.1f syncs/sec, %d failed, "
+                        + "%d rows, %.1f MB fetched%n",
+                syncs(), clients, elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1),
+                syncsPerSecond(), failed, rows, bytes / (1024.0 * 1024.0)));
+        for (Map.Entry<String, Long> failure : failures.entrySet()) {
+            report.append(String.format(Locale.US, "  %d x %s%n",
+                    failure.getValue(), failure.getKey()));
+        }
+
+        report.append(String.format(Locale.US, "%-8s %9s %9s %9s %9s %9s  (ms)%n",
+                "", "p50", "p90", "p99", "p99.9", "max"));
+        appendRow(report, "total", totalNanos);
+        appendRow(report, "fetch", fetchNanos);
+        appendRow(report, "parse", parseNanos);
+        appendRow(report, "write", writeNanos);
+
+        report.append(String.format(Locale.US, "GC: %d collections, %d ms", gcCount, gcMillis));
+        if (allocatedBytes != UNKNOWN) {
+            report.append(String.format(Locale.US,
+                    "; clients allocated %.1f MB, %.1f KB per sync",
+                    allocatedBytes / (1024.0 * 1024.0),
+                    syncs() == 0 ? 0 : allocatedBytes / 1024.0 / syncs()));
+        }
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String name, Percentiles nanos) {
+        report.append(String.format(Locale.US, "%-8s", name));
+        for (double percentile : PERCENTILES) {
+            report.append(String.format(Locale.US, " %9.2f",
+                    nanos.get(percentile) / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+        report.append(String.format(Locale.US, "%n"));
+    }
+}
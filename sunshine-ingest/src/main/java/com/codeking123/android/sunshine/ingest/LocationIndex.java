@@ -0,0 +1,164 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.geo.Geohash;
+import com.codeking123.android.sunshine.core.geo.SpatialSearch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link WeatherSchema} location table of a SQLite database, searched by
+ * {@link SpatialSearch} with the same SQL as the app's WeatherProvider, so the geohash index can
+ * be measured at sizes a device would take too long to fill.
+ * <p>
+ * Locations are inserted before the geohash index is created, which builds it in one pass
+ * rather than a row at a time.
+ */
+final class LocationIndex implements SpatialSearch.PointSource, Closeable {
+
+    private static final String SQL_INSERT_LOCATION =
+            "INSERT INTO " + WeatherSchema.TABLE_LOCATION + " (" +
+            WeatherSchema.COLUMN_NAME + ", " +
+            WeatherSchema.COLUMN_LATITUDE + ", " +
+            WeatherSchema.COLUMN_LONGITUDE + ", " +
+            WeatherSchema.COLUMN_GEOHASH + ") VALUES (?, ?, ?, ?)";
+
+    /* What the provider reads of every candidate */
+    private static final String SQL_SELECT_POINTS =
+            "SELECT " + WeatherSchema.COLUMN_ID + ", " +
+            WeatherSchema.COLUMN_LATITUDE + ", " +
+            WeatherSchema.COLUMN_LONGITUDE + " FROM " + WeatherSchema.TABLE_LOCATION;
+
+    private final Connection mConnection;
+    private final PreparedStatement mInsertLocation;
+
+    /* A statement per number of ranges, as the provider's are compiled per SQL string */
+    private final Map<Integer, PreparedStatement> mScans = new HashMap<>();
+
+    /* Candidates read by every scan so far */
+    private long mPointsRead;
+
+    LocationIndex(File database) throws SQLException {
+        mConnection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+        try (Statement statement = mConnection.createStatement()) {
+            statement.execute(WeatherSchema.SQL_CREATE_LOCATION_TABLE);
+        }
+        mConnection.setAutoCommit(false);
+        mInsertLocation = mConnection.prepareStatement(SQL_INSERT_LOCATION);
+    }
+
+    /* Adds a location as the provider does, with its geohash. Call commit() when done. */
+    void insert(String name, double latitude, double longitude) throws SQLException {
+        mInsertLocation.setString(1, name);
+        mInsertLocation.setDouble(2, latitude);
+        mInsertLocation.setDouble(3, longitude);
+        mInsertLocation.setString(4, Geohash.encode(latitude, longitude,
+                WeatherSchema.LOCATION_GEOHASH_PRECISION));
+        mInsertLocation.executeUpdate();
+    }
+
+    void commit() throws SQLException {
+        mConnection.commit();
+    }
+
+    void createIndex() throws SQLException {
+        try (Statement statement = mConnection.createStatement()) {
+            statement.execute(WeatherSchema.SQL_CREATE_LOCATION_GEOHASH_INDEX);
+            statement.execute("ANALYZE");
+        }
+        mConnection.commit();
+    }
+
+    /**
+     * @return SQLite's plan for a scan of the ranges, one line per step
+     */
+    String explain(String[] ranges) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement statement = mConnection.prepareStatement(
+                "EXPLAIN QUERY PLAN " + toSql(ranges))) {
+            bind(statement, ranges);
+            try (ResultSet steps = statement.executeQuery()) {
+                while (steps.next()) {
+                    plan.append(steps.getString(steps.getMetaData().getColumnCount()))
+                            .append('\n');
+                }
+            }
+        }
+        return plan.toString();
+    }
+
+    @Override
+    public void scan(String[] ranges, SpatialSearch.Candidates candidates) {
+        try {
+            int rangeCount = ranges == null ? 0 : ranges.length / 2;
+            PreparedStatement statement = mScans.get(rangeCount);
+            if (statement == null) {
+                statement = mConnection.prepareStatement(toSql(ranges));
+                mScans.put(rangeCount, statement);
+            }
+            bind(statement, ranges);
+
+            try (ResultSet points = statement.executeQuery()) {
+                while (points.next()) {
+                    mPointsRead++;
+                    candidates.add(points.getLong(1), points.getDouble(2), points.getDouble(3));
+                }
+            }
+        } catch (SQLException e) {
+            /* The search has no way to pass it on, and a benchmark has no way to go on */
+            throw new IllegalStateException("Couldn't scan " + Arrays.toString(ranges), e);
+        }
+    }
+
+    /* A source that ignores the ranges, reading every location like a table without an index */
+    SpatialSearch.PointSource withoutIndex() {
+        return new SpatialSearch.PointSource() {
+            @Override
+            public void scan(String[] ranges, SpatialSearch.Candidates candidates) {
+                LocationIndex.this.scan(null, candidates);
+            }
+        };
+    }
+
+    long getPointsRead() {
+        return mPointsRead;
+    }
+
+    private static String toSql(String[] ranges) {
+        return ranges == null
+                ? SQL_SELECT_POINTS
+                : SQL_SELECT_POINTS + " WHERE " +
+                        SpatialSearch.selection(WeatherSchema.COLUMN_GEOHASH, ranges);
+    }
+
+    private static void bind(PreparedStatement statement, String[] ranges) throws SQLException {
+        if (ranges != null) {
+            for (int i = 0; i < ranges.length; i++) {
+                statement.setString(i + 1, ranges[i]);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (PreparedStatement statement : mScans.values()) {
+                statement.close();
+            }
+            mInsertLocation.close();
+            mConnection.close();
+        } catch (SQLException e) {
+            /* Nothing was left to write */
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.geo.SpatialSearch;
+import com.codeking123.android.sunshine.core.geo.SpatialSearch.Neighbor;
+import com.codeking123.android.sunshine.core.metrics.Percentiles;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticForecastGenerator;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticLocation;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line entry point: times radius and nearest location searches through the geohash index
+ * of the location table, at each table size given, and the same search reading every location
+ * for comparison. See {@link #USAGE}.
+ */
+public final class SpatialBenchmark {
+
+    static final String USAGE =
+            "Usage: sunshine-spatial [options] [<locations> ...]\n" +
+            "\n" +
+            "Fills a location table with each number of synthetic locations in turn (default:\n" +
+            "10000 and 1000000) and times searches around random points among them.\n" +
+            "\n" +
+            "Options:\n" +
+            "  --seed <n>             Seed of the locations and the points (default: 1)\n" +
+            "  --queries <n>          Searches timed of each kind (default: 2000)\n";
+
+    static final int[] DEFAULT_LOCATIONS = {10000, 1000000};
+    static final long DEFAULT_SEED = 1;
+    static final int DEFAULT_QUERIES = 2000;
+
+    static final double RADIUS_METERS = 50000;
+    static final int NEAREST_COUNT = 10;
+
+    /* Reading every location of a large table takes a while, so that is timed less often */
+    private static final int MAX_FULL_SCAN_QUERIES = 20;
+
+    private static final int WARMUP_QUERIES = 200;
+
+    /* A kind of search, run around a point */
+    private interface Search {
+        List<Neighbor> run(SpatialSearch.PointSource source, double latitude, double longitude);
+    }
+
+    private static final Search WITHIN_RADIUS = new Search() {
+        @Override
+        public List<Neighbor> run(SpatialSearch.PointSource source, double latitude,
+                                  double longitude) {
+            return SpatialSearch.withinRadius(source, latitude, longitude, RADIUS_METERS,
+                    WeatherSchema.LOCATION_GEOHASH_PRECISION);
+        }
+    };
+
+    private static Search nearest(final int count) {
+        return new Search() {
+            @Override
+            public List<Neighbor> run(SpatialSearch.PointSource source, double latitude,
+                                      double longitude) {
+                return SpatialSearch.nearest(source, latitude, longitude, count,
+                        SpatialSearch.MAX_DISTANCE_METERS,
+                        WeatherSchema.LOCATION_GEOHASH_PRECISION);
+            }
+        };
+    }
+
+    private SpatialBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        long seed = DEFAULT_SEED;
+        int queries = DEFAULT_QUERIES;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--seed":
+                        seed = GenerateOptions.parseSeed(IngestOptions.value(args, ++i, arg));
+                        break;
+                    case "--queries":
+                        queries = IngestOptions.parsePositiveInt(arg,
+                                IngestOptions.value(args, ++i, arg));
+                        break;
+                    default:
+                        if (arg.startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + arg);
+                        }
+                        sizes.add(IngestOptions.parsePositiveInt("Locations", arg));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (sizes.isEmpty()) {
+            for (int size : DEFAULT_LOCATIONS) {
+                sizes.add(size);
+            }
+        }
+
+        for (int size : sizes) {
+            File database = File.createTempFile("locations", ".db");
+            try {
+                run(database, size, queries, seed, System.out);
+            } finally {
+                if (!database.delete()) {
+                    database.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the location table of a new database with synthetic locations, then times each kind
+     * of search around the same random points, printing a line per kind.
+     */
+    static void run(File database, int locations, int queries, long seed, PrintStream out)
+            throws SQLException {
+        try (LocationIndex index = new LocationIndex(database)) {
+            SyntheticForecastGenerator generator = new SyntheticForecastGenerator(seed);
+            long start = System.nanoTime();
+            for (int i = 0; i < locations; i++) {
+                SyntheticLocation location = generator.getLocation(i);
+                index.insert(location.name, location.latitude, location.longitude);
+            }
+            index.commit();
+            long loaded = System.nanoTime();
+            index.createIndex();
+            long indexed = System.nanoTime();
+
+            out.println(String.format(Locale.US,
+                    "%d locations: inserted in %.2f s, indexed in %.2f s, %.1f MB",
+                    locations, seconds(loaded - start), seconds(indexed - loaded),
+                    database.length() / (1024.0 * 1024.0)));
+
+            /*
+             * Points spread like the locations, which leave out the poles, the same for every
+             * kind of search
+             */
+            SyntheticForecastGenerator around = new SyntheticForecastGenerator(seed + 1);
+            double[][] points = new double[WARMUP_QUERIES + queries][];
+            for (int i = 0; i < points.length; i++) {
+                SyntheticLocation point = around.getLocation(i);
+                points[i] = new double[]{point.latitude, point.longitude};
+            }
+
+            time(out, "within " + (int) (RADIUS_METERS / 1000) + " km", index, index,
+                    WITHIN_RADIUS, points, queries);
+            time(out, "nearest 1", index, index, nearest(1), points, queries);
+            time(out, "nearest " + NEAREST_COUNT, index, index, nearest(NEAREST_COUNT), points,
+                    queries);
+            time(out, "nearest " + NEAREST_COUNT + ", no index", index, index.withoutIndex(),
+                    nearest(NEAREST_COUNT), points, Math.min(queries, MAX_FULL_SCAN_QUERIES));
+        }
+    }
+
+    private static void time(PrintStream out, String name, LocationIndex index,
+                             SpatialSearch.PointSource source, Search search, double[][] points,
+                             int queries) {
+        int warmup = Math.min(WARMUP_QUERIES, queries);
+        for (int i = 0; i < warmup; i++) {
+            search.run(source, points[i][0], points[i][1]);
+        }
+
+        long[] nanos = new long[queries];
+        long found = 0;
+        long readBefore = index.getPointsRead();
+        for (int i = 0; i < queries; i++) {
+            double[] point = points[WARMUP_QUERIES + i];
+            long start = System.nanoTime();
+            found += search.run(source, point[0], point[1]).size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        long read = index.getPointsRead() - readBefore;
+
+        Percentiles percentiles = new Percentiles(nanos, queries);
+        out.println(String.format(Locale.US,
+                "  %-24s p50 %9.1f µs  p95 %9.1f µs  p99 %9.1f µs  %8.1f found  %10.1f read",
+                name, micros(percentiles.get(50)), micros(percentiles.get(95)),
+                micros(percentiles.get(99)), (double) found / queries, (double) read / queries));
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
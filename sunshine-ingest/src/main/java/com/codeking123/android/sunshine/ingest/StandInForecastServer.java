@@ -0,0 +1,161 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.synthetic.ForecastDumpWriter;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticForecastGenerator;
+import com.codeking123.android.sunshine.core.synthetic.SyntheticLocation;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the forecast server: answers "GET /forecast?q=<location>" like Open
+ * Weather Map's daily forecast, with synthetic weather for a fixed set of locations, and with
+ * its not found error for any other. Forecasts are rendered once up front, so the server costs
+ * as little as possible of the machine it shares with the clients.
+ */
+final class StandInForecastServer implements Closeable {
+
+    static final String PATH = "/forecast";
+    static final String QUERY_PARAM = "q";
+
+    private static final byte[] NOT_FOUND =
+            "{\"cod\":\"404\",\"message\":\"city not found\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Map<String, byte[]> mForecasts = new HashMap<>();
+    private final String[] mLocationNames;
+    private final long mDelayMillis;
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor;
+
+    private final AtomicLong mRequests = new AtomicLong();
+
+    /**
+     * Renders the forecasts and starts answering on a free port of the loopback interface.
+     *
+     * @param delayMillis How long to wait before answering each request
+     */
+    StandInForecastServer(long seed, int locations, int days, long normalizedUtcStartDay,
+                          int threads, long delayMillis) throws IOException {
+        mDelayMillis = delayMillis;
+        mLocationNames = new String[locations];
+
+        SyntheticForecastGenerator generator = new SyntheticForecastGenerator(seed);
+        for (int index = 0; index < locations; index++) {
+            SyntheticLocation location = generator.getLocation(index);
+            StringWriter json = new StringWriter();
+            try (ForecastDumpWriter writer = new ForecastDumpWriter(json, location.name,
+                    location.latitude, location.longitude)) {
+                long date = normalizedUtcStartDay;
+                for (int day = 0; day < days; day++) {
+                    writer.write(generator.getDay(location, date));
+                    date += SunshineDates.DAY_IN_MILLIS;
+                }
+            }
+            mLocationNames[index] = location.name;
+            mForecasts.put(location.name, json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        /*
+         * Without TCP_NODELAY the server's separate writes of headers and body meet the client's
+         * delayed ACK, and every fetch stalls for 40ms. Read once, when the first server starts.
+         */
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        mExecutor = Executors.newFixedThreadPool(threads);
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                0);
+        mServer.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                answer(exchange);
+            }
+        });
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+    }
+
+    int getPort() {
+        return mServer.getAddress().getPort();
+    }
+
+    /**
+     * @param index Between 0 and the number of locations
+     */
+    String getLocationName(int index) {
+        return mLocationNames[index];
+    }
+
+    int getLocationCount() {
+        return mLocationNames.length;
+    }
+
+    long getRequestCount() {
+        return mRequests.get();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        mRequests.incrementAndGet();
+        try {
+            if (mDelayMillis > 0) {
+                Thread.sleep(mDelayMillis);
+            }
+            String location = getQueryParameter(exchange.getRequestURI().getRawQuery(),
+                    QUERY_PARAM);
+            byte[] forecast = location != null ? mForecasts.get(location) : null;
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            byte[] body = forecast != null ? forecast : NOT_FOUND;
+            exchange.sendResponseHeaders(forecast != null
+                    ? HttpURLConnection.HTTP_OK : HttpURLConnection.HTTP_NOT_FOUND, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String getQueryParameter(String rawQuery, String name) throws IOException {
+        if (rawQuery == null) return null;
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && parameter.substring(0, equals).equals(name)) {
+                return URLDecoder.decode(parameter.substring(equals + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+        try {
+            mExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
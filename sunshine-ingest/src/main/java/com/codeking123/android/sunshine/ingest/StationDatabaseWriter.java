@@ -0,0 +1,134 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Writes forecasts into a new SQLite database with the {@link WeatherSchema} station tables.
+ * <p>
+ * Rows are inserted through prepared statements and committed in transactions of a fixed number
+ * of rows, which is what makes bulk loading SQLite fast. The database is being built from scratch,
+ * so it is written without a rollback journal or fsyncs; a failed run leaves a file that should
+ * be deleted, never a half-updated one that anyone depends on.
+ * <p>
+ * Not thread-safe: a single thread does all the writing.
+ */
+final class StationDatabaseWriter implements Closeable {
+
+    /* Android writes the locale of the database here the first time it opens a file without it */
+    private static final String ANDROID_METADATA = "android_metadata";
+
+    private static final String SQL_INSERT_STATION =
+            "INSERT INTO " + WeatherSchema.TABLE_STATION + " (" +
+            WeatherSchema.COLUMN_STATION + ", " +
+            WeatherSchema.COLUMN_LATITUDE + ", " +
+            WeatherSchema.COLUMN_LONGITUDE + ") VALUES (?, ?, ?)";
+
+    private static final String SQL_INSERT_WEATHER =
+            "INSERT INTO " + WeatherSchema.TABLE_STATION_WEATHER + " (" +
+            WeatherSchema.COLUMN_STATION + ", " +
+            WeatherSchema.COLUMN_DATE + ", " +
+            WeatherSchema.COLUMN_WEATHER_ID + ", " +
+            WeatherSchema.COLUMN_MIN_TEMP + ", " +
+            WeatherSchema.COLUMN_MAX_TEMP + ", " +
+            WeatherSchema.COLUMN_HUMIDITY + ", " +
+            WeatherSchema.COLUMN_PRESSURE + ", " +
+            WeatherSchema.COLUMN_WIND_SPEED + ", " +
+            WeatherSchema.COLUMN_DEGREES + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final Connection mConnection;
+    private final PreparedStatement mInsertStation;
+    private final PreparedStatement mInsertWeather;
+    private final int mBatchSize;
+
+    /* Rows added to the current transaction */
+    private int mPendingRows;
+
+    StationDatabaseWriter(File database, int batchSize) throws SQLException {
+        mBatchSize = batchSize;
+        mConnection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+
+        try (Statement statement = mConnection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = OFF");
+            statement.execute("PRAGMA synchronous = OFF");
+            statement.execute(WeatherSchema.SQL_CREATE_STATION_TABLE);
+            statement.execute(WeatherSchema.SQL_CREATE_STATION_WEATHER_TABLE);
+        }
+
+        mConnection.setAutoCommit(false);
+        mInsertStation = mConnection.prepareStatement(SQL_INSERT_STATION);
+        mInsertWeather = mConnection.prepareStatement(SQL_INSERT_WEATHER);
+    }
+
+    /**
+     * Adds a station and its forecast to the current transaction, committing it once it holds
+     * the batch size in rows. A station written twice keeps its last forecast for each day.
+     */
+    void write(String station, Forecast forecast) throws SQLException {
+        mInsertStation.setString(1, station);
+        mInsertStation.setDouble(2, forecast.cityLatitude);
+        mInsertStation.setDouble(3, forecast.cityLongitude);
+        mInsertStation.addBatch();
+
+        for (WeatherRecord record : forecast.records) {
+            mInsertWeather.setString(1, station);
+            mInsertWeather.setLong(2, record.date);
+            mInsertWeather.setInt(3, record.weatherId);
+            mInsertWeather.setDouble(4, record.minTemp);
+            mInsertWeather.setDouble(5, record.maxTemp);
+            mInsertWeather.setDouble(6, record.humidity);
+            mInsertWeather.setDouble(7, record.pressure);
+            mInsertWeather.setDouble(8, record.windSpeed);
+            mInsertWeather.setDouble(9, record.degrees);
+            mInsertWeather.addBatch();
+        }
+
+        mPendingRows += forecast.records.length;
+        if (mPendingRows >= mBatchSize) {
+            commit();
+        }
+    }
+
+    private void commit() throws SQLException {
+        mInsertStation.executeBatch();
+        mInsertWeather.executeBatch();
+        mConnection.commit();
+        mPendingRows = 0;
+    }
+
+    /**
+     * Commits what is left and readies the file to be shipped: the schema version and locale
+     * metadata Android expects are written, statistics for the query planner are gathered and
+     * the file is compacted.
+     */
+    void finish() throws SQLException {
+        commit();
+        mConnection.setAutoCommit(true);
+
+        try (Statement statement = mConnection.createStatement()) {
+            statement.execute("CREATE TABLE " + ANDROID_METADATA + " (locale TEXT)");
+            statement.execute("INSERT INTO " + ANDROID_METADATA + " VALUES ('en_US')");
+            statement.execute("PRAGMA user_version = " + WeatherSchema.DATABASE_VERSION);
+            statement.execute("ANALYZE");
+            statement.execute("VACUUM");
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            mConnection.close();
+        } catch (SQLException e) {
+            /* Nothing more we can do with the file */
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.date.Clock;
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.metrics.Percentiles;
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.parse.ForecastParser;
+import com.codeking123.android.sunshine.core.parse.OpenWeatherForecastParser;
+import com.codeking123.android.sunshine.core.sync.HttpStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs many syncs at once in this JVM, each going through the stages of the app's sync: fetch the
+ * forecast over HTTP from a {@link StandInForecastServer}, parse it with the app's parser and
+ * replace the location's forecast in a {@link SyncStore}.
+ * <p>
+ * Each sync is a numbered ticket, drawn in turn by a fixed number of client threads. With a rate,
+ * every ticket is due at a time drawn up front from a Poisson process of that rate, as if the
+ * syncs came from independent devices, and its latency counts from then; a sync that has to wait
+ * for a free client is late, and the wait is part of its latency rather than hidden by it. With
+ * no rate, each client runs its next sync as soon as the last is done. Tickets, the location each
+ * syncs and the due times all come from the seed, so runs can be compared.
+ */
+final class SyncLoadTest {
+
+    /* The app's connect and read timeouts */
+    private static final int CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+    private static final int READ_TIMEOUT_MILLIS = 15 * 1000;
+
+    /* Failures logged in full; the rest are only counted */
+    private static final int FAILURES_LOGGED = 5;
+
+    private final LoadTestOptions mOptions;
+    private final PrintStream mLog;
+    private final ForecastParser mParser = new OpenWeatherForecastParser();
+
+    /* Per ticket: the location it syncs and, with a rate, when it is due after the start */
+    private final int[] mLocations;
+    private final long[] mDueNanos;
+
+    private final AtomicInteger mNextTicket = new AtomicInteger();
+
+    /* Per successful sync, in the order they finished */
+    private final long[] mTotalNanos;
+    private final long[] mFetchNanos;
+    private final long[] mParseNanos;
+    private final long[] mWriteNanos;
+    private final AtomicInteger mSucceeded = new AtomicInteger();
+
+    private final ConcurrentMap<String, AtomicLong> mFailures = new ConcurrentHashMap<>();
+    private final AtomicInteger mFailuresLogged = new AtomicInteger();
+    private final AtomicLong mRows = new AtomicLong();
+    private final AtomicLong mBytes = new AtomicLong();
+    private final AtomicLong mAllocatedBytes = new AtomicLong();
+
+    private final ThreadMXBean mThreads = ManagementFactory.getThreadMXBean();
+
+    private long mNormalizedUtcStartDay;
+    private String mBaseUrl;
+    private StandInForecastServer mServer;
+    private SyncStore mStore;
+    private long mStartNanos;
+
+    SyncLoadTest(LoadTestOptions options, PrintStream log) {
+        mOptions = options;
+        mLog = log;
+
+        mLocations = new int[options.syncs];
+        mDueNanos = new long[options.syncs];
+        Random random = new Random(options.seed);
+        double meanGapNanos = options.rate > 0 ? TimeUnit.SECONDS.toNanos(1) / options.rate : 0;
+        double due = 0;
+        for (int ticket = 0; ticket < options.syncs; ticket++) {
+            mLocations[ticket] = random.nextInt(options.locations);
+            /* Exponential gaps between arrivals make a Poisson process */
+            due += -Math.log(1 - random.nextDouble()) * meanGapNanos;
+            mDueNanos[ticket] = (long) due;
+        }
+
+        mTotalNanos = new long[options.syncs];
+        mFetchNanos = new long[options.syncs];
+        mParseNanos = new long[options.syncs];
+        mWriteNanos = new long[options.syncs];
+    }
+
+    LoadTestReport run() throws IOException, SQLException, InterruptedException {
+        File database = mOptions.database;
+        boolean temporary = database == null;
+        if (temporary) {
+            database = File.createTempFile("sunshine-load-test", ".db");
+            Files.delete(database.toPath());
+        } else if (mOptions.overwrite) {
+            Files.deleteIfExists(database.toPath());
+        }
+
+        mNormalizedUtcStartDay = SunshineDates.getNormalizedUtcDateForToday(Clock.SYSTEM);
+        try (StandInForecastServer server = new StandInForecastServer(mOptions.seed,
+                mOptions.locations, mOptions.days, mNormalizedUtcStartDay,
+                mOptions.serverThreads, mOptions.serverDelayMillis);
+             SyncStore store = new SyncStore(database)) {
+            mServer = server;
+            mStore = store;
+            mBaseUrl = "http://127.0.0.1:" + server.getPort() + StandInForecastServer.PATH;
+            return runClients();
+        } finally {
+            if (temporary) {
+                Files.deleteIfExists(database.toPath());
+                Files.deleteIfExists(new File(database.getPath() + "-journal").toPath());
+            }
+        }
+    }
+
+    private LoadTestReport runClients() throws InterruptedException {
+        final CountDownLatch ready = new CountDownLatch(mOptions.clients);
+        final CountDownLatch go = new CountDownLatch(1);
+        Thread[] clients = new Thread[mOptions.clients];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ready.countDown();
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    runSyncs();
+                }
+            }, "load-client-" + i);
+            clients[i].start();
+        }
+
+        ready.await();
+        long gcCountBefore = getGcCount();
+        long gcMillisBefore = getGcMillis();
+        mStartNanos = System.nanoTime();
+        go.countDown();
+        for (Thread client : clients) {
+            client.join();
+        }
+        long elapsedNanos = System.nanoTime() - mStartNanos;
+
+        Map<String, Long> failures = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> failure : mFailures.entrySet()) {
+            failures.put(failure.getKey(), failure.getValue().get());
+        }
+        int succeeded = mSucceeded.get();
+        return new LoadTestReport(mOptions.clients, succeeded, failures, mRows.get(),
+                mBytes.get(), elapsedNanos,
+                new Percentiles(mTotalNanos, succeeded),
+                new Percentiles(mFetchNanos, succeeded),
+                new Percentiles(mParseNanos, succeeded),
+                new Percentiles(mWriteNanos, succeeded),
+                getGcCount() - gcCountBefore,
+                getGcMillis() - gcMillisBefore,
+                isAllocationCounted() ? mAllocatedBytes.get() : LoadTestReport.UNKNOWN);
+    }
+
+    /* The loop of one client thread */
+    private void runSyncs() {
+        long allocatedBefore = getAllocatedBytes();
+        int ticket;
+        while ((ticket = mNextTicket.getAndIncrement()) < mOptions.syncs) {
+            long startNanos;
+            if (mOptions.rate > 0) {
+                startNanos = mStartNanos + mDueNanos[ticket];
+                long wait;
+                while ((wait = startNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                startNanos = System.nanoTime();
+            }
+            sync(mServer.getLocationName(mLocations[ticket]), startNanos);
+        }
+        mAllocatedBytes.addAndGet(getAllocatedBytes() - allocatedBefore);
+    }
+
+    private void sync(String location, long dueNanos) {
+        try {
+            long fetchStart = System.nanoTime();
+            String json = fetch(new URL(mBaseUrl + "?" + StandInForecastServer.QUERY_PARAM + "="
+                    + location + "&mode=json&units=metric&cnt=" + mOptions.days));
+            long parseStart = System.nanoTime();
+            Forecast forecast = mParser.parse(json, mNormalizedUtcStartDay);
+            long writeStart = System.nanoTime();
+            if (forecast == null) {
+                throw new IOException("The server had no forecast for " + location);
+            }
+            int rows = mStore.replace(location, forecast);
+            long end = System.nanoTime();
+
+            int sample = mSucceeded.getAndIncrement();
+            mTotalNanos[sample] = end - dueNanos;
+            mFetchNanos[sample] = parseStart - fetchStart;
+            mParseNanos[sample] = writeStart - parseStart;
+            mWriteNanos[sample] = end - writeStart;
+            mRows.addAndGet(rows);
+        } catch (Exception e) {
+            recordFailure(location, e);
+        }
+    }
+
+    private String fetch(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        int status = connection.getResponseCode();
+        boolean ok = status >= 200 && status < 300;
+        /* Read the body either way, so the connection can be kept alive and reused */
+        InputStream in = ok ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+        }
+        mBytes.addAndGet(body.size());
+        if (!ok) {
+            throw new HttpStatusException(status);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void recordFailure(String location, Exception e) {
+        String kind = e instanceof HttpStatusException
+                ? "HTTP " + ((HttpStatusException) e).getStatusCode()
+                : e.getClass().getSimpleName();
+        AtomicLong count = mFailures.get(kind);
+        if (count == null) {
+            AtomicLong created = new AtomicLong();
+            count = mFailures.putIfAbsent(kind, created);
+            if (count == null) count = created;
+        }
+        count.incrementAndGet();
+
+        if (mFailuresLogged.getAndIncrement() < FAILURES_LOGGED) {
+            mLog.println("Sync of " + location + " failed: " + e);
+        }
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long getGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private boolean isAllocationCounted() {
+        return mThreads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) mThreads).isThreadAllocatedMemoryEnabled();
+    }
+
+    /* Bytes the calling thread has allocated so far, on JVMs that count them */
+    private long getAllocatedBytes() {
+        if (!isAllocationCounted()) return 0;
+        return ((com.sun.management.ThreadMXBean) mThreads)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,165 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.alert.ForecastChangeSet;
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The forecasts synced by every virtual client of a load test, in the {@link WeatherSchema}
+ * station tables of one SQLite database. A forecast is stored the way a sync stores it in the
+ * app's WeatherProvider: the location's old forecast is deleted and the new one inserted, in one
+ * transaction, with SQLite's default durability.
+ * <p>
+ * Like the app's database, it has a single connection, so concurrent syncs queue for it. The time
+ * spent waiting is part of the time a sync takes to store its forecast.
+ * <p>
+ * A sync can also collect what it changed, for {@link
+ * com.codeking123.android.sunshine.core.alert.AlertEngine}: the old forecast is read, in the same
+ * transaction, before it is deleted.
+ */
+final class SyncStore implements Closeable {
+
+    private static final String SQL_INSERT_STATION =
+            "INSERT INTO " + WeatherSchema.TABLE_STATION + " (" +
+            WeatherSchema.COLUMN_STATION + ", " +
+            WeatherSchema.COLUMN_LATITUDE + ", " +
+            WeatherSchema.COLUMN_LONGITUDE + ") VALUES (?, ?, ?)";
+
+    private static final String SQL_DELETE_WEATHER =
+            "DELETE FROM " + WeatherSchema.TABLE_STATION_WEATHER +
+            " WHERE " + WeatherSchema.COLUMN_STATION + " = ?";
+
+    /* Served in date order by the station's unique (station, date) index */
+    private static final String SQL_SELECT_WEATHER =
+            "SELECT " +
+            WeatherSchema.COLUMN_DATE + ", " +
+            WeatherSchema.COLUMN_WEATHER_ID + ", " +
+            WeatherSchema.COLUMN_MIN_TEMP + ", " +
+            WeatherSchema.COLUMN_MAX_TEMP + ", " +
+            WeatherSchema.COLUMN_HUMIDITY + ", " +
+            WeatherSchema.COLUMN_PRESSURE + ", " +
+            WeatherSchema.COLUMN_WIND_SPEED + ", " +
+            WeatherSchema.COLUMN_DEGREES +
+            " FROM " + WeatherSchema.TABLE_STATION_WEATHER +
+            " WHERE " + WeatherSchema.COLUMN_STATION + " = ?" +
+            " ORDER BY " + WeatherSchema.COLUMN_DATE;
+
+    private static final String SQL_INSERT_WEATHER =
+            "INSERT INTO " + WeatherSchema.TABLE_STATION_WEATHER + " (" +
+            WeatherSchema.COLUMN_STATION + ", " +
+            WeatherSchema.COLUMN_DATE + ", " +
+            WeatherSchema.COLUMN_WEATHER_ID + ", " +
+            WeatherSchema.COLUMN_MIN_TEMP + ", " +
+            WeatherSchema.COLUMN_MAX_TEMP + ", " +
+            WeatherSchema.COLUMN_HUMIDITY + ", " +
+            WeatherSchema.COLUMN_PRESSURE + ", " +
+            WeatherSchema.COLUMN_WIND_SPEED + ", " +
+            WeatherSchema.COLUMN_DEGREES + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final Connection mConnection;
+    private final PreparedStatement mInsertStation;
+    private final PreparedStatement mSelectWeather;
+    private final PreparedStatement mDeleteWeather;
+    private final PreparedStatement mInsertWeather;
+
+    SyncStore(File database) throws SQLException {
+        mConnection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+        try (Statement statement = mConnection.createStatement()) {
+            statement.execute(WeatherSchema.SQL_CREATE_STATION_TABLE);
+            statement.execute(WeatherSchema.SQL_CREATE_STATION_WEATHER_TABLE);
+        }
+        mConnection.setAutoCommit(false);
+        mInsertStation = mConnection.prepareStatement(SQL_INSERT_STATION);
+        mSelectWeather = mConnection.prepareStatement(SQL_SELECT_WEATHER);
+        mDeleteWeather = mConnection.prepareStatement(SQL_DELETE_WEATHER);
+        mInsertWeather = mConnection.prepareStatement(SQL_INSERT_WEATHER);
+    }
+
+    /**
+     * Replaces the stored forecast of a location.
+     *
+     * @return The number of days stored
+     */
+    int replace(String station, Forecast forecast) throws SQLException {
+        return replace(station, forecast, null);
+    }
+
+    /**
+     * Replaces the stored forecast of a location, adding the days that changed to a change set.
+     *
+     * @param changes Where to add the changes, or null not to read the old forecast
+     * @return The number of days stored
+     */
+    synchronized int replace(String station, Forecast forecast, ForecastChangeSet changes)
+            throws SQLException {
+        try {
+            WeatherRecord[] previous = changes != null ? select(station) : null;
+
+            mInsertStation.setString(1, station);
+            mInsertStation.setDouble(2, forecast.cityLatitude);
+            mInsertStation.setDouble(3, forecast.cityLongitude);
+            mInsertStation.executeUpdate();
+
+            mDeleteWeather.setString(1, station);
+            mDeleteWeather.executeUpdate();
+
+            for (WeatherRecord record : forecast.records) {
+                mInsertWeather.setString(1, station);
+                mInsertWeather.setLong(2, record.date);
+                mInsertWeather.setInt(3, record.weatherId);
+                mInsertWeather.setDouble(4, record.minTemp);
+                mInsertWeather.setDouble(5, record.maxTemp);
+                mInsertWeather.setDouble(6, record.humidity);
+                mInsertWeather.setDouble(7, record.pressure);
+                mInsertWeather.setDouble(8, record.windSpeed);
+                mInsertWeather.setDouble(9, record.degrees);
+                mInsertWeather.addBatch();
+            }
+            mInsertWeather.executeBatch();
+            mConnection.commit();
+
+            if (changes != null) {
+                changes.add(station, previous, forecast.records);
+            }
+            return forecast.records.length;
+        } catch (SQLException e) {
+            mInsertWeather.clearBatch();
+            mConnection.rollback();
+            throw e;
+        }
+    }
+
+    private WeatherRecord[] select(String station) throws SQLException {
+        mSelectWeather.setString(1, station);
+        List<WeatherRecord> records = new ArrayList<>();
+        try (ResultSet rows = mSelectWeather.executeQuery()) {
+            while (rows.next()) {
+                records.add(new WeatherRecord(rows.getLong(1), rows.getInt(2),
+                        rows.getDouble(3), rows.getDouble(4), rows.getDouble(5),
+                        rows.getDouble(6), rows.getDouble(7), rows.getDouble(8)));
+            }
+        }
+        return records.toArray(new WeatherRecord[records.size()]);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            mConnection.close();
+        } catch (SQLException e) {
+            /* Nothing more we can do with the file */
+        }
+    }
+}
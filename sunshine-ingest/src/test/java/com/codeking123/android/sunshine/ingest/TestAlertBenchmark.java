@@ -0,0 +1,82 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.alert.ForecastChange;
+import com.codeking123.android.sunshine.core.alert.ForecastChangeSet;
+import com.codeking123.android.sunshine.core.date.SunshineDates;
+import com.codeking123.android.sunshine.core.model.Forecast;
+import com.codeking123.android.sunshine.core.model.WeatherRecord;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestAlertBenchmark {
+
+    private static final long DAY = SunshineDates.DAY_IN_MILLIS;
+    private static final long TODAY = 17000 * DAY;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private static Forecast forecast(double... mins) {
+        WeatherRecord[] days = new WeatherRecord[mins.length];
+        for (int i = 0; i < mins.length; i++) {
+            days[i] = new WeatherRecord(TODAY + i * DAY, 800, mins[i], 20, 80, 1010, 10, 270);
+        }
+        return new Forecast(51.5, -0.1, days);
+    }
+
+
+    @Test
+    public void testStoreCollectsTheDaysThatChanged() throws Exception {
+        try (SyncStore store = new SyncStore(mTemporaryFolder.newFile("alerts.db"))) {
+            ForecastChangeSet first = new ForecastChangeSet();
+            assertEquals(3, store.replace("london", forecast(1, 2, 3), first));
+            assertEquals(3, first.size());
+
+            ForecastChangeSet second = new ForecastChangeSet();
+            store.replace("london", forecast(1, -2, 3), second);
+            store.replace("paris", forecast(5), second);
+            assertEquals(2, second.size());
+            assertEquals(2, second.getUnchangedCount());
+
+            ForecastChange changed = second.iterator().next();
+            assertEquals(TODAY + DAY, changed.date);
+            assertEquals(2, changed.previous.minTemp, 0);
+            assertEquals(-2, changed.current.minTemp, 0);
+            for (ForecastChange change : second) {
+                if (change.location.equals("paris")) {
+                    assertNull(change.previous);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testBenchmarkComparesIncrementalAndFullEvaluation() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AlertBenchmark.run(mTemporaryFolder.newFile("benchmark.db"), 10, 80, 5, 1,
+                new PrintStream(out, true));
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(out.toString(), 4, lines.length);
+        assertTrue(lines[0], lines[0].startsWith(
+                "80 rules, 10 locations of 14 days: the first sync changed 140 days, " +
+                        "11200 evaluations, "));
+        assertTrue(lines[1], lines[1].contains("store and diff"));
+        assertTrue(lines[1], lines[1].endsWith(" days changed"));
+        assertTrue(lines[2], lines[2].contains("evaluate changes"));
+        /* Every rule against every day of every location */
+        assertTrue(lines[3], lines[3].contains("evaluate every day"));
+        assertTrue(lines[3], lines[3].contains(" 11200.0 evaluations"));
+    }
+}
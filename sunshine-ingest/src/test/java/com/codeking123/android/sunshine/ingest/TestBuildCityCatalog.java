@@ -0,0 +1,98 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.geo.City;
+import com.codeking123.android.sunshine.core.geo.CityCatalog;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class TestBuildCityCatalog {
+
+    /* Lines of cities15000.txt, trimmed of their alternate names */
+    private static final String GEONAMES =
+            "2643743\tLondon\tLondon\t\t51.50853\t-0.12574\tP\tPPLC\tGB\t\tENG\tGLA\t\t\t" +
+            "8961989\t\t25\tEurope/London\t2023-09-18\n" +
+            "6058560\tLondon\tLondon\t\t42.98339\t-81.23304\tP\tPPL\tCA\t\t08\t\t\t\t" +
+            "346765\t\t252\tAmerica/Toronto\t2019-08-18\n" +
+            "2996944\tLyon\tLyon\t\t45.74846\t4.84671\tP\tPPLA\tFR\t\t84\t69\t693\t69123\t" +
+            "472317\t\t173\tEurope/Paris\t2023-06-09\n" +
+            "3038789\tAbbeville\tAbbeville\t\t50.1\t1.83333\tP\tPPLA3\tFR\t\t32\t80\t801\t" +
+            "80001\t9000\t\t18\tEurope/Paris\t2024-01-01\n";
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File writeDump(String dump) throws IOException {
+        File file = mTemporaryFolder.newFile();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8)) {
+            writer.write(dump);
+        }
+        return file;
+    }
+
+
+    @Test
+    public void testWritesTheLargerCitiesOfADump() throws Exception {
+        List<City> cities = BuildCityCatalog.readGeoNames(writeDump(GEONAMES), 15000);
+        assertEquals(3, cities.size());
+        assertEquals("London, CA", cities.get(0).getLabel());
+        assertEquals("London, GB", cities.get(1).getLabel());
+        assertEquals("Lyon, FR", cities.get(2).getLabel());
+
+        File catalogue = mTemporaryFolder.newFile("cities.tsv");
+        BuildCityCatalog.write(cities, catalogue);
+        CityCatalog catalog;
+        try (Reader reader = new InputStreamReader(new FileInputStream(catalogue),
+                StandardCharsets.UTF_8)) {
+            catalog = CityCatalog.read(reader);
+        }
+        assertEquals(3, catalog.size());
+        City london = catalog.resolve("London");
+        assertEquals("GB", london.country);
+        assertEquals(51.5085, london.latitude, 1e-4);
+        assertEquals(8961989, london.population);
+
+        try {
+            BuildCityCatalog.readGeoNames(writeDump("2643743\tLondon\n"), 15000);
+            fail("A line of two columns should have been rejected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains(":1 "));
+        }
+    }
+
+
+    @Test
+    public void testBenchmarkReportsMemoryAndLatency() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<City> cities = CityCatalogBenchmark.randomCities(new Random(1), 2000);
+        CityCatalogBenchmark.run("2000 cities", cities, 100, 1, new PrintStream(out, true));
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(out.toString(), 3, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("2000 cities: built in "));
+        assertTrue(lines[1], lines[1].contains("suggest"));
+        /* Every label typed in full is found again */
+        assertTrue(lines[2], lines[2].endsWith(" 1.00 found"));
+    }
+}
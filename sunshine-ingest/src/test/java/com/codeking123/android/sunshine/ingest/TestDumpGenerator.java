@@ -0,0 +1,72 @@
+package com.codeking123.android.sunshine.ingest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+
+public class TestDumpGenerator {
+
+    /* October 1st, 2016 at midnight, GMT time */
+    private static final long DATE_NORMALIZED = 1475280000000L;
+
+    private static final int LOCATIONS = 12;
+    private static final int DAYS = 30;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+
+    @Test
+    public void testGeneratedDumpsAreIngested() throws Exception {
+        File dumps = new File(mTemporaryFolder.getRoot(), "dumps");
+        long rows = new DumpGenerator(
+                new GenerateOptions(dumps, 7, LOCATIONS, DAYS, DATE_NORMALIZED)).run();
+        assertEquals(LOCATIONS * DAYS, rows);
+
+        File[] files = dumps.listFiles();
+        assertNotNull(files);
+        assertEquals(LOCATIONS, files.length);
+
+        File database = new File(mTemporaryFolder.getRoot(), "stations.db");
+        IngestOptions options =
+                new IngestOptions(dumps, database, 2, 100, DATE_NORMALIZED, false);
+        IngestReport report = new ForecastIngester(options,
+                new PrintStream(new ByteArrayOutputStream())).run();
+
+        assertEquals(LOCATIONS, report.filesIngested);
+        assertEquals(0, report.filesFailed);
+        assertEquals(LOCATIONS * DAYS, report.rows);
+    }
+
+
+    @Test
+    public void testSameSeedWritesSameFiles() throws Exception {
+        File first = new File(mTemporaryFolder.getRoot(), "first");
+        File second = new File(mTemporaryFolder.getRoot(), "second");
+        new DumpGenerator(new GenerateOptions(first, 7, 3, DAYS, DATE_NORMALIZED)).run();
+        new DumpGenerator(new GenerateOptions(second, 7, 3, DAYS, DATE_NORMALIZED)).run();
+
+        String[] names = first.list();
+        Arrays.sort(names);
+        String[] otherNames = second.list();
+        Arrays.sort(otherNames);
+        assertArrayEquals(names, otherNames);
+
+        for (String name : names) {
+            assertArrayEquals(name,
+                    Files.readAllBytes(new File(first, name).toPath()),
+                    Files.readAllBytes(new File(second, name).toPath()));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestForecastIngester {
+
+    /* October 1st, 2016 at midnight, GMT time */
+    private static final long DATE_NORMALIZED = 1475280000000L;
+
+    private static final int STATIONS = 25;
+    private static final int DAYS_PER_FORECAST = 14;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private static String readResource(String name) {
+        InputStream in = TestForecastIngester.class.getResourceAsStream("/" + name);
+        assertNotNull("Missing test resource " + name, in);
+        Scanner scanner = new Scanner(in, "UTF-8").useDelimiter("\\A");
+        String content = scanner.next();
+        scanner.close();
+        return content;
+    }
+
+    private File createDumps() throws IOException {
+        File dumps = mTemporaryFolder.newFolder("dumps");
+        byte[] forecast = readResource("forecast_14_days.json").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < STATIONS; i++) {
+            Files.write(new File(dumps, "station-" + i + ".json").toPath(), forecast);
+        }
+        /* What the server answers for a location it doesn't know */
+        Files.write(new File(dumps, "unknown.json").toPath(),
+                "{\"cod\":\"404\",\"message\":\"city not found\"}".getBytes(StandardCharsets.UTF_8));
+        /* A truncated download */
+        Files.write(new File(dumps, "truncated.json").toPath(),
+                "{\"city\":{\"id\":".getBytes(StandardCharsets.UTF_8));
+        /* Not a dump at all, must not be read */
+        Files.write(new File(dumps, "README.txt").toPath(),
+                "notes".getBytes(StandardCharsets.UTF_8));
+        return dumps;
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            assertTrue(sql, result.next());
+            return result.getLong(1);
+        }
+    }
+
+
+    @Test
+    public void testIngestsEveryDumpInSmallBatches() throws Exception {
+        File dumps = createDumps();
+        File database = new File(mTemporaryFolder.getRoot(), "stations.db");
+
+        /* A batch size smaller than a forecast forces many transactions */
+        IngestOptions options = new IngestOptions(dumps, database, 4, 10, DATE_NORMALIZED, false);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        IngestReport report = new ForecastIngester(options, new PrintStream(log, true)).run();
+
+        assertEquals(STATIONS, report.filesIngested);
+        assertEquals(1, report.filesSkipped);
+        assertEquals(1, report.filesFailed);
+        assertEquals(STATIONS * DAYS_PER_FORECAST, report.rows);
+        assertTrue("The failure should be logged", log.toString().contains("truncated"));
+
+        try (Connection connection =
+                     DriverManager.getConnection("jdbc:sqlite:" + database.getPath())) {
+            assertEquals(STATIONS, queryLong(connection,
+                    "SELECT COUNT(*) FROM " + WeatherSchema.TABLE_STATION));
+            assertEquals(STATIONS * DAYS_PER_FORECAST, queryLong(connection,
+                    "SELECT COUNT(*) FROM " + WeatherSchema.TABLE_STATION_WEATHER));
+            assertEquals(DAYS_PER_FORECAST, queryLong(connection,
+                    "SELECT COUNT(*) FROM " + WeatherSchema.TABLE_STATION_WEATHER
+                            + " WHERE " + WeatherSchema.COLUMN_STATION + " = 'station-7'"));
+            assertEquals(DATE_NORMALIZED, queryLong(connection,
+                    "SELECT MIN(" + WeatherSchema.COLUMN_DATE + ") FROM "
+                            + WeatherSchema.TABLE_STATION_WEATHER));
+            assertEquals(WeatherSchema.DATABASE_VERSION,
+                    queryLong(connection, "PRAGMA user_version"));
+            assertEquals(1, queryLong(connection, "SELECT COUNT(*) FROM android_metadata"));
+        }
+    }
+
+
+    @Test
+    public void testOverwriteReplacesDatabase() throws Exception {
+        File dumps = createDumps();
+        File database = new File(mTemporaryFolder.getRoot(), "stations.db");
+        PrintStream log = new PrintStream(new ByteArrayOutputStream());
+
+        new ForecastIngester(
+                new IngestOptions(dumps, database, 2, 1000, DATE_NORMALIZED, false), log).run();
+        IngestReport report = new ForecastIngester(
+                new IngestOptions(dumps, database, 2, 1000, DATE_NORMALIZED, true), log).run();
+
+        assertEquals(STATIONS * DAYS_PER_FORECAST, report.rows);
+        try (Connection connection =
+                     DriverManager.getConnection("jdbc:sqlite:" + database.getPath())) {
+            assertEquals(STATIONS * DAYS_PER_FORECAST, queryLong(connection,
+                    "SELECT COUNT(*) FROM " + WeatherSchema.TABLE_STATION_WEATHER));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.codeking123.android.sunshine.ingest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class TestIngestOptions {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private void assertRejected(String... args) {
+        try {
+            IngestOptions.parse(args);
+            fail("Arguments should have been rejected");
+        } catch (IllegalArgumentException expected) {
+            assertFalse(expected.getMessage().isEmpty());
+        }
+    }
+
+
+    @Test
+    public void testParsesOptions() throws Exception {
+        String dumps = mTemporaryFolder.newFolder("dumps").getPath();
+        String database = new File(mTemporaryFolder.getRoot(), "out.db").getPath();
+
+        IngestOptions options = IngestOptions.parse(new String[]{
+                "--threads", "3", dumps, "--batch-size", "1000", database,
+                "--start-date", "2016-10-01"});
+
+        assertEquals(3, options.threads);
+        assertEquals(1000, options.batchSize);
+        /* October 1st, 2016 at midnight, GMT time */
+        assertEquals(1475280000000L, options.normalizedUtcStartDay);
+        assertEquals(database, options.database.getPath());
+        assertFalse(options.overwrite);
+    }
+
+
+    @Test
+    public void testRejectsInvalidArguments() throws Exception {
+        String dumps = mTemporaryFolder.newFolder("dumps").getPath();
+        String existing = mTemporaryFolder.newFile("existing.db").getPath();
+        String database = new File(mTemporaryFolder.getRoot(), "out.db").getPath();
+
+        assertRejected(dumps);
+        assertRejected(dumps, database, "--threads", "0");
+        assertRejected(dumps, database, "--batch-size");
+        assertRejected(dumps, database, "--start-date", "2016-13-01");
+        assertRejected(dumps, database, "--verbose");
+        assertRejected(database, dumps);
+        assertRejected(dumps, existing);
+
+        assertTrue(IngestOptions.parse(new String[]{dumps, existing, "--overwrite"}).overwrite);
+    }
+}
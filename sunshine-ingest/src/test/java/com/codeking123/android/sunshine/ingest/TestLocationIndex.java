@@ -0,0 +1,98 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+import com.codeking123.android.sunshine.core.geo.SpatialSearch;
+import com.codeking123.android.sunshine.core.geo.SpatialSearch.Neighbor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestLocationIndex {
+
+    private static final int PRECISION = WeatherSchema.LOCATION_GEOHASH_PRECISION;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private LocationIndex createIndex(int count) throws Exception {
+        LocationIndex index = new LocationIndex(mTemporaryFolder.newFile("locations.db"));
+        Random random = new Random(3);
+        for (int i = 0; i < count; i++) {
+            index.insert("Location " + i, Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)),
+                    -180 + 360 * random.nextDouble());
+        }
+        index.commit();
+        index.createIndex();
+        return index;
+    }
+
+    private static void assertSameNeighbors(List<Neighbor> expected, List<Neighbor> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).id, actual.get(i).id);
+        }
+    }
+
+
+    @Test
+    public void testFindsWhatReadingEveryLocationFinds() throws Exception {
+        try (LocationIndex index = createIndex(5000)) {
+            SpatialSearch.PointSource everything = index.withoutIndex();
+            Random random = new Random(5);
+            for (int i = 0; i < 50; i++) {
+                double latitude = -90 + 180 * random.nextDouble();
+                double longitude = -180 + 360 * random.nextDouble();
+                assertSameNeighbors(
+                        SpatialSearch.withinRadius(everything, latitude, longitude, 500000,
+                                PRECISION),
+                        SpatialSearch.withinRadius(index, latitude, longitude, 500000,
+                                PRECISION));
+                assertSameNeighbors(
+                        SpatialSearch.nearest(everything, latitude, longitude, 10,
+                                SpatialSearch.MAX_DISTANCE_METERS, PRECISION),
+                        SpatialSearch.nearest(index, latitude, longitude, 10,
+                                SpatialSearch.MAX_DISTANCE_METERS, PRECISION));
+            }
+        }
+    }
+
+
+    @Test
+    public void testScansRangesThroughTheCoveringIndex() throws Exception {
+        try (LocationIndex index = createIndex(1000)) {
+            String[] ranges = SpatialSearch.cover(52.37, 4.90, 50000, PRECISION);
+            String plan = index.explain(ranges);
+            assertTrue(plan, plan.contains("COVERING INDEX location_geohash"));
+            assertTrue(plan, !plan.contains("SCAN TABLE"));
+
+            long before = index.getPointsRead();
+            SpatialSearch.withinRadius(index, 52.37, 4.90, 50000, PRECISION);
+            assertTrue(index.getPointsRead() - before < 20);
+        }
+    }
+
+
+    @Test
+    public void testBenchmarkReportsEveryKindOfSearch() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        File database = new File(mTemporaryFolder.getRoot(), "benchmark.db");
+        SpatialBenchmark.run(database, 2000, 20, 1, new PrintStream(out, true));
+
+        String report = out.toString();
+        assertTrue(report, report.startsWith("2000 locations: "));
+        assertTrue(report, report.contains("within 50 km"));
+        assertTrue(report, report.contains("nearest 10, no index"));
+        assertEquals(report, 5, report.split("\n").length);
+    }
+}
@@ -0,0 +1,127 @@
+package com.codeking123.android.sunshine.ingest;
+
+import com.codeking123.android.sunshine.core.db.WeatherSchema;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class TestSyncLoadTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream mLog = new ByteArrayOutputStream();
+
+    private LoadTestReport run(String... args) throws Exception {
+        return new SyncLoadTest(LoadTestOptions.parse(args), new PrintStream(mLog, true)).run();
+    }
+
+    private static long queryLong(Statement statement, String sql) throws Exception {
+        try (ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+
+    @Test
+    public void testParsesOptions() throws Exception {
+        LoadTestOptions defaults = LoadTestOptions.parse(new String[0]);
+        assertEquals(LoadTestOptions.DEFAULT_CLIENTS, defaults.clients);
+        assertEquals(0, defaults.rate, 0);
+        assertEquals(null, defaults.database);
+
+        String database = new File(mTemporaryFolder.getRoot(), "load.db").getPath();
+        LoadTestOptions options = LoadTestOptions.parse(new String[]{
+                "--clients", "4", "--rate", "12.5", database, "--server-delay", "3"});
+        assertEquals(4, options.clients);
+        assertEquals(12.5, options.rate, 0);
+        assertEquals(3, options.serverDelayMillis);
+        assertEquals(database, options.database.getPath());
+
+        String[][] rejected = {
+                {"--clients", "0"}, {"--rate", "-1"}, {"--rate", "fast"}, {"--seed"},
+                {"--verbose"}, {database, database},
+                {mTemporaryFolder.newFile("existing.db").getPath()}};
+        for (String[] args : rejected) {
+            try {
+                LoadTestOptions.parse(args);
+                fail("Arguments should have been rejected");
+            } catch (IllegalArgumentException expected) {
+                assertTrue(!expected.getMessage().isEmpty());
+            }
+        }
+    }
+
+
+    @Test
+    public void testClosedLoopSyncsEveryForecast() throws Exception {
+        File database = new File(mTemporaryFolder.getRoot(), "load.db");
+        LoadTestReport report = run("--clients", "8", "--syncs", "200", "--locations", "20",
+                "--days", "7", database.getPath());
+
+        assertEquals(mLog.toString(), 200, report.succeeded);
+        assertEquals(0, report.failed);
+        assertEquals(200 * 7, report.rows);
+        assertEquals(200, report.totalNanos.getCount());
+        assertTrue(report.totalNanos.get(50) >= report.fetchNanos.get(50));
+        assertTrue(report.syncsPerSecond() > 0);
+
+        /* Every sync replaced its location's forecast rather than adding to it */
+        try (Connection connection =
+                     DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+             Statement statement = connection.createStatement()) {
+            assertEquals(20, queryLong(statement,
+                    "SELECT COUNT(*) FROM " + WeatherSchema.TABLE_STATION));
+            assertEquals(20 * 7, queryLong(statement,
+                    "SELECT COUNT(*) FROM " + WeatherSchema.TABLE_STATION_WEATHER));
+        }
+    }
+
+
+    @Test
+    public void testOpenLoopKeepsToTheRate() throws Exception {
+        LoadTestReport report = run("--clients", "4", "--syncs", "50", "--rate", "250",
+                "--locations", "5");
+
+        assertEquals(mLog.toString(), 50, report.succeeded);
+        /* 50 arrivals at 250 a second take 200ms on average; allow for a lucky draw */
+        assertTrue(report.elapsedNanos > TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+
+    @Test
+    public void testServerAnswersUnknownLocationsNotFound() throws Exception {
+        try (StandInForecastServer server = new StandInForecastServer(1, 2, 3, 0, 1, 0)) {
+            URL url = new URL("http://127.0.0.1:" + server.getPort()
+                    + StandInForecastServer.PATH + "?q=nowhere");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(HttpURLConnection.HTTP_NOT_FOUND, connection.getResponseCode());
+            connection.disconnect();
+
+            url = new URL("http://127.0.0.1:" + server.getPort() + StandInForecastServer.PATH
+                    + "?q=" + server.getLocationName(1));
+            connection = (HttpURLConnection) url.openConnection();
+            assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+            connection.disconnect();
+            assertEquals(2, server.getRequestCount());
+        }
+    }
+}